@@ -114,6 +114,8 @@ import org.openstreetmap.josm.tools.PlatformHookOsx;
 import org.openstreetmap.josm.tools.PlatformHookUnixoid;
 import org.openstreetmap.josm.tools.PlatformHookWindows;
 import org.openstreetmap.josm.tools.Shortcut;
+import org.openstreetmap.josm.tools.TaskGraph;
+import org.openstreetmap.josm.tools.TimingReport;
 import org.openstreetmap.josm.tools.Utils;
 import org.openstreetmap.josm.tools.WindowGeometry;
 
@@ -169,6 +171,12 @@ public abstract class Main {
      */
     public static final ExecutorService worker = new ProgressMonitorExecutor();
 
+    /**
+     * The time spent by the startup tasks. The report is written to {@code startup-timing.json}
+     * in the cache directory when the startup is done.
+     */
+    public static final TimingReport startupTiming = new TimingReport();
+
     /**
      * Global application preferences
      */
@@ -547,35 +555,35 @@ public abstract class Main {
         main = this;
         isOpenjdk = System.getProperty("java.vm.name").toUpperCase(Locale.ENGLISH).indexOf("OPENJDK") != -1;
 
-        new InitializationTask(tr("Executing platform startup hook")) {
+        undoRedo.addCommandQueueListener(redoUndoListener);
+
+        // the initialization tasks are run in parallel, each one as soon as the tasks it depends on are done
+        TaskGraph tasks = new TaskGraph(startupTiming);
+
+        tasks.add("platform-hook", new InitializationTask(tr("Executing platform startup hook")) {
             @Override
             public void initialize() {
                 platform.startupHook();
             }
-        }.call();
+        });
 
-        new InitializationTask(tr("Building main menu")) {
+        tasks.add("main-menu", new InitializationTask(tr("Building main menu")) {
 
             @Override
             public void initialize() {
                 contentPanePrivate.add(panel, BorderLayout.CENTER);
                 panel.add(gettingStarted, BorderLayout.CENTER);
                 menu = new MainMenu();
-            }
-        }.call();
-
-        undoRedo.addCommandQueueListener(redoUndoListener);
-
-        // creating toolbar
-        contentPanePrivate.add(toolbar.control, BorderLayout.NORTH);
 
-        registerActionShortcut(menu.help, Shortcut.registerShortcut("system:help", tr("Help"),
-                KeyEvent.VK_F1, Shortcut.DIRECT));
+                // creating toolbar
+                contentPanePrivate.add(toolbar.control, BorderLayout.NORTH);
 
-        // contains several initialization tasks to be executed (in parallel) by a ExecutorService
-        List<Callable<Void>> tasks = new ArrayList<>();
+                registerActionShortcut(menu.help, Shortcut.registerShortcut("system:help", tr("Help"),
+                        KeyEvent.VK_F1, Shortcut.DIRECT));
+            }
+        }, "platform-hook");
 
-        tasks.add(new InitializationTask(tr("Initializing OSM API")) {
+        tasks.add("osm-api", new InitializationTask(tr("Initializing OSM API")) {
 
             @Override
             public void initialize() {
@@ -590,7 +598,7 @@ public abstract class Main {
             }
         });
 
-        tasks.add(new InitializationTask(tr("Initializing validator")) {
+        tasks.add("validator", new InitializationTask(tr("Initializing validator")) {
 
             @Override
             public void initialize() {
@@ -599,37 +607,54 @@ public abstract class Main {
             }
         });
 
-        tasks.add(new InitializationTask(tr("Initializing presets")) {
+        tasks.add("presets", new InitializationTask(tr("Initializing presets")) {
 
             @Override
             public void initialize() {
-                TaggingPresets.initialize();
+                TaggingPresets.readFromPreferences();
             }
         });
 
-        tasks.add(new InitializationTask(tr("Initializing map styles")) {
+        tasks.add("presets-menu", new InitializationTask(tr("Adding presets to main menu")) {
+
+            @Override
+            public void initialize() {
+                TaggingPresets.initializeMenu();
+            }
+        }, "main-menu", "presets");
+
+        tasks.add("map-styles", new InitializationTask(tr("Initializing map styles")) {
 
             @Override
             public void initialize() {
                 MapPaintPreference.initialize();
             }
-        });
+        }, "main-menu");
 
-        tasks.add(new InitializationTask(tr("Loading imagery preferences")) {
+        tasks.add("imagery", new InitializationTask(tr("Loading imagery preferences")) {
 
             @Override
             public void initialize() {
-                ImageryPreference.initialize();
+                ImageryPreference.readFromPreferences();
             }
         });
 
-        try {
-            for (Future<Void> i : Executors.newFixedThreadPool(
-                    Runtime.getRuntime().availableProcessors()).invokeAll(tasks)) {
-                i.get();
+        tasks.add("imagery-menu", new InitializationTask(tr("Updating imagery menu")) {
+
+            @Override
+            public void initialize() {
+                ImageryPreference.initializeMenu();
             }
+        }, "main-menu", "imagery");
+
+        ExecutorService executor = Executors.newFixedThreadPool(
+                pref.getInteger("startup.numberOfThreads", Runtime.getRuntime().availableProcessors()));
+        try {
+            tasks.run(executor);
         } catch (Exception ex) {
             throw new RuntimeException(ex);
+        } finally {
+            executor.shutdown();
         }
 
         // hooks for the jmapviewer component
@@ -677,6 +702,7 @@ public abstract class Main {
             }
         });
 
+        TimingReport.Timer timer = startupTiming.start("user-interface");
         new InitializationTask(tr("Updating user interface")) {
 
             @Override
@@ -686,6 +712,7 @@ public abstract class Main {
                 contentPanePrivate.updateUI();
             }
         }.call();
+        timer.done();
     }
 
     private abstract class InitializationTask implements Callable<Void> {
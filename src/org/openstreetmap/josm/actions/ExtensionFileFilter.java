@@ -55,6 +55,7 @@ public class ExtensionFileFilter extends FileFilter implements java.io.FileFilte
                 "org.openstreetmap.josm.io.NMEAImporter",
                 "org.openstreetmap.josm.io.NoteImporter",
                 "org.openstreetmap.josm.io.OsmBzip2Importer",
+                "org.openstreetmap.josm.io.PbfImporter",
                 "org.openstreetmap.josm.io.JpgImporter",
                 "org.openstreetmap.josm.io.WMSLayerImporter",
                 "org.openstreetmap.josm.io.AllFormatsImporter",
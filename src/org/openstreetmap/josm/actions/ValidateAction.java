@@ -15,6 +15,7 @@ import org.openstreetmap.josm.data.osm.OsmPrimitive;
 import org.openstreetmap.josm.data.validation.OsmValidator;
 import org.openstreetmap.josm.data.validation.Test;
 import org.openstreetmap.josm.data.validation.TestError;
+import org.openstreetmap.josm.data.validation.ValidationRunner;
 import org.openstreetmap.josm.data.validation.util.AggregatePrimitivesVisitor;
 import org.openstreetmap.josm.gui.PleaseWaitRunnable;
 import org.openstreetmap.josm.gui.preferences.validator.ValidatorPreference;
@@ -159,18 +160,12 @@ public class ValidateAction extends JosmAction {
                 return;
             errors = new ArrayList<>(200);
             getProgressMonitor().setTicksCount(tests.size() * validatedPrimitives.size());
-            int testCounter = 0;
             for (Test test : tests) {
-                if (canceled)
-                    return;
-                testCounter++;
-                getProgressMonitor().setCustomText(tr("Test {0}/{1}: Starting {2}", testCounter, tests.size(), test.getName()));
                 test.setPartialSelection(formerValidatedPrimitives != null);
-                test.startTest(getProgressMonitor().createSubTaskMonitor(validatedPrimitives.size(), false));
-                test.visit(validatedPrimitives);
-                test.endTest();
-                errors.addAll(test.getErrors());
             }
+            errors.addAll(new ValidationRunner().run(tests, validatedPrimitives, getProgressMonitor()));
+            if (canceled)
+                return;
             tests = null;
             if (Main.pref.getBoolean(ValidatorPreference.PREF_USE_IGNORE, true)) {
                 getProgressMonitor().subTask(tr("Updating ignored errors ..."));
@@ -42,6 +42,7 @@ import org.openstreetmap.josm.actions.search.SearchCompiler.ParseError;
 import org.openstreetmap.josm.data.osm.DataSet;
 import org.openstreetmap.josm.data.osm.Filter;
 import org.openstreetmap.josm.data.osm.OsmPrimitive;
+import org.openstreetmap.josm.data.osm.TagIndex;
 import org.openstreetmap.josm.gui.ExtendedDialog;
 import org.openstreetmap.josm.gui.preferences.ToolbarPreferences;
 import org.openstreetmap.josm.gui.preferences.ToolbarPreferences.ActionParser;
@@ -462,11 +463,20 @@ public class SearchAction extends JosmAction implements ParameterizedAction {
                 foundMatches = sel.size();
             }
 
+            DataSet ds = Main.main.getCurrentDataSet();
+            Collection<OsmPrimitive> candidates = null;
+            if (s.mode != SearchMode.in_selection) {
+                // only the primitives which may match have to be tested
+                TagIndex index = ds.getTagIndex();
+                candidates = index != null ? matcher.getCandidates(index) : null;
+            }
             Collection<OsmPrimitive> all;
-            if (s.allElements) {
-                all = Main.main.getCurrentDataSet().allPrimitives();
+            if (candidates != null) {
+                all = Utils.filter(candidates, s.allElements ? OsmPrimitive.allPredicate : OsmPrimitive.nonDeletedCompletePredicate);
+            } else if (s.allElements) {
+                all = ds.allPrimitives();
             } else {
-                all = Main.main.getCurrentDataSet().allNonDeletedCompletePrimitives();
+                all = ds.allNonDeletedCompletePrimitives();
             }
 
             for (OsmPrimitive osm : all) {
@@ -513,7 +523,18 @@ public class SearchAction extends JosmAction implements ParameterizedAction {
             }
             SearchCompiler.Match matcher = SearchCompiler.compile(searchText, s.caseSensitive, s.regexSearch);
 
+            DataSet ds = Main.main.getCurrentDataSet();
+            TagIndex index = ds != null ? ds.getTagIndex() : null;
+            Collection<OsmPrimitive> candidates = null;
+            if ((s.mode == SearchMode.add || s.mode == SearchMode.remove) && index != null) {
+                // the property is changed only for primitives which may match
+                candidates = matcher.getCandidates(index);
+            }
+
             for (OsmPrimitive osm : all) {
+                if (candidates != null && !candidates.contains(osm)) {
+                    continue;
+                }
                 if (s.mode == SearchMode.replace) {
                     if (matcher.match(osm)) {
                         p.set(osm, Boolean.TRUE);
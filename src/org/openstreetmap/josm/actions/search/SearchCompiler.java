@@ -10,8 +10,10 @@ import java.text.Normalizer;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Locale;
 import java.util.Map;
+import java.util.Set;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.regex.PatternSyntaxException;
@@ -26,9 +28,11 @@ import org.openstreetmap.josm.data.osm.OsmPrimitiveType;
 import org.openstreetmap.josm.data.osm.OsmUtils;
 import org.openstreetmap.josm.data.osm.Relation;
 import org.openstreetmap.josm.data.osm.RelationMember;
+import org.openstreetmap.josm.data.osm.TagIndex;
 import org.openstreetmap.josm.data.osm.Way;
 import org.openstreetmap.josm.tools.Geometry;
 import org.openstreetmap.josm.tools.Predicate;
+import org.openstreetmap.josm.tools.Predicates;
 import org.openstreetmap.josm.tools.Utils;
 import org.openstreetmap.josm.tools.date.DateUtils;
 
@@ -224,6 +228,16 @@ public class SearchCompiler {
 
         public abstract boolean match(OsmPrimitive osm);
 
+        /**
+         * Returns the primitives which may match, looked up in the tag index of a data set.
+         * The result is a superset of the matching primitives, {@link #match} still has to be called for each of them.
+         * @param index the tag index
+         * @return a new set of candidates, or {@code null} if every primitive has to be tested
+         */
+        public Set<OsmPrimitive> getCandidates(TagIndex index) {
+            return null;
+        }
+
         /**
          * Tests whether one of the primitives matches.
          */
@@ -316,6 +330,11 @@ public class SearchCompiler {
         public boolean match(OsmPrimitive osm) {
             return false;
         }
+
+        @Override
+        public Set<OsmPrimitive> getCandidates(TagIndex index) {
+            return new HashSet<>();
+        }
     }
 
     /**
@@ -361,6 +380,20 @@ public class SearchCompiler {
             else
                 return ret;
         }
+
+        @Override
+        public Set<OsmPrimitive> getCandidates(TagIndex index) {
+            if (defaultValue)
+                return null;
+            Set<OsmPrimitive> result = new HashSet<>();
+            index.addPrimitives(key, new Predicate<String>() {
+                @Override
+                public boolean evaluate(String v) {
+                    return Boolean.TRUE.equals(OsmUtils.getOsmBoolean(v));
+                }
+            }, result);
+            return result;
+        }
     }
 
     /**
@@ -376,6 +409,22 @@ public class SearchCompiler {
             return lhs.match(osm) && rhs.match(osm);
         }
 
+        @Override
+        public Set<OsmPrimitive> getCandidates(TagIndex index) {
+            Set<OsmPrimitive> left = lhs.getCandidates(index);
+            Set<OsmPrimitive> right = rhs.getCandidates(index);
+            if (left == null)
+                return right;
+            if (right == null)
+                return left;
+            if (left.size() > right.size()) {
+                right.retainAll(left);
+                return right;
+            }
+            left.retainAll(right);
+            return left;
+        }
+
         @Override
         public String toString() {
             return lhs + " && " + rhs;
@@ -395,6 +444,16 @@ public class SearchCompiler {
             return lhs.match(osm) || rhs.match(osm);
         }
 
+        @Override
+        public Set<OsmPrimitive> getCandidates(TagIndex index) {
+            Set<OsmPrimitive> left = lhs.getCandidates(index);
+            Set<OsmPrimitive> right = left == null ? null : rhs.getCandidates(index);
+            if (right == null)
+                return null;
+            left.addAll(right);
+            return left;
+        }
+
         @Override
         public String toString() {
             return lhs + " || " + rhs;
@@ -414,6 +473,16 @@ public class SearchCompiler {
             return lhs.match(osm) ^ rhs.match(osm);
         }
 
+        @Override
+        public Set<OsmPrimitive> getCandidates(TagIndex index) {
+            Set<OsmPrimitive> left = lhs.getCandidates(index);
+            Set<OsmPrimitive> right = left == null ? null : rhs.getCandidates(index);
+            if (right == null)
+                return null;
+            left.addAll(right);
+            return left;
+        }
+
         @Override
         public String toString() {
             return lhs + " ^ " + rhs;
@@ -579,20 +648,42 @@ public class SearchCompiler {
                     }
                 }
 
-                if (mv == null)
-                    return false;
-
-                String v1 = caseSensitive ? mv : mv.toLowerCase(Locale.ENGLISH);
-                String v2 = caseSensitive ? value : value.toLowerCase(Locale.ENGLISH);
-
-                v1 = Normalizer.normalize(v1, Normalizer.Form.NFC);
-                v2 = Normalizer.normalize(v2, Normalizer.Form.NFC);
-                return v1.indexOf(v2) != -1;
+                return mv != null && matchValue(mv);
             }
 
             return false;
         }
 
+        private boolean matchValue(String mv) {
+            String v1 = caseSensitive ? mv : mv.toLowerCase(Locale.ENGLISH);
+            String v2 = caseSensitive ? value : value.toLowerCase(Locale.ENGLISH);
+
+            v1 = Normalizer.normalize(v1, Normalizer.Form.NFC);
+            v2 = Normalizer.normalize(v2, Normalizer.Form.NFC);
+            return v1.indexOf(v2) != -1;
+        }
+
+        @Override
+        public Set<OsmPrimitive> getCandidates(TagIndex index) {
+            if (keyPattern == null && "timestamp".equals(key))
+                return null;
+            Set<OsmPrimitive> result = new HashSet<>();
+            Predicate<String> values = new Predicate<String>() {
+                @Override
+                public boolean evaluate(String v) {
+                    return keyPattern != null ? valuePattern.matcher(v).find() : matchValue(v);
+                }
+            };
+            for (String k : index.getKeys()) {
+                boolean matchedKey = keyPattern != null ? keyPattern.matcher(k).find()
+                        : key.equals(k) || (!caseSensitive && key.equalsIgnoreCase(k));
+                if (matchedKey) {
+                    index.addPrimitives(k, values, result);
+                }
+            }
+            return result;
+        }
+
         @Override
         public String toString() {
             return key + "=" + value;
@@ -751,6 +842,40 @@ public class SearchCompiler {
             throw new AssertionError("Missed state");
         }
 
+        @Override
+        public Set<OsmPrimitive> getCandidates(TagIndex index) {
+            Set<OsmPrimitive> result = new HashSet<>();
+            switch (mode) {
+            case NONE:
+            case MISSING_KEY:
+            case ANY:
+            case MISSING_KEY_REGEXP:
+                return null;
+            case ANY_VALUE:
+                return index.get(key);
+            case EXACT:
+                return index.get(key, value);
+            case ANY_KEY:
+                for (String k : index.getKeys()) {
+                    index.addPrimitives(k, Predicates.equalTo(value), result);
+                }
+                return result;
+            default:
+                Predicate<String> values = new Predicate<String>() {
+                    @Override
+                    public boolean evaluate(String v) {
+                        return mode == Mode.ANY_VALUE_REGEXP || valuePattern.matcher(v).matches();
+                    }
+                };
+                for (String k : index.getKeys()) {
+                    if (keyPattern == null || keyPattern.matcher(k).matches()) {
+                        index.addPrimitives(k, values, result);
+                    }
+                }
+                return result;
+            }
+        }
+
         @Override
         public String toString() {
             return key + '=' + value;
@@ -19,6 +19,7 @@ import org.openstreetmap.josm.data.validation.OsmValidator;
 import org.openstreetmap.josm.data.validation.Severity;
 import org.openstreetmap.josm.data.validation.Test;
 import org.openstreetmap.josm.data.validation.TestError;
+import org.openstreetmap.josm.data.validation.ValidationRunner;
 import org.openstreetmap.josm.data.validation.util.AggregatePrimitivesVisitor;
 import org.openstreetmap.josm.gui.ExtendedDialog;
 import org.openstreetmap.josm.gui.dialogs.validator.ValidatorTreePanel;
@@ -57,18 +58,12 @@ public class ValidateUploadHook implements UploadHook {
         for (Test test : tests) {
             test.setBeforeUpload(true);
             test.setPartialSelection(true);
-            test.startTest(null);
-            test.visit(selection);
-            test.endTest();
-            if (ValidatorPreference.PREF_OTHER.get() &&
-                Main.pref.getBoolean(ValidatorPreference.PREF_OTHER_UPLOAD, false)) {
-                errors.addAll(test.getErrors());
-            } else {
-                for (TestError e : test.getErrors()) {
-                    if (e.getSeverity() != Severity.OTHER) {
-                        errors.add(e);
-                    }
-                }
+        }
+        boolean includeOther = ValidatorPreference.PREF_OTHER.get() &&
+                Main.pref.getBoolean(ValidatorPreference.PREF_OTHER_UPLOAD, false);
+        for (TestError e : new ValidationRunner().run(tests, selection, null)) {
+            if (includeOther || e.getSeverity() != Severity.OTHER) {
+                errors.add(e);
             }
         }
         tests = null;
@@ -152,6 +152,15 @@ public class AddPrimitivesCommand extends Command {
         return null;
     }
 
+    @Override
+    public long getMemoryFootprint() {
+        long result = super.getMemoryFootprint() + 8L * data.size();
+        for (PrimitiveData d : data) {
+            result += estimateMemoryFootprint(d);
+        }
+        return result;
+    }
+
     @Override
     public void fillModifiedData(Collection<OsmPrimitive> modified, Collection<OsmPrimitive> deleted,
             Collection<OsmPrimitive> added) {
@@ -72,6 +72,11 @@ public class ChangeCommand extends Command {
         modified.add(osm);
     }
 
+    @Override
+    public long getMemoryFootprint() {
+        return super.getMemoryFootprint() + estimateMemoryFootprint(newOsm);
+    }
+
     @Override
     public String getDescriptionText() {
         String msg = "";
@@ -5,7 +5,9 @@ import java.awt.GridBagLayout;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 
@@ -15,11 +17,16 @@ import javax.swing.JPanel;
 import org.openstreetmap.josm.Main;
 import org.openstreetmap.josm.data.coor.EastNorth;
 import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.data.osm.AbstractPrimitive;
+import org.openstreetmap.josm.data.osm.INode;
+import org.openstreetmap.josm.data.osm.IRelation;
 import org.openstreetmap.josm.data.osm.Node;
 import org.openstreetmap.josm.data.osm.OsmPrimitive;
+import org.openstreetmap.josm.data.osm.PackedPrimitiveData;
 import org.openstreetmap.josm.data.osm.PrimitiveData;
 import org.openstreetmap.josm.data.osm.Relation;
 import org.openstreetmap.josm.data.osm.Way;
+import org.openstreetmap.josm.data.osm.WayData;
 import org.openstreetmap.josm.data.osm.visitor.AbstractVisitor;
 import org.openstreetmap.josm.gui.ConditionalOptionPaneUtil;
 import org.openstreetmap.josm.gui.layer.Layer;
@@ -139,6 +146,10 @@ public abstract class Command extends PseudoCommand {
 
     /** the map of OsmPrimitives in the original state to OsmPrimitives in cloned state */
     private Map<OsmPrimitive, PrimitiveData> cloneMap = new HashMap<>();
+    /** the cloned state of the keys of {@link #cloneMap}, in iteration order, if the command has been compacted */
+    private PackedPrimitiveData packedClones;
+    /** the cached estimate of the retained memory, or -1 */
+    private long memoryFootprint = -1;
 
     /** the layer which this command is applied to */
     private final OsmDataLayer layer;
@@ -174,6 +185,8 @@ public abstract class Command extends PseudoCommand {
             osm.accept(visitor);
         }
         cloneMap = visitor.orig;
+        packedClones = null;
+        memoryFootprint = -1;
         return true;
     }
 
@@ -185,6 +198,7 @@ public abstract class Command extends PseudoCommand {
      * This implementation undoes all objects stored by a former call to executeCommand.
      */
     public void undoCommand() {
+        unpack();
         for (Entry<OsmPrimitive, PrimitiveData> e : cloneMap.entrySet()) {
             OsmPrimitive primitive = e.getKey();
             if (primitive.getDataSet() != null) {
@@ -214,9 +228,85 @@ public abstract class Command extends PseudoCommand {
      * @return The original version of the requested object, if any
      */
     public PrimitiveData getOrig(OsmPrimitive osm) {
+        unpack();
         return cloneMap.get(osm);
     }
 
+    /**
+     * Reduces the memory retained by the command for undoing it, at the cost of a slower undo.
+     * The original state of the modified objects is compressed, see {@link PackedPrimitiveData}.
+     * It is uncompressed when it is needed again.
+     * @return {@code true} if the command has been compacted, {@code false} if there was nothing to compact
+     */
+    public boolean compact() {
+        if (packedClones != null || cloneMap.isEmpty())
+            return false;
+        List<PrimitiveData> clones = new ArrayList<>(cloneMap.size());
+        Map<OsmPrimitive, PrimitiveData> keys = new LinkedHashMap<>();
+        for (Entry<OsmPrimitive, PrimitiveData> e : cloneMap.entrySet()) {
+            clones.add(e.getValue());
+            keys.put(e.getKey(), null);
+        }
+        packedClones = PackedPrimitiveData.pack(clones);
+        cloneMap = keys;
+        memoryFootprint = -1;
+        return true;
+    }
+
+    private void unpack() {
+        if (packedClones != null) {
+            Iterator<PrimitiveData> clones = packedClones.unpack().iterator();
+            for (Entry<OsmPrimitive, PrimitiveData> e : cloneMap.entrySet()) {
+                e.setValue(clones.next());
+            }
+            packedClones = null;
+            memoryFootprint = -1;
+        }
+    }
+
+    /**
+     * Returns an estimate of the memory retained by the command, in bytes, mainly the state of the modified objects
+     * before the command was executed. Tags and objects of the data set are not counted since they are shared.
+     * Subclasses which hold other data should add its size.
+     * @return the estimated memory retained by the command, in bytes
+     */
+    public long getMemoryFootprint() {
+        if (memoryFootprint < 0) {
+            long result = 64 + 48L * cloneMap.size();
+            if (packedClones != null) {
+                result += packedClones.getMemoryFootprint();
+            } else {
+                for (PrimitiveData data : cloneMap.values()) {
+                    result += estimateMemoryFootprint(data);
+                }
+            }
+            memoryFootprint = result;
+        }
+        return memoryFootprint;
+    }
+
+    /**
+     * Returns an estimate of the memory retained by a copy of an object, in bytes.
+     * @param osm the copy of the object, an {@link OsmPrimitive} or a {@link PrimitiveData}
+     * @return the estimated memory, in bytes
+     */
+    protected static long estimateMemoryFootprint(AbstractPrimitive osm) {
+        // object header and fields, plus the array of tags
+        long result = 64 + 16 + 16L * osm.getNumKeys();
+        if (osm instanceof INode) {
+            // LatLon, and EastNorth for nodes of the data set
+            result += 64;
+        } else if (osm instanceof WayData) {
+            // list of boxed ids
+            result += 40 + 24L * ((WayData) osm).getNodesCount();
+        } else if (osm instanceof Way) {
+            result += 16 + 8L * ((Way) osm).getNodesCount();
+        } else if (osm instanceof IRelation) {
+            result += 40 + 40L * ((IRelation) osm).getMembersCount();
+        }
+        return result;
+    }
+
     /**
      * Replies the layer this command is (or was) applied to.
      *
@@ -151,6 +151,15 @@ public class DeleteCommand extends Command {
         }
     }
 
+    @Override
+    public long getMemoryFootprint() {
+        long result = super.getMemoryFootprint() + 8L * toDelete.size() + 48L * clonedPrimitives.size();
+        for (PrimitiveData data : clonedPrimitives.values()) {
+            result += estimateMemoryFootprint(data);
+        }
+        return result;
+    }
+
     @Override
     public void fillModifiedData(Collection<OsmPrimitive> modified, Collection<OsmPrimitive> deleted,
             Collection<OsmPrimitive> added) {
@@ -214,6 +214,12 @@ public class MoveCommand extends Command {
         }
     }
 
+    @Override
+    public long getMemoryFootprint() {
+        // linked list entries, and the old state with its coordinates
+        return super.getMemoryFootprint() + 32L * nodes.size() + 120L * oldState.size();
+    }
+
     @Override
     public void fillModifiedData(Collection<OsmPrimitive> modified, Collection<OsmPrimitive> deleted, Collection<OsmPrimitive> added) {
         for (OsmPrimitive osm : nodes) {
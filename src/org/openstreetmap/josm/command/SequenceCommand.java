@@ -85,6 +85,24 @@ public class SequenceCommand extends Command {
         undoCommands(sequence.length-1);
     }
 
+    @Override
+    public boolean compact() {
+        boolean result = super.compact();
+        for (Command c : sequence) {
+            result |= c.compact();
+        }
+        return result;
+    }
+
+    @Override
+    public long getMemoryFootprint() {
+        long result = super.getMemoryFootprint() + 16 + 8L * sequence.length;
+        for (Command c : sequence) {
+            result += c.getMemoryFootprint();
+        }
+        return result;
+    }
+
     @Override public void fillModifiedData(Collection<OsmPrimitive> modified, Collection<OsmPrimitive> deleted, Collection<OsmPrimitive> added) {
         for (Command c : sequence) {
             c.fillModifiedData(modified, deleted, added);
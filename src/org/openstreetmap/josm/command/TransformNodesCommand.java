@@ -97,6 +97,12 @@ public abstract class TransformNodesCommand extends Command {
         }
     }
 
+    @Override
+    public long getMemoryFootprint() {
+        // linked list and hash map entries, and the old states with their coordinates
+        return super.getMemoryFootprint() + 32L * nodes.size() + 128L * oldStates.size();
+    }
+
     @Override
     public void fillModifiedData(Collection<OsmPrimitive> modified, Collection<OsmPrimitive> deleted, Collection<OsmPrimitive> added) {
     }
@@ -0,0 +1,349 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data;
+
+import static org.openstreetmap.josm.tools.I18n.tr;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.SequenceInputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.xml.namespace.QName;
+import javax.xml.stream.XMLEventFactory;
+import javax.xml.stream.XMLEventReader;
+import javax.xml.stream.XMLEventWriter;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.events.Attribute;
+import javax.xml.stream.events.StartElement;
+import javax.xml.stream.events.XMLEvent;
+
+import org.openstreetmap.josm.Main;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.OsmPrimitive;
+import org.openstreetmap.josm.data.osm.OsmPrimitiveComparator;
+import org.openstreetmap.josm.data.osm.event.AbstractDatasetChangedEvent;
+import org.openstreetmap.josm.data.osm.event.DataChangedEvent;
+import org.openstreetmap.josm.data.osm.event.DataSetListenerAdapter.Listener;
+import org.openstreetmap.josm.io.OsmWriter;
+import org.openstreetmap.josm.io.OsmWriterFactory;
+
+/**
+ * Append-only journal of the changes of a data layer since its last autosave snapshot.
+ * <p>
+ * Every autosave appends one block to the journal, an {@code <osm>} element with the current state of the
+ * primitives changed since the previous block. Primitives removed from the data set are recorded as
+ * {@code <remove type='...' id='...'/>} elements. The journal of a snapshot {@code name.osm} is {@code name.journal}.
+ * <p>
+ * When the journal becomes too large compared to the snapshot, or when the changes cannot be expressed as
+ * changed primitives (e.g. the id of a primitive changed after an upload), a new full snapshot is written and the
+ * journal starts over. A snapshot with its journal
+ * is turned back into a plain .osm file by {@link #replay(File)}.
+ */
+class AutosaveJournal implements Listener {
+
+    /** File extension of journals */
+    static final String EXTENSION = ".journal";
+
+    private static final QName ID = new QName("id");
+    private static final QName TYPE = new QName("type");
+    private static final QName ACTION = new QName("action");
+    private static final List<String> PRIMITIVE_ELEMENTS = Arrays.asList("node", "way", "relation");
+
+    /** primitives changed since the last block, by identity since their ids may change, guarded by {@code this} */
+    private final Set<OsmPrimitive> changed = Collections.newSetFromMap(new IdentityHashMap<OsmPrimitive, Boolean>());
+    /** if a full snapshot is needed, guarded by {@code this} */
+    private boolean snapshotNeeded = true;
+    private File snapshot;
+    private int dataSourceCount;
+
+    @Override
+    public synchronized void processDatasetEvent(AbstractDatasetChangedEvent event) {
+        if (!snapshotNeeded) {
+            record(event);
+        }
+    }
+
+    private void record(AbstractDatasetChangedEvent event) {
+        switch (event.getType()) {
+        case DATA_CHANGED:
+            List<AbstractDatasetChangedEvent> events = ((DataChangedEvent) event).getEvents();
+            if (events == null) {
+                // too many events to be recorded
+                requestSnapshot();
+                return;
+            }
+            for (AbstractDatasetChangedEvent e : events) {
+                record(e);
+                if (snapshotNeeded)
+                    return;
+            }
+            break;
+        case PRIMITIVES_REMOVED:
+            for (OsmPrimitive p : event.getPrimitives()) {
+                if (p.getDataSet() == event.getDataset() && !p.isDeleted() && !p.isIncomplete()) {
+                    // removed and added again, e.g. to be indexed with the id given by the server:
+                    // the old id is not known anymore, its element cannot be removed from the snapshot
+                    requestSnapshot();
+                    return;
+                }
+            }
+            changed.addAll(event.getPrimitives());
+            break;
+        default:
+            changed.addAll(event.getPrimitives());
+        }
+    }
+
+    private void requestSnapshot() {
+        snapshotNeeded = true;
+        changed.clear();
+    }
+
+    /**
+     * Determines if the next autosave has to write a full snapshot instead of appending to the journal.
+     * @param ds the data set of the layer
+     * @return {@code true} if a full snapshot is needed
+     */
+    synchronized boolean isSnapshotNeeded(DataSet ds) {
+        if (snapshotNeeded || snapshot == null || !snapshot.isFile() || ds.dataSources.size() != dataSourceCount
+                || !AutosaveTask.PROP_JOURNAL_ENABLED.get())
+            return true;
+        File journal = getJournalFile(snapshot);
+        return journal.length() > snapshot.length() * AutosaveTask.PROP_JOURNAL_COMPACT_PERCENT.get() / 100;
+    }
+
+    /**
+     * Starts a new journal for a full snapshot which is about to be written.
+     * The changes done after this call are recorded in the journal of the new snapshot.
+     * @param file the file of the new snapshot
+     * @param ds the data set of the layer
+     */
+    synchronized void startSnapshot(File file, DataSet ds) {
+        snapshot = file;
+        dataSourceCount = ds.dataSources.size();
+        snapshotNeeded = false;
+        changed.clear();
+        File journal = getJournalFile(file);
+        if (journal.exists() && !journal.delete()) {
+            Main.warn(tr("Unable to delete journal {0}", journal.getAbsolutePath()));
+        }
+    }
+
+    /**
+     * Appends the primitives changed since the last call to the journal of the current snapshot.
+     * If the journal cannot be written, a full snapshot is requested for the next autosave.
+     * @param ds the data set of the layer
+     * @return the number of recorded primitives
+     */
+    int append(DataSet ds) {
+        List<OsmPrimitive> primitives;
+        File journal;
+        synchronized (this) {
+            primitives = new ArrayList<>(changed);
+            changed.clear();
+            journal = getJournalFile(snapshot);
+        }
+        if (primitives.isEmpty())
+            return 0;
+        // nodes, then ways, then relations, like in the snapshot
+        Collections.sort(primitives, new OsmPrimitiveComparator(true, false));
+        ds.getReadLock().lock();
+
+        try (PrintWriter out = new PrintWriter(new OutputStreamWriter(
+                new BufferedOutputStream(new FileOutputStream(journal, true)), StandardCharsets.UTF_8))) {
+            OsmWriter writer = OsmWriterFactory.createOsmWriter(out, false, OsmWriter.DEFAULT_API_VERSION);
+            out.println("<osm version='" + OsmWriter.DEFAULT_API_VERSION + "' generator='JOSM'>");
+            for (OsmPrimitive osm : primitives) {
+                if (osm.getDataSet() != ds) {
+                    out.println("  <remove type='" + osm.getType().getAPIName() + "' id='" + osm.getUniqueId() + "'/>");
+                } else {
+                    osm.accept(writer);
+                }
+            }
+            out.println("</osm>");
+            out.flush();
+            if (out.checkError()) {
+                throw new IOException(tr("Unable to write journal {0}", journal.getAbsolutePath()));
+            }
+        } catch (IOException e) {
+            Main.error(e);
+            synchronized (this) {
+                snapshotNeeded = true;
+            }
+            return 0;
+        } finally {
+            ds.getReadLock().unlock();
+        }
+        return primitives.size();
+    }
+
+    /**
+     * Returns the journal of a snapshot.
+     * @param snapshot the snapshot file
+     * @return the journal file
+     */
+    static File getJournalFile(File snapshot) {
+        return new File(snapshot.getParentFile(), snapshot.getName().replaceFirst("[.][^.]+$", "") + EXTENSION);
+    }
+
+    /**
+     * Applies the journal of a snapshot to the snapshot, and deletes the journal.
+     * Nothing is done if the snapshot has no journal. A truncated last block, left by a crash while the journal
+     * was written, is ignored.
+     * @param snapshot the snapshot file
+     * @throws IOException if an I/O error occurs
+     * @throws XMLStreamException if the snapshot cannot be parsed
+     */
+    static void replay(File snapshot) throws IOException, XMLStreamException {
+        File journal = getJournalFile(snapshot);
+        if (!journal.isFile())
+            return;
+        Map<String, List<XMLEvent>> changes = readJournal(journal);
+        File tmp = new File(snapshot.getParentFile(), snapshot.getName() + ".tmp");
+        try (InputStream in = Files.newInputStream(snapshot.toPath());
+             OutputStream out = new BufferedOutputStream(new FileOutputStream(tmp))) {
+            XMLEventReader reader = XMLInputFactory.newInstance().createXMLEventReader(in, "UTF-8");
+            XMLEventWriter writer = XMLOutputFactory.newInstance().createXMLEventWriter(out, "UTF-8");
+            XMLEventFactory factory = XMLEventFactory.newInstance();
+            int depth = 0;
+            while (reader.hasNext()) {
+                XMLEvent event = reader.nextEvent();
+                if (event.isStartElement()) {
+                    String key = getKey(event.asStartElement());
+                    if (depth == 1 && key != null && changes.containsKey(key)) {
+                        skipElement(reader);
+                        List<XMLEvent> element = changes.remove(key);
+                        if (element != null) {
+                            writeAll(writer, element);
+                        }
+                        continue;
+                    }
+                    depth++;
+                } else if (event.isEndElement()) {
+                    depth--;
+                    if (depth == 0) {
+                        // the new primitives are added at the end of the document
+                        for (List<XMLEvent> element : changes.values()) {
+                            if (element != null) {
+                                writeAll(writer, element);
+                                writer.add(factory.createCharacters("\n"));
+                            }
+                        }
+                    }
+                }
+                writer.add(event);
+            }
+            writer.flush();
+            writer.close();
+            reader.close();
+        }
+        Files.move(tmp.toPath(), snapshot.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        if (!journal.delete()) {
+            Main.warn(tr("Unable to delete journal {0}", journal.getAbsolutePath()));
+        }
+    }
+
+    /**
+     * Reads the blocks of a journal.
+     * @param journal the journal file
+     * @return the last state of the primitives of the journal, by key, {@code null} for removed primitives
+     * @throws IOException if an I/O error occurs
+     */
+    private static Map<String, List<XMLEvent>> readJournal(File journal) throws IOException {
+        Map<String, List<XMLEvent>> result = new LinkedHashMap<>();
+        Map<String, List<XMLEvent>> block = new LinkedHashMap<>();
+        // the blocks are not a valid XML document on their own
+        try (InputStream in = new SequenceInputStream(Collections.enumeration(Arrays.asList(
+                new ByteArrayInputStream("<journal>".getBytes(StandardCharsets.UTF_8)),
+                Files.newInputStream(journal.toPath()),
+                new ByteArrayInputStream("</journal>".getBytes(StandardCharsets.UTF_8)))))) {
+            XMLEventReader reader = XMLInputFactory.newInstance().createXMLEventReader(in, "UTF-8");
+            while (reader.hasNext()) {
+                XMLEvent event = reader.nextEvent();
+                if (event.isStartElement()) {
+                    StartElement start = event.asStartElement();
+                    String name = start.getName().getLocalPart();
+                    if ("remove".equals(name)) {
+                        block.put(start.getAttributeByName(TYPE).getValue() + start.getAttributeByName(ID).getValue(), null);
+                        skipElement(reader);
+                    } else if (PRIMITIVE_ELEMENTS.contains(name)) {
+                        List<XMLEvent> element = readElement(start, reader);
+                        Attribute action = start.getAttributeByName(ACTION);
+                        boolean deletedNew = Long.parseLong(start.getAttributeByName(ID).getValue()) < 0
+                                && action != null && "delete".equals(action.getValue());
+                        // new primitives which have been deleted are not written in the snapshots
+                        block.put(getKey(start), deletedNew ? null : element);
+                    }
+                } else if (event.isEndElement() && "osm".equals(event.asEndElement().getName().getLocalPart())) {
+                    for (Map.Entry<String, List<XMLEvent>> e : block.entrySet()) {
+                        result.remove(e.getKey());
+                        result.put(e.getKey(), e.getValue());
+                    }
+                    block.clear();
+                }
+            }
+        } catch (XMLStreamException | RuntimeException e) {
+            Main.warn(tr("Ignoring the end of the journal {0}: {1}", journal.getAbsolutePath(), e.getMessage()));
+        }
+        return result;
+    }
+
+    private static String getKey(StartElement element) {
+        String name = element.getName().getLocalPart();
+        Attribute id = element.getAttributeByName(ID);
+        return PRIMITIVE_ELEMENTS.contains(name) && id != null ? name + id.getValue() : null;
+    }
+
+    private static List<XMLEvent> readElement(StartElement start, XMLEventReader reader) throws XMLStreamException {
+        List<XMLEvent> result = new ArrayList<>();
+        result.add(start);
+        int depth = 1;
+        while (depth > 0) {
+            XMLEvent event = reader.nextEvent();
+            if (event.isStartElement()) {
+                depth++;
+            } else if (event.isEndElement()) {
+                depth--;
+            }
+            result.add(event);
+        }
+        return result;
+    }
+
+    private static void skipElement(XMLEventReader reader) throws XMLStreamException {
+        int depth = 1;
+        while (depth > 0) {
+            XMLEvent event = reader.nextEvent();
+            if (event.isStartElement()) {
+                depth++;
+            } else if (event.isEndElement()) {
+                depth--;
+            }
+        }
+    }
+
+    private static void writeAll(XMLEventWriter writer, List<XMLEvent> events) throws XMLStreamException {
+        for (XMLEvent event : events) {
+            writer.add(event);
+        }
+    }
+}
@@ -23,6 +23,8 @@ import java.util.Timer;
 import java.util.TimerTask;
 import java.util.regex.Pattern;
 
+import javax.xml.stream.XMLStreamException;
+
 import org.openstreetmap.josm.Main;
 import org.openstreetmap.josm.actions.OpenFileAction.OpenFileTask;
 import org.openstreetmap.josm.data.osm.DataSet;
@@ -55,6 +57,10 @@ import org.openstreetmap.josm.io.OsmImporter;
  *      open with another versions of JOSM or fix the problem manually.
  *
  *      The deleted layers dir keeps at most PROP_DELETED_LAYERS files.
+ *
+ * A full copy of a data layer is only written from time to time. In between, the changed primitives are appended
+ * to a journal next to the copy, see {@link AutosaveJournal}, so that the cost of an autosave depends on the
+ * number of changes and not on the size of the layer. The journal is applied to the copy when it is recovered.
  */
 public class AutosaveTask extends TimerTask implements LayerChangeListener, Listener {
 
@@ -69,12 +75,18 @@ public class AutosaveTask extends TimerTask implements LayerChangeListener, List
     public static final IntegerProperty PROP_INDEX_LIMIT = new IntegerProperty("autosave.index-limit", 1000);
     /** Defines if a notification should be displayed after each autosave */
     public static final BooleanProperty PROP_NOTIFICATION = new BooleanProperty("autosave.notification", false);
+    /** Defines if the changes are appended to a journal instead of saving the whole layer each time */
+    public static final BooleanProperty PROP_JOURNAL_ENABLED = new BooleanProperty("autosave.journal", true);
+    /** Size of the journal, in percent of the size of the full copy of the layer, above which a new full copy is saved */
+    public static final IntegerProperty PROP_JOURNAL_COMPACT_PERCENT = new IntegerProperty("autosave.journal.compact-percent", 50);
 
     private static class AutosaveLayerInfo {
         private OsmDataLayer layer;
         private String layerName;
         private String layerFileName;
         private final Deque<File> backupFiles = new LinkedList<>();
+        private final AutosaveJournal journal = new AutosaveJournal();
+        private final DataSetListenerAdapter journalAdapter = new DataSetListenerAdapter(journal);
     }
 
     private final DataSetListenerAdapter datasetAdapter = new DataSetListenerAdapter(this);
@@ -185,10 +197,15 @@ public class AutosaveTask extends TimerTask implements LayerChangeListener, List
             info.layerName = info.layer.getName();
         }
         if (changedDatasets.remove(info.layer.data)) {
-            File file = getNewLayerFile(info);
-            if (file != null) {
-                info.backupFiles.add(file);
-                new OsmExporter().exportData(file, info.layer, true /* no backup with appended ~ */);
+            if (info.journal.isSnapshotNeeded(info.layer.data)) {
+                File file = getNewLayerFile(info);
+                if (file != null) {
+                    info.backupFiles.add(file);
+                    info.journal.startSnapshot(file, info.layer.data);
+                    new OsmExporter().exportData(file, info.layer, true /* no backup with appended ~ */);
+                }
+            } else {
+                info.journal.append(info.layer.data);
             }
         }
         while (info.backupFiles.size() > PROP_FILES_PER_LAYER.get()) {
@@ -200,6 +217,7 @@ public class AutosaveTask extends TimerTask implements LayerChangeListener, List
                 if (!pidFile.delete()) {
                     Main.warn(tr("Unable to delete old backup file {0}", pidFile.getAbsolutePath()));
                 }
+                deleteJournal(oldFile);
             }
         }
     }
@@ -244,6 +262,7 @@ public class AutosaveTask extends TimerTask implements LayerChangeListener, List
             layer.data.addDataSetListener(datasetAdapter);
             AutosaveLayerInfo info = new AutosaveLayerInfo();
             info.layer = layer;
+            layer.data.addDataSetListener(info.journalAdapter);
             layersInfo.add(info);
         }
     }
@@ -266,6 +285,7 @@ public class AutosaveTask extends TimerTask implements LayerChangeListener, List
                     AutosaveLayerInfo info = it.next();
                     if (info.layer == osmLayer) {
 
+                        osmLayer.data.removeDataSetListener(info.journalAdapter);
                         savelayer(info);
                         File lastFile = info.backupFiles.pollLast();
                         if (lastFile != null) {
@@ -274,6 +294,7 @@ public class AutosaveTask extends TimerTask implements LayerChangeListener, List
                         for (File file: info.backupFiles) {
                             if (file.delete()) {
                                 getPidFile(file).delete();
+                                deleteJournal(file);
                             }
                         }
 
@@ -289,6 +310,25 @@ public class AutosaveTask extends TimerTask implements LayerChangeListener, List
         changedDatasets.add(event.getDataset());
     }
 
+    private static void deleteJournal(File osmFile) {
+        File journal = AutosaveJournal.getJournalFile(osmFile);
+        if (journal.exists() && !journal.delete()) {
+            Main.warn(tr("Unable to delete old backup file {0}", journal.getAbsolutePath()));
+        }
+    }
+
+    /**
+     * Applies the journal of an autosaved file to the file, so that it contains the last autosaved state of the layer.
+     * @param osmFile the autosaved file
+     */
+    private static void replayJournal(File osmFile) {
+        try {
+            AutosaveJournal.replay(osmFile);
+        } catch (IOException | XMLStreamException e) {
+            Main.error(tr("Unable to apply the journal of the autosaved file {0}: {1}", osmFile.getAbsolutePath(), e.getMessage()));
+        }
+    }
+
     private File getPidFile(File osmFile) {
         return new File(autosaveDir, osmFile.getName().replaceFirst("[.][^.]+$", ".pid"));
     }
@@ -342,6 +382,9 @@ public class AutosaveTask extends TimerTask implements LayerChangeListener, List
 
     public void recoverUnsavedLayers() {
         List<File> files = getUnsavedLayersFiles();
+        for (File f: files) {
+            replayJournal(f);
+        }
         final OpenFileTask openFileTsk = new OpenFileTask(files, null, tr("Restoring files"));
         Main.worker.submit(openFileTsk);
         Main.worker.submit(new Runnable() {
@@ -359,10 +402,12 @@ public class AutosaveTask extends TimerTask implements LayerChangeListener, List
      * If moving does not work, it will try to delete the file directly.
      * Afterwards, if the number of deleted layers gets larger than PROP_DELETED_LAYERS,
      * some files in the deleted layers directory will be removed.
+     * The journal of the file, if any, is applied to the file before it is moved.
      *
      * @param f the file, usually from the autosave dir
      */
     private void moveToDeletedLayersFolder(File f) {
+        replayJournal(f);
         File backupFile = new File(deletedLayersDir, f.getName());
         File pidFile = getPidFile(f);
 
@@ -37,6 +37,7 @@ import java.util.Set;
 import java.util.SortedMap;
 import java.util.TreeMap;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -130,6 +131,16 @@ public class Preferences {
      */
     protected final SortedMap<String, Setting<?>> defaultsMap = new TreeMap<>();
 
+    /**
+     * Counter shared by all preferences, so that two instances never have the same modification count.
+     */
+    private static final AtomicInteger modificationCounter = new AtomicInteger();
+
+    /**
+     * Modification count of {@link #settingsMap}, changed whenever a setting changes.
+     */
+    private volatile int modificationCount = modificationCounter.incrementAndGet();
+
     /**
      * Maps color keys to human readable color name
      */
@@ -570,6 +581,23 @@ public class Preferences {
         listeners.remove(listener);
     }
 
+    /**
+     * Returns the modification count of the settings. It can be read without taking the lock of the preferences,
+     * and stays the same as long as no setting changes, so that a value parsed from the settings can be cached.
+     * The count of a new {@code Preferences} object differs from the counts of all other instances.
+     * @return the modification count of the settings
+     */
+    public int getModificationCount() {
+        return modificationCount;
+    }
+
+    /**
+     * Records a change of the settings. Must be called after each change of {@link #settingsMap}.
+     */
+    protected synchronized void settingsChanged() {
+        modificationCount = modificationCounter.incrementAndGet();
+    }
+
     protected void firePreferenceChanged(String key, Setting<?> oldValue, Setting<?> newValue) {
         PreferenceChangeEvent evt = new DefaultPreferenceChangeEvent(key, oldValue, newValue);
         for (PreferenceChangedListener l : listeners) {
@@ -883,6 +911,7 @@ public class Preferences {
      */
     public void load() throws IOException, SAXException, XMLStreamException {
         settingsMap.clear();
+        settingsChanged();
         File pref = getPreferenceFile();
         try (BufferedReader in = Files.newBufferedReader(pref.toPath(), StandardCharsets.UTF_8)) {
             validateXML(in);
@@ -977,6 +1006,7 @@ public class Preferences {
 
     public final void resetToDefault() {
         settingsMap.clear();
+        settingsChanged();
     }
 
     /**
@@ -1181,6 +1211,7 @@ public class Preferences {
                 settingCopy = setting.copy();
                 settingsMap.put(key, settingCopy);
             }
+            settingsChanged();
             if (saveOnPut) {
                 try {
                     save();
@@ -1559,6 +1590,7 @@ public class Preferences {
         XMLStreamReader parser = XMLInputFactory.newInstance().createXMLStreamReader(in);
         this.parser = parser;
         parse();
+        settingsChanged();
     }
 
     public void parse() throws XMLStreamException {
@@ -1843,6 +1875,7 @@ public class Preferences {
                 Main.info(tr("Preference setting {0} has been removed since it is no longer used.", key));
             }
         }
+        settingsChanged();
     }
 
     /**
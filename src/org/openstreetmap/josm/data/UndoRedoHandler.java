@@ -27,6 +27,9 @@ public class UndoRedoHandler implements MapView.LayerChangeListener {
 
     private final LinkedList<CommandQueueListener> listenerCommands = new LinkedList<>();
 
+    /** estimated memory retained by the commands of both stacks, or -1 if it has to be computed again */
+    private long memoryFootprint = -1;
+
     /**
      * Constructs a new {@code UndoRedoHandler}.
      */
@@ -41,14 +44,64 @@ public class UndoRedoHandler implements MapView.LayerChangeListener {
     public void addNoRedraw(final Command c) {
         CheckParameterUtil.ensureParameterNotNull(c, "c");
         c.executeCommand();
+        if (!redoCommands.isEmpty()) {
+            redoCommands.clear();
+            memoryFootprint = -1;
+        }
         commands.add(c);
+        if (memoryFootprint >= 0) {
+            memoryFootprint += c.getMemoryFootprint();
+        }
+        compactOldCommand();
         // Limit the number of commands in the undo list.
         // Currently you have to undo the commands one by one. If
         // this changes, a higher default value may be reasonable.
-        if (commands.size() > Main.pref.getInteger("undo.max", 1000)) {
-            commands.removeFirst();
+        int max = Main.pref.getInteger("undo.max", 1000);
+        long maxMemory = Main.pref.getInteger("undo.max-memory", 128) * 1024L * 1024L;
+        while (commands.size() > max || (commands.size() > 1 && getMemoryFootprint() > maxMemory)) {
+            Command removed = commands.removeFirst();
+            if (memoryFootprint >= 0) {
+                memoryFootprint -= removed.getMemoryFootprint();
+            }
         }
-        redoCommands.clear();
+    }
+
+    /**
+     * Compacts the command which has just become older than the {@code undo.uncompacted} most recent commands,
+     * so that the memory retained by old commands is reduced while the recent ones can be undone quickly.
+     */
+    private void compactOldCommand() {
+        int recent = Main.pref.getInteger("undo.uncompacted", 20);
+        if (commands.size() <= recent)
+            return;
+        Iterator<Command> it = commands.descendingIterator();
+        for (int i = 0; i < recent; i++) {
+            it.next();
+        }
+        Command old = it.next();
+        long before = old.getMemoryFootprint();
+        if (old.compact() && memoryFootprint >= 0) {
+            memoryFootprint += old.getMemoryFootprint() - before;
+        }
+    }
+
+    /**
+     * Returns an estimate of the memory retained by the undo and redo stacks.
+     * @return the estimated memory, in bytes
+     * @see Command#getMemoryFootprint()
+     */
+    public long getMemoryFootprint() {
+        if (memoryFootprint < 0) {
+            long result = 0;
+            for (Command c : commands) {
+                result += c.getMemoryFootprint();
+            }
+            for (Command c : redoCommands) {
+                result += c.getMemoryFootprint();
+            }
+            memoryFootprint = result;
+        }
+        return memoryFootprint;
     }
 
     public void afterAdd() {
@@ -98,6 +151,7 @@ public class UndoRedoHandler implements MapView.LayerChangeListener {
         } finally {
             Main.main.getCurrentDataSet().endUpdate();
         }
+        memoryFootprint = -1;
         fireCommandsChanged();
         Collection<? extends OsmPrimitive> newSelection = Main.main.getCurrentDataSet().getSelected();
         if (!oldSelection.equals(newSelection)) {
@@ -128,6 +182,7 @@ public class UndoRedoHandler implements MapView.LayerChangeListener {
                 break;
             }
         }
+        memoryFootprint = -1;
         fireCommandsChanged();
         Collection<? extends OsmPrimitive> newSelection = Main.main.getCurrentDataSet().getSelected();
         if (!oldSelection.equals(newSelection)) {
@@ -144,6 +199,7 @@ public class UndoRedoHandler implements MapView.LayerChangeListener {
     public void clean() {
         redoCommands.clear();
         commands.clear();
+        memoryFootprint = -1;
         fireCommandsChanged();
     }
 
@@ -164,6 +220,7 @@ public class UndoRedoHandler implements MapView.LayerChangeListener {
             }
         }
         if (changed) {
+            memoryFootprint = -1;
             fireCommandsChanged();
         }
     }
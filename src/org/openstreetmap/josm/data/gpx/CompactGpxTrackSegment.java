@@ -0,0 +1,546 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.gpx;
+
+import java.awt.Color;
+import java.util.AbstractList;
+import java.util.AbstractMap;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+import java.util.Set;
+
+import org.openstreetmap.josm.data.Bounds;
+import org.openstreetmap.josm.data.coor.EastNorth;
+import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.data.projection.Projections;
+
+/**
+ * A read-only gpx track segment storing its points in parallel arrays of primitive values.
+ * <p>
+ * Coordinates, times and elevations are stored as {@code double}s, the other attributes of a point only if it has some.
+ * Time and elevation strings are formatted again when they are requested, they are stored as strings only
+ * if their value cannot be restored exactly from the number. This takes a fraction of the memory needed by
+ * a {@link WayPoint} object with its attribute map for each point.
+ * <p>
+ * {@link #getWayPoints()} creates a new read-only {@code WayPoint} for each point when it is accessed. Code going through
+ * all points, like painting, should rather use the accessors by index, which create no {@code WayPoint}. The drawing state
+ * ({@link WayPoint#customColoring}, {@link WayPoint#drawLine} and {@link WayPoint#dir}) is stored in the segment by
+ * {@link #setDrawingState(int, Color, boolean, int)}. Projected coordinates are cached in the segment until
+ * {@link #invalidateEastNorthCache()} is called.
+ */
+public class CompactGpxTrackSegment implements GpxTrackSegment {
+
+    private static final byte HAS_TIME = 1;
+    private static final byte TIME_MILLIS = 2;
+    private static final byte HAS_ELE = 4;
+    private static final byte DRAW_LINE = 8;
+
+    private final int size;
+    private final double[] lat;
+    private final double[] lon;
+    private final double[] time;
+    /** elevations, {@code null} if no point has a numeric elevation */
+    private final double[] ele;
+    private final byte[] flags;
+    /** attributes other than time and elevation, {@code null} if no point has some */
+    private final Map<String, Object>[] attributes;
+    private final Bounds bounds;
+    private final double length;
+
+    // caches, computed when needed
+    private volatile double[] eastNorth;
+    private volatile Color[] colors;
+    private volatile byte[] dirs;
+
+    private CompactGpxTrackSegment(Builder builder) {
+        size = builder.size;
+        lat = Arrays.copyOf(builder.lat, size);
+        lon = Arrays.copyOf(builder.lon, size);
+        time = Arrays.copyOf(builder.time, size);
+        ele = builder.ele == null ? null : Arrays.copyOf(builder.ele, size);
+        flags = Arrays.copyOf(builder.flags, size);
+        attributes = builder.attributes == null ? null : Arrays.copyOf(builder.attributes, size);
+        bounds = calculateBounds();
+        length = calculateLength();
+    }
+
+    /**
+     * Constructs a new {@code CompactGpxTrackSegment} with the given points.
+     * @param wayPoints the points of the segment
+     */
+    public CompactGpxTrackSegment(Collection<WayPoint> wayPoints) {
+        this(new Builder(wayPoints.size()).addAll(wayPoints));
+    }
+
+    private Bounds calculateBounds() {
+        Bounds result = null;
+        for (int i = 0; i < size; i++) {
+            LatLon ll = new LatLon(lat[i], lon[i]);
+            if (result == null) {
+                result = new Bounds(ll);
+            } else {
+                result.extend(ll);
+            }
+        }
+        return result;
+    }
+
+    private double calculateLength() {
+        double result = 0.0; // in meters
+        for (int i = 1; i < size; i++) {
+            double d = new LatLon(lat[i - 1], lon[i - 1]).greatCircleDistance(new LatLon(lat[i], lon[i]));
+            if (!Double.isNaN(d) && !Double.isInfinite(d)) {
+                result += d;
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public Bounds getBounds() {
+        if (bounds == null)
+            return null;
+        else
+            return new Bounds(bounds);
+    }
+
+    /**
+     * Returns the points of this segment. A new {@link WayPoint} is created each time a point is accessed.
+     * Its attributes cannot be modified: {@link WayPoint#put(String, Object)} throws an {@link UnsupportedOperationException}.
+     * @return an unmodifiable list of the points of this segment
+     */
+    @Override
+    public List<WayPoint> getWayPoints() {
+        return new WayPointList();
+    }
+
+    /**
+     * Returns the segment whose points are listed by the given collection, if it is the result of
+     * {@link #getWayPoints()}, so that its points can be read by index without creating them.
+     * @param points the points of a segment
+     * @return the segment, or {@code null} if the points are not those of a {@code CompactGpxTrackSegment}
+     */
+    public static CompactGpxTrackSegment getSegment(Collection<WayPoint> points) {
+        return points instanceof WayPointList ? ((WayPointList) points).getSegment() : null;
+    }
+
+    @Override
+    public double length() {
+        return length;
+    }
+
+    @Override
+    public int getUpdateCount() {
+        return 0;
+    }
+
+    /**
+     * Returns the number of points of this segment.
+     * @return the number of points
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the coordinates of a point.
+     * @param index the index of the point
+     * @return the coordinates
+     */
+    public LatLon getCoor(int index) {
+        return new LatLon(lat[index], lon[index]);
+    }
+
+    /**
+     * Returns the time of a point, see {@link WayPoint#time}.
+     * @param index the index of the point
+     * @return the time, in seconds since the epoch
+     */
+    public double getTime(int index) {
+        return time[index];
+    }
+
+    /**
+     * Replies the projected east/north coordinates of a point, see {@link WayPoint#getEastNorth()}.
+     * @param index the index of the point
+     * @return the east/north coordinates
+     */
+    public EastNorth getEastNorth(int index) {
+        double[] en = eastNorth;
+        if (en == null) {
+            synchronized (this) {
+                if (eastNorth == null) {
+                    double[] cache = new double[2 * size];
+                    Arrays.fill(cache, Double.NaN);
+                    eastNorth = cache;
+                }
+                en = eastNorth;
+            }
+        }
+        if (Double.isNaN(en[2 * index]) || Double.isNaN(en[2 * index + 1])) {
+            EastNorth result = Projections.project(new LatLon(lat[index], lon[index]));
+            en[2 * index] = result.east();
+            en[2 * index + 1] = result.north();
+            return result;
+        }
+        return new EastNorth(en[2 * index], en[2 * index + 1]);
+    }
+
+    /**
+     * Invalidates the cache of projected coordinates, e.g. after a projection change.
+     */
+    public synchronized void invalidateEastNorthCache() {
+        eastNorth = null;
+    }
+
+    /**
+     * Copies the coordinates of all points to an array, as pairs of latitude and longitude.
+     * @param coordinates the array
+     * @param offset index of the latitude of the first point in the array
+     */
+    void getLatLon(double[] coordinates, int offset) {
+        for (int i = 0; i < size; i++) {
+            coordinates[offset + 2 * i] = lat[i];
+            coordinates[offset + 2 * i + 1] = lon[i];
+        }
+    }
+
+    /**
+     * Replaces the cache of projected coordinates of all points, after a batch projection.
+     * @param eastNorth pairs of east and north coordinates
+     * @param offset index of the east coordinate of the first point in the array
+     */
+    synchronized void setEastNorthCache(double[] eastNorth, int offset) {
+        this.eastNorth = Arrays.copyOfRange(eastNorth, offset, offset + 2 * size);
+    }
+
+    /**
+     * Stores the drawing state of a point, returned by the next points created by {@link #getWayPoints()}.
+     * @param index the index of the point
+     * @param color the color of the point, see {@link WayPoint#customColoring}
+     * @param drawLine whether a line is drawn from the previous point, see {@link WayPoint#drawLine}
+     * @param dir the direction of the line, see {@link WayPoint#dir}
+     */
+    public synchronized void setDrawingState(int index, Color color, boolean drawLine, int dir) {
+        if (colors == null) {
+            if (color == null && !drawLine && dir == 0)
+                return;
+            colors = new Color[size];
+            dirs = new byte[size];
+        }
+        colors[index] = color;
+        dirs[index] = (byte) dir;
+        if (drawLine) {
+            flags[index] |= DRAW_LINE;
+        } else {
+            flags[index] &= ~DRAW_LINE;
+        }
+    }
+
+    private WayPoint createWayPoint(int index) {
+        WayPoint wpt = new PointView(this, index);
+        wpt.time = time[index];
+        wpt.drawLine = (flags[index] & DRAW_LINE) != 0;
+        Color[] c = colors;
+        byte[] d = dirs;
+        if (c != null && d != null) {
+            wpt.customColoring = c[index];
+            wpt.dir = d[index];
+        }
+        return wpt;
+    }
+
+    /**
+     * Returns an attribute of a point, see {@link WayPoint#get(String)}.
+     * @param index the index of the point
+     * @param key the key of the attribute
+     * @return the value of the attribute, or {@code null}
+     */
+    public Object getAttribute(int index, String key) {
+        if (GpxConstants.PT_TIME.equals(key) && (flags[index] & HAS_TIME) != 0)
+            return formatTime(time[index], (flags[index] & TIME_MILLIS) != 0);
+        if (GpxConstants.PT_ELE.equals(key) && (flags[index] & HAS_ELE) != 0)
+            return formatElevation(ele[index]);
+        return attributes == null || attributes[index] == null ? null : attributes[index].get(key);
+    }
+
+    private Map<String, Object> getAttributes(int index) {
+        Map<String, Object> result = attributes == null || attributes[index] == null
+                ? new HashMap<String, Object>(4) : new HashMap<>(attributes[index]);
+        if ((flags[index] & HAS_TIME) != 0) {
+            result.put(GpxConstants.PT_TIME, formatTime(time[index], (flags[index] & TIME_MILLIS) != 0));
+        }
+        if ((flags[index] & HAS_ELE) != 0) {
+            result.put(GpxConstants.PT_ELE, formatElevation(ele[index]));
+        }
+        return result;
+    }
+
+    /**
+     * Formats a time as {@code yyyy-MM-dd'T'HH:mm:ss[.SSS]'Z'}, in UTC.
+     * @param time seconds since the epoch
+     * @param millis whether to include milliseconds
+     * @return the formatted time
+     */
+    static String formatTime(double time, boolean millis) {
+        long ms = Math.round(time * 1000);
+        long seconds = floorDiv(ms, 1000L);
+        long days = floorDiv(seconds, 86400L);
+        int secondOfDay = (int) (seconds - days * 86400L);
+        // civil date from days since 1970-01-01, see http://howardhinnant.github.io/date_algorithms.html
+        long z = days + 719468;
+        long era = floorDiv(z, 146097L);
+        long doe = z - era * 146097;
+        long yoe = (doe - doe / 1460 + doe / 36524 - doe / 146096) / 365;
+        long doy = doe - (365 * yoe + yoe / 4 - yoe / 100);
+        long mp = (5 * doy + 2) / 153;
+        int day = (int) (doy - (153 * mp + 2) / 5 + 1);
+        int month = (int) (mp < 10 ? mp + 3 : mp - 9);
+        long year = yoe + era * 400 + (month <= 2 ? 1 : 0);
+        if (year < 0 || year > 9999)
+            return null;
+        StringBuilder sb = new StringBuilder(24);
+        append(sb, (int) year, 4).append('-');
+        append(sb, month, 2).append('-');
+        append(sb, day, 2).append('T');
+        append(sb, secondOfDay / 3600, 2).append(':');
+        append(sb, secondOfDay / 60 % 60, 2).append(':');
+        append(sb, secondOfDay % 60, 2);
+        if (millis) {
+            append(sb.append('.'), (int) (ms - seconds * 1000), 3);
+        }
+        return sb.append('Z').toString();
+    }
+
+    private static long floorDiv(long x, long y) {
+        long q = x / y;
+        return (x % y != 0 && (x < 0) != (y < 0)) ? q - 1 : q;
+    }
+
+    private static StringBuilder append(StringBuilder sb, int value, int digits) {
+        String s = Integer.toString(value);
+        for (int i = s.length(); i < digits; i++) {
+            sb.append('0');
+        }
+        return sb.append(s);
+    }
+
+    /**
+     * Formats an elevation without a trailing {@code .0} for whole numbers.
+     * @param ele the elevation
+     * @return the formatted elevation
+     */
+    static String formatElevation(double ele) {
+        if (ele == Math.rint(ele) && Math.abs(ele) < 1e15)
+            return Long.toString((long) ele);
+        return Double.toString(ele);
+    }
+
+    private static double parseElevation(String ele) {
+        try {
+            return Double.parseDouble(ele);
+        } catch (NumberFormatException e) {
+            return Double.NaN;
+        }
+    }
+
+    /**
+     * Builds a {@link CompactGpxTrackSegment} point by point, without keeping the added {@link WayPoint}s.
+     */
+    public static class Builder {
+        private int size;
+        private double[] lat;
+        private double[] lon;
+        private double[] time;
+        private double[] ele;
+        private byte[] flags;
+        private Map<String, Object>[] attributes;
+
+        /**
+         * Constructs a new {@code Builder}.
+         */
+        public Builder() {
+            this(16);
+        }
+
+        /**
+         * Constructs a new {@code Builder} for the given number of points.
+         * @param capacity the expected number of points
+         */
+        public Builder(int capacity) {
+            capacity = Math.max(capacity, 1);
+            lat = new double[capacity];
+            lon = new double[capacity];
+            time = new double[capacity];
+            flags = new byte[capacity];
+        }
+
+        /**
+         * Returns the number of points added so far.
+         * @return the number of points
+         */
+        public int size() {
+            return size;
+        }
+
+        /**
+         * Adds the given points.
+         * @param wayPoints the points to add
+         * @return this builder
+         */
+        public Builder addAll(Collection<WayPoint> wayPoints) {
+            for (WayPoint wpt : wayPoints) {
+                add(wpt);
+            }
+            return this;
+        }
+
+        /**
+         * Adds a point. The point is copied and may be reused afterwards.
+         * @param wpt the point to add
+         * @return this builder
+         */
+        @SuppressWarnings("unchecked")
+        public Builder add(WayPoint wpt) {
+            if (size == lat.length) {
+                int capacity = size + (size >> 1) + 1;
+                lat = Arrays.copyOf(lat, capacity);
+                lon = Arrays.copyOf(lon, capacity);
+                time = Arrays.copyOf(time, capacity);
+                flags = Arrays.copyOf(flags, capacity);
+                if (ele != null) {
+                    ele = Arrays.copyOf(ele, capacity);
+                }
+                if (attributes != null) {
+                    attributes = Arrays.copyOf(attributes, capacity);
+                }
+            }
+            lat[size] = wpt.lat();
+            lon[size] = wpt.lon();
+            time[size] = wpt.time;
+            byte f = 0;
+            Map<String, Object> other = null;
+            for (Map.Entry<String, Object> e : wpt.attr.entrySet()) {
+                String key = e.getKey();
+                Object value = e.getValue();
+                if (GpxConstants.PT_TIME.equals(key) && value instanceof String && value.equals(formatTime(wpt.time, false))) {
+                    f |= HAS_TIME;
+                } else if (GpxConstants.PT_TIME.equals(key) && value instanceof String && value.equals(formatTime(wpt.time, true))) {
+                    f |= HAS_TIME | TIME_MILLIS;
+                } else if (GpxConstants.PT_ELE.equals(key) && value instanceof String
+                        && value.equals(formatElevation(parseElevation((String) value)))) {
+                    if (ele == null) {
+                        ele = new double[lat.length];
+                    }
+                    ele[size] = parseElevation((String) value);
+                    f |= HAS_ELE;
+                } else {
+                    if (other == null) {
+                        other = new HashMap<>(4);
+                    }
+                    other.put(key, value);
+                }
+            }
+            flags[size] = f;
+            if (other != null) {
+                if (attributes == null) {
+                    attributes = new Map[lat.length];
+                }
+                attributes[size] = other;
+            }
+            size++;
+            return this;
+        }
+
+        /**
+         * Builds the segment.
+         * @return a new segment with the points added so far
+         */
+        public CompactGpxTrackSegment build() {
+            return new CompactGpxTrackSegment(this);
+        }
+    }
+
+    private final class WayPointList extends AbstractList<WayPoint> implements RandomAccess {
+        CompactGpxTrackSegment getSegment() {
+            return CompactGpxTrackSegment.this;
+        }
+
+        @Override
+        public WayPoint get(int index) {
+            if (index < 0 || index >= size)
+                throw new IndexOutOfBoundsException(Integer.toString(index));
+            return createWayPoint(index);
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+
+    /**
+     * A point of a {@code CompactGpxTrackSegment}, with read-only attributes.
+     * Its projected coordinates are taken from the cache of the segment.
+     */
+    private static final class PointView extends WayPoint {
+        private final CompactGpxTrackSegment segment;
+
+        PointView(CompactGpxTrackSegment segment, int index) {
+            super(segment.lat[index], segment.lon[index]);
+            this.segment = segment;
+            this.attr = new PointAttributes(segment, index);
+            EastNorth en = segment.getEastNorth(index);
+            setEastNorthCache(en.east(), en.north());
+        }
+
+        @Override
+        public void invalidateEastNorthCache() {
+            super.invalidateEastNorthCache();
+            segment.invalidateEastNorthCache();
+        }
+    }
+
+    /**
+     * The read-only attributes of a point. Time and elevation are formatted only when they are requested,
+     * all attributes are copied into a new map when they are iterated.
+     */
+    private static final class PointAttributes extends AbstractMap<String, Object> {
+        private final CompactGpxTrackSegment segment;
+        private final int index;
+        private Map<String, Object> map;
+
+        PointAttributes(CompactGpxTrackSegment segment, int index) {
+            this.segment = segment;
+            this.index = index;
+        }
+
+        private Map<String, Object> getMap() {
+            if (map == null) {
+                map = Collections.unmodifiableMap(segment.getAttributes(index));
+            }
+            return map;
+        }
+
+        @Override
+        public Object get(Object key) {
+            if (map != null)
+                return map.get(key);
+            return key instanceof String ? segment.getAttribute(index, (String) key) : null;
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return map != null ? map.containsKey(key) : get(key) != null;
+        }
+
+        @Override
+        public Set<Map.Entry<String, Object>> entrySet() {
+            return getMap().entrySet();
+        }
+    }
+}
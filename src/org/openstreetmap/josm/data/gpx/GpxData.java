@@ -3,6 +3,7 @@ package org.openstreetmap.josm.data.gpx;
 
 import java.awt.geom.Area;
 import java.io.File;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Date;
 import java.util.HashSet;
@@ -17,6 +18,8 @@ import org.openstreetmap.josm.data.Bounds;
 import org.openstreetmap.josm.data.Data;
 import org.openstreetmap.josm.data.DataSource;
 import org.openstreetmap.josm.data.coor.EastNorth;
+import org.openstreetmap.josm.data.projection.Projection;
+import org.openstreetmap.josm.data.projection.Projections;
 import org.openstreetmap.josm.tools.Utils;
 
 /**
@@ -360,31 +363,66 @@ public class GpxData extends WithAttributes implements Data {
         };
     }
 
+    /**
+     * Projects the coordinates of all points again, e.g. after a projection change.
+     * All points are projected at once, in parallel (see {@link Projections#projectAll}),
+     * rather than one by one when they are painted.
+     */
     public void resetEastNorthCache() {
+        List<WayPoint> points = new ArrayList<>();
+        List<CompactGpxTrackSegment> compactSegments = new ArrayList<>();
+        int compactSize = 0;
         if (waypoints != null) {
-            for (WayPoint wp : waypoints) {
-                wp.invalidateEastNorthCache();
-            }
+            points.addAll(waypoints);
         }
         if (tracks != null) {
             for (GpxTrack track: tracks) {
                 for (GpxTrackSegment segment: track.getSegments()) {
-                    for (WayPoint wp: segment.getWayPoints()) {
-                        wp.invalidateEastNorthCache();
+                    if (segment instanceof CompactGpxTrackSegment) {
+                        compactSegments.add((CompactGpxTrackSegment) segment);
+                        compactSize += ((CompactGpxTrackSegment) segment).size();
+                    } else {
+                        points.addAll(segment.getWayPoints());
                     }
                 }
             }
         }
         if (routes != null) {
             for (GpxRoute route: routes) {
-                if (route.routePoints == null) {
-                    continue;
-                }
-                for (WayPoint wp: route.routePoints) {
-                    wp.invalidateEastNorthCache();
+                if (route.routePoints != null) {
+                    points.addAll(route.routePoints);
                 }
             }
         }
+        Projection projection = Main.getProjection();
+        if (projection == null) {
+            for (WayPoint wp : points) {
+                wp.invalidateEastNorthCache();
+            }
+            for (CompactGpxTrackSegment segment : compactSegments) {
+                segment.invalidateEastNorthCache();
+            }
+            return;
+        }
+        double[] coordinates = new double[2 * (points.size() + compactSize)];
+        for (int i = 0; i < points.size(); i++) {
+            coordinates[2 * i] = points.get(i).lat();
+            coordinates[2 * i + 1] = points.get(i).lon();
+        }
+        int offset = 2 * points.size();
+        for (CompactGpxTrackSegment segment : compactSegments) {
+            segment.getLatLon(coordinates, offset);
+            offset += 2 * segment.size();
+        }
+        Projections.projectAll(projection, coordinates);
+        for (int i = 0; i < points.size(); i++) {
+            points.get(i).setEastNorthCache(coordinates[2 * i], coordinates[2 * i + 1]);
+        }
+        offset = 2 * points.size();
+        for (CompactGpxTrackSegment segment : compactSegments) {
+            segment.setEastNorthCache(coordinates, offset);
+            offset += 2 * segment.size();
+        }
     }
 
     /**
@@ -0,0 +1,223 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.gpx;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.RandomAccess;
+
+import org.openstreetmap.josm.data.Bounds;
+
+/**
+ * A spatial index over the lines (track segments and routes) of GPX data, used to find the points to paint
+ * in a given area without looking at all points.
+ * <p>
+ * The lines are split into chunks of consecutive points. Each chunk has a bounding box, which includes the point
+ * before the chunk so that the line leading to the chunk is found as well. The chunks are grouped in a tree of
+ * bounding boxes, in the order of the lines: consecutive points of a track are usually close to each other,
+ * so no spatial sorting is needed, and the search returns the chunks in drawing order.
+ * <p>
+ * The index does not follow changes of the data, it has to be built again when the data changes.
+ */
+public class GpxLineIndex {
+
+    /** The number of points of a chunk */
+    public static final int CHUNK_SIZE = 64;
+    /** The number of children of a tree node */
+    public static final int NODE_CAPACITY = 16;
+
+    /** the lines, with random access to their points */
+    private final List<List<WayPoint>> lines = new ArrayList<>();
+    /** the number of points before each line, in iteration order */
+    private final List<Integer> lineOffsets = new ArrayList<>();
+    /** for each chunk, the line and the index of its first point in the line */
+    private int[] chunkLines;
+    private int[] chunkStarts;
+    private int chunkCount;
+    /** bounding boxes of the tree nodes for each level, starting with the chunks, stored as minLat, minLon, maxLat, maxLon */
+    private final List<double[]> levels = new ArrayList<>();
+
+    /**
+     * Constructs a new {@code GpxLineIndex}.
+     * @param lines the lines to index, see {@link GpxData#getLinesIterable(boolean[])}
+     */
+    public GpxLineIndex(Iterable<Collection<WayPoint>> lines) {
+        int capacity = 16;
+        chunkLines = new int[capacity];
+        chunkStarts = new int[capacity];
+        double[] boxes = new double[4 * capacity];
+        int offset = 0;
+        WayPoint last = null;
+        for (Collection<WayPoint> line : lines) {
+            List<WayPoint> points = line instanceof List && line instanceof RandomAccess
+                    ? (List<WayPoint>) line : new ArrayList<>(line);
+            int lineIndex = this.lines.size();
+            this.lines.add(points);
+            lineOffsets.add(offset);
+            offset += points.size();
+            for (int start = 0; start < points.size(); start += CHUNK_SIZE) {
+                if (chunkCount == capacity) {
+                    capacity *= 2;
+                    chunkLines = Arrays.copyOf(chunkLines, capacity);
+                    chunkStarts = Arrays.copyOf(chunkStarts, capacity);
+                    boxes = Arrays.copyOf(boxes, 4 * capacity);
+                }
+                chunkLines[chunkCount] = lineIndex;
+                chunkStarts[chunkCount] = start;
+                double[] box = {Double.NaN, Double.NaN, Double.NaN, Double.NaN};
+                if (last != null) {
+                    extend(box, last);
+                }
+                for (int i = start; i < Math.min(start + CHUNK_SIZE, points.size()); i++) {
+                    last = points.get(i);
+                    extend(box, last);
+                }
+                System.arraycopy(box, 0, boxes, 4 * chunkCount, 4);
+                chunkCount++;
+            }
+        }
+        levels.add(Arrays.copyOf(boxes, 4 * chunkCount));
+        for (int count = chunkCount; count > 1; count = (count + NODE_CAPACITY - 1) / NODE_CAPACITY) {
+            double[] children = levels.get(levels.size() - 1);
+            double[] parents = new double[4 * ((count + NODE_CAPACITY - 1) / NODE_CAPACITY)];
+            Arrays.fill(parents, Double.NaN);
+            for (int i = 0; i < count; i++) {
+                union(parents, i / NODE_CAPACITY, children, i);
+            }
+            levels.add(parents);
+        }
+    }
+
+    private static void extend(double[] box, WayPoint wpt) {
+        double lat = wpt.lat();
+        double lon = wpt.lon();
+        if (Double.isNaN(lat) || Double.isNaN(lon))
+            return;
+        // comparisons with NaN are false, so an empty box takes the first coordinates
+        box[0] = lat >= box[0] ? box[0] : lat;
+        box[1] = lon >= box[1] ? box[1] : lon;
+        box[2] = lat <= box[2] ? box[2] : lat;
+        box[3] = lon <= box[3] ? box[3] : lon;
+    }
+
+    private static void union(double[] parents, int parent, double[] children, int child) {
+        if (Double.isNaN(children[4 * child]))
+            return;
+        for (int k = 0; k < 2; k++) {
+            double min = children[4 * child + k];
+            double max = children[4 * child + 2 + k];
+            double pmin = parents[4 * parent + k];
+            double pmax = parents[4 * parent + 2 + k];
+            parents[4 * parent + k] = min >= pmin ? pmin : min;
+            parents[4 * parent + 2 + k] = max <= pmax ? pmax : max;
+        }
+    }
+
+    /**
+     * Returns the number of chunks.
+     * @return the number of chunks
+     */
+    public int getChunkCount() {
+        return chunkCount;
+    }
+
+    /**
+     * Finds the chunks whose bounding box intersects the given area.
+     * @param box the area
+     * @return the indexes of the chunks, in drawing order
+     */
+    public int[] searchChunks(Bounds box) {
+        if (chunkCount == 0)
+            return new int[0];
+        int[] result = new int[16];
+        int size = 0;
+        // the bounding boxes are rounded to OSM precision by Bounds, look a bit around
+        double margin = 1e-7;
+        double minLat = box.getMinLat() - margin;
+        double maxLat = box.getMaxLat() + margin;
+        double minLon = box.crosses180thMeridian() ? -Double.MAX_VALUE : box.getMinLon() - margin;
+        double maxLon = box.crosses180thMeridian() ? Double.MAX_VALUE : box.getMaxLon() + margin;
+        // depth-first search, the nodes to visit are stored as (level, index) pairs
+        int[] stack = new int[2 * NODE_CAPACITY * levels.size()];
+        int top = 0;
+        stack[top++] = levels.size() - 1;
+        stack[top++] = 0;
+        while (top > 0) {
+            int index = stack[--top];
+            int level = stack[--top];
+            double[] boxes = levels.get(level);
+            if (Double.isNaN(boxes[4 * index]) || boxes[4 * index] > maxLat || boxes[4 * index + 2] < minLat
+                    || boxes[4 * index + 1] > maxLon || boxes[4 * index + 3] < minLon) {
+                continue;
+            }
+            if (level == 0) {
+                if (size == result.length) {
+                    result = Arrays.copyOf(result, 2 * size);
+                }
+                result[size++] = index;
+            } else {
+                int childCount = levels.get(level - 1).length / 4;
+                // push the children in reverse order to visit them in order
+                for (int child = Math.min((index + 1) * NODE_CAPACITY, childCount) - 1; child >= index * NODE_CAPACITY; child--) {
+                    stack[top++] = level - 1;
+                    stack[top++] = child;
+                }
+            }
+        }
+        return Arrays.copyOf(result, size);
+    }
+
+    /**
+     * Lists the points to draw in the given area: the points in the area, and the points before them
+     * so that the lines leading to the area are drawn as well. A point added only for its line to the next
+     * one is a copy with {@link WayPoint#drawLine} unset.
+     * @param box the area
+     * @return the points to draw, in drawing order
+     */
+    public List<WayPoint> getVisiblePoints(Bounds box) {
+        List<WayPoint> visible = new ArrayList<>();
+        // position of the last point added to the result, in iteration order
+        long lastAdded = -2;
+        for (int chunk : searchChunks(box)) {
+            int lineIndex = chunkLines[chunk];
+            List<WayPoint> line = lines.get(lineIndex);
+            int start = chunkStarts[chunk];
+            long position = lineOffsets.get(lineIndex) + start;
+            WayPoint last = getPointBefore(lineIndex, start);
+            for (int i = start; i < Math.min(start + CHUNK_SIZE, line.size()); i++, position++) {
+                WayPoint pt = line.get(i);
+                Bounds b = new Bounds(pt.getCoor());
+                if (pt.drawLine && last != null) {
+                    b.extend(last.getCoor());
+                }
+                if (b.intersects(box)) {
+                    if (last != null && lastAdded != position - 1) {
+                        if (last.drawLine) {
+                            WayPoint l = new WayPoint(last);
+                            l.drawLine = false;
+                            visible.add(l);
+                        } else {
+                            visible.add(last);
+                        }
+                    }
+                    visible.add(pt);
+                    lastAdded = position;
+                }
+                last = pt;
+            }
+        }
+        return visible;
+    }
+
+    private WayPoint getPointBefore(int lineIndex, int index) {
+        if (index > 0)
+            return lines.get(lineIndex).get(index - 1);
+        for (int l = lineIndex - 1; l >= 0; l--) {
+            List<WayPoint> line = lines.get(l);
+            if (!line.isEmpty())
+                return line.get(line.size() - 1);
+        }
+        return null;
+    }
+}
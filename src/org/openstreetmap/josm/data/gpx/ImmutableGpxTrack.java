@@ -29,6 +29,24 @@ public class ImmutableGpxTrack extends WithAttributes implements GpxTrack {
         this.bounds = calculateBounds();
     }
 
+    /**
+     * Constructs a new {@code ImmutableGpxTrack} with the given segments.
+     * @param segments the segments of the track, empty segments are ignored
+     * @param attributes the attributes of the track
+     */
+    public ImmutableGpxTrack(List<GpxTrackSegment> segments, Map<String, Object> attributes) {
+        List<GpxTrackSegment> newSegments = new ArrayList<>(segments.size());
+        for (GpxTrackSegment segment : segments) {
+            if (segment != null && !segment.getWayPoints().isEmpty()) {
+                newSegments.add(segment);
+            }
+        }
+        this.attr = Collections.unmodifiableMap(new HashMap<>(attributes));
+        this.segments = Collections.unmodifiableCollection(newSegments);
+        this.length = calculateLength();
+        this.bounds = calculateBounds();
+    }
+
     private double calculateLength() {
         double result = 0.0; // in meters
 
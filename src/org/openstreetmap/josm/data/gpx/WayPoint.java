@@ -40,8 +40,12 @@ public class WayPoint extends WithAttributes implements Comparable<WayPoint>, Te
     }
 
     public WayPoint(LatLon ll) {
-        lat = ll.lat();
-        lon = ll.lon();
+        this(ll.lat(), ll.lon());
+    }
+
+    WayPoint(double lat, double lon) {
+        this.lat = lat;
+        this.lon = lon;
     }
 
     /*
@@ -65,10 +69,28 @@ public class WayPoint extends WithAttributes implements Comparable<WayPoint>, Te
         this.north = Double.NaN;
     }
 
+    /**
+     * Sets the internal cache of east/north coordinates, after a batch projection.
+     * @param east the projected east coordinate
+     * @param north the projected north coordinate
+     */
+    final void setEastNorthCache(double east, double north) {
+        this.east = east;
+        this.north = north;
+    }
+
     public final LatLon getCoor() {
         return new LatLon(lat, lon);
     }
 
+    final double lat() {
+        return lat;
+    }
+
+    final double lon() {
+        return lon;
+    }
+
     /**
      * <p>Replies the projected east/north coordinates.</p>
      *
@@ -466,11 +466,51 @@ public abstract class AbstractPrimitive implements IPrimitive {
     // doesn't have to be locked so it's possible that keys array will be modified. But all write methods make copy of keys array so
     // the array itself will be never modified - only reference will be changed
 
+    // Key/value arrays are sorted by key and shared between all primitives having the same tags, see #internKeys.
+    // As a consequence, they must never be modified in place, not even for replacing a value.
+
+    /**
+     * Pool of the key/value arrays in use (like String.intern(), to reduce memory consumption).
+     */
+    private static final KeysPool keysPool = new KeysPool();
+
     /**
      * The key/value list for this primitive.
      */
     protected String[] keys;
 
+    /**
+     * Replies the canonical instance of the given key/value array, sorted by key.
+     * Equal tag sets of different primitives thus share the same array.
+     * Subclasses which only hold short-lived data may override this to bypass the pool.
+     *
+     * @param keys the new key/value array, sorted by key. Must not be modified afterwards
+     * @return the shared key/value array equal to <code>keys</code>
+     */
+    protected String[] internKeys(String[] keys) {
+        return keysPool.intern(keys);
+    }
+
+    /**
+     * Sorts the given key/value array by key, keeping each value next to its key.
+     * @param keys the key/value array to sort
+     */
+    private static void sortKeys(String[] keys) {
+        // insertion sort, tag lists are short
+        for (int i = 2; i < keys.length; i += 2) {
+            String key = keys[i];
+            String value = keys[i + 1];
+            int j = i;
+            while (j > 0 && keys[j - 2].compareTo(key) > 0) {
+                keys[j] = keys[j - 2];
+                keys[j + 1] = keys[j - 1];
+                j -= 2;
+            }
+            keys[j] = key;
+            keys[j + 1] = value;
+        }
+    }
+
     /**
      * Replies the map of key/value pairs. Never replies null. The map can be empty, though.
      *
@@ -515,7 +555,8 @@ public abstract class AbstractPrimitive implements IPrimitive {
             newKeys[index++] = entry.getKey();
             newKeys[index++] = entry.getValue();
         }
-        this.keys = newKeys;
+        sortKeys(newKeys);
+        this.keys = internKeys(newKeys);
         keysChangedImpl(originalKeys);
     }
 
@@ -536,21 +577,25 @@ public abstract class AbstractPrimitive implements IPrimitive {
         else if (value == null) {
             remove(key);
         } else if (keys == null) {
-            keys = new String[] {key, value};
+            keys = internKeys(new String[] {key, value});
             keysChangedImpl(originalKeys);
         } else {
-            for (int i = 0; i < keys.length; i += 2) {
-                if (keys[i].equals(key)) {
-                    // This modifies the keys array but it doesn't make it invalidate for any time so its ok (see note no top)
-                    keys[i+1] = value;
-                    keysChangedImpl(originalKeys);
-                    return;
-                }
+            int i = 0;
+            while (i < keys.length && keys[i].compareTo(key) < 0) {
+                i += 2;
+            }
+            String[] newKeys;
+            if (i < keys.length && keys[i].equals(key)) {
+                // the array may be shared, thus replace the value in a copy
+                newKeys = keys.clone();
+            } else {
+                newKeys = new String[keys.length + 2];
+                System.arraycopy(keys, 0, newKeys, 0, i);
+                System.arraycopy(keys, i, newKeys, i + 2, keys.length - i);
+                newKeys[i] = key;
             }
-            String[] newKeys = Arrays.copyOf(keys, keys.length + 2);
-            newKeys[keys.length] = key;
-            newKeys[keys.length + 1] = value;
-            keys = newKeys;
+            newKeys[i + 1] = value;
+            keys = internKeys(newKeys);
             keysChangedImpl(originalKeys);
         }
     }
@@ -579,7 +624,7 @@ public abstract class AbstractPrimitive implements IPrimitive {
                 newKeys[j++] = keys[i+1];
             }
         }
-        keys = newKeys;
+        keys = internKeys(newKeys);
         keysChangedImpl(originalKeys);
     }
 
@@ -18,7 +18,6 @@ import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 import org.openstreetmap.josm.Main;
@@ -42,6 +41,7 @@ import org.openstreetmap.josm.data.osm.event.WayNodesChangedEvent;
 import org.openstreetmap.josm.data.osm.visitor.BoundingXYVisitor;
 import org.openstreetmap.josm.data.projection.Projection;
 import org.openstreetmap.josm.data.projection.ProjectionChangeListener;
+import org.openstreetmap.josm.data.projection.Projections;
 import org.openstreetmap.josm.gui.progress.ProgressMonitor;
 import org.openstreetmap.josm.gui.tagging.ac.AutoCompletionManager;
 import org.openstreetmap.josm.tools.FilteredCollection;
@@ -119,10 +119,15 @@ public final class DataSet implements Data, Cloneable, ProjectionChangeListener
     private final List<AbstractDatasetChangedEvent> cachedEvents = new ArrayList<>();
 
     private int highlightUpdateCount;
+    private int filterUpdateCount;
+
+    // Inverted index of the tags, built on first use, modified only while the write lock is held
+    private volatile TagIndex tagIndex;
+    private final Object tagIndexLock = new Object();
 
     private boolean uploadDiscouraged = false;
 
-    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
     private final Object selectionLock = new Object();
 
     /**
@@ -144,6 +149,15 @@ public final class DataSet implements Data, Cloneable, ProjectionChangeListener
         return lock.readLock();
     }
 
+    /**
+     * Determines if other threads are waiting for the lock, typically to modify the data set while a long
+     * operation holds the read lock. Such an operation may then release the lock and try again later.
+     * @return {@code true} if threads are waiting for the lock
+     */
+    public boolean hasQueuedLockThreads() {
+        return lock.hasQueuedThreads();
+    }
+
     /**
      * This method can be used to detect changes in highlight state of primitives. If highlighting was changed
      * then the method will return different number.
@@ -153,6 +167,51 @@ public final class DataSet implements Data, Cloneable, ProjectionChangeListener
         return highlightUpdateCount;
     }
 
+    /**
+     * This method can be used to detect changes in the disabled state of primitives by the filters.
+     * If the filters were executed again then the method will return different number.
+     * @return the current filter counter
+     */
+    public int getFilterUpdateCount() {
+        return filterUpdateCount;
+    }
+
+    /**
+     * Notifies that the filters have been executed on all primitives, and that their disabled state may have changed.
+     */
+    public void fireFiltersChanged() {
+        filterUpdateCount++;
+    }
+
+    /**
+     * Returns the inverted index of the tags of the primitives of this data set.
+     * The index is built on the first call, and kept up to date afterwards.
+     * @return the tag index, or {@code null} if disabled by {@link TagIndex#PROP_ENABLED}
+     */
+    public TagIndex getTagIndex() {
+        if (!TagIndex.PROP_ENABLED.get()) {
+            tagIndex = null;
+            return null;
+        }
+        TagIndex result = tagIndex;
+        if (result == null) {
+            // the read lock ensures that no primitive is modified while the index is built
+            lock.readLock().lock();
+            try {
+                synchronized (tagIndexLock) {
+                    result = tagIndex;
+                    if (result == null) {
+                        result = new TagIndex(allPrimitives);
+                        tagIndex = result;
+                    }
+                }
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+        return result;
+    }
+
     /**
      * History of selections - shared by plugins and SelectionListDialog
      */
@@ -260,7 +319,18 @@ public final class DataSet implements Data, Cloneable, ProjectionChangeListener
      * All nodes goes here, even when included in other data (ways etc). This enables the instant
      * conversion of the whole DataSet by iterating over this data structure.
      */
-    private final QuadBuckets<Node> nodes = new QuadBuckets<>();
+    private final SpatialIndex<Node> nodes = createSpatialIndex();
+
+    /**
+     * Creates the spatial index used to store primitives, according to the {@code dataset.spatial-index} preference.
+     * Possible values are {@code quadbuckets} (default) and {@code packed-rtree}.
+     * @return a new spatial index
+     */
+    private static <T extends OsmPrimitive> SpatialIndex<T> createSpatialIndex() {
+        if (Main.pref != null && "packed-rtree".equals(Main.pref.get("dataset.spatial-index", "quadbuckets")))
+            return new PackedRTree<T>();
+        return new QuadBuckets<T>();
+    }
 
     private <T extends OsmPrimitive> Collection<T> getPrimitives(Predicate<OsmPrimitive> predicate) {
         return new SubclassFilteredCollection<>(allPrimitives, predicate);
@@ -306,7 +376,7 @@ public final class DataSet implements Data, Cloneable, ProjectionChangeListener
      *
      * The way nodes are stored only in the way list.
      */
-    private final QuadBuckets<Way> ways = new QuadBuckets<>();
+    private final SpatialIndex<Way> ways = createSpatialIndex();
 
     /**
      * Replies an unmodifiable collection of ways in this dataset
@@ -344,9 +414,12 @@ public final class DataSet implements Data, Cloneable, ProjectionChangeListener
     }
 
     /**
-     * All relations/relationships
+     * All relations/relationships, indexed by their bounding box.
+     *
+     * The bbox of a relation depends on its members, so the relation has to be reindexed
+     * whenever its members or the position of its members change (see {@link #reindexRelation}).
      */
-    private final Collection<Relation> relations = new ArrayList<>();
+    private final SpatialIndex<Relation> relations = createSpatialIndex();
 
     /**
      * Replies an unmodifiable collection of relations in this dataset
@@ -365,14 +438,7 @@ public final class DataSet implements Data, Cloneable, ProjectionChangeListener
     public List<Relation> searchRelations(BBox bbox) {
         lock.readLock().lock();
         try {
-            // QuadBuckets might be useful here (don't forget to do reindexing after some of rm is changed)
-            List<Relation> result = new ArrayList<>();
-            for (Relation r: relations) {
-                if (r.getBBox().intersects(bbox)) {
-                    result.add(r);
-                }
-            }
-            return result;
+            return relations.search(bbox);
         } finally {
             lock.readLock().unlock();
         }
@@ -466,6 +532,10 @@ public final class DataSet implements Data, Cloneable, ProjectionChangeListener
                 throw new RuntimeException("failed to add primitive: "+primitive);
             allPrimitives.add(primitive);
             primitive.setDataset(this);
+            TagIndex index = tagIndex;
+            if (index != null) {
+                index.add(primitive);
+            }
             firePrimitivesAdded(Collections.singletonList(primitive), false);
         } finally {
             endUpdate();
@@ -503,6 +573,10 @@ public final class DataSet implements Data, Cloneable, ProjectionChangeListener
             }
             allPrimitives.remove(primitive);
             primitive.setDataset(null);
+            TagIndex index = tagIndex;
+            if (index != null) {
+                index.remove(primitive, primitive.getKeys());
+            }
             firePrimitivesRemoved(Collections.singletonList(primitive), false);
         } finally {
             endUpdate();
@@ -1100,7 +1174,11 @@ public final class DataSet implements Data, Cloneable, ProjectionChangeListener
 
     private void reindexRelation(Relation relation) {
         BBox before = relation.getBBox();
+        if (!relations.remove(relation))
+            throw new RuntimeException("Reindexing relation failed to remove");
         relation.updatePosition();
+        if (!relations.add(relation))
+            throw new RuntimeException("Reindexing relation failed to add");
         if (!before.equals(relation.getBBox())) {
             for (OsmPrimitive primitive: relation.getReferrers()) {
                 reindexRelation((Relation) primitive);
@@ -1150,6 +1228,10 @@ public final class DataSet implements Data, Cloneable, ProjectionChangeListener
         if (updateCount > 0) {
             updateCount--;
             if (updateCount == 0) {
+                // Give the spatial indexes the chance to rebuild after a batch of changes (e.g. parsing or merging)
+                nodes.optimize();
+                ways.optimize();
+                relations.optimize();
                 List<AbstractDatasetChangedEvent> eventsCopy = new ArrayList<>(cachedEvents);
                 cachedEvents.clear();
                 lock.writeLock().unlock();
@@ -1201,22 +1283,29 @@ public final class DataSet implements Data, Cloneable, ProjectionChangeListener
     }
 
     void fireTagsChanged(OsmPrimitive prim, Map<String, String> originalKeys) {
+        TagIndex index = tagIndex;
+        if (index != null) {
+            index.update(prim, originalKeys);
+        }
         fireEvent(new TagsChangedEvent(this, prim, originalKeys));
     }
 
     void fireRelationMembersChanged(Relation r) {
+        BBox before = r.getBBox();
         reindexRelation(r);
-        fireEvent(new RelationMembersChangedEvent(this, r));
+        fireEvent(new RelationMembersChangedEvent(this, r, before));
     }
 
     void fireNodeMoved(Node node, LatLon newCoor, EastNorth eastNorth) {
+        LatLon before = node.getCoor();
         reindexNode(node, newCoor, eastNorth);
-        fireEvent(new NodeMovedEvent(this, node));
+        fireEvent(new NodeMovedEvent(this, node, before));
     }
 
     void fireWayNodesChanged(Way way) {
+        BBox before = way.getBBox();
         reindexWay(way);
-        fireEvent(new WayNodesChangedEvent(this, way));
+        fireEvent(new WayNodesChangedEvent(this, way, before));
     }
 
     void fireChangesetIdChanged(OsmPrimitive primitive, int oldChangesetId, int newChangesetId) {
@@ -1231,15 +1320,15 @@ public final class DataSet implements Data, Cloneable, ProjectionChangeListener
      * Invalidates the internal cache of projected east/north coordinates.
      *
      * This method can be invoked after the globally configured projection method
-     * changed.
+     * changed. The coordinates of all nodes are projected again at once, in parallel
+     * (see {@link Projections#projectAll}), rather than one by one when they are painted.
      */
     public void invalidateEastNorthCache() {
-        if (Main.getProjection() == null) return; // sanity check
+        Projection projection = Main.getProjection();
+        if (projection == null) return; // sanity check
         try {
             beginUpdate();
-            for (Node n: Utils.filteredCollection(allPrimitives, Node.class)) {
-                n.invalidateEastNorthCache();
-            }
+            Node.fillEastNorthCache(Utils.filteredCollection(allPrimitives, Node.class), projection);
         } finally {
             endUpdate();
         }
@@ -1271,6 +1360,10 @@ public final class DataSet implements Data, Cloneable, ProjectionChangeListener
                     selectionSnapshot = null;
                     allPrimitives.remove(primitive);
                     primitive.setDataset(null);
+                    TagIndex index = tagIndex;
+                    if (index != null) {
+                        index.remove(primitive, primitive.getKeys());
+                    }
                     changed = true;
                     it.remove();
                 }
@@ -1298,6 +1391,7 @@ public final class DataSet implements Data, Cloneable, ProjectionChangeListener
             ways.clear();
             relations.clear();
             allPrimitives.clear();
+            tagIndex = null;
         } finally {
             endUpdate();
         }
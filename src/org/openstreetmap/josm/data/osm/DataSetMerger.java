@@ -5,7 +5,7 @@ import static org.openstreetmap.josm.tools.I18n.tr;
 
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.HashMap;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedList;
@@ -58,8 +58,8 @@ public class DataSetMerger {
         this.targetDataSet = targetDataSet;
         this.sourceDataSet = sourceDataSet;
         conflicts = new ConflictCollection();
-        mergedMap = new HashMap<>();
-        objectsWithChildrenToMerge = new HashSet<>();
+        mergedMap = new PrimitiveIdMap<>();
+        objectsWithChildrenToMerge = Collections.newSetFromMap(new PrimitiveIdMap<Boolean>());
         objectsToDelete = new HashSet<>();
     }
 
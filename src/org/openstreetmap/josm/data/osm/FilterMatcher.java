@@ -7,9 +7,13 @@ import java.util.List;
 
 import org.openstreetmap.josm.actions.search.SearchAction.SearchMode;
 import org.openstreetmap.josm.actions.search.SearchCompiler;
+import org.openstreetmap.josm.actions.search.SearchCompiler.BinaryMatch;
+import org.openstreetmap.josm.actions.search.SearchCompiler.Child;
 import org.openstreetmap.josm.actions.search.SearchCompiler.Match;
 import org.openstreetmap.josm.actions.search.SearchCompiler.Not;
+import org.openstreetmap.josm.actions.search.SearchCompiler.Parent;
 import org.openstreetmap.josm.actions.search.SearchCompiler.ParseError;
+import org.openstreetmap.josm.actions.search.SearchCompiler.UnaryMatch;
 import org.openstreetmap.josm.tools.SubclassFilteredCollection;
 
 /**
@@ -91,10 +95,12 @@ public class FilterMatcher {
 
     private final List<FilterInfo> hiddenFilters = new ArrayList<>();
     private final List<FilterInfo> disabledFilters = new ArrayList<>();
+    private boolean nestedParentChild;
 
     public void update(Collection<Filter> filters) throws ParseError {
         hiddenFilters.clear();
         disabledFilters.clear();
+        nestedParentChild = false;
 
         for (Filter filter: filters) {
 
@@ -103,6 +109,7 @@ public class FilterMatcher {
             }
 
             FilterInfo fi = new FilterInfo(filter);
+            nestedParentChild |= getParentChildDepth(fi.match) > 1;
             if (fi.isDelete) {
                 if (filter.hiding) {
                     // Remove only hide flag
@@ -128,6 +135,26 @@ public class FilterMatcher {
         }
     }
 
+    private static int getParentChildDepth(Match match) {
+        if (match instanceof UnaryMatch) {
+            int depth = getParentChildDepth(((UnaryMatch) match).getOperand());
+            return match instanceof Parent || match instanceof Child ? depth + 1 : depth;
+        } else if (match instanceof BinaryMatch) {
+            return Math.max(getParentChildDepth(((BinaryMatch) match).getLhs()), getParentChildDepth(((BinaryMatch) match).getRhs()));
+        }
+        return 0;
+    }
+
+    /**
+     * Determines if an enabled filter nests the parent and child operators, like {@code parent (child name=*)}.
+     * The result of such a filter for a primitive can change when any connected primitive changes,
+     * instead of only its parents and children.
+     * @return {@code true} if an enabled filter nests the parent and child operators
+     */
+    public boolean hasNestedParentChild() {
+        return nestedParentChild;
+    }
+
     /**
      * Check if primitive is filtered.
      * @param primitive the primitive to check
@@ -0,0 +1,85 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.osm;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Pool of the key/value arrays of primitives, like {@link String#intern()}, so that primitives with equal tags share one array.
+ * <p>
+ * The pool only holds weak references: an array is dropped from the pool once no primitive uses it any longer.
+ * It can be used by several threads at the same time, e.g. by the parallel parsers.
+ */
+final class KeysPool {
+
+    /**
+     * Weak reference to a key/value array, equal to the references to equal arrays.
+     */
+    private static final class Entry extends WeakReference<String[]> {
+        private final int hash;
+
+        Entry(String[] keys, ReferenceQueue<String[]> queue) {
+            super(keys, queue);
+            this.hash = Arrays.hashCode(keys);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj)
+                return true;
+            if (!(obj instanceof Entry))
+                return false;
+            String[] keys = get();
+            // a cleared reference is only equal to itself
+            return keys != null && Arrays.equals(keys, ((Entry) obj).get());
+        }
+    }
+
+    private final ConcurrentMap<Entry, Entry> entries = new ConcurrentHashMap<>();
+    private final ReferenceQueue<String[]> queue = new ReferenceQueue<>();
+
+    /**
+     * Replies the canonical instance of a key/value array.
+     * @param keys the key/value array. Must not be modified afterwards
+     * @return the array of the pool equal to <code>keys</code>, <code>keys</code> itself if there is none
+     */
+    String[] intern(String[] keys) {
+        expungeStaleEntries();
+        Entry entry = new Entry(keys, queue);
+        while (true) {
+            Entry existing = entries.putIfAbsent(entry, entry);
+            if (existing == null)
+                return keys;
+            String[] shared = existing.get();
+            if (shared != null)
+                return shared;
+            // the array has just been collected, its entry is replaced
+            entries.remove(existing, existing);
+        }
+    }
+
+    /**
+     * Returns the number of arrays in the pool, including the arrays collected but not yet removed.
+     * @return the number of arrays in the pool
+     */
+    int size() {
+        expungeStaleEntries();
+        return entries.size();
+    }
+
+    private void expungeStaleEntries() {
+        Reference<? extends String[]> ref;
+        while ((ref = queue.poll()) != null) {
+            entries.remove(ref, ref);
+        }
+    }
+}
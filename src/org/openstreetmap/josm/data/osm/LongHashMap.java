@@ -0,0 +1,345 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.osm;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import org.openstreetmap.josm.tools.CheckParameterUtil;
+
+/**
+ * A map with primitive {@code long} keys, meant for large numbers of OSM ids.
+ *
+ * Contrary to {@code HashMap<Long, V>}, keys are neither boxed nor wrapped in entry objects: keys and values
+ * are stored in two arrays, in insertion order, and looked up through an open addressing table of array positions.
+ * Like {@link java.util.LinkedHashMap}, the map iterates in insertion order.
+ *
+ * The methods taking a {@code long} key do not create any object. The {@link Map} methods are provided for
+ * compatibility and box the keys as needed. {@code null} values are not supported.
+ *
+ * The map is not synchronized. Concurrent reads are safe as long as the map is not modified.
+ *
+ * @param <V> the type of values
+ */
+public class LongHashMap<V> extends AbstractMap<Long, V> {
+
+    private static final int FREE = -1;
+    private static final int REMOVED = -2;
+    private static final int DEFAULT_CAPACITY = 16;
+
+    /** keys in insertion order */
+    private long[] keys;
+    /** values in insertion order, {@code null} for removed entries */
+    private Object[] values;
+    /** open addressing table of positions in {@link #keys}, {@link #FREE} or {@link #REMOVED} */
+    private int[] table;
+    /** shift applied to the key hash to get a position in {@link #table} */
+    private int shift;
+    /** number of used positions in {@link #keys}, including removed entries */
+    private int count;
+    private int size;
+    private int modCount;
+
+    /**
+     * Constructs a new empty {@code LongHashMap}.
+     */
+    public LongHashMap() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Constructs a new empty {@code LongHashMap} able to hold the given number of entries without resizing.
+     * @param capacity the initial capacity
+     */
+    public LongHashMap(int capacity) {
+        allocate(Math.max(capacity, 4));
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new Object[capacity];
+        // keep the table at most half full, free slots end the probe sequences
+        int tableSize = Integer.highestOneBit(capacity * 2 - 1) << 1;
+        table = new int[tableSize];
+        Arrays.fill(table, FREE);
+        shift = 64 - Integer.numberOfTrailingZeros(tableSize);
+        count = 0;
+        size = 0;
+    }
+
+    private int slot(long key) {
+        // Fibonacci hashing, spreads consecutive ids over the table
+        return (int) ((key * 0x9E3779B97F4A7C15L) >>> shift);
+    }
+
+    /**
+     * Returns the position of the given key in {@link #keys}, or -1 if it is not in the map.
+     */
+    private int find(long key) {
+        int mask = table.length - 1;
+        for (int s = slot(key);; s = (s + 1) & mask) {
+            int pos = table[s];
+            if (pos == FREE)
+                return -1;
+            if (pos != REMOVED && keys[pos] == key)
+                return pos;
+        }
+    }
+
+    /**
+     * Replies the value associated with the given key.
+     * @param key the key
+     * @return the value, or {@code null} if the key is not in the map
+     */
+    @SuppressWarnings("unchecked")
+    public V get(long key) {
+        int pos = find(key);
+        return pos < 0 ? null : (V) values[pos];
+    }
+
+    /**
+     * Determines if the given key is in the map.
+     * @param key the key
+     * @return {@code true} if the map contains the key
+     */
+    public boolean containsKey(long key) {
+        return find(key) >= 0;
+    }
+
+    /**
+     * Associates the given value with the given key.
+     * @param key the key
+     * @param value the value, must not be null
+     * @return the previous value associated with the key, or {@code null}
+     */
+    @SuppressWarnings("unchecked")
+    public V put(long key, V value) {
+        CheckParameterUtil.ensureParameterNotNull(value, "value");
+        int pos = find(key);
+        if (pos >= 0) {
+            V old = (V) values[pos];
+            values[pos] = value;
+            return old;
+        }
+        if (count == keys.length) {
+            // reclaim removed entries if there are enough of them, grow otherwise
+            rebuild(size < keys.length / 2 ? keys.length : keys.length * 2);
+        }
+        int mask = table.length - 1;
+        int s = slot(key);
+        while (table[s] != FREE) {
+            s = (s + 1) & mask;
+        }
+        table[s] = count;
+        keys[count] = key;
+        values[count] = value;
+        count++;
+        size++;
+        modCount++;
+        return null;
+    }
+
+    /**
+     * Removes the given key from the map.
+     * @param key the key
+     * @return the value which was associated with the key, or {@code null}
+     */
+    @SuppressWarnings("unchecked")
+    public V remove(long key) {
+        int mask = table.length - 1;
+        for (int s = slot(key);; s = (s + 1) & mask) {
+            int pos = table[s];
+            if (pos == FREE)
+                return null;
+            if (pos != REMOVED && keys[pos] == key) {
+                V old = (V) values[pos];
+                table[s] = REMOVED;
+                values[pos] = null;
+                size--;
+                modCount++;
+                return old;
+            }
+        }
+    }
+
+    private void rebuild(int capacity) {
+        long[] oldKeys = keys;
+        Object[] oldValues = values;
+        int oldCount = count;
+        allocate(capacity);
+        int mask = table.length - 1;
+        for (int i = 0; i < oldCount; i++) {
+            if (oldValues[i] != null) {
+                int s = slot(oldKeys[i]);
+                while (table[s] != FREE) {
+                    s = (s + 1) & mask;
+                }
+                table[s] = count;
+                keys[count] = oldKeys[i];
+                values[count] = oldValues[i];
+                count++;
+            }
+        }
+        size = count;
+        modCount++;
+    }
+
+    /**
+     * Returns the keys of this map, in iteration order.
+     * @return a new array containing the keys
+     */
+    public long[] keyArray() {
+        long[] result = new long[size];
+        int j = 0;
+        for (int i = 0; i < count; i++) {
+            if (values[i] != null) {
+                result[j++] = keys[i];
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    @Override
+    public V get(Object key) {
+        return key instanceof Long ? get(((Long) key).longValue()) : null;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return key instanceof Long && containsKey(((Long) key).longValue());
+    }
+
+    @Override
+    public V put(Long key, V value) {
+        return put(key.longValue(), value);
+    }
+
+    @Override
+    public V remove(Object key) {
+        return key instanceof Long ? remove(((Long) key).longValue()) : null;
+    }
+
+    @Override
+    public void clear() {
+        allocate(DEFAULT_CAPACITY);
+        modCount++;
+    }
+
+    @Override
+    public Set<Map.Entry<Long, V>> entrySet() {
+        return new AbstractSet<Map.Entry<Long, V>>() {
+            @Override
+            public Iterator<Map.Entry<Long, V>> iterator() {
+                return new EntryIterator();
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    private final class EntryIterator implements Iterator<Map.Entry<Long, V>> {
+        private int next;
+        private int current = -1;
+        private int expectedModCount = modCount;
+
+        private void skipRemoved() {
+            while (next < count && values[next] == null) {
+                next++;
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            skipRemoved();
+            return next < count;
+        }
+
+        @Override
+        public Map.Entry<Long, V> next() {
+            if (modCount != expectedModCount)
+                throw new ConcurrentModificationException();
+            skipRemoved();
+            if (next >= count)
+                throw new NoSuchElementException();
+            current = next++;
+            return new Entry(current);
+        }
+
+        @Override
+        public void remove() {
+            if (current < 0 || values[current] == null)
+                throw new IllegalStateException();
+            if (modCount != expectedModCount)
+                throw new ConcurrentModificationException();
+            // removal does not move the other entries
+            LongHashMap.this.remove(keys[current]);
+            expectedModCount = modCount;
+        }
+    }
+
+    private final class Entry implements Map.Entry<Long, V> {
+        private final int pos;
+        private final long key;
+
+        Entry(int pos) {
+            this.pos = pos;
+            this.key = keys[pos];
+        }
+
+        @Override
+        public Long getKey() {
+            return key;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public V getValue() {
+            return (V) values[pos];
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public V setValue(V value) {
+            CheckParameterUtil.ensureParameterNotNull(value, "value");
+            V old = (V) values[pos];
+            values[pos] = value;
+            return old;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Map.Entry))
+                return false;
+            Map.Entry<?, ?> e = (Map.Entry<?, ?>) o;
+            return getKey().equals(e.getKey()) && getValue().equals(e.getValue());
+        }
+
+        @Override
+        public int hashCode() {
+            return (int) (key ^ (key >>> 32)) ^ getValue().hashCode();
+        }
+
+        @Override
+        public String toString() {
+            return key + "=" + getValue();
+        }
+    }
+}
@@ -1,7 +1,9 @@
 // License: GPL. For details, see LICENSE file.
 package org.openstreetmap.josm.data.osm;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
 import java.util.Set;
 import java.util.TreeSet;
 
@@ -10,6 +12,7 @@ import org.openstreetmap.josm.data.coor.EastNorth;
 import org.openstreetmap.josm.data.coor.LatLon;
 import org.openstreetmap.josm.data.osm.visitor.PrimitiveVisitor;
 import org.openstreetmap.josm.data.osm.visitor.Visitor;
+import org.openstreetmap.josm.data.projection.Projection;
 import org.openstreetmap.josm.data.projection.Projections;
 import org.openstreetmap.josm.tools.CheckParameterUtil;
 import org.openstreetmap.josm.tools.Predicate;
@@ -344,6 +347,33 @@ public final class Node extends OsmPrimitive implements INode {
         this.north = Double.NaN;
     }
 
+    /**
+     * Fills the internal cache of projected east/north coordinates of many nodes at once,
+     * with the batch projection of {@link Projections#projectAll}.
+     * @param nodes the nodes
+     * @param projection the projection
+     */
+    static void fillEastNorthCache(Collection<Node> nodes, Projection projection) {
+        List<Node> known = new ArrayList<>(nodes.size());
+        for (Node n : nodes) {
+            if (n.isLatLonKnown()) {
+                known.add(n);
+            } else {
+                n.invalidateEastNorthCache();
+            }
+        }
+        double[] coordinates = new double[2 * known.size()];
+        for (int i = 0; i < known.size(); i++) {
+            coordinates[2 * i] = known.get(i).lat;
+            coordinates[2 * i + 1] = known.get(i).lon;
+        }
+        Projections.projectAll(projection, coordinates);
+        for (int i = 0; i < known.size(); i++) {
+            known.get(i).east = coordinates[2 * i];
+            known.get(i).north = coordinates[2 * i + 1];
+        }
+    }
+
     @Override
     public boolean concernsArea() {
         // A node cannot be an area
@@ -291,7 +291,6 @@ public abstract class OsmPrimitive extends AbstractPrimitive implements Comparab
      * MAPPAINT
      *--------*/
     public StyleCache mappaintStyle = null;
-    public int mappaintCacheIdx;
 
     /* This should not be called from outside. Fixing the UI to add relevant
        get/set functions calling this implicitely is preferred, so we can have
@@ -1166,10 +1165,10 @@ public abstract class OsmPrimitive extends AbstractPrimitive implements Comparab
      * @return true if other isn't null and has the same interesting tags (key/value-pairs) as this.
      */
     public boolean hasSameInterestingTags(OsmPrimitive other) {
-        // We cannot directly use Arrays.equals(keys, other.keys) as keys is not ordered by key
-        // but we can at least check if both arrays are null or of the same size before creating
-        // and comparing the key maps (costly operation, see #7159)
-        return (keys == null && other.keys == null)
+        // Primitives with the same tags share the same interned key/value array. Otherwise we can at least check
+        // if both arrays are of the same size before creating and comparing the maps of interesting tags
+        // (costly operation, see #7159), which ignore the uninteresting tags
+        return keys == other.keys
                 || (keys != null && other.keys != null && keys.length == other.keys.length
                         && (keys.length == 0 || getInterestingTags().equals(other.getInterestingTags())));
     }
@@ -1189,8 +1188,6 @@ public abstract class OsmPrimitive extends AbstractPrimitive implements Comparab
             return false;
         if (isIncomplete() ^ other.isIncomplete()) // exclusive or operator for performance (see #7159)
             return false;
-        // can't do an equals check on the internal keys array because it is not ordered
-        //
         return hasSameInterestingTags(other);
     }
 
@@ -0,0 +1,264 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.osm;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+import org.openstreetmap.josm.data.coor.LatLon;
+
+/**
+ * Compressed, immutable copy of a list of {@link PrimitiveData}.
+ * <p>
+ * The primitives are written to a deflated byte array. Node ids of ways and member ids of relations are
+ * delta-encoded as variable-length integers. Strings and users are not copied, but stored once in tables
+ * which refer to the existing instances. This is used to reduce the memory retained by old commands of
+ * the undo history.
+ */
+public final class PackedPrimitiveData {
+
+    private static final byte NODE = 0;
+    private static final byte WAY = 1;
+    private static final byte RELATION = 2;
+
+    private final byte[] bytes;
+    private final String[] strings;
+    private final User[] users;
+    private final int size;
+
+    private PackedPrimitiveData(byte[] bytes, String[] strings, User[] users, int size) {
+        this.bytes = bytes;
+        this.strings = strings;
+        this.users = users;
+        this.size = size;
+    }
+
+    /**
+     * Packs primitive data.
+     * @param data the primitive data to pack
+     * @return the packed data
+     */
+    public static PackedPrimitiveData pack(List<? extends PrimitiveData> data) {
+        Writer writer = new Writer();
+        try {
+            for (PrimitiveData d : data) {
+                writer.write(d);
+            }
+            writer.out.close();
+        } catch (IOException e) {
+            // cannot happen when writing to a byte array
+            throw new IllegalStateException(e);
+        }
+        return new PackedPrimitiveData(writer.bytes.toByteArray(), writer.strings.toArray(new String[writer.strings.size()]),
+                writer.users.toArray(new User[writer.users.size()]), data.size());
+    }
+
+    /**
+     * Unpacks the primitive data. Every call returns new instances.
+     * @return the primitive data, in the order given to {@link #pack}
+     */
+    public List<PrimitiveData> unpack() {
+        List<PrimitiveData> result = new ArrayList<>(size);
+        try (DataInputStream in = new DataInputStream(new InflaterInputStream(new ByteArrayInputStream(bytes)))) {
+            for (int i = 0; i < size; i++) {
+                result.add(read(in));
+            }
+        } catch (IOException e) {
+            // cannot happen when reading from a byte array
+            throw new IllegalStateException(e);
+        }
+        return result;
+    }
+
+    /**
+     * Returns the number of packed primitives.
+     * @return the number of packed primitives
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns an estimate of the memory retained by the packed data, in bytes.
+     * The strings and users are not counted since they are shared with other objects.
+     * @return the estimated memory, in bytes
+     */
+    public long getMemoryFootprint() {
+        return 16 + bytes.length + 16 + 8L * strings.length + 16 + 8L * users.length + 32;
+    }
+
+    private PrimitiveData read(DataInputStream in) throws IOException {
+        byte type = in.readByte();
+        PrimitiveData data;
+        switch (type) {
+        case NODE:
+            data = new NodeData();
+            break;
+        case WAY:
+            data = new WayData();
+            break;
+        default:
+            data = new RelationData();
+        }
+        data.id = in.readLong();
+        data.version = in.readInt();
+        data.changesetId = in.readInt();
+        data.timestamp = in.readInt();
+        data.flags = in.readShort();
+        int user = readVarInt(in) - 1;
+        data.user = user >= 0 ? users[user] : null;
+        int keyCount = readVarInt(in);
+        if (keyCount > 0) {
+            String[] keys = new String[keyCount];
+            for (int i = 0; i < keyCount; i++) {
+                keys[i] = strings[readVarInt(in)];
+            }
+            data.keys = keys;
+        }
+        switch (type) {
+        case NODE:
+            if (in.readBoolean()) {
+                ((NodeData) data).setCoor(new LatLon(in.readDouble(), in.readDouble()));
+            }
+            break;
+        case WAY:
+            int nodeCount = readVarInt(in);
+            List<Long> nodes = new ArrayList<>(nodeCount);
+            long last = 0;
+            for (int i = 0; i < nodeCount; i++) {
+                last += readVarLong(in);
+                nodes.add(last);
+            }
+            ((WayData) data).setNodes(nodes);
+            break;
+        default:
+            int memberCount = readVarInt(in);
+            List<RelationMemberData> members = new ArrayList<>(memberCount);
+            long lastId = 0;
+            for (int i = 0; i < memberCount; i++) {
+                OsmPrimitiveType memberType = OsmPrimitiveType.values()[in.readByte()];
+                String role = strings[readVarInt(in)];
+                lastId += readVarLong(in);
+                members.add(new RelationMemberData(role, memberType, lastId));
+            }
+            ((RelationData) data).setMembers(members);
+        }
+        return data;
+    }
+
+    private static final class Writer {
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        private final DataOutputStream out = new DataOutputStream(new DeflaterOutputStream(bytes));
+        private final List<String> strings = new ArrayList<>();
+        private final Map<String, Integer> stringIndex = new HashMap<>();
+        private final List<User> users = new ArrayList<>();
+        private final Map<User, Integer> userIndex = new HashMap<>();
+
+        private int indexOf(String s) {
+            Integer index = stringIndex.get(s);
+            if (index == null) {
+                index = strings.size();
+                strings.add(s);
+                stringIndex.put(s, index);
+            }
+            return index;
+        }
+
+        private int indexOf(User user) {
+            Integer index = userIndex.get(user);
+            if (index == null) {
+                index = users.size();
+                users.add(user);
+                userIndex.put(user, index);
+            }
+            return index;
+        }
+
+        private void write(PrimitiveData data) throws IOException {
+            if (data instanceof NodeData) {
+                out.writeByte(NODE);
+            } else if (data instanceof WayData) {
+                out.writeByte(WAY);
+            } else {
+                out.writeByte(RELATION);
+            }
+            out.writeLong(data.id);
+            out.writeInt(data.version);
+            out.writeInt(data.changesetId);
+            out.writeInt(data.timestamp);
+            out.writeShort(data.flags);
+            writeVarInt(out, data.user != null ? indexOf(data.user) + 1 : 0);
+            String[] keys = data.keys;
+            writeVarInt(out, keys != null ? keys.length : 0);
+            if (keys != null) {
+                for (String s : keys) {
+                    writeVarInt(out, indexOf(s));
+                }
+            }
+            if (data instanceof NodeData) {
+                LatLon coor = ((NodeData) data).getCoor();
+                out.writeBoolean(coor != null);
+                if (coor != null) {
+                    out.writeDouble(coor.lat());
+                    out.writeDouble(coor.lon());
+                }
+            } else if (data instanceof WayData) {
+                List<Long> nodes = ((WayData) data).getNodes();
+                writeVarInt(out, nodes.size());
+                long last = 0;
+                for (Long id : nodes) {
+                    writeVarLong(out, id - last);
+                    last = id;
+                }
+            } else {
+                List<RelationMemberData> members = ((RelationData) data).getMembers();
+                writeVarInt(out, members.size());
+                long last = 0;
+                for (RelationMemberData member : members) {
+                    out.writeByte(member.getMemberType().ordinal());
+                    writeVarInt(out, indexOf(member.getRole()));
+                    writeVarLong(out, member.getMemberId() - last);
+                    last = member.getMemberId();
+                }
+            }
+        }
+    }
+
+    private static void writeVarInt(DataOutputStream out, int value) throws IOException {
+        writeVarLong(out, value);
+    }
+
+    private static void writeVarLong(DataOutputStream out, long value) throws IOException {
+        // zig-zag encoding, so that small negative values are short too
+        long v = (value << 1) ^ (value >> 63);
+        while ((v & ~0x7FL) != 0) {
+            out.writeByte((int) ((v & 0x7F) | 0x80));
+            v >>>= 7;
+        }
+        out.writeByte((int) v);
+    }
+
+    private static int readVarInt(DataInputStream in) throws IOException {
+        return (int) readVarLong(in);
+    }
+
+    private static long readVarLong(DataInputStream in) throws IOException {
+        long v = 0;
+        int shift = 0;
+        int b;
+        do {
+            b = in.readUnsignedByte();
+            v |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return (v >>> 1) ^ -(v & 1);
+    }
+}
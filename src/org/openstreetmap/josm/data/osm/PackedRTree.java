@@ -0,0 +1,446 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.osm;
+
+import java.util.AbstractCollection;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import org.openstreetmap.josm.data.coor.LatLon;
+
+/**
+ * A spatial index that stores primitives in a bulk-loaded R-tree, packed with the Sort-Tile-Recursive algorithm.
+ * <p>
+ * Contrary to {@link QuadBuckets}, the tree is not built one primitive at a time. Added primitives are kept in a
+ * {@link QuadBuckets} buffer until {@link #optimize()} decides to pack the whole tree again, typically once after a whole
+ * dataset has been parsed or merged. Removed primitives are only marked as removed until the next packing.
+ * <p>
+ * The tree is stored in flat arrays. Bounding boxes are kept as floats rounded outwards, candidates on the
+ * border of the search box are checked against the exact bounding box of the primitive.
+ * <p>
+ * Note: bbox of primitives added to the tree has to stay the same. In case of coordinate change, primitive must
+ * be removed and readded.
+ * <p>
+ * This class is not thread safe.
+ *
+ * @param <T> the primitive type
+ */
+public class PackedRTree<T extends OsmPrimitive> extends AbstractCollection<T> implements SpatialIndex<T> {
+
+    /**
+     * The maximum number of children of a tree node.
+     */
+    public static final int NODE_CAPACITY = 16;
+
+    /**
+     * The minimum number of added primitives kept outside of the packed tree before the tree is packed again.
+     */
+    private static final int MIN_PENDING = 64;
+
+    /**
+     * The tree is packed again when the number of added primitives exceeds 1/PENDING_RATIO of the tree size.
+     */
+    private static final int PENDING_RATIO = 16;
+
+    private static final Object[] NO_ENTRIES = new Object[0];
+    private static final float[] NO_BOXES = new float[0];
+    private static final float[][] NO_LEVELS = new float[0][];
+
+    /** The packed primitives in tree order, removed entries are set to null */
+    private Object[] entries = NO_ENTRIES;
+    /** The bounding boxes of the entries, stored as minX, minY, maxX, maxY */
+    private float[] entryBoxes = NO_BOXES;
+    /** The bounding boxes of the tree nodes for each level, starting with the leaves. The last level is the root */
+    private float[][] levels = NO_LEVELS;
+    private int removedEntries;
+
+    /** Primitives added since the tree has been packed, indexed so that they can be searched and removed quickly */
+    private final QuadBuckets<T> pending = new QuadBuckets<>();
+    /** Primitives with an empty bounding box (e.g. incomplete ways). They are never returned by a search */
+    private final Set<T> unpositioned = new LinkedHashSet<>();
+    private int size;
+
+    /**
+     * Constructs a new, empty {@code PackedRTree}.
+     */
+    public PackedRTree() {
+        // Do nothing
+    }
+
+    /**
+     * Constructs a new {@code PackedRTree} and bulk loads the given primitives.
+     * @param primitives the primitives to add
+     */
+    public PackedRTree(Collection<? extends T> primitives) {
+        addAll(primitives);
+    }
+
+    @Override
+    public boolean add(T o) {
+        if (isEmpty(o.getBBox())) {
+            unpositioned.add(o);
+        } else {
+            pending.add(o);
+        }
+        size++;
+        return true;
+    }
+
+    /**
+     * Adds all primitives and packs the tree, if needed.
+     */
+    @Override
+    public boolean addAll(Collection<? extends T> objects) {
+        boolean changed = super.addAll(objects);
+        optimize();
+        return changed;
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        if (!(o instanceof OsmPrimitive))
+            return false;
+        OsmPrimitive p = (OsmPrimitive) o;
+        BBox bbox = p.getBBox();
+        if (isEmpty(bbox)) {
+            if (unpositioned.remove(p)) {
+                size--;
+                return true;
+            }
+            return false;
+        }
+        if (pending.remove(p)) {
+            size--;
+            return true;
+        }
+        int index = find(p, bbox);
+        if (index < 0)
+            return false;
+        entries[index] = null;
+        removedEntries++;
+        size--;
+        return true;
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        if (!(o instanceof OsmPrimitive))
+            return false;
+        OsmPrimitive p = (OsmPrimitive) o;
+        BBox bbox = p.getBBox();
+        if (isEmpty(bbox))
+            return unpositioned.contains(p);
+        return pending.contains(p) || find(p, bbox) >= 0;
+    }
+
+    @Override
+    public void clear() {
+        entries = NO_ENTRIES;
+        entryBoxes = NO_BOXES;
+        levels = NO_LEVELS;
+        removedEntries = 0;
+        pending.clear();
+        unpositioned.clear();
+        size = 0;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+        return new PackedRTreeIterator();
+    }
+
+    @Override
+    public List<T> search(BBox searchBbox) {
+        List<T> result = new ArrayList<>();
+        if (levels.length > 0) {
+            search(levels.length - 1, 0, searchBbox, result);
+        }
+        result.addAll(pending.search(searchBbox));
+        return result;
+    }
+
+    /**
+     * Packs the tree again if many primitives have been added or removed since the last packing.
+     */
+    @Override
+    public void optimize() {
+        int packed = entries.length - removedEntries;
+        if ((pending.size() > MIN_PENDING && pending.size() * PENDING_RATIO > packed)
+                || (removedEntries > MIN_PENDING && removedEntries * 2 > entries.length)) {
+            pack();
+        }
+    }
+
+    /**
+     * Rebuilds the tree from all primitives in it, regardless of whether this is worth it.
+     */
+    public void pack() {
+        int n = entries.length - removedEntries + pending.size();
+        Object[] items = new Object[n];
+        float[] boxes = new float[4 * n];
+        int k = 0;
+        for (int i = 0; i < entries.length; i++) {
+            if (entries[i] != null) {
+                items[k] = entries[i];
+                System.arraycopy(entryBoxes, 4 * i, boxes, 4 * k, 4);
+                k++;
+            }
+        }
+        for (T o : pending) {
+            items[k] = o;
+            setBox(boxes, k, o.getBBox());
+            k++;
+        }
+        pending.clear();
+        build(items, boxes);
+    }
+
+    /**
+     * Sorts the entries with the Sort-Tile-Recursive algorithm and computes the tree nodes.
+     * The entries are sorted by x into vertical slices, each slice is sorted by y and cut into leaves.
+     * The upper levels group consecutive nodes of the level below, which are already spatially sorted.
+     */
+    private void build(Object[] items, float[] boxes) {
+        int n = items.length;
+        if (n == 0) {
+            entries = NO_ENTRIES;
+            entryBoxes = NO_BOXES;
+            levels = NO_LEVELS;
+            removedEntries = 0;
+            return;
+        }
+        long[] order = new long[n];
+        for (int i = 0; i < n; i++) {
+            order[i] = sortKey((boxes[4 * i] + boxes[4 * i + 2]) / 2, i);
+        }
+        Arrays.sort(order);
+        int leafCount = (n + NODE_CAPACITY - 1) / NODE_CAPACITY;
+        int sliceSize = (int) Math.ceil(Math.sqrt(leafCount)) * NODE_CAPACITY;
+        for (int start = 0; start < n; start += sliceSize) {
+            int end = Math.min(start + sliceSize, n);
+            for (int i = start; i < end; i++) {
+                int index = (int) order[i];
+                order[i] = sortKey((boxes[4 * index + 1] + boxes[4 * index + 3]) / 2, index);
+            }
+            Arrays.sort(order, start, end);
+        }
+
+        Object[] sortedItems = new Object[n];
+        float[] sortedBoxes = new float[4 * n];
+        for (int i = 0; i < n; i++) {
+            int index = (int) order[i];
+            sortedItems[i] = items[index];
+            System.arraycopy(boxes, 4 * index, sortedBoxes, 4 * i, 4);
+        }
+
+        List<float[]> nodeLevels = new ArrayList<>();
+        float[] childBoxes = sortedBoxes;
+        do {
+            childBoxes = parentBoxes(childBoxes);
+            nodeLevels.add(childBoxes);
+        } while (childBoxes.length > 4);
+
+        entries = sortedItems;
+        entryBoxes = sortedBoxes;
+        levels = nodeLevels.toArray(new float[nodeLevels.size()][]);
+        removedEntries = 0;
+    }
+
+    /**
+     * Computes the bounding boxes of the nodes that group {@link #NODE_CAPACITY} consecutive children.
+     */
+    private static float[] parentBoxes(float[] childBoxes) {
+        int childCount = childBoxes.length / 4;
+        int count = (childCount + NODE_CAPACITY - 1) / NODE_CAPACITY;
+        float[] result = new float[4 * count];
+        for (int node = 0; node < count; node++) {
+            float minX = Float.POSITIVE_INFINITY;
+            float minY = Float.POSITIVE_INFINITY;
+            float maxX = Float.NEGATIVE_INFINITY;
+            float maxY = Float.NEGATIVE_INFINITY;
+            int last = Math.min((node + 1) * NODE_CAPACITY, childCount);
+            for (int c = node * NODE_CAPACITY; c < last; c++) {
+                minX = Math.min(minX, childBoxes[4 * c]);
+                minY = Math.min(minY, childBoxes[4 * c + 1]);
+                maxX = Math.max(maxX, childBoxes[4 * c + 2]);
+                maxY = Math.max(maxY, childBoxes[4 * c + 3]);
+            }
+            result[4 * node] = minX;
+            result[4 * node + 1] = minY;
+            result[4 * node + 2] = maxX;
+            result[4 * node + 3] = maxY;
+        }
+        return result;
+    }
+
+    private int childCount(int level) {
+        return level == 0 ? entries.length : levels[level - 1].length / 4;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void search(int level, int node, BBox searchBbox, List<T> result) {
+        float[] boxes = levels[level];
+        if (!intersects(boxes, node, searchBbox))
+            return;
+        int first = node * NODE_CAPACITY;
+        int last = Math.min(first + NODE_CAPACITY, childCount(level));
+        if (level > 0) {
+            for (int c = first; c < last; c++) {
+                search(level - 1, c, searchBbox, result);
+            }
+            return;
+        }
+        for (int e = first; e < last; e++) {
+            T o = (T) entries[e];
+            if (o == null || !intersects(entryBoxes, e, searchBbox))
+                continue;
+            // The stored box contains the exact one, so it only has to be checked if the stored box is not fully inside
+            if (isInside(entryBoxes, e, searchBbox) || matches(o, searchBbox)) {
+                result.add(o);
+            }
+        }
+    }
+
+    private int find(Object o, BBox bbox) {
+        if (levels.length == 0)
+            return -1;
+        return find(o, levels.length - 1, 0, floor(bbox.getTopLeftLon()), floor(bbox.getBottomRightLat()),
+                ceil(bbox.getBottomRightLon()), ceil(bbox.getTopLeftLat()));
+    }
+
+    private int find(Object o, int level, int node, float minX, float minY, float maxX, float maxY) {
+        float[] boxes = levels[level];
+        int i = 4 * node;
+        if (boxes[i] > minX || boxes[i + 1] > minY || boxes[i + 2] < maxX || boxes[i + 3] < maxY)
+            return -1;
+        int first = node * NODE_CAPACITY;
+        int last = Math.min(first + NODE_CAPACITY, childCount(level));
+        for (int c = first; c < last; c++) {
+            if (level == 0) {
+                if (o.equals(entries[c]))
+                    return c;
+            } else {
+                int found = find(o, level - 1, c, minX, minY, maxX, maxY);
+                if (found >= 0)
+                    return found;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean intersects(float[] boxes, int index, BBox b) {
+        int i = 4 * index;
+        return boxes[i] <= b.getBottomRightLon() && boxes[i + 2] >= b.getTopLeftLon()
+                && boxes[i + 1] <= b.getTopLeftLat() && boxes[i + 3] >= b.getBottomRightLat();
+    }
+
+    private static boolean isInside(float[] boxes, int index, BBox b) {
+        int i = 4 * index;
+        return boxes[i] >= b.getTopLeftLon() && boxes[i + 2] <= b.getBottomRightLon()
+                && boxes[i + 1] >= b.getBottomRightLat() && boxes[i + 3] <= b.getTopLeftLat();
+    }
+
+    private static boolean matches(OsmPrimitive o, BBox searchBbox) {
+        if (o instanceof Node) {
+            final LatLon latLon = ((Node) o).getCoor();
+            // node without coords -> bbox[0,0,0,0]
+            return searchBbox.bounds(latLon != null ? latLon : LatLon.ZERO);
+        }
+        return o.getBBox().intersects(searchBbox);
+    }
+
+    private static boolean isEmpty(BBox bbox) {
+        return bbox.getTopLeftLon() > bbox.getBottomRightLon() || bbox.getBottomRightLat() > bbox.getTopLeftLat();
+    }
+
+    private static void setBox(float[] boxes, int index, BBox bbox) {
+        int i = 4 * index;
+        boxes[i] = floor(bbox.getTopLeftLon());
+        boxes[i + 1] = floor(bbox.getBottomRightLat());
+        boxes[i + 2] = ceil(bbox.getBottomRightLon());
+        boxes[i + 3] = ceil(bbox.getTopLeftLat());
+    }
+
+    private static float floor(double value) {
+        float f = (float) value;
+        return f > value ? Math.nextAfter(f, Double.NEGATIVE_INFINITY) : f;
+    }
+
+    private static float ceil(double value) {
+        float f = (float) value;
+        return f < value ? Math.nextAfter(f, Double.POSITIVE_INFINITY) : f;
+    }
+
+    /**
+     * Encodes a float key and an index into a long, so that sorting the longs sorts by key.
+     */
+    private static long sortKey(float key, int index) {
+        int bits = Float.floatToIntBits(key);
+        bits ^= (bits >> 31) & 0x7fffffff;
+        return ((long) bits << 32) | index;
+    }
+
+    private class PackedRTreeIterator implements Iterator<T> {
+        private final Iterator<T> pendingIterator = pending.iterator();
+        private final Iterator<T> unpositionedIterator = unpositioned.iterator();
+        /** The iterator that returned the last element, or null if it has been taken from the tree */
+        private Iterator<T> lastIterator;
+        private int nextEntry;
+        private int lastEntry = -1;
+
+        private void skipRemoved() {
+            while (nextEntry < entries.length && entries[nextEntry] == null) {
+                nextEntry++;
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            skipRemoved();
+            return nextEntry < entries.length || pendingIterator.hasNext() || unpositionedIterator.hasNext();
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public T next() {
+            skipRemoved();
+            if (nextEntry < entries.length) {
+                lastIterator = null;
+                lastEntry = nextEntry++;
+                return (T) entries[lastEntry];
+            }
+            lastEntry = -1;
+            if (pendingIterator.hasNext()) {
+                lastIterator = pendingIterator;
+            } else if (unpositionedIterator.hasNext()) {
+                lastIterator = unpositionedIterator;
+            } else
+                throw new NoSuchElementException();
+            return lastIterator.next();
+        }
+
+        @Override
+        public void remove() {
+            if (lastIterator != null) {
+                lastIterator.remove();
+                lastIterator = null;
+            } else if (lastEntry >= 0) {
+                entries[lastEntry] = null;
+                removedEntries++;
+                lastEntry = -1;
+            } else
+                throw new IllegalStateException();
+            size--;
+        }
+    }
+}
@@ -67,6 +67,12 @@ public abstract class PrimitiveData extends AbstractPrimitive {
     protected final void keysChangedImpl(Map<String, String> originalKeys) {
     }
 
+    @Override
+    protected String[] internKeys(String[] keys) {
+        // primitive data is mostly temporary and built tag by tag, do not let it fill the pool of shared tags
+        return keys;
+    }
+
     @Override
     public abstract OsmPrimitiveType getType();
 }
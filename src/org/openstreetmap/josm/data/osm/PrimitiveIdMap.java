@@ -0,0 +1,222 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.osm;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * A map with {@link PrimitiveId} keys, backed by one {@link LongHashMap} per {@link OsmPrimitiveType}.
+ *
+ * Keys are compared like {@link Storage.PrimitiveIdHash} does, by unique id and type, whatever the
+ * implementation of {@code PrimitiveId}. No key object is stored, and the methods taking an id and a type
+ * do not create any object. The map iterates by type, in the order of {@link OsmPrimitiveType}, and in
+ * insertion order for each type. {@code null} values are not supported.
+ *
+ * @param <V> the type of values
+ */
+public class PrimitiveIdMap<V> extends AbstractMap<PrimitiveId, V> {
+
+    private static final OsmPrimitiveType[] TYPES = OsmPrimitiveType.values();
+
+    private final LongHashMap<V>[] maps;
+
+    /**
+     * Constructs a new empty {@code PrimitiveIdMap}.
+     */
+    @SuppressWarnings("unchecked")
+    public PrimitiveIdMap() {
+        maps = new LongHashMap[TYPES.length];
+    }
+
+    private LongHashMap<V> getMap(OsmPrimitiveType type, boolean create) {
+        LongHashMap<V> map = maps[type.ordinal()];
+        if (map == null && create) {
+            map = new LongHashMap<>();
+            maps[type.ordinal()] = map;
+        }
+        return map;
+    }
+
+    /**
+     * Replies the value associated with the given primitive id.
+     * @param id the unique id
+     * @param type the primitive type
+     * @return the value, or {@code null} if the primitive id is not in the map
+     */
+    public V get(long id, OsmPrimitiveType type) {
+        LongHashMap<V> map = getMap(type, false);
+        return map == null ? null : map.get(id);
+    }
+
+    /**
+     * Determines if the given primitive id is in the map.
+     * @param id the unique id
+     * @param type the primitive type
+     * @return {@code true} if the map contains the primitive id
+     */
+    public boolean containsKey(long id, OsmPrimitiveType type) {
+        LongHashMap<V> map = getMap(type, false);
+        return map != null && map.containsKey(id);
+    }
+
+    /**
+     * Associates the given value with the given primitive id.
+     * @param id the unique id
+     * @param type the primitive type
+     * @param value the value, must not be null
+     * @return the previous value associated with the primitive id, or {@code null}
+     */
+    public V put(long id, OsmPrimitiveType type, V value) {
+        return getMap(type, true).put(id, value);
+    }
+
+    /**
+     * Removes the given primitive id from the map.
+     * @param id the unique id
+     * @param type the primitive type
+     * @return the value which was associated with the primitive id, or {@code null}
+     */
+    public V remove(long id, OsmPrimitiveType type) {
+        LongHashMap<V> map = getMap(type, false);
+        return map == null ? null : map.remove(id);
+    }
+
+    /**
+     * Replies the values associated with primitive ids of the given type, in insertion order.
+     * @param type the primitive type
+     * @return the values of the given type, backed by the map
+     */
+    public Collection<V> values(OsmPrimitiveType type) {
+        LongHashMap<V> map = getMap(type, false);
+        return map == null ? Collections.<V>emptyList() : map.values();
+    }
+
+    @Override
+    public V get(Object key) {
+        if (!(key instanceof PrimitiveId))
+            return null;
+        PrimitiveId id = (PrimitiveId) key;
+        return get(id.getUniqueId(), id.getType());
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        if (!(key instanceof PrimitiveId))
+            return false;
+        PrimitiveId id = (PrimitiveId) key;
+        return containsKey(id.getUniqueId(), id.getType());
+    }
+
+    @Override
+    public V put(PrimitiveId key, V value) {
+        return put(key.getUniqueId(), key.getType(), value);
+    }
+
+    @Override
+    public V remove(Object key) {
+        if (!(key instanceof PrimitiveId))
+            return null;
+        PrimitiveId id = (PrimitiveId) key;
+        return remove(id.getUniqueId(), id.getType());
+    }
+
+    @Override
+    public int size() {
+        int size = 0;
+        for (LongHashMap<V> map : maps) {
+            if (map != null) {
+                size += map.size();
+            }
+        }
+        return size;
+    }
+
+    @Override
+    public void clear() {
+        for (int i = 0; i < maps.length; i++) {
+            maps[i] = null;
+        }
+    }
+
+    @Override
+    public Set<Map.Entry<PrimitiveId, V>> entrySet() {
+        return new AbstractSet<Map.Entry<PrimitiveId, V>>() {
+            @Override
+            public Iterator<Map.Entry<PrimitiveId, V>> iterator() {
+                return new EntryIterator();
+            }
+
+            @Override
+            public int size() {
+                return PrimitiveIdMap.this.size();
+            }
+        };
+    }
+
+    private final class EntryIterator implements Iterator<Map.Entry<PrimitiveId, V>> {
+        private int type = -1;
+        private Iterator<Map.Entry<Long, V>> current;
+        private Iterator<Map.Entry<Long, V>> last;
+
+        @Override
+        public boolean hasNext() {
+            while (current == null || !current.hasNext()) {
+                if (++type >= maps.length)
+                    return false;
+                current = maps[type] == null ? null : maps[type].entrySet().iterator();
+            }
+            return true;
+        }
+
+        @Override
+        public Map.Entry<PrimitiveId, V> next() {
+            if (!hasNext())
+                throw new NoSuchElementException();
+            last = current;
+            final Map.Entry<Long, V> entry = current.next();
+            final PrimitiveId id = new SimplePrimitiveId(entry.getKey(), TYPES[type]);
+            return new Map.Entry<PrimitiveId, V>() {
+                @Override
+                public PrimitiveId getKey() {
+                    return id;
+                }
+
+                @Override
+                public V getValue() {
+                    return entry.getValue();
+                }
+
+                @Override
+                public V setValue(V value) {
+                    return entry.setValue(value);
+                }
+
+                @Override
+                public boolean equals(Object o) {
+                    if (!(o instanceof Map.Entry))
+                        return false;
+                    Map.Entry<?, ?> e = (Map.Entry<?, ?>) o;
+                    return id.equals(e.getKey()) && getValue().equals(e.getValue());
+                }
+
+                @Override
+                public int hashCode() {
+                    return id.hashCode() ^ getValue().hashCode();
+                }
+            };
+        }
+
+        @Override
+        public void remove() {
+            if (last == null)
+                throw new IllegalStateException();
+            last.remove();
+        }
+    }
+}
@@ -18,7 +18,7 @@ import org.openstreetmap.josm.data.coor.QuadTiling;
  * This class is (no longer) thread safe.
  *
  */
-public class QuadBuckets<T extends OsmPrimitive> implements Collection<T> {
+public class QuadBuckets<T extends OsmPrimitive> implements SpatialIndex<T> {
     private static final boolean consistency_testing = false;
     private static final int NW_INDEX = 1;
     private static final int NE_INDEX = 3;
@@ -573,26 +573,29 @@ public class QuadBuckets<T extends OsmPrimitive> implements Collection<T> {
         return size == 0;
     }
 
+    @Override
     public List<T> search(BBox search_bbox) {
         List<T> ret = new ArrayList<>();
         // Doing this cuts down search cost on a real-life data set by about 25%
-        if (searchCache == null) {
-            searchCache = root;
+        // Work on a local copy, concurrent searches (under the data set read lock) may update the cache
+        QBLevel<T> start = searchCache;
+        if (start == null) {
+            start = root;
         }
         // Walk back up the tree when the last search spot can not cover the current search
-        while (searchCache != null && !searchCache.bbox().bounds(search_bbox)) {
-            searchCache = searchCache.parent;
+        while (start != null && !start.bbox().bounds(search_bbox)) {
+            start = start.parent;
         }
 
-        if (searchCache == null) {
-            searchCache = root;
+        if (start == null) {
+            start = root;
             Main.info("bbox: " + search_bbox + " is out of the world");
         }
+        searchCache = start;
 
-        // Save parent because searchCache might change during search call
-        QBLevel<T> tmp = searchCache.parent;
+        QBLevel<T> tmp = start.parent;
 
-        searchCache.search(search_bbox, ret);
+        start.search(search_bbox, ret);
 
         // A way that spans this bucket may be stored in one
         // of the nodes which is a parent of the search cache
@@ -602,4 +605,9 @@ public class QuadBuckets<T extends OsmPrimitive> implements Collection<T> {
         }
         return ret;
     }
+
+    @Override
+    public void optimize() {
+        // Nothing to do, the buckets are always up to date
+    }
 }
@@ -431,21 +431,13 @@ public final class Relation extends OsmPrimitive implements IRelation {
 
     @Override
     public BBox getBBox() {
-        RelationMember[] members = this.members;
-
-        if (members.length == 0)
-            return new BBox(0, 0, 0, 0);
-        if (getDataSet() == null)
-            return calculateBBox(new HashSet<PrimitiveId>());
-        else {
-            if (bbox == null) {
-                bbox = calculateBBox(new HashSet<PrimitiveId>());
-            }
-            if (bbox == null)
-                return new BBox(0, 0, 0, 0); // No real members
-            else
-                return new BBox(bbox);
-        }
+        if (getDataSet() != null && bbox != null)
+            return new BBox(bbox); // use cached value, it is the one relation is indexed with in the dataset
+        BBox result = calculateBBox(new HashSet<PrimitiveId>());
+        if (result == null)
+            return new BBox(0, 0, 0, 0); // No real members
+        else
+            return result;
     }
 
     private BBox calculateBBox(Set<PrimitiveId> visitedRelations) {
@@ -475,13 +467,21 @@ public final class Relation extends OsmPrimitive implements IRelation {
     @Override
     public void updatePosition() {
         bbox = calculateBBox(new HashSet<PrimitiveId>());
+        if (bbox == null) {
+            bbox = new BBox(0, 0, 0, 0); // No real members
+        }
     }
 
     @Override
     void setDataset(DataSet dataSet) {
         super.setDataset(dataSet);
         checkMembers();
-        bbox = null; // bbox might have changed if relation was in ds, was removed, modified, added back to dataset
+        // bbox might have changed if relation was in ds, was removed, modified, added back to dataset
+        if (dataSet != null) {
+            updatePosition();
+        } else {
+            bbox = null;
+        }
     }
 
     private void checkMembers() throws DataIntegrityProblemException {
@@ -0,0 +1,32 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.osm;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * A collection of primitives that can be queried by bounding box.
+ *
+ * Note: bbox of primitives added to a spatial index has to stay the same. In case of coordinate change, primitive must
+ * be removed and readded.
+ *
+ * @param <T> the primitive type
+ * @see QuadBuckets
+ * @see PackedRTree
+ */
+public interface SpatialIndex<T extends OsmPrimitive> extends Collection<T> {
+
+    /**
+     * Returns all primitives whose bounding box intersects the given bounding box.
+     * Nodes without coordinates are considered to be located at (0, 0).
+     * @param searchBbox the bounding box to search in
+     * @return the primitives in the bounding box. Can be empty but not null
+     */
+    List<T> search(BBox searchBbox);
+
+    /**
+     * Called after a batch of changes (e.g. when the whole dataset has been parsed or merged), so that
+     * the implementation can rebuild its internal structure if this is worth it.
+     */
+    void optimize();
+}
@@ -0,0 +1,149 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.osm;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.openstreetmap.josm.data.preferences.BooleanProperty;
+import org.openstreetmap.josm.tools.Predicate;
+import org.openstreetmap.josm.tools.Predicates;
+
+/**
+ * Inverted index of the tags of the primitives of a {@link DataSet}.
+ * <p>
+ * The index maps every key to the primitives having this key. The values are not indexed, they are read from
+ * the primitives when the index is queried, so that the index only needs one entry per tag.
+ * It is built on the first call of {@link DataSet#getTagIndex()}, and then kept up to date by the data set
+ * when primitives are added or removed and when tags change. It is used to answer searches like
+ * {@code building=*} without testing every primitive of the data set.
+ * <p>
+ * All methods return copies, so the results can be used while the data set is modified.
+ */
+public class TagIndex {
+
+    /** Property to enable the tag index */
+    public static final BooleanProperty PROP_ENABLED = new BooleanProperty("search.tag-index", true);
+
+    /** key -&gt; primitives, guarded by {@code this} */
+    private final Map<String, Set<OsmPrimitive>> index = new HashMap<>();
+
+    /**
+     * Constructs a new {@code TagIndex}.
+     * @param primitives the primitives to index
+     */
+    TagIndex(Collection<? extends OsmPrimitive> primitives) {
+        for (OsmPrimitive primitive : primitives) {
+            add(primitive);
+        }
+    }
+
+    /**
+     * Adds the tags of a primitive to the index.
+     * @param primitive the primitive
+     */
+    synchronized void add(OsmPrimitive primitive) {
+        String[] keys = primitive.keys;
+        if (keys == null)
+            return;
+        for (int i = 0; i < keys.length; i += 2) {
+            Set<OsmPrimitive> set = index.get(keys[i]);
+            if (set == null) {
+                set = new HashSet<>();
+                index.put(keys[i], set);
+            }
+            set.add(primitive);
+        }
+    }
+
+    /**
+     * Removes the tags of a primitive from the index.
+     * @param primitive the primitive
+     * @param tags the tags of the primitive known to the index
+     */
+    synchronized void remove(OsmPrimitive primitive, Map<String, String> tags) {
+        for (String key : tags.keySet()) {
+            Set<OsmPrimitive> set = index.get(key);
+            if (set != null && set.remove(primitive) && set.isEmpty()) {
+                index.remove(key);
+            }
+        }
+    }
+
+    /**
+     * Updates the index after the tags of a primitive have changed.
+     * @param primitive the primitive
+     * @param originalKeys the tags before the change
+     */
+    synchronized void update(OsmPrimitive primitive, Map<String, String> originalKeys) {
+        remove(primitive, originalKeys);
+        add(primitive);
+    }
+
+    /**
+     * Returns the keys of all indexed primitives.
+     * @return the keys
+     */
+    public synchronized Collection<String> getKeys() {
+        return new ArrayList<>(index.keySet());
+    }
+
+    /**
+     * Returns the values of a key.
+     * @param key the key
+     * @return the values of the key, empty if no primitive has the key
+     */
+    public synchronized Collection<String> getValues(String key) {
+        Set<OsmPrimitive> set = index.get(key);
+        if (set == null)
+            return Collections.emptyList();
+        Set<String> values = new HashSet<>();
+        for (OsmPrimitive primitive : set) {
+            values.add(primitive.get(key));
+        }
+        return values;
+    }
+
+    /**
+     * Returns the primitives having a key, whatever the value.
+     * @param key the key
+     * @return the primitives having the key
+     */
+    public synchronized Set<OsmPrimitive> get(String key) {
+        Set<OsmPrimitive> set = index.get(key);
+        return set == null ? new HashSet<OsmPrimitive>() : new HashSet<>(set);
+    }
+
+    /**
+     * Returns the primitives having a tag.
+     * @param key the key
+     * @param value the value
+     * @return the primitives having the tag {@code key=value}
+     */
+    public Set<OsmPrimitive> get(String key, String value) {
+        Set<OsmPrimitive> result = new HashSet<>();
+        addPrimitives(key, Predicates.equalTo(value), result);
+        return result;
+    }
+
+    /**
+     * Adds the primitives having a key with a value accepted by a predicate to a collection.
+     * @param key the key
+     * @param values the predicate accepting the values
+     * @param result the collection the primitives are added to
+     */
+    public synchronized void addPrimitives(String key, Predicate<String> values, Collection<? super OsmPrimitive> result) {
+        Set<OsmPrimitive> set = index.get(key);
+        if (set == null)
+            return;
+        for (OsmPrimitive primitive : set) {
+            if (values.evaluate(primitive.get(key))) {
+                result.add(primitive);
+            }
+        }
+    }
+}
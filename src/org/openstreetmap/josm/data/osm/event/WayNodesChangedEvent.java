@@ -4,6 +4,7 @@ package org.openstreetmap.josm.data.osm.event;
 import java.util.Collections;
 import java.util.List;
 
+import org.openstreetmap.josm.data.osm.BBox;
 import org.openstreetmap.josm.data.osm.DataSet;
 import org.openstreetmap.josm.data.osm.OsmPrimitive;
 import org.openstreetmap.josm.data.osm.Way;
@@ -11,10 +12,22 @@ import org.openstreetmap.josm.data.osm.Way;
 public class WayNodesChangedEvent extends AbstractDatasetChangedEvent {
 
     private final Way way;
+    private final BBox oldBBox;
 
     public WayNodesChangedEvent(DataSet dataSet, Way way) {
+        this(dataSet, way, null);
+    }
+
+    /**
+     * Constructs a new {@code WayNodesChangedEvent}.
+     * @param dataSet the dataset from which the event comes from
+     * @param way the changed way
+     * @param oldBBox the bounding box of the way before the change, can be null
+     */
+    public WayNodesChangedEvent(DataSet dataSet, Way way, BBox oldBBox) {
         super(dataSet);
         this.way = way;
+        this.oldBBox = oldBBox;
     }
 
     @Override
@@ -26,6 +39,14 @@ public class WayNodesChangedEvent extends AbstractDatasetChangedEvent {
         return way;
     }
 
+    /**
+     * Returns the bounding box of the way before the change.
+     * @return the old bounding box, or {@code null} if unknown
+     */
+    public BBox getOldBBox() {
+        return oldBBox;
+    }
+
     @Override
     public List<? extends OsmPrimitive> getPrimitives() {
         return Collections.singletonList(way);
@@ -0,0 +1,247 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.osm.visitor.paint;
+
+import java.awt.Graphics2D;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Point2D;
+import java.awt.image.BufferedImage;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+import org.openstreetmap.josm.Main;
+import org.openstreetmap.josm.data.Bounds;
+import org.openstreetmap.josm.data.coor.EastNorth;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.visitor.paint.relations.MultipolygonCache;
+import org.openstreetmap.josm.gui.NavigatableComponent;
+
+/**
+ * Renders a data set on a worker thread into a back buffer, so that a slow rendering does not block
+ * the Event Dispatch Thread.
+ * <p>
+ * {@link #paint} draws the last completed frame and requests a new frame if the viewport or the data changed.
+ * A frame of another viewport is drawn moved and scaled to the current viewport until the new frame is ready.
+ * A pending frame which is no longer needed is cancelled. When a frame is completed, the component is repainted.
+ * <p>
+ * The worker holds the read lock of the data set while rendering. The {@link StyledMapRenderer} checks between
+ * its phases if the frame has been cancelled, or if another thread waits to modify the data set: it then stops
+ * and releases the lock, and the frame is requested again by the next repaint.
+ */
+public class BackgroundRenderer {
+
+    /**
+     * The preference key to enable background rendering of data layers.
+     */
+    public static final String PREF_KEY = "mappaint.render.background";
+
+    private static final ExecutorService EXECUTOR = Executors.newSingleThreadExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread t = new RenderThread(r);
+            t.setDaemon(true);
+            t.setPriority(Thread.NORM_PRIORITY - 1);
+            return t;
+        }
+    });
+
+    /**
+     * The worker thread, which records if the current frame has been cancelled.
+     */
+    private static final class RenderThread extends Thread {
+        private boolean cancelled;
+
+        RenderThread(Runnable r) {
+            super(r, "background-renderer");
+        }
+    }
+
+    /**
+     * A rendered image of the data set, and the viewport it was rendered for.
+     */
+    private static final class Frame {
+        private final int viewID;
+        private final boolean inactive;
+        private final boolean renderVirtualNodes;
+        private final EastNorth topLeft;
+        private final double scale;
+        private BufferedImage image;
+
+        Frame(NavigatableComponent nc, boolean inactive, boolean renderVirtualNodes) {
+            this.viewID = nc.getViewID();
+            this.inactive = inactive;
+            this.renderVirtualNodes = renderVirtualNodes;
+            this.topLeft = nc.getEastNorth(0, 0);
+            this.scale = nc.getScale();
+        }
+
+        boolean isSameRequest(Frame other) {
+            return other != null && viewID == other.viewID && inactive == other.inactive && renderVirtualNodes == other.renderVirtualNodes;
+        }
+    }
+
+    private final DataSet data;
+    /** the last completed frame, drawn by {@link #paint} */
+    private volatile Frame completed;
+    /** the frame that is being rendered, or the last requested one */
+    private Frame requested;
+    private Future<?> task;
+    private volatile boolean newFrame;
+
+    /**
+     * Constructs a new {@code BackgroundRenderer}.
+     * @param data the data set to render
+     */
+    public BackgroundRenderer(DataSet data) {
+        this.data = data;
+    }
+
+    /**
+     * Determines if background rendering is enabled in the preferences.
+     * @return {@code true} if data layers should be rendered in background
+     */
+    public static boolean isEnabled() {
+        return Main.pref.getBoolean(PREF_KEY, false);
+    }
+
+    /**
+     * Determines if a frame has been completed since it was last drawn.
+     * @return {@code true} if a new frame is ready to be drawn
+     */
+    public boolean hasNewFrame() {
+        return newFrame;
+    }
+
+    /**
+     * Draws the last completed frame, and requests a new frame if needed. Must be called in the Event Dispatch Thread.
+     * @param g the graphics context to draw the frame to
+     * @param nc the component the data is drawn on, it will be repainted when a new frame is completed
+     * @param inactive if the data set should be rendered in inactive mode
+     * @param renderVirtualNodes if virtual nodes should be rendered
+     * @param dataChanged if the data has changed since the last call
+     */
+    public synchronized void paint(Graphics2D g, NavigatableComponent nc, boolean inactive, boolean renderVirtualNodes,
+            boolean dataChanged) {
+        Frame request = new Frame(nc, inactive, renderVirtualNodes);
+        if (dataChanged || !request.isSameRequest(requested)) {
+            startRendering(request, nc);
+        }
+        newFrame = false;
+        Frame frame = completed;
+        if (frame == null)
+            return;
+        if (frame.isSameRequest(request)) {
+            g.drawImage(frame.image, 0, 0, null);
+        } else {
+            // draw the frame of another viewport at its place in the current viewport
+            Point2D p = nc.getPoint2D(frame.topLeft);
+            double factor = frame.scale / nc.getScale();
+            g.drawImage(frame.image, new AffineTransform(factor, 0, 0, factor, p.getX(), p.getY()), null);
+        }
+    }
+
+    private void startRendering(final Frame frame, final NavigatableComponent nc) {
+        cancel();
+        requested = frame;
+        // copy the viewport, which may change while the frame is being rendered
+        final NavigatableComponent viewport = new NavigatableComponent();
+        viewport.setBounds(0, 0, nc.getWidth(), nc.getHeight());
+        viewport.zoomTo(nc.getCenter(), nc.getScale(), true);
+        final Bounds box = viewport.getRealBounds();
+        final int width = Math.max(1, nc.getWidth());
+        final int height = Math.max(1, nc.getHeight());
+        task = EXECUTOR.submit(new Runnable() {
+            @Override
+            public void run() {
+                RenderThread thread = (RenderThread) Thread.currentThread();
+                thread.cancelled = false;
+                BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+                Graphics2D g = image.createGraphics();
+                g.setClip(0, 0, width, height);
+                try {
+                    if (isCancelled(data))
+                        return;
+                    Rendering renderer = MapRendererFactory.getInstance().createActiveRenderer(g, viewport, frame.inactive);
+                    if (renderer instanceof StyledMapRenderer) {
+                        // locks the data set itself, and stops if another thread waits for the lock
+                        renderer.render(data, frame.renderVirtualNodes, box);
+                    } else {
+                        data.getReadLock().lock();
+                        try {
+                            renderer.render(data, frame.renderVirtualNodes, box);
+                        } finally {
+                            data.getReadLock().unlock();
+                        }
+                    }
+                } catch (RuntimeException e) {
+                    // an interrupted rendering may fail, it is only an error if the frame is still needed
+                    if (isRequested(frame) && !thread.cancelled) {
+                        Main.error(e);
+                    }
+                    return;
+                } finally {
+                    g.dispose();
+                    // the viewport is only used for this frame, its multipolygons are not needed any longer
+                    MultipolygonCache.getInstance().clear(viewport);
+                }
+                if (thread.cancelled) {
+                    frameCancelled(frame, nc);
+                } else {
+                    frameCompleted(frame, image, nc);
+                }
+            }
+        });
+    }
+
+    /**
+     * Determines if the rendering in the current thread should stop. A background rendering stops if its frame
+     * has been cancelled, or if another thread waits for the lock of the data set.
+     * @param data the data set which is rendered
+     * @return {@code true} if the rendering should stop
+     */
+    static boolean isCancelled(DataSet data) {
+        Thread current = Thread.currentThread();
+        if (!(current instanceof RenderThread))
+            return current.isInterrupted();
+        RenderThread thread = (RenderThread) current;
+        if (current.isInterrupted() || data.hasQueuedLockThreads()) {
+            thread.cancelled = true;
+        }
+        return thread.cancelled;
+    }
+
+    private synchronized boolean isRequested(Frame frame) {
+        return frame == requested;
+    }
+
+    private synchronized void frameCompleted(Frame frame, BufferedImage image, NavigatableComponent nc) {
+        if (frame != requested || Thread.currentThread().isInterrupted())
+            return;
+        frame.image = image;
+        completed = frame;
+        task = null;
+        newFrame = true;
+        nc.repaint();
+    }
+
+    private synchronized void frameCancelled(Frame frame, NavigatableComponent nc) {
+        if (frame != requested || Thread.currentThread().isInterrupted())
+            return;
+        // the rendering has stopped to let another thread modify the data set, the next repaint requests the frame again
+        requested = null;
+        task = null;
+        nc.repaint();
+    }
+
+    /**
+     * Cancels the rendering of the requested frame, if it is not completed yet.
+     */
+    public synchronized void cancel() {
+        if (task != null) {
+            task.cancel(true);
+            task = null;
+        }
+        requested = null;
+    }
+}
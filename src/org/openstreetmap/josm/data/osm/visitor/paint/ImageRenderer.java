@@ -0,0 +1,152 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.osm.visitor.paint;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+import javax.imageio.ImageIO;
+
+import org.openstreetmap.josm.Main;
+import org.openstreetmap.josm.data.Bounds;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.visitor.paint.relations.MultipolygonCache;
+import org.openstreetmap.josm.gui.NavigatableComponent;
+import org.openstreetmap.josm.gui.mappaint.ElemStyles;
+import org.openstreetmap.josm.gui.mappaint.StyleSource;
+
+/**
+ * Renders a data set with map paint styles to images, without a map view.
+ * <p>
+ * This is meant for batch rendering, e.g. snapshots of changesets on a server. The rendering is done by the
+ * {@link StyledMapRenderer}, with its own viewport for each image. The styles are independent from the map paint
+ * styles of the application. Many images of the same data set can be rendered in parallel by {@link #render(List, int, int)}.
+ * <p>
+ * The data set must not be modified while images are rendered.
+ */
+public class ImageRenderer {
+
+    /** The preference key of the number of images rendered in parallel */
+    public static final String PREF_KEY_THREADS = "mappaint.image-renderer.numberOfThreads";
+
+    private final DataSet data;
+    private final ElemStyles styles;
+    private Color backgroundColor = PaintColors.getBackgroundColor();
+
+    /**
+     * Constructs a new {@code ImageRenderer}.
+     * @param data the data set to render
+     * @param sources the style sources, for instance {@code MapCSSStyleSource}s, which must be loaded
+     * @see StyleSource#loadStyleSource()
+     */
+    public ImageRenderer(DataSet data, Collection<? extends StyleSource> sources) {
+        this.data = data;
+        this.styles = new ElemStyles(sources);
+    }
+
+    /**
+     * Sets the color of the background of the images.
+     * @param backgroundColor the background color, {@code null} for a transparent background
+     */
+    public void setBackgroundColor(Color backgroundColor) {
+        this.backgroundColor = backgroundColor;
+    }
+
+    /**
+     * Renders an image of an area. The area is centered in the image, and extended to the aspect ratio of the image.
+     * @param bounds the area to render
+     * @param width the width of the image, in pixels
+     * @param height the height of the image, in pixels
+     * @return the image
+     */
+    public BufferedImage render(Bounds bounds, int width, int height) {
+        NavigatableComponent nc = new NavigatableComponent();
+        nc.setBounds(0, 0, width, height);
+        nc.zoomTo(bounds);
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = image.createGraphics();
+        try {
+            g.setClip(0, 0, width, height);
+            if (backgroundColor != null) {
+                g.setColor(backgroundColor);
+                g.fillRect(0, 0, width, height);
+            }
+            StyledMapRenderer renderer = new StyledMapRenderer(g, nc, false);
+            renderer.setStyles(styles);
+            renderer.render(data, false, nc.getRealBounds());
+        } finally {
+            g.dispose();
+            // the multipolygons are cached by viewport
+            MultipolygonCache.getInstance().clear(nc);
+        }
+        return image;
+    }
+
+    /**
+     * Renders images of several areas in parallel. The number of threads is given by {@link #PREF_KEY_THREADS}.
+     * @param bounds the areas to render
+     * @param width the width of the images, in pixels
+     * @param height the height of the images, in pixels
+     * @return the images, in the order of the areas
+     */
+    public List<BufferedImage> render(List<Bounds> bounds, final int width, final int height) {
+        List<BufferedImage> result = new ArrayList<>(bounds.size());
+        int threads = Math.min(bounds.size(), Main.pref.getInteger(PREF_KEY_THREADS, Runtime.getRuntime().availableProcessors()));
+        if (threads <= 1) {
+            for (Bounds b : bounds) {
+                result.add(render(b, width, height));
+            }
+            return result;
+        }
+        List<Callable<BufferedImage>> tasks = new ArrayList<>(bounds.size());
+        for (final Bounds b : bounds) {
+            tasks.add(new Callable<BufferedImage>() {
+                @Override
+                public BufferedImage call() {
+                    return render(b, width, height);
+                }
+            });
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread t = new Thread(r, "image-renderer");
+                t.setDaemon(true);
+                return t;
+            }
+        });
+        try {
+            for (Future<BufferedImage> future : executor.invokeAll(tasks)) {
+                result.add(future.get());
+            }
+        } catch (InterruptedException | ExecutionException ex) {
+            throw new RuntimeException(ex);
+        } finally {
+            executor.shutdownNow();
+        }
+        return result;
+    }
+
+    /**
+     * Renders an image of an area to a PNG file.
+     * @param bounds the area to render
+     * @param width the width of the image, in pixels
+     * @param height the height of the image, in pixels
+     * @param file the PNG file
+     * @throws IOException if the file cannot be written
+     */
+    public void renderToPng(Bounds bounds, int width, int height, File file) throws IOException {
+        ImageIO.write(render(bounds, width, height), "png", file);
+    }
+}
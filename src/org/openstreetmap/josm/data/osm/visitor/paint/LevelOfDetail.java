@@ -0,0 +1,244 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.osm.visitor.paint;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+
+import org.openstreetmap.josm.Main;
+import org.openstreetmap.josm.data.coor.EastNorth;
+import org.openstreetmap.josm.data.osm.BBox;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.Node;
+import org.openstreetmap.josm.data.osm.OsmPrimitive;
+import org.openstreetmap.josm.data.osm.Way;
+import org.openstreetmap.josm.data.osm.event.AbstractDatasetChangedEvent;
+import org.openstreetmap.josm.data.osm.event.DataSetListenerAdapter;
+import org.openstreetmap.josm.data.osm.event.NodeMovedEvent;
+import org.openstreetmap.josm.data.osm.event.WayNodesChangedEvent;
+import org.openstreetmap.josm.data.preferences.BooleanProperty;
+import org.openstreetmap.josm.data.preferences.DoubleProperty;
+import org.openstreetmap.josm.data.projection.Projection;
+import org.openstreetmap.josm.data.projection.ProjectionChangeListener;
+import org.openstreetmap.josm.gui.NavigatableComponent;
+
+/**
+ * Level of detail of the rendering when the map is zoomed out.
+ * <p>
+ * Ways are drawn with a geometry simplified by the Douglas-Peucker algorithm, with a tolerance below one pixel,
+ * and ways and relations smaller than a pixel are not drawn at all. The simplified geometries are computed
+ * when needed, for ranges of scales which differ by a factor of two, and are cached until the nodes
+ * of the way change.
+ * <p>
+ * The level of detail is only used when 100 pixels represent more than {@code mappaint.lod.min-distance} meters,
+ * so that the rendering at editing zoom levels is not changed.
+ */
+public final class LevelOfDetail {
+
+    /**
+     * Property to enable the level of detail rendering.
+     */
+    public static final BooleanProperty PROP_ENABLED = new BooleanProperty("mappaint.lod", true);
+    /** Property for the maximal distance of a removed node to the simplified way, in pixels */
+    public static final DoubleProperty PROP_TOLERANCE = new DoubleProperty("mappaint.lod.tolerance", 0.5);
+    /** Property for the minimal size of a drawn way or relation, in pixels */
+    public static final DoubleProperty PROP_MIN_SIZE = new DoubleProperty("mappaint.lod.min-size", 1.0);
+    /** Property for the distance of 100 pixels, in meters, below which all details are drawn */
+    public static final DoubleProperty PROP_MIN_DISTANCE = new DoubleProperty("mappaint.lod.min-distance", 1000.0);
+
+    /** the simplified ways, with the scale range they were simplified for */
+    private static final Map<Way, Simplification> CACHE = Collections.synchronizedMap(new WeakHashMap<Way, Simplification>());
+    /** the data sets whose changes remove outdated simplifications from the cache */
+    private static final Set<DataSet> LISTENED = Collections.newSetFromMap(new WeakHashMap<DataSet, Boolean>());
+    private static final DataSetListenerAdapter INVALIDATOR = new DataSetListenerAdapter(new DataSetListenerAdapter.Listener() {
+        @Override
+        public void processDatasetEvent(AbstractDatasetChangedEvent event) {
+            switch (event.getType()) {
+            case NODE_MOVED:
+                for (OsmPrimitive referrer : ((NodeMovedEvent) event).getNode().getReferrers()) {
+                    CACHE.remove(referrer);
+                }
+                break;
+            case WAY_NODES_CHANGED:
+                CACHE.remove(((WayNodesChangedEvent) event).getChangedWay());
+                break;
+            case DATA_CHANGED:
+                CACHE.clear();
+                break;
+            default:
+                // the geometry of the ways is not changed
+            }
+        }
+    });
+
+    static {
+        Main.addProjectionChangeListener(new ProjectionChangeListener() {
+            @Override
+            public void projectionChanged(Projection oldValue, Projection newValue) {
+                CACHE.clear();
+            }
+        });
+    }
+
+    private static final class Simplification {
+        private final int band;
+        private final List<Node> nodes;
+
+        Simplification(int band, List<Node> nodes) {
+            this.band = band;
+            this.nodes = nodes;
+        }
+    }
+
+    /** the range of scales, the scale is between 2^band and 2^(band+1) */
+    private final int band;
+    /** the maximal distance of a removed node to the simplified way, in east/north units */
+    private final double tolerance;
+    /** the minimal size of a drawn way or relation, in east/north units */
+    private final double minSize;
+
+    private LevelOfDetail(double scale) {
+        band = (int) Math.floor(Math.log(scale) / Math.log(2));
+        // use the lowest scale of the range, so that the tolerance is below the given number of pixels for all scales of the range
+        double bandScale = Math.pow(2, band);
+        tolerance = PROP_TOLERANCE.get() * bandScale;
+        minSize = PROP_MIN_SIZE.get() * scale;
+    }
+
+    /**
+     * Returns the level of detail to use for the given viewport.
+     * @param nc the viewport
+     * @return the level of detail, or {@code null} if the primitives should be drawn with all details
+     */
+    public static LevelOfDetail forViewport(NavigatableComponent nc) {
+        if (!PROP_ENABLED.get() || nc.getDist100Pixel() < PROP_MIN_DISTANCE.get())
+            return null;
+        return new LevelOfDetail(nc.getScale());
+    }
+
+    /**
+     * Determines if a primitive is too small to be drawn. Selected and highlighted primitives are always drawn.
+     * @param osm the way or relation
+     * @return {@code true} if the primitive is smaller than the minimal size
+     */
+    public boolean isTooSmall(OsmPrimitive osm) {
+        if (osm.isSelected() || osm.isHighlighted() || osm instanceof Node)
+            return false;
+        BBox bbox = osm.getBBox();
+        EastNorth topLeft = Main.getProjection().latlon2eastNorth(bbox.getTopLeft());
+        EastNorth bottomRight = Main.getProjection().latlon2eastNorth(bbox.getBottomRight());
+        return Math.abs(bottomRight.east() - topLeft.east()) < minSize && Math.abs(topLeft.north() - bottomRight.north()) < minSize;
+    }
+
+    /**
+     * Returns the nodes to draw for a way.
+     * @param w the way
+     * @return the nodes of the simplified way
+     */
+    public List<Node> getNodes(Way w) {
+        if (w.getNodesCount() <= 2)
+            return w.getNodes();
+        Simplification s = CACHE.get(w);
+        if (s != null && s.band == band)
+            return s.nodes;
+        DataSet ds = w.getDataSet();
+        if (ds != null) {
+            synchronized (LISTENED) {
+                if (LISTENED.add(ds)) {
+                    ds.addDataSetListener(INVALIDATOR);
+                }
+            }
+        }
+        List<Node> nodes = simplify(w.getNodes(), tolerance);
+        CACHE.put(w, new Simplification(band, nodes));
+        return nodes;
+    }
+
+    /**
+     * Simplifies a line with the Douglas-Peucker algorithm.
+     * @param nodes the nodes of the line
+     * @param tolerance the maximal distance of a removed node to the simplified line, in east/north units
+     * @return the nodes of the simplified line, the first and last nodes are always kept
+     */
+    static List<Node> simplify(List<Node> nodes, double tolerance) {
+        int n = nodes.size();
+        double[] east = new double[n];
+        double[] north = new double[n];
+        for (int i = 0; i < n; i++) {
+            EastNorth en = nodes.get(i).getEastNorth();
+            if (en == null)
+                return nodes;
+            east[i] = en.east();
+            north[i] = en.north();
+        }
+        boolean[] keep = new boolean[n];
+        keep[0] = true;
+        keep[n - 1] = true;
+        // ranges of nodes to simplify, stored as pairs of first and last index
+        int[] stack = new int[2 * n];
+        int top = 0;
+        stack[top++] = 0;
+        stack[top++] = n - 1;
+        double tolerance2 = tolerance * tolerance;
+        while (top > 0) {
+            int last = stack[--top];
+            int first = stack[--top];
+            double dx = east[last] - east[first];
+            double dy = north[last] - north[first];
+            double length2 = dx * dx + dy * dy;
+            double maxDistance2 = -1;
+            int farthest = -1;
+            for (int i = first + 1; i < last; i++) {
+                double px = east[i] - east[first];
+                double py = north[i] - north[first];
+                // distance to the segment, not to the line, so that the ends of out-and-back ways are kept
+                double t = length2 == 0 ? 0 : (px * dx + py * dy) / length2;
+                if (t > 1) {
+                    t = 1;
+                } else if (t < 0) {
+                    t = 0;
+                }
+                double ex = px - t * dx;
+                double ey = py - t * dy;
+                double distance2 = ex * ex + ey * ey;
+                if (distance2 > maxDistance2) {
+                    maxDistance2 = distance2;
+                    farthest = i;
+                }
+            }
+            if (farthest >= 0 && maxDistance2 > tolerance2) {
+                keep[farthest] = true;
+                stack[top++] = first;
+                stack[top++] = farthest;
+                stack[top++] = farthest;
+                stack[top++] = last;
+            }
+        }
+        List<Node> result = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            if (keep[i]) {
+                result.add(nodes.get(i));
+            }
+        }
+        return result.size() == n ? nodes : Collections.unmodifiableList(result);
+    }
+
+    /**
+     * Removes all simplified ways from the cache.
+     */
+    public static void clearCache() {
+        CACHE.clear();
+    }
+
+    /**
+     * Returns the number of cached simplified ways.
+     * @return the number of cached simplified ways
+     */
+    static int getCacheSize() {
+        return CACHE.size();
+    }
+
+}
@@ -58,6 +58,8 @@ import org.openstreetmap.josm.data.osm.visitor.Visitor;
 import org.openstreetmap.josm.data.osm.visitor.paint.relations.Multipolygon;
 import org.openstreetmap.josm.data.osm.visitor.paint.relations.Multipolygon.PolyData;
 import org.openstreetmap.josm.data.osm.visitor.paint.relations.MultipolygonCache;
+import org.openstreetmap.josm.data.preferences.BooleanProperty;
+import org.openstreetmap.josm.data.preferences.IntegerProperty;
 import org.openstreetmap.josm.gui.NavigatableComponent;
 import org.openstreetmap.josm.gui.mappaint.AreaElemStyle;
 import org.openstreetmap.josm.gui.mappaint.BoxTextElemStyle;
@@ -88,6 +90,10 @@ public class StyledMapRenderer extends AbstractMapRenderer {
     private static final Pair<Integer, ExecutorService> THREAD_POOL =
             Utils.newThreadPool("mappaint.StyledMapRenderer.style_creation.numberOfThreads");
 
+    private static final IntegerProperty PROP_FILL_AREAS = new IntegerProperty("mappaint.fillareas", 10000000);
+    private static final BooleanProperty PROP_MULTIPOLYGON = new BooleanProperty("mappaint.multipolygon", true);
+    private static final BooleanProperty PROP_RESTRICTION = new BooleanProperty("mappaint.restriction", true);
+
     /**
      * Iterates over a list of Way Nodes and returns screen coordinates that
      * represent a line that is shifted by a certain offset perpendicular
@@ -338,6 +344,9 @@ public class StyledMapRenderer extends AbstractMapRenderer {
 
     private boolean leftHandTraffic;
     private Object antialiasing;
+    /** the level of detail when zoomed out, {@code null} to draw all details */
+    private LevelOfDetail lod;
+    private ElemStyles styles = MapPaintStyles.getStyles();
 
     /**
      * Constructs a new {@code StyledMapRenderer}.
@@ -1312,7 +1321,7 @@ public class StyledMapRenderer extends AbstractMapRenderer {
         double wayLength = 0;
         Point lastPoint = null;
         boolean initialMoveToNeeded = true;
-        List<Node> wayNodes = way.getNodes();
+        List<Node> wayNodes = lod != null ? lod.getNodes(way) : way.getNodes();
         if (wayNodes.size() < 2) return;
 
         // only highlight the segment if the way itself is not highlighted
@@ -1426,6 +1435,14 @@ public class StyledMapRenderer extends AbstractMapRenderer {
         return circum;
     }
 
+    /**
+     * Sets the styles used to render the primitives, instead of the map paint styles of the application.
+     * @param styles the styles
+     */
+    public void setStyles(ElemStyles styles) {
+        this.styles = styles;
+    }
+
     @Override
     public void getColors() {
         super.getColors();
@@ -1446,6 +1463,7 @@ public class StyledMapRenderer extends AbstractMapRenderer {
         showNames = paintSettings.getShowNamesDistance() > circum;
         showIcons = paintSettings.getShowIconsDistance() > circum;
         isOutlineOnly = paintSettings.isOutlineOnly();
+        lod = LevelOfDetail.forViewport(nc);
         orderFont = new Font(Main.pref.get("mappaint.font", "Droid Sans"), Font.PLAIN, Main.pref.getInteger("mappaint.fontsize", 8));
 
         antialiasing = Main.pref.getBoolean("mappaint.use-antialiasing", true) ?
@@ -1461,7 +1479,7 @@ public class StyledMapRenderer extends AbstractMapRenderer {
     private Path2D.Double getPath(Way w) {
         Path2D.Double path = new Path2D.Double();
         boolean initial = true;
-        for (Node n : w.getNodes()) {
+        for (Node n : lod != null ? lod.getNodes(w) : w.getNodes()) {
             EastNorth p = n.getEastNorth();
             if (p != null) {
                 if (initial) {
@@ -1549,18 +1567,18 @@ public class StyledMapRenderer extends AbstractMapRenderer {
         private final int to;
         private final List<StyleRecord> output;
 
-        private final ElemStyles styles = MapPaintStyles.getStyles();
+        private final ElemStyles styles = StyledMapRenderer.this.styles;
 
-        private final boolean drawArea = circum <= Main.pref.getInteger("mappaint.fillareas", 10000000);
-        private final boolean drawMultipolygon = drawArea && Main.pref.getBoolean("mappaint.multipolygon", true);
-        private final boolean drawRestriction = Main.pref.getBoolean("mappaint.restriction", true);
+        private final boolean drawArea = circum <= PROP_FILL_AREAS.get();
+        private final boolean drawMultipolygon = drawArea && PROP_MULTIPOLYGON.get();
+        private final boolean drawRestriction = PROP_RESTRICTION.get();
 
         /**
          * Constructs a new {@code ComputeStyleListWorker}.
          * @param input the primitives to process
          * @param from first index of <code>input</code> to use
          * @param to last index + 1
-         * @param output the list of styles to which styles will be added
+         * @param output the list of styles to which styles will be added, sorted when the worker is done
          */
         public ComputeStyleListWorker(final List<? extends OsmPrimitive> input, int from, int to, List<StyleRecord> output) {
             this.input = input;
@@ -1580,10 +1598,12 @@ public class StyledMapRenderer extends AbstractMapRenderer {
                         osm.accept(this);
                     }
                 }
-                return output;
             } finally {
                 MapCSSStyleSource.STYLE_SOURCE_LOCK.readLock().unlock();
             }
+            // each worker sorts its own output, the sorted runs are merged afterwards
+            Collections.sort(output);
+            return output;
         }
 
         @Override
@@ -1593,12 +1613,16 @@ public class StyledMapRenderer extends AbstractMapRenderer {
 
         @Override
         public void visit(Way w) {
-            add(w, computeFlags(w, true));
+            if (lod == null || !lod.isTooSmall(w)) {
+                add(w, computeFlags(w, true));
+            }
         }
 
         @Override
         public void visit(Relation r) {
-            add(r, computeFlags(r, true));
+            if (lod == null || !lod.isTooSmall(r)) {
+                add(r, computeFlags(r, true));
+            }
         }
 
         @Override
@@ -1637,11 +1661,8 @@ public class StyledMapRenderer extends AbstractMapRenderer {
 
     private class ConcurrentTasksHelper {
 
-        private final List<StyleRecord> allStyleElems;
-
-        public ConcurrentTasksHelper(List<StyleRecord> allStyleElems) {
-            this.allStyleElems = allStyleElems;
-        }
+        /** sorted style lists computed by the workers, in the order of the primitives */
+        private final List<List<StyleRecord>> runs = new ArrayList<>();
 
         void process(List<? extends OsmPrimitive> prims) {
             final List<ComputeStyleListWorker> tasks = new ArrayList<>();
@@ -1651,13 +1672,12 @@ public class StyledMapRenderer extends AbstractMapRenderer {
             for (int i = 0; i < noBuckets; i++) {
                 int from = i*bucketsize;
                 int to = Math.min((i+1)*bucketsize, prims.size());
-                List<StyleRecord> target = singleThread ? allStyleElems : new ArrayList<StyleRecord>(to - from);
-                tasks.add(new ComputeStyleListWorker(prims, from, to, target));
+                tasks.add(new ComputeStyleListWorker(prims, from, to, new ArrayList<StyleRecord>(to - from)));
             }
             if (singleThread) {
                 try {
                     for (ComputeStyleListWorker task : tasks) {
-                        task.call();
+                        runs.add(task.call());
                     }
                 } catch (Exception ex) {
                     throw new RuntimeException(ex);
@@ -1665,13 +1685,31 @@ public class StyledMapRenderer extends AbstractMapRenderer {
             } else if (!tasks.isEmpty()) {
                 try {
                     for (Future<List<StyleRecord>> future : THREAD_POOL.b.invokeAll(tasks)) {
-                        allStyleElems.addAll(future.get());
+                        runs.add(future.get());
                     }
                 } catch (InterruptedException | ExecutionException ex) {
                     throw new RuntimeException(ex);
                 }
             }
         }
+
+        /**
+         * Merges the sorted style lists of all workers.
+         * @return all style records, sorted in paint order
+         */
+        List<StyleRecord> getSortedStyleElems() {
+            int size = 0;
+            for (List<StyleRecord> run : runs) {
+                size += run.size();
+            }
+            List<StyleRecord> result = new ArrayList<>(size);
+            for (List<StyleRecord> run : runs) {
+                result.addAll(run);
+            }
+            // the sort finds the sorted runs and merges them, it does not compare the records of a run again
+            Collections.sort(result);
+            return result;
+        }
     }
 
     @Override
@@ -1684,7 +1722,7 @@ public class StyledMapRenderer extends AbstractMapRenderer {
         try {
             highlightWaySegments = data.getHighlightedWaySegments();
 
-            long timeStart = 0, timePhase1 = 0, timeFinished;
+            long timeStart = 0, timePhase1 = 0, timeSorted = 0, timeFinished;
             if (benchmark) {
                 timeStart = System.currentTimeMillis();
                 System.err.print("BENCHMARK: rendering ");
@@ -1694,9 +1732,7 @@ public class StyledMapRenderer extends AbstractMapRenderer {
             List<Way> ways = data.searchWays(bbox);
             List<Relation> relations = data.searchRelations(bbox);
 
-            final List<StyleRecord> allStyleElems = new ArrayList<>(nodes.size()+ways.size()+relations.size());
-
-            ConcurrentTasksHelper helper = new ConcurrentTasksHelper(allStyleElems);
+            ConcurrentTasksHelper helper = new ConcurrentTasksHelper();
 
             // Need to process all relations first.
             // Reason: Make sure, ElemStyles.getStyleCacheWithRange is
@@ -1704,16 +1740,29 @@ public class StyledMapRenderer extends AbstractMapRenderer {
             // (Could be synchronized, but try to avoid this for
             // performance reasons.)
             helper.process(relations);
+            if (BackgroundRenderer.isCancelled(data))
+                return;
             helper.process(new CompositeList<>(nodes, ways));
+            if (BackgroundRenderer.isCancelled(data))
+                return;
 
             if (benchmark) {
                 timePhase1 = System.currentTimeMillis();
                 System.err.print("phase 1 (calculate styles): " + Utils.getDurationString(timePhase1 - timeStart));
             }
 
-            Collections.sort(allStyleElems); // TODO: try parallel sort when switching to Java 8
+            List<StyleRecord> allStyleElems = helper.getSortedStyleElems();
+
+            if (benchmark) {
+                timeSorted = System.currentTimeMillis();
+                System.err.print("; merge sorted styles: " + Utils.getDurationString(timeSorted - timePhase1));
+            }
 
             for (StyleRecord r : allStyleElems) {
+                if (BackgroundRenderer.isCancelled(data)) {
+                    // the rendering has been cancelled, see BackgroundRenderer
+                    return;
+                }
                 r.style.paintPrimitive(
                         r.osm,
                         paintSettings,
@@ -1726,12 +1775,14 @@ public class StyledMapRenderer extends AbstractMapRenderer {
 
             if (benchmark) {
                 timeFinished = System.currentTimeMillis();
-                System.err.println("; phase 2 (draw): " + Utils.getDurationString(timeFinished - timePhase1) +
+                System.err.println("; phase 2 (draw): " + Utils.getDurationString(timeFinished - timeSorted) +
                     "; total: " + Utils.getDurationString(timeFinished - timeStart) +
                     " (scale: " + circum + " zoom level: " + Selector.GeneralSelector.scale2level(circum) + ")");
             }
 
-            drawVirtualNodes(data, bbox);
+            if (!BackgroundRenderer.isCancelled(data)) {
+                drawVirtualNodes(data, bbox);
+            }
         } finally {
             data.getReadLock().unlock();
         }
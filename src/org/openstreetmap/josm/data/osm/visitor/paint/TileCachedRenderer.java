@@ -0,0 +1,539 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.osm.visitor.paint;
+
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+
+import org.openstreetmap.josm.Main;
+import org.openstreetmap.josm.data.Bounds;
+import org.openstreetmap.josm.data.Preferences.PreferenceChangeEvent;
+import org.openstreetmap.josm.data.Preferences.PreferenceChangedListener;
+import org.openstreetmap.josm.data.SelectionChangedListener;
+import org.openstreetmap.josm.data.coor.EastNorth;
+import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.data.osm.BBox;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.OsmPrimitive;
+import org.openstreetmap.josm.data.osm.WaySegment;
+import org.openstreetmap.josm.data.osm.event.AbstractDatasetChangedEvent;
+import org.openstreetmap.josm.data.osm.event.DataChangedEvent;
+import org.openstreetmap.josm.data.osm.event.DataSetListener;
+import org.openstreetmap.josm.data.osm.event.NodeMovedEvent;
+import org.openstreetmap.josm.data.osm.event.PrimitivesAddedEvent;
+import org.openstreetmap.josm.data.osm.event.PrimitivesRemovedEvent;
+import org.openstreetmap.josm.data.osm.event.RelationMembersChangedEvent;
+import org.openstreetmap.josm.data.osm.event.TagsChangedEvent;
+import org.openstreetmap.josm.data.osm.event.WayNodesChangedEvent;
+import org.openstreetmap.josm.data.osm.visitor.paint.relations.MultipolygonCache;
+import org.openstreetmap.josm.data.preferences.IntegerProperty;
+import org.openstreetmap.josm.gui.NavigatableComponent;
+import org.openstreetmap.josm.gui.mappaint.MapPaintStyles;
+import org.openstreetmap.josm.gui.mappaint.MapPaintStyles.MapPaintSylesUpdateListener;
+
+/**
+ * Renders a data set into raster tiles aligned to the screen, and keeps the tiles in a cache, so that panning the map
+ * only renders the newly exposed tiles.
+ * <p>
+ * The tiles are identified by the scale and their position in a grid of {@link #TILE_SIZE} pixels.
+ * A tile is removed from the cache when a change of the data, of the selection or of the highlighting touches its area.
+ * Changes of the preferences (including the active renderer), the styles, the projection or the filters
+ * clear the whole cache.
+ * The cache holds at most {@link #PROP_CACHE_SIZE} megabytes of tiles and evicts the least recently used ones.
+ * <p>
+ * Primitives near the border of a tile are rendered in all tiles they reach, but labels placed along ways
+ * may be placed differently than in a rendering of the whole viewport.
+ */
+public class TileCachedRenderer implements DataSetListener, SelectionChangedListener, MapPaintSylesUpdateListener,
+        PreferenceChangedListener {
+
+    /**
+     * The preference key to enable tile-cached rendering of data layers.
+     */
+    public static final String PREF_KEY = "mappaint.render.tiles";
+    /**
+     * The maximal size of the tile cache of a data layer, in megabytes.
+     */
+    public static final IntegerProperty PROP_CACHE_SIZE = new IntegerProperty(PREF_KEY + ".cache-size", 64);
+    /**
+     * The width and height of the tiles, in pixels.
+     */
+    public static final int TILE_SIZE = 256;
+    /**
+     * The space around a tile in which primitives are searched, in pixels, so that icons and labels
+     * of primitives outside of the tile are rendered as well.
+     */
+    private static final int MARGIN = 64;
+    /**
+     * Above this number of changed areas, the whole cache is cleared instead of looking for the touched tiles.
+     */
+    private static final int MAX_CHANGED_AREAS = 1000;
+
+    private static final class TileKey {
+        private final long scale;
+        private final long x;
+        private final long y;
+
+        TileKey(double scale, long x, long y) {
+            this.scale = Double.doubleToLongBits(scale);
+            this.x = x;
+            this.y = y;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(scale, x, y);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj)
+                return true;
+            if (obj == null || getClass() != obj.getClass())
+                return false;
+            TileKey other = (TileKey) obj;
+            return scale == other.scale && x == other.x && y == other.y;
+        }
+    }
+
+    private static final class Tile {
+        private final BufferedImage image;
+        /** the area searched for primitives when the tile was rendered */
+        private final BBox extent;
+
+        Tile(BufferedImage image, BBox extent) {
+            this.image = image;
+            this.extent = extent;
+        }
+
+        long getMemory() {
+            return 4L * image.getWidth() * image.getHeight();
+        }
+    }
+
+    private final DataSet data;
+    private final LinkedHashMap<TileKey, Tile> tiles = new LinkedHashMap<>(16, 0.75f, true);
+    private final NavigatableComponent tileViewport = new NavigatableComponent();
+    private long memory;
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    // the state of the rendering settings when the cached tiles were rendered
+    private boolean inactive;
+    private boolean renderVirtualNodes;
+    private String projection;
+    private int highlightUpdateCount;
+    private int filterUpdateCount;
+    private Set<OsmPrimitive> selection = new HashSet<>();
+    /** the highlighted primitives in the area of the cached tiles, and the ways of the highlighted segments */
+    private Set<OsmPrimitive> highlighted = new HashSet<>();
+
+    /**
+     * Constructs a new {@code TileCachedRenderer}. Call {@link #destroy()} when it is not used anymore.
+     * @param data the data set to render
+     */
+    public TileCachedRenderer(DataSet data) {
+        this.data = data;
+        tileViewport.setBounds(0, 0, TILE_SIZE, TILE_SIZE);
+        data.addDataSetListener(this);
+        DataSet.addSelectionListener(this);
+        MapPaintStyles.addMapPaintSylesUpdateListener(this);
+        Main.pref.addPreferenceChangeListener(this);
+    }
+
+    /**
+     * Determines if tile-cached rendering is enabled in the preferences.
+     * @return {@code true} if data layers should be rendered with a tile cache
+     */
+    public static boolean isEnabled() {
+        return Main.pref.getBoolean(PREF_KEY, false);
+    }
+
+    /**
+     * Removes the listeners and clears the cache.
+     */
+    public void destroy() {
+        data.removeDataSetListener(this);
+        DataSet.removeSelectionListener(this);
+        MapPaintStyles.removeMapPaintSylesUpdateListener(this);
+        Main.pref.removePreferenceChangeListener(this);
+        clear();
+        MultipolygonCache.getInstance().clear(tileViewport);
+    }
+
+    /**
+     * Draws the data set, using the cached tiles and rendering the missing ones.
+     * @param g the graphics context to draw to, only the tiles intersecting its clip are drawn
+     * @param nc the viewport
+     * @param inactive if the data set should be rendered in inactive mode
+     * @param renderVirtualNodes if virtual nodes should be rendered
+     */
+    public void paint(Graphics2D g, NavigatableComponent nc, boolean inactive, boolean renderVirtualNodes) {
+        // always take the read lock before the monitor, like the data set events
+        data.getReadLock().lock();
+        try {
+            synchronized (this) {
+                checkSettings(inactive, renderVirtualNodes);
+                double scale = nc.getScale();
+                EastNorth center = nc.getCenter();
+                // position of the viewport in the pixel grid of the tiles
+                long originX = Math.round(center.east() / scale - nc.getWidth() / 2.0);
+                long originY = Math.round(-center.north() / scale - nc.getHeight() / 2.0);
+                Rectangle clip = g.getClipBounds();
+                if (clip == null) {
+                    clip = new Rectangle(0, 0, nc.getWidth(), nc.getHeight());
+                }
+                long minX = floorDiv(originX + clip.x, TILE_SIZE);
+                long maxX = floorDiv(originX + clip.x + clip.width - 1, TILE_SIZE);
+                long minY = floorDiv(originY + clip.y, TILE_SIZE);
+                long maxY = floorDiv(originY + clip.y + clip.height - 1, TILE_SIZE);
+                for (long y = minY; y <= maxY; y++) {
+                    for (long x = minX; x <= maxX; x++) {
+                        Tile tile = getTile(new TileKey(scale, x, y), scale, x, y);
+                        g.drawImage(tile.image, (int) (x * TILE_SIZE - originX), (int) (y * TILE_SIZE - originY), null);
+                    }
+                }
+                if (Main.isDebugEnabled()) {
+                    Main.debug("Tile cache: {0} tiles, {1} kB, {2} hits, {3} misses, {4} evictions",
+                            tiles.size(), memory / 1024, hits, misses, evictions);
+                }
+            }
+        } finally {
+            data.getReadLock().unlock();
+        }
+    }
+
+    private static long floorDiv(long x, long y) {
+        long r = x / y;
+        if ((x % y != 0) && ((x ^ y) < 0)) {
+            r--;
+        }
+        return r;
+    }
+
+    private void checkSettings(boolean inactive, boolean renderVirtualNodes) {
+        String currentProjection = Main.getProjection().toCode();
+        if (inactive != this.inactive || renderVirtualNodes != this.renderVirtualNodes
+                || !Objects.equals(currentProjection, projection)
+                || filterUpdateCount != data.getFilterUpdateCount()) {
+            clear();
+            this.inactive = inactive;
+            this.renderVirtualNodes = renderVirtualNodes;
+            this.projection = currentProjection;
+            this.highlightUpdateCount = data.getHighlightUpdateCount();
+            this.filterUpdateCount = data.getFilterUpdateCount();
+        } else if (highlightUpdateCount != data.getHighlightUpdateCount()) {
+            this.highlightUpdateCount = data.getHighlightUpdateCount();
+            updateHighlighted();
+        }
+    }
+
+    /**
+     * Removes the tiles showing primitives which have been highlighted or unhighlighted.
+     */
+    private void updateHighlighted() {
+        Set<OsmPrimitive> current = new HashSet<>();
+        if (!tiles.isEmpty()) {
+            BBox extent = null;
+            for (Tile tile : tiles.values()) {
+                if (extent == null) {
+                    extent = new BBox(tile.extent);
+                } else {
+                    extent.add(tile.extent);
+                }
+            }
+            addHighlighted(current, extent);
+        }
+        List<BBox> areas = new ArrayList<>();
+        // the highlighting is drawn over the primitives, redraw all old and new highlighted ones
+        addAreas(areas, highlighted, false);
+        addAreas(areas, current, false);
+        highlighted = current;
+        invalidate(areas);
+    }
+
+    private void addHighlighted(Set<OsmPrimitive> result, BBox area) {
+        for (OsmPrimitive p : data.searchNodes(area)) {
+            if (p.isHighlighted()) {
+                result.add(p);
+            }
+        }
+        for (OsmPrimitive p : data.searchWays(area)) {
+            if (p.isHighlighted()) {
+                result.add(p);
+            }
+        }
+        for (OsmPrimitive p : data.searchRelations(area)) {
+            if (p.isHighlighted()) {
+                result.add(p);
+            }
+        }
+        // the highlighted segments and virtual nodes are drawn with their ways
+        for (WaySegment segment : data.getHighlightedWaySegments()) {
+            result.add(segment.way);
+        }
+        for (WaySegment segment : data.getHighlightedVirtualNodes()) {
+            result.add(segment.way);
+        }
+    }
+
+    private Tile getTile(TileKey key, double scale, long x, long y) {
+        Tile tile = tiles.get(key);
+        if (tile != null) {
+            hits++;
+            return tile;
+        }
+        misses++;
+        tileViewport.zoomTo(new EastNorth((x + 0.5) * TILE_SIZE * scale, -(y + 0.5) * TILE_SIZE * scale), scale, true);
+        Bounds box = tileViewport.getLatLonBounds(new Rectangle(-MARGIN, -MARGIN, TILE_SIZE + 2 * MARGIN, TILE_SIZE + 2 * MARGIN));
+        BufferedImage image = new BufferedImage(TILE_SIZE, TILE_SIZE, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = image.createGraphics();
+        try {
+            g.setClip(0, 0, TILE_SIZE, TILE_SIZE);
+            MapRendererFactory.getInstance().createActiveRenderer(g, tileViewport, inactive).render(data, renderVirtualNodes, box);
+        } finally {
+            g.dispose();
+        }
+        tile = new Tile(image, box.toBBox());
+        addHighlighted(highlighted, tile.extent);
+        tiles.put(key, tile);
+        memory += tile.getMemory();
+        long maxMemory = Math.max(1, PROP_CACHE_SIZE.get()) * 1024L * 1024L;
+        Iterator<Tile> it = tiles.values().iterator();
+        // keep at least the new tile, even if the budget is smaller than one tile
+        while (memory > maxMemory && tiles.size() > 1) {
+            Tile eldest = it.next();
+            memory -= eldest.getMemory();
+            it.remove();
+            evictions++;
+        }
+        return tile;
+    }
+
+    /**
+     * Removes all tiles from the cache.
+     */
+    public synchronized void clear() {
+        tiles.clear();
+        highlighted.clear();
+        memory = 0;
+    }
+
+    private synchronized void invalidate(List<BBox> areas) {
+        if (areas.size() > MAX_CHANGED_AREAS) {
+            clear();
+            return;
+        }
+        for (Iterator<Tile> it = tiles.values().iterator(); it.hasNext();) {
+            Tile tile = it.next();
+            for (BBox area : areas) {
+                if (tile.extent.intersects(area)) {
+                    memory -= tile.getMemory();
+                    it.remove();
+                    break;
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the number of tiles found in the cache.
+     * @return the number of cache hits
+     */
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    /**
+     * Returns the number of tiles that had to be rendered.
+     * @return the number of cache misses
+     */
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    /**
+     * Returns the number of tiles removed from the cache to respect the memory budget.
+     * @return the number of evicted tiles
+     */
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    /**
+     * Returns the memory used by the cached tiles.
+     * @return the size of the cached tiles, in bytes
+     */
+    public synchronized long getMemory() {
+        return memory;
+    }
+
+    /**
+     * Returns the number of cached tiles.
+     * @return the number of cached tiles
+     */
+    public synchronized int getTileCount() {
+        return tiles.size();
+    }
+
+    private static void addAreas(List<BBox> areas, Collection<? extends OsmPrimitive> primitives, boolean withReferrers) {
+        for (OsmPrimitive p : primitives) {
+            areas.add(p.getBBox());
+            if (withReferrers) {
+                // styles of ways and relations depend on their members
+                for (OsmPrimitive referrer : p.getReferrers()) {
+                    areas.add(referrer.getBBox());
+                }
+            }
+        }
+    }
+
+    private static void addAreas(List<BBox> areas, AbstractDatasetChangedEvent event) {
+        switch (event.getType()) {
+        case DATA_CHANGED:
+            List<AbstractDatasetChangedEvent> events = ((DataChangedEvent) event).getEvents();
+            if (events == null) {
+                // unknown changes, clear everything
+                areas.add(new BBox(-180, -90, 180, 90));
+            } else {
+                for (AbstractDatasetChangedEvent e : events) {
+                    addAreas(areas, e);
+                }
+            }
+            break;
+        case NODE_MOVED:
+            LatLon oldCoor = ((NodeMovedEvent) event).getOldCoor();
+            if (oldCoor == null) {
+                addAreas(areas, event.getPrimitives(), true);
+                break;
+            }
+            areas.add(new BBox(oldCoor, oldCoor));
+            for (OsmPrimitive p : event.getPrimitives()) {
+                areas.add(p.getBBox());
+                // the referrers were drawn with the node at its old position
+                for (OsmPrimitive referrer : p.getReferrers()) {
+                    BBox area = new BBox(referrer.getBBox());
+                    area.add(oldCoor);
+                    areas.add(area);
+                }
+            }
+            break;
+        case WAY_NODES_CHANGED:
+            BBox oldWay = ((WayNodesChangedEvent) event).getOldBBox();
+            if (oldWay != null) {
+                areas.add(oldWay);
+            }
+            addAreas(areas, event.getPrimitives(), true);
+            break;
+        case RELATION_MEMBERS_CHANGED:
+            BBox oldRelation = ((RelationMembersChangedEvent) event).getOldBBox();
+            if (oldRelation != null) {
+                areas.add(oldRelation);
+            }
+            addAreas(areas, event.getPrimitives(), true);
+            break;
+        case PRIMITIVES_ADDED:
+        case PRIMITIVES_REMOVED:
+        case TAGS_CHANGED:
+            addAreas(areas, event.getPrimitives(), true);
+            break;
+        default:
+            // no visible change
+        }
+    }
+
+    private void processDatasetEvent(AbstractDatasetChangedEvent event) {
+        List<BBox> areas = new ArrayList<>();
+        addAreas(areas, event);
+        invalidate(areas);
+    }
+
+    @Override
+    public void dataChanged(DataChangedEvent event) {
+        processDatasetEvent(event);
+    }
+
+    @Override
+    public void nodeMoved(NodeMovedEvent event) {
+        processDatasetEvent(event);
+    }
+
+    @Override
+    public void primitivesAdded(PrimitivesAddedEvent event) {
+        processDatasetEvent(event);
+    }
+
+    @Override
+    public void primitivesRemoved(PrimitivesRemovedEvent event) {
+        processDatasetEvent(event);
+    }
+
+    @Override
+    public void relationMembersChanged(RelationMembersChangedEvent event) {
+        processDatasetEvent(event);
+    }
+
+    @Override
+    public void tagsChanged(TagsChangedEvent event) {
+        processDatasetEvent(event);
+    }
+
+    @Override
+    public void wayNodesChanged(WayNodesChangedEvent event) {
+        processDatasetEvent(event);
+    }
+
+    @Override
+    public void otherDatasetChange(AbstractDatasetChangedEvent event) {
+        processDatasetEvent(event);
+    }
+
+    @Override
+    public void selectionChanged(Collection<? extends OsmPrimitive> newSelection) {
+        // the selection listeners are informed about the selection of the edit layer, look at our own selection
+        Set<OsmPrimitive> current = new HashSet<>(data.getAllSelected());
+        List<BBox> areas = new ArrayList<>();
+        synchronized (this) {
+            if (current.equals(selection))
+                return;
+            // redraw the primitives which have been selected or unselected
+            for (OsmPrimitive p : selection) {
+                if (!current.contains(p)) {
+                    areas.add(p.getBBox());
+                }
+            }
+            for (OsmPrimitive p : current) {
+                if (!selection.contains(p)) {
+                    areas.add(p.getBBox());
+                }
+            }
+            selection = current;
+        }
+        invalidate(areas);
+    }
+
+    @Override
+    public void mapPaintStylesUpdated() {
+        clear();
+    }
+
+    @Override
+    public void mapPaintStyleEntryUpdated(int idx) {
+        clear();
+    }
+
+    @Override
+    public void preferenceChanged(PreferenceChangeEvent e) {
+        // many preferences change the rendering, e.g. colors and sizes
+        clear();
+    }
+}
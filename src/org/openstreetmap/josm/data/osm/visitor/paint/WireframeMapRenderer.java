@@ -71,6 +71,8 @@ public class WireframeMapRenderer extends AbstractMapRenderer implements Visitor
     protected int connectionNodeSize;
     /** Preference: size of tagged nodes */
     protected int taggedNodeSize;
+    /** Level of detail when zoomed out, {@code null} to draw all details */
+    protected LevelOfDetail lod;
 
     /** Color cache to draw subsequent segments of same color as one <code>Path</code>. */
     protected Color currentColor = null;
@@ -136,6 +138,8 @@ public class WireframeMapRenderer extends AbstractMapRenderer implements Visitor
         unselectedNodeSize = settings.getUnselectedNodeSize();
         connectionNodeSize = settings.getConnectionNodeSize();
         taggedNodeSize = settings.getTaggedNodeSize();
+        // the order numbers need all segments of the ways
+        lod = showOrderNumber ? null : LevelOfDetail.forViewport(nc);
         fillSelectedNode = settings.isFillSelectedNode();
         fillUnselectedNode = settings.isFillUnselectedNode();
         fillConnectionNode = settings.isFillConnectionNode();
@@ -286,7 +290,7 @@ public class WireframeMapRenderer extends AbstractMapRenderer implements Visitor
      */
     @Override
     public void visit(Way w) {
-        if (w.isIncomplete() || w.getNodesCount() < 2)
+        if (w.isIncomplete() || w.getNodesCount() < 2 || (lod != null && lod.isTooSmall(w)))
             return;
 
         /* show direction arrows, if draw.segment.relevant_directions_only is not set, the way is tagged with a direction key
@@ -312,7 +316,7 @@ public class WireframeMapRenderer extends AbstractMapRenderer implements Visitor
             wayColor = dfltWayColor;
         }
 
-        Iterator<Node> it = w.getNodes().iterator();
+        Iterator<Node> it = (lod != null ? lod.getNodes(w) : w.getNodes()).iterator();
         if (it.hasNext()) {
             Point lastP = nc.getPoint(it.next());
             for (int orderNumber = 1; it.hasNext(); orderNumber++) {
@@ -35,6 +35,8 @@ import org.openstreetmap.josm.gui.layer.OsmDataLayer;
 
 /**
  * A memory cache for {@link Multipolygon} objects.
+ * <p>
+ * The cache is synchronized, as it is used both for painting and by validator tests running in other threads.
  * @since 4623
  */
 public final class MultipolygonCache implements DataSetListener, LayerChangeListener, ProjectionChangeListener, SelectionChangedListener {
@@ -79,23 +81,32 @@ public final class MultipolygonCache implements DataSetListener, LayerChangeList
      * @return A multipolygon object for the given relation, or {@code null}
      */
     public Multipolygon get(NavigatableComponent nc, Relation r, boolean forceRefresh) {
-        Multipolygon multipolygon = null;
-        if (nc != null && r != null) {
+        if (nc == null || r == null)
+            return null;
+        Map<Relation, Multipolygon> map2;
+        synchronized (this) {
             Map<DataSet, Map<Relation, Multipolygon>> map1 = cache.get(nc);
             if (map1 == null) {
                 cache.put(nc, map1 = new HashMap<>());
             }
-            Map<Relation, Multipolygon> map2 = map1.get(r.getDataSet());
+            map2 = map1.get(r.getDataSet());
             if (map2 == null) {
                 map1.put(r.getDataSet(), map2 = new HashMap<>());
             }
-            multipolygon = map2.get(r);
-            if (multipolygon == null || forceRefresh) {
-                map2.put(r, multipolygon = new Multipolygon(r));
-                for (PolyData pd : multipolygon.getCombinedPolygons()) {
-                    if (pd.selected) {
-                        selectedPolyData.add(pd);
-                    }
+            Multipolygon multipolygon = map2.get(r);
+            if (multipolygon != null && !forceRefresh)
+                return multipolygon;
+        }
+        // built without holding the lock, so that the style creation workers do not wait for each other
+        Multipolygon multipolygon = new Multipolygon(r);
+        synchronized (this) {
+            Multipolygon existing = forceRefresh ? null : map2.get(r);
+            if (existing != null)
+                return existing;
+            map2.put(r, multipolygon);
+            for (PolyData pd : multipolygon.getCombinedPolygons()) {
+                if (pd.selected) {
+                    selectedPolyData.add(pd);
                 }
             }
         }
@@ -106,7 +117,7 @@ public final class MultipolygonCache implements DataSetListener, LayerChangeList
      * Clears the cache for the given navigatable component.
      * @param nc the navigatable component
      */
-    public void clear(NavigatableComponent nc) {
+    public synchronized void clear(NavigatableComponent nc) {
         Map<DataSet, Map<Relation, Multipolygon>> map = cache.remove(nc);
         if (map != null) {
             map.clear();
@@ -118,7 +129,7 @@ public final class MultipolygonCache implements DataSetListener, LayerChangeList
      * Clears the cache for the given dataset.
      * @param ds the data set
      */
-    public void clear(DataSet ds) {
+    public synchronized void clear(DataSet ds) {
         for (Map<DataSet, Map<Relation, Multipolygon>> map1 : cache.values()) {
             Map<Relation, Multipolygon> map2 = map1.remove(ds);
             if (map2 != null) {
@@ -131,7 +142,7 @@ public final class MultipolygonCache implements DataSetListener, LayerChangeList
     /**
      * Clears the whole cache.
      */
-    public void clear() {
+    public synchronized void clear() {
         cache.clear();
     }
 
@@ -232,27 +243,27 @@ public final class MultipolygonCache implements DataSetListener, LayerChangeList
     }
 
     @Override
-    public void primitivesRemoved(PrimitivesRemovedEvent event) {
+    public synchronized void primitivesRemoved(PrimitivesRemovedEvent event) {
         updateMultipolygonsReferringTo(event);
     }
 
     @Override
-    public void tagsChanged(TagsChangedEvent event) {
+    public synchronized void tagsChanged(TagsChangedEvent event) {
         updateMultipolygonsReferringTo(event);
     }
 
     @Override
-    public void nodeMoved(NodeMovedEvent event) {
+    public synchronized void nodeMoved(NodeMovedEvent event) {
         updateMultipolygonsReferringTo(event);
     }
 
     @Override
-    public void wayNodesChanged(WayNodesChangedEvent event) {
+    public synchronized void wayNodesChanged(WayNodesChangedEvent event) {
         updateMultipolygonsReferringTo(event);
     }
 
     @Override
-    public void relationMembersChanged(RelationMembersChangedEvent event) {
+    public synchronized void relationMembersChanged(RelationMembersChangedEvent event) {
         updateMultipolygonsReferringTo(event);
     }
 
@@ -262,7 +273,7 @@ public final class MultipolygonCache implements DataSetListener, LayerChangeList
     }
 
     @Override
-    public void dataChanged(DataChangedEvent event) {
+    public synchronized void dataChanged(DataChangedEvent event) {
         // Do not call updateMultipolygonsReferringTo as getPrimitives()
         // can return all the data set primitives for this event
         Collection<Map<Relation, Multipolygon>> maps = null;
@@ -294,19 +305,19 @@ public final class MultipolygonCache implements DataSetListener, LayerChangeList
     }
 
     @Override
-    public void layerRemoved(Layer oldLayer) {
+    public synchronized void layerRemoved(Layer oldLayer) {
         if (oldLayer instanceof OsmDataLayer) {
             clear(((OsmDataLayer) oldLayer).data);
         }
     }
 
     @Override
-    public void projectionChanged(Projection oldValue, Projection newValue) {
+    public synchronized void projectionChanged(Projection oldValue, Projection newValue) {
         clear();
     }
 
     @Override
-    public void selectionChanged(Collection<? extends OsmPrimitive> newSelection) {
+    public synchronized void selectionChanged(Collection<? extends OsmPrimitive> newSelection) {
 
         for (Iterator<PolyData> it = selectedPolyData.iterator(); it.hasNext();) {
             it.next().selected = false;
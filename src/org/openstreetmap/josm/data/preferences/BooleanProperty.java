@@ -6,7 +6,7 @@ import org.openstreetmap.josm.Main;
 /**
  * A property containing a {@code Boolean} value.
  */
-public class BooleanProperty extends AbstractProperty<Boolean> {
+public class BooleanProperty extends SnapshotProperty<Boolean> {
 
     /**
      * Constructs a new {@code BooleanProperty}.
@@ -18,7 +18,7 @@ public class BooleanProperty extends AbstractProperty<Boolean> {
     }
 
     @Override
-    public Boolean get() {
+    protected Boolean read() {
         return Main.pref.getBoolean(getKey(), defaultValue);
     }
 
@@ -11,7 +11,7 @@ import org.openstreetmap.josm.data.Preferences.ColorKey;
  * A property containing a {@link Color} value.
  * @since 5464
  */
-public class ColorProperty extends AbstractProperty<Color> implements ColorKey {
+public class ColorProperty extends SnapshotProperty<Color> implements ColorKey {
 
     private final String name;
 
@@ -26,7 +26,7 @@ public class ColorProperty extends AbstractProperty<Color> implements ColorKey {
     }
 
     @Override
-    public Color get() {
+    protected Color read() {
         return Main.pref.getColor(this);
     }
 
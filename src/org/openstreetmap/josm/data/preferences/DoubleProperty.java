@@ -0,0 +1,29 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.preferences;
+
+import org.openstreetmap.josm.Main;
+
+/**
+ * A property containing a {@code Double} value.
+ */
+public class DoubleProperty extends SnapshotProperty<Double> {
+
+    /**
+     * Constructs a new {@code DoubleProperty}.
+     * @param key The property key
+     * @param defaultValue The default value
+     */
+    public DoubleProperty(String key, double defaultValue) {
+        super(key, defaultValue);
+    }
+
+    @Override
+    protected Double read() {
+        return Main.pref.getDouble(getKey(), getDefaultValue());
+    }
+
+    @Override
+    public boolean put(Double value) {
+        return Main.pref.putDouble(getKey(), value);
+    }
+}
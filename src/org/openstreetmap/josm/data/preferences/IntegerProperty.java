@@ -7,7 +7,7 @@ import org.openstreetmap.josm.Main;
  * A property containing an {@code Integer} value.
  * @since 3246
  */
-public class IntegerProperty extends AbstractProperty<Integer> {
+public class IntegerProperty extends SnapshotProperty<Integer> {
 
     /**
      * Constructs a new {@code IntegerProperty}.
@@ -19,7 +19,7 @@ public class IntegerProperty extends AbstractProperty<Integer> {
     }
 
     @Override
-    public Integer get() {
+    protected Integer read() {
         return Main.pref.getInteger(getKey(), getDefaultValue());
     }
 
@@ -0,0 +1,56 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.preferences;
+
+import org.openstreetmap.josm.Main;
+import org.openstreetmap.josm.data.Preferences;
+
+/**
+ * A property which keeps its parsed value until the preferences change.
+ * <p>
+ * The value is read from the preferences by {@link #read()} once for each {@link Preferences#getModificationCount()
+ * change} of the settings. As long as no setting changes, {@link #get()} returns the cached value without taking the lock
+ * of the preferences and without parsing strings, so it can be called from paint code and by several threads.
+ * @param <T> The type of object accessed by this property
+ */
+public abstract class SnapshotProperty<T> extends AbstractProperty<T> {
+
+    /** The value with the modification count of the preferences it has been read at */
+    private static final class CachedValue<T> {
+        private final int modificationCount;
+        private final T value;
+
+        CachedValue(int modificationCount, T value) {
+            this.modificationCount = modificationCount;
+            this.value = value;
+        }
+    }
+
+    private volatile CachedValue<T> cachedValue;
+
+    /**
+     * Constructs a new {@code SnapshotProperty}.
+     * @param key The property key
+     * @param defaultValue The default value
+     */
+    public SnapshotProperty(String key, T defaultValue) {
+        super(key, defaultValue);
+    }
+
+    @Override
+    public T get() {
+        int modificationCount = Main.pref.getModificationCount();
+        CachedValue<T> cached = cachedValue;
+        if (cached == null || cached.modificationCount != modificationCount) {
+            // the value is read after the count, so it is never older than the count
+            cached = new CachedValue<>(modificationCount, read());
+            cachedValue = cached;
+        }
+        return cached.value;
+    }
+
+    /**
+     * Reads the value of this property from the preferences, which also registers its default value.
+     * @return the value of this property
+     */
+    protected abstract T read();
+}
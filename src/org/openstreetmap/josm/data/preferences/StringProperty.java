@@ -6,7 +6,7 @@ import org.openstreetmap.josm.Main;
 /**
  * A property containing an {@code String} value.
  */
-public class StringProperty extends AbstractProperty<String> {
+public class StringProperty extends SnapshotProperty<String> {
 
     /**
      * Constructs a new {@code StringProperty}.
@@ -18,7 +18,7 @@ public class StringProperty extends AbstractProperty<String> {
     }
 
     @Override
-    public String get() {
+    protected String read() {
         return Main.pref.get(getKey(), getDefaultValue());
     }
 
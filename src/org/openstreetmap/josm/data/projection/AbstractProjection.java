@@ -3,7 +3,9 @@ package org.openstreetmap.josm.data.projection;
 
 import org.openstreetmap.josm.data.coor.EastNorth;
 import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.data.projection.datum.AbstractDatum;
 import org.openstreetmap.josm.data.projection.datum.Datum;
+import org.openstreetmap.josm.data.projection.proj.AbstractProj;
 import org.openstreetmap.josm.data.projection.proj.Proj;
 
 /**
@@ -69,6 +71,47 @@ public abstract class AbstractProjection implements Projection {
         return new EastNorth(ellps.a * k0 * en[0] + x0, ellps.a * k0 * en[1] + y0);
     }
 
+    /**
+     * Convert several points from lat/lon to easting/northing, like {@link #latlon2eastNorth(LatLon)}.
+     * This avoids creating objects for every point.
+     *
+     * @param latlon pairs of latitude and longitude (in WGS84, in degrees)
+     * @param eastNorth receives the pairs of east and north coordinates, may be the same array as {@code latlon}
+     * @param offset index of the latitude of the first point, in both arrays
+     * @param count number of points to convert
+     * @see Projections#projectAll(Projection, double[])
+     */
+    public void latlon2eastNorth(double[] latlon, double[] eastNorth, int offset, int count) {
+        int end = offset + 2 * count;
+        if (datum instanceof AbstractDatum) {
+            ((AbstractDatum) datum).fromWGS84(latlon, eastNorth, offset, count);
+        } else {
+            for (int i = offset; i < end; i += 2) {
+                LatLon ll = datum.fromWGS84(new LatLon(latlon[i], latlon[i + 1]));
+                eastNorth[i] = ll.lat();
+                eastNorth[i + 1] = ll.lon();
+            }
+        }
+        for (int i = offset; i < end; i += 2) {
+            eastNorth[i] = Math.toRadians(eastNorth[i]);
+            eastNorth[i + 1] = Math.toRadians(eastNorth[i + 1] - lon0);
+        }
+        if (proj instanceof AbstractProj) {
+            ((AbstractProj) proj).project(eastNorth, offset, count);
+        } else {
+            for (int i = offset; i < end; i += 2) {
+                double[] en = proj.project(eastNorth[i], eastNorth[i + 1]);
+                eastNorth[i] = en[0];
+                eastNorth[i + 1] = en[1];
+            }
+        }
+        double scale = ellps.a * k0;
+        for (int i = offset; i < end; i += 2) {
+            eastNorth[i] = scale * eastNorth[i] + x0;
+            eastNorth[i + 1] = scale * eastNorth[i + 1] + y0;
+        }
+    }
+
     @Override
     public LatLon eastNorth2latlon(EastNorth en) {
         double[] latlon_rad = proj.invproject((en.east() - x0) / ellps.a / k0, (en.north() - y0) / ellps.a / k0);
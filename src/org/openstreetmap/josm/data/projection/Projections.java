@@ -15,6 +15,8 @@ import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -45,6 +47,8 @@ import org.openstreetmap.josm.tools.Utils;
  */
 public final class Projections {
 
+    private static ForkJoinPool projectionPool;
+
     private Projections() {
         // Hide default constructor for utils classes
     }
@@ -59,6 +63,70 @@ public final class Projections {
         return Main.getProjection().eastNorth2latlon(en);
     }
 
+    /**
+     * Converts many points from lat/lon to east/north, in parallel if there are enough points.
+     * The number of threads is given by the {@code projection.numberOfThreads} preference.
+     * @param projection the projection
+     * @param coordinates pairs of latitude and longitude (in WGS84, in degrees),
+     * replaced by the pairs of east and north coordinates
+     * @see AbstractProjection#latlon2eastNorth(double[], double[], int, int)
+     */
+    public static void projectAll(Projection projection, double[] coordinates) {
+        int count = coordinates.length / 2;
+        ForkJoinPool pool = count > ProjectTask.THRESHOLD ? getProjectionPool() : null;
+        if (pool == null) {
+            latlon2eastNorth(projection, coordinates, 0, count);
+        } else {
+            pool.invoke(new ProjectTask(projection, coordinates, 0, count));
+        }
+    }
+
+    private static void latlon2eastNorth(Projection projection, double[] coordinates, int offset, int count) {
+        if (projection instanceof AbstractProjection) {
+            ((AbstractProjection) projection).latlon2eastNorth(coordinates, coordinates, offset, count);
+        } else {
+            // other projections can only convert one point at a time
+            for (int i = offset, end = offset + 2 * count; i < end; i += 2) {
+                EastNorth en = projection.latlon2eastNorth(new LatLon(coordinates[i], coordinates[i + 1]));
+                coordinates[i] = en.east();
+                coordinates[i + 1] = en.north();
+            }
+        }
+    }
+
+    private static synchronized ForkJoinPool getProjectionPool() {
+        if (projectionPool == null) {
+            projectionPool = Utils.newForkJoinPool("projection.numberOfThreads");
+        }
+        return projectionPool;
+    }
+
+    private static class ProjectTask extends RecursiveAction {
+        private static final int THRESHOLD = 4096;
+
+        private final Projection projection;
+        private final double[] coordinates;
+        private final int from;
+        private final int to;
+
+        ProjectTask(Projection projection, double[] coordinates, int from, int to) {
+            this.projection = projection;
+            this.coordinates = coordinates;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= THRESHOLD) {
+                latlon2eastNorth(projection, coordinates, 2 * from, to - from);
+            } else {
+                int middle = (from + to) >>> 1;
+                invokeAll(new ProjectTask(projection, coordinates, from, middle), new ProjectTask(projection, coordinates, middle, to));
+            }
+        }
+    }
+
     /*********************************
      * Registry for custom projection
      *
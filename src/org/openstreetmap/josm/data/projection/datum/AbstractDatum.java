@@ -1,6 +1,7 @@
 // License: GPL. For details, see LICENSE file.
 package org.openstreetmap.josm.data.projection.datum;
 
+import org.openstreetmap.josm.data.coor.LatLon;
 import org.openstreetmap.josm.data.projection.Ellipsoid;
 
 public abstract class AbstractDatum implements Datum {
@@ -35,4 +36,19 @@ public abstract class AbstractDatum implements Datum {
     public Ellipsoid getEllipsoid() {
         return ellps;
     }
+
+    /**
+     * Convert several points from WGS84 to this datum, like {@link #fromWGS84(LatLon)}.
+     * @param latlon pairs of latitude and longitude in WGS84, in degrees
+     * @param result receives the pairs of latitude and longitude in this datum, may be the same array as {@code latlon}
+     * @param offset index of the latitude of the first point, in both arrays
+     * @param count number of points to convert
+     */
+    public void fromWGS84(double[] latlon, double[] result, int offset, int count) {
+        for (int i = offset, end = offset + 2 * count; i < end; i += 2) {
+            LatLon ll = fromWGS84(new LatLon(latlon[i], latlon[i + 1]));
+            result[i] = ll.lat();
+            result[i + 1] = ll.lon();
+        }
+    }
 }
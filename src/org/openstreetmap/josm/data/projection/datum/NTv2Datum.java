@@ -4,8 +4,6 @@ package org.openstreetmap.josm.data.projection.datum;
 import org.openstreetmap.josm.data.coor.LatLon;
 import org.openstreetmap.josm.data.projection.Ellipsoid;
 
-import au.com.objectix.jgridshift.NTv2GridShift;
-
 /**
  * Datum based of NTV2 grid shift file.
  */
@@ -20,15 +18,28 @@ public class NTv2Datum extends AbstractDatum {
 
     @Override
     public LatLon toWGS84(LatLon ll) {
-        NTv2GridShift gs = new NTv2GridShift(ll.lat(), ll.lon());
-        nadgrids.getShiftFile().gridShiftForward(gs);
-        return new LatLon(ll.lat() + gs.getLatShiftDegrees(), ll.lon() + gs.getLonShiftPositiveEastDegrees());
+        double[] shift = new double[2];
+        nadgrids.getGrid().shiftForward(ll.lat(), ll.lon(), shift);
+        return new LatLon(ll.lat() + shift[0], ll.lon() + shift[1]);
     }
 
     @Override
     public LatLon fromWGS84(LatLon ll) {
-        NTv2GridShift gs = new NTv2GridShift(ll.lat(), ll.lon());
-        nadgrids.getShiftFile().gridShiftReverse(gs);
-        return new LatLon(ll.lat() + gs.getLatShiftDegrees(), ll.lon() + gs.getLonShiftPositiveEastDegrees());
+        double[] shift = new double[2];
+        nadgrids.getGrid().shiftReverse(ll.lat(), ll.lon(), shift);
+        return new LatLon(ll.lat() + shift[0], ll.lon() + shift[1]);
+    }
+
+    @Override
+    public void fromWGS84(double[] latlon, double[] result, int offset, int count) {
+        NTv2Grid grid = nadgrids.getGrid();
+        double[] shift = new double[2];
+        for (int i = offset, end = offset + 2 * count; i < end; i += 2) {
+            double lat = latlon[i];
+            double lon = latlon[i + 1];
+            grid.shiftReverse(lat, lon, shift);
+            result[i] = lat + shift[0];
+            result[i + 1] = lon + shift[1];
+        }
     }
 }
@@ -0,0 +1,284 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.projection.datum;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * NTv2 grid shift file, read directly from a buffer.
+ * <p>
+ * The NTv2 format stores the shifts of a datum transformation at the nodes of regular grids of latitude
+ * and longitude. A sub-grid may have finer sub-grids covering parts of its area. When the file is loaded,
+ * only the headers of the sub-grids are read, to build a tree of the sub-grids used to look up the finest
+ * sub-grid containing a point. The shifts are read from the buffer and interpolated when a point is transformed.
+ * When the grid is loaded from a file, the buffer is a memory mapping of the file, so that the grid takes
+ * no space on the heap and the pages of the file are only read when they are used.
+ * <p>
+ * The interpolation is the same as the one of the jGridShift library. Instances are immutable, and can be
+ * used by several threads at the same time.
+ */
+public final class NTv2Grid {
+
+    private static final int RECORD_SIZE = 16;
+    private static final int NODE_SIZE = 16;
+    private static final SubGrid[] NO_SUB_GRIDS = new SubGrid[0];
+
+    /** The grid, in the byte order of the file. Only absolute reads are done, which are thread safe. */
+    private final ByteBuffer buffer;
+    /** The sub-grids without parent */
+    private final SubGrid[] topLevelSubGrids;
+
+    /**
+     * Header of a sub-grid. Coordinates are in seconds, longitudes are positive west as in the file.
+     */
+    private static final class SubGrid {
+        private final double minLat;
+        private final double maxLat;
+        private final double minLon;
+        private final double maxLon;
+        private final double latInterval;
+        private final double lonInterval;
+        private final int columns;
+        private final int rows;
+        /** offset of the first node in the buffer */
+        private final int offset;
+        private SubGrid[] children = NO_SUB_GRIDS;
+
+        SubGrid(double minLat, double maxLat, double minLon, double maxLon, double latInterval, double lonInterval, int offset) {
+            this.minLat = minLat;
+            this.maxLat = maxLat;
+            this.minLon = minLon;
+            this.maxLon = maxLon;
+            this.latInterval = latInterval;
+            this.lonInterval = lonInterval;
+            this.columns = (int) Math.round((maxLon - minLon) / lonInterval) + 1;
+            this.rows = (int) Math.round((maxLat - minLat) / latInterval) + 1;
+            this.offset = offset;
+        }
+
+        private boolean contains(double lat, double lon) {
+            return lat >= minLat && lat < maxLat && lon >= minLon && lon < maxLon;
+        }
+
+        private boolean containsInclusive(double lat, double lon) {
+            return lat >= minLat && lat <= maxLat && lon >= minLon && lon <= maxLon;
+        }
+
+        /**
+         * Returns the finest sub-grid containing a point, this grid if no child contains it.
+         */
+        private SubGrid find(double lat, double lon) {
+            for (SubGrid child : children) {
+                if (child.contains(lat, lon))
+                    return child.find(lat, lon);
+            }
+            return this;
+        }
+    }
+
+    private NTv2Grid(ByteBuffer buffer, SubGrid[] topLevelSubGrids) {
+        this.buffer = buffer;
+        this.topLevelSubGrids = topLevelSubGrids;
+    }
+
+    /**
+     * Loads a grid from a file. The file is mapped into memory, not read.
+     * @param file the grid file (GSB format)
+     * @return the grid
+     * @throws IOException if the file cannot be read or is not a valid NTv2 file
+     */
+    public static NTv2Grid load(File file) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r"); FileChannel channel = raf.getChannel()) {
+            // the mapping stays valid when the channel is closed
+            return load(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /**
+     * Loads a grid from a stream, e.g. a resource of a jar file which cannot be mapped into memory.
+     * The grid is copied to a direct buffer, outside of the heap.
+     * @param in the stream of the grid (GSB format)
+     * @return the grid
+     * @throws IOException if the stream cannot be read or is not a valid NTv2 file
+     */
+    public static NTv2Grid load(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] b = new byte[8192];
+        int n;
+        while ((n = in.read(b)) != -1) {
+            out.write(b, 0, n);
+        }
+        ByteBuffer buffer = ByteBuffer.allocateDirect(out.size());
+        buffer.put(out.toByteArray());
+        return load(buffer);
+    }
+
+    /**
+     * Loads a grid from a buffer.
+     * @param buffer the content of a grid file (GSB format)
+     * @return the grid
+     * @throws IOException if the buffer is not a valid NTv2 file
+     */
+    public static NTv2Grid load(ByteBuffer buffer) throws IOException {
+        try {
+            // the number of overview records is 11, in the byte order of the file
+            buffer.order(ByteOrder.BIG_ENDIAN);
+            if (buffer.getInt(8) != 11) {
+                buffer.order(ByteOrder.LITTLE_ENDIAN);
+            }
+            int overviewRecords = buffer.getInt(8);
+            int subGridRecords = buffer.getInt(RECORD_SIZE + 8);
+            int subGridCount = buffer.getInt(2 * RECORD_SIZE + 8);
+            String type = getString(buffer, 3 * RECORD_SIZE + 8);
+            double unit;
+            if ("SECONDS".equals(type)) {
+                unit = 1;
+            } else if ("MINUTES".equals(type)) {
+                unit = 60;
+            } else if ("DEGREES".equals(type)) {
+                unit = 3600;
+            } else
+                throw new IOException("Unsupported NTv2 grid unit: " + type);
+
+            Map<String, SubGrid> byName = new HashMap<>();
+            Map<SubGrid, String> parents = new HashMap<>();
+            List<SubGrid> subGrids = new ArrayList<>(subGridCount);
+            int offset = overviewRecords * RECORD_SIZE;
+            for (int i = 0; i < subGridCount; i++) {
+                int count = buffer.getInt(offset + 10 * RECORD_SIZE + 8);
+                SubGrid grid = new SubGrid(
+                        buffer.getDouble(offset + 4 * RECORD_SIZE + 8) * unit,
+                        buffer.getDouble(offset + 5 * RECORD_SIZE + 8) * unit,
+                        buffer.getDouble(offset + 6 * RECORD_SIZE + 8) * unit,
+                        buffer.getDouble(offset + 7 * RECORD_SIZE + 8) * unit,
+                        buffer.getDouble(offset + 8 * RECORD_SIZE + 8) * unit,
+                        buffer.getDouble(offset + 9 * RECORD_SIZE + 8) * unit,
+                        offset + subGridRecords * RECORD_SIZE);
+                if (grid.columns * grid.rows != count)
+                    throw new IOException("Invalid NTv2 sub-grid size: " + count);
+                byName.put(getString(buffer, offset + 8), grid);
+                parents.put(grid, getString(buffer, offset + RECORD_SIZE + 8));
+                subGrids.add(grid);
+                offset = grid.offset + count * NODE_SIZE;
+            }
+            if (offset > buffer.capacity())
+                throw new IOException("Truncated NTv2 grid file");
+
+            List<SubGrid> topLevel = new ArrayList<>();
+            for (SubGrid grid : subGrids) {
+                SubGrid parent = byName.get(parents.get(grid));
+                if (parent == null) {
+                    topLevel.add(grid);
+                } else {
+                    SubGrid[] children = new SubGrid[parent.children.length + 1];
+                    System.arraycopy(parent.children, 0, children, 0, parent.children.length);
+                    children[parent.children.length] = grid;
+                    parent.children = children;
+                }
+            }
+            return new NTv2Grid(buffer, topLevel.toArray(new SubGrid[topLevel.size()]));
+        } catch (IndexOutOfBoundsException e) {
+            throw new IOException("Truncated NTv2 grid file", e);
+        }
+    }
+
+    private static String getString(ByteBuffer buffer, int offset) {
+        byte[] b = new byte[8];
+        for (int i = 0; i < b.length; i++) {
+            b[i] = buffer.get(offset + i);
+        }
+        return new String(b, StandardCharsets.US_ASCII).trim();
+    }
+
+    private SubGrid findSubGrid(double lat, double lon) {
+        for (SubGrid grid : topLevelSubGrids) {
+            if (grid.containsInclusive(lat, lon))
+                return grid.find(lat, lon);
+        }
+        return null;
+    }
+
+    /**
+     * Interpolates the shift at a point, in seconds.
+     * @param lat latitude in seconds
+     * @param lon longitude in seconds, positive west
+     * @param shift receives the latitude shift and the longitude shift (positive west), in seconds
+     * @return {@code false} if the point is outside of the grid
+     */
+    private boolean interpolate(double lat, double lon, double[] shift) {
+        SubGrid grid = findSubGrid(lat, lon);
+        if (grid == null)
+            return false;
+        // points on the north or west edge are interpolated in the last cell
+        int column = Math.min((int) ((lon - grid.minLon) / grid.lonInterval), grid.columns - 2);
+        int row = Math.min((int) ((lat - grid.minLat) / grid.latInterval), grid.rows - 2);
+        double x = (lon - (grid.minLon + grid.lonInterval * column)) / grid.lonInterval;
+        double y = (lat - (grid.minLat + grid.latInterval * row)) / grid.latInterval;
+        int a = grid.offset + (column + row * grid.columns) * NODE_SIZE;
+        int b = a + NODE_SIZE;
+        int c = a + grid.columns * NODE_SIZE;
+        int d = c + NODE_SIZE;
+        for (int i = 0; i < 2; i++) {
+            double va = buffer.getFloat(a + 4 * i);
+            double vb = buffer.getFloat(b + 4 * i);
+            double vc = buffer.getFloat(c + 4 * i);
+            double vd = buffer.getFloat(d + 4 * i);
+            shift[i] = va + (vb - va) * x + (vc - va) * y + (va + vd - vb - vc) * x * y;
+        }
+        return true;
+    }
+
+    /**
+     * Computes the shift of a point from the source datum of the grid to its target datum.
+     * @param lat latitude in the source datum, in degrees
+     * @param lon longitude in the source datum, in degrees
+     * @param shift receives the latitude shift and the longitude shift, in degrees. Both are 0 if the point is outside of the grid
+     * @return {@code false} if the point is outside of the grid
+     */
+    public boolean shiftForward(double lat, double lon, double[] shift) {
+        if (!interpolate(lat * 3600, -lon * 3600, shift)) {
+            shift[0] = 0;
+            shift[1] = 0;
+            return false;
+        }
+        shift[0] = shift[0] / 3600;
+        shift[1] = -shift[1] / 3600;
+        return true;
+    }
+
+    /**
+     * Computes the shift of a point from the target datum of the grid to its source datum.
+     * The shift is found by iterating the forward transformation.
+     * @param lat latitude in the target datum, in degrees
+     * @param lon longitude in the target datum, in degrees
+     * @param shift receives the latitude shift and the longitude shift, in degrees. Both are 0 if the point is outside of the grid
+     * @return {@code false} if the point is outside of the grid
+     */
+    public boolean shiftReverse(double lat, double lon, double[] shift) {
+        double latSeconds = lat * 3600;
+        double lonSeconds = -lon * 3600;
+        shift[0] = 0;
+        shift[1] = 0;
+        for (int i = 0; i < 4; i++) {
+            if (!interpolate(latSeconds - shift[0], lonSeconds - shift[1], shift)) {
+                shift[0] = 0;
+                shift[1] = 0;
+                return false;
+            }
+        }
+        shift[0] = -shift[0] / 3600;
+        shift[1] = shift[1] / 3600;
+        return true;
+    }
+}
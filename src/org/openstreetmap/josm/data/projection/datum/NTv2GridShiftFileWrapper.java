@@ -1,7 +1,11 @@
 // License: GPL. For details, see LICENSE file.
 package org.openstreetmap.josm.data.projection.datum;
 
+import java.io.File;
+import java.io.IOException;
 import java.io.InputStream;
+import java.net.URISyntaxException;
+import java.net.URL;
 
 import org.openstreetmap.josm.Main;
 import org.openstreetmap.josm.io.CachedFile;
@@ -9,9 +13,11 @@ import org.openstreetmap.josm.io.CachedFile;
 import au.com.objectix.jgridshift.NTv2GridShiftFile;
 
 /**
- * Wrapper for {@link NTv2GridShiftFile}.
+ * Wrapper for {@link NTv2Grid} and {@link NTv2GridShiftFile}.
  *
- * Loads the shift file from disk, when it is first accessed.
+ * Loads the shift file from disk, when it is first accessed. The {@link NTv2Grid} used by the {@link NTv2Datum}s
+ * maps the file into memory if possible, so all datums using the same wrapper share the same grid without copying it
+ * to the heap.
  * @since 5226
  */
 public class NTv2GridShiftFileWrapper {
@@ -37,6 +43,7 @@ public class NTv2GridShiftFileWrapper {
     // CHECKSTYLE.ON: LineLength
 
     private NTv2GridShiftFile instance = null;
+    private NTv2Grid grid = null;
     private String gridFileName;
 
     /**
@@ -52,7 +59,7 @@ public class NTv2GridShiftFileWrapper {
      * The grid file is only loaded once, when first accessed.
      * @return The NTv2 grid file
      */
-    public NTv2GridShiftFile getShiftFile() {
+    public synchronized NTv2GridShiftFile getShiftFile() {
         if (instance == null) {
             try (InputStream is = new CachedFile(gridFileName).getInputStream()) {
                 instance = new NTv2GridShiftFile();
@@ -64,4 +71,43 @@ public class NTv2GridShiftFileWrapper {
         }
         return instance;
     }
+
+    /**
+     * Returns the grid of this wrapper, used by the {@link NTv2Datum}s.
+     * The grid file is only loaded once, when first accessed, also when several threads project points at the same time.
+     * @return The NTv2 grid
+     * @see #getShiftFile()
+     */
+    public synchronized NTv2Grid getGrid() {
+        if (grid == null) {
+            try {
+                grid = load();
+            } catch (Exception e) {
+                Main.error(e.getMessage());
+                throw new RuntimeException(e);
+            }
+        }
+        return grid;
+    }
+
+    private NTv2Grid load() throws IOException {
+        CachedFile cf = new CachedFile(gridFileName);
+        File file = cf.getFile();
+        if (file == null && gridFileName.startsWith("resource://")) {
+            // a resource can be mapped if it is not packed in a jar file
+            URL url = getClass().getResource(gridFileName.substring("resource:/".length()));
+            if (url != null && "file".equals(url.getProtocol())) {
+                try {
+                    file = new File(url.toURI());
+                } catch (URISyntaxException e) {
+                    Main.warn(e);
+                }
+            }
+        }
+        if (file != null)
+            return NTv2Grid.load(file);
+        try (InputStream is = cf.getInputStream()) {
+            return NTv2Grid.load(is);
+        }
+    }
 }
@@ -24,4 +24,11 @@ public class NullDatum extends AbstractDatum {
         return ll;
     }
 
+    @Override
+    public void fromWGS84(double[] latlon, double[] result, int offset, int count) {
+        if (latlon != result) {
+            System.arraycopy(latlon, offset, result, offset, 2 * count);
+        }
+    }
+
 }
@@ -0,0 +1,28 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.projection.proj;
+
+/**
+ * Base class of {@link Proj} implementations.
+ * <p>
+ * The batch conversion {@link #project(double[], int, int)} converts the points one by one.
+ * Subclasses may override it with a loop which does not allocate an array per point.
+ */
+public abstract class AbstractProj implements Proj {
+
+    /**
+     * Convert several points from lat/lon to east/north, like {@link #project(double, double)}.
+     * The coordinates are converted in place.
+     *
+     * @param coordinates pairs of latitude and longitude in radians, replaced by pairs of east and north value in meters,
+     * divided by the semi major axis of the ellipsoid
+     * @param offset index of the latitude of the first point
+     * @param count number of points to convert
+     */
+    public void project(double[] coordinates, int offset, int count) {
+        for (int i = offset, end = offset + 2 * count; i < end; i += 2) {
+            double[] en = project(coordinates[i], coordinates[i + 1]);
+            coordinates[i] = en[0];
+            coordinates[i + 1] = en[1];
+        }
+    }
+}
@@ -23,7 +23,7 @@ import org.openstreetmap.josm.data.projection.ProjectionConfigurationException;
  *
  * @author Pieren
  */
-public class LambertConformalConic implements Proj {
+public class LambertConformalConic extends AbstractProj {
 
     protected Ellipsoid ellps;
     protected double e;
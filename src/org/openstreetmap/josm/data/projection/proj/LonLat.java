@@ -8,7 +8,7 @@ import org.openstreetmap.josm.data.projection.ProjectionConfigurationException;
 /**
  * Simple Lat/Lon (pseudo-)projection.
  */
-public class LonLat implements Proj {
+public class LonLat extends AbstractProj {
 
     private double a;
 
@@ -32,6 +32,15 @@ public class LonLat implements Proj {
         return new double[] {Math.toDegrees(lon_rad) / a, Math.toDegrees(lat_rad) / a};
     }
 
+    @Override
+    public void project(double[] coordinates, int offset, int count) {
+        for (int i = offset, end = offset + 2 * count; i < end; i += 2) {
+            double lat_rad = coordinates[i];
+            coordinates[i] = Math.toDegrees(coordinates[i + 1]) / a;
+            coordinates[i + 1] = Math.toDegrees(lat_rad) / a;
+        }
+    }
+
     @Override
     public double[] invproject(double east, double north) {
         return new double[] {Math.toRadians(north * a), Math.toRadians(east * a)};
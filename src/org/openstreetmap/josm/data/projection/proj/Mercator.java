@@ -13,7 +13,7 @@ import org.openstreetmap.josm.data.projection.ProjectionConfigurationException;
 /**
  * Mercator Projection.
  */
-public class Mercator implements Proj {
+public class Mercator extends AbstractProj {
 
     @Override
     public String getName() {
@@ -34,6 +34,15 @@ public class Mercator implements Proj {
         return new double[] {lon_rad, log(tan(PI/4 + lat_rad/2))};
     }
 
+    @Override
+    public void project(double[] coordinates, int offset, int count) {
+        for (int i = offset, end = offset + 2 * count; i < end; i += 2) {
+            double lat_rad = coordinates[i];
+            coordinates[i] = coordinates[i + 1];
+            coordinates[i + 1] = log(tan(PI/4 + lat_rad/2));
+        }
+    }
+
     @Override
     public double[] invproject(double east, double north) {
         return new double[] {atan(sinh(north)), east};
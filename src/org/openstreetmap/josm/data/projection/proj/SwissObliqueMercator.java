@@ -32,7 +32,7 @@ import org.openstreetmap.josm.data.projection.ProjectionConfigurationException;
  * <a href="http://www.swisstopo.admin.ch/internet/swisstopo/en/home/topics/survey/sys/refsys/switzerland.parsysrelated1.37696.downloadList.97912.DownloadFile.tmp/swissprojectionen.pdf">
  * this formula (rigorous formulas)</a>.
  */
-public class SwissObliqueMercator implements Proj {
+public class SwissObliqueMercator extends AbstractProj {
 
     // CHECKSTYLE.ON: LineLength
 
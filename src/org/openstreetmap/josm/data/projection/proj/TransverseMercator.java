@@ -17,7 +17,7 @@ import org.openstreetmap.josm.data.projection.ProjectionConfigurationException;
  * code based on JavaScript from Chuck Taylor
  *
  */
-public class TransverseMercator implements Proj {
+public class TransverseMercator extends AbstractProj {
 
     protected double a, b;
 
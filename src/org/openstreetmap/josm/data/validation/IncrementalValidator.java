@@ -0,0 +1,396 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.validation;
+
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.swing.Timer;
+
+import org.openstreetmap.josm.Main;
+import org.openstreetmap.josm.data.osm.BBox;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.Node;
+import org.openstreetmap.josm.data.osm.OsmPrimitive;
+import org.openstreetmap.josm.data.osm.Relation;
+import org.openstreetmap.josm.data.osm.event.AbstractDatasetChangedEvent;
+import org.openstreetmap.josm.data.osm.event.DataChangedEvent;
+import org.openstreetmap.josm.data.osm.event.DataSetListener;
+import org.openstreetmap.josm.data.osm.event.NodeMovedEvent;
+import org.openstreetmap.josm.data.osm.event.PrimitivesAddedEvent;
+import org.openstreetmap.josm.data.osm.event.PrimitivesRemovedEvent;
+import org.openstreetmap.josm.data.osm.event.RelationMembersChangedEvent;
+import org.openstreetmap.josm.data.osm.event.TagsChangedEvent;
+import org.openstreetmap.josm.data.osm.event.WayNodesChangedEvent;
+import org.openstreetmap.josm.data.validation.util.AggregatePrimitivesVisitor;
+import org.openstreetmap.josm.gui.dialogs.validator.ValidatorTreePanel;
+import org.openstreetmap.josm.gui.layer.OsmDataLayer;
+import org.openstreetmap.josm.gui.preferences.validator.ValidatorPreference;
+import org.openstreetmap.josm.gui.util.GuiHelper;
+
+/**
+ * Validates a data layer continuously while it is edited.
+ * <p>
+ * The validator listens to the data set of the layer and records the primitives changed since the last run.
+ * Shortly after the last change, the enabled tests are run again on these primitives, their referrers and
+ * their spatial neighbours only, and the errors of the layer are updated: errors involving a changed primitive,
+ * or only primitives which have been validated again by the same test, are replaced by the new ones.
+ * Other errors are kept.
+ * <p>
+ * Tag tests only look at the primitive they check, so they are only run on the primitives whose tags or members changed,
+ * and not at all when nodes have only been moved. The validator uses its own instances of the tests,
+ * so that it can run at the same time as the validation of the whole layer or of an upload.
+ */
+public class IncrementalValidator implements DataSetListener {
+
+    private final OsmDataLayer layer;
+    private final DataSet ds;
+    /** primitives changed since the last run, guarded by {@code this} */
+    private final Set<OsmPrimitive> changed = new HashSet<>();
+    /** primitives changed since the last run other than by a move of nodes, guarded by {@code this} */
+    private final Set<OsmPrimitive> retagged = new HashSet<>();
+    /** the instances of the tests, by class name, only accessed by {@link Main#worker} */
+    private Map<String, Test> testInstances = new HashMap<>();
+    private final Timer timer;
+    /** whether a validation is in progress, only accessed in the EDT */
+    private boolean running;
+
+    /**
+     * Constructs a new {@code IncrementalValidator} for the given layer.
+     * Call {@link #start()} to begin validation.
+     * @param layer the data layer to validate
+     */
+    public IncrementalValidator(OsmDataLayer layer) {
+        this.layer = layer;
+        this.ds = layer.data;
+        this.timer = new Timer(Main.pref.getInteger("validator.incremental.delay", 1000), new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                validateChanges();
+            }
+        });
+        this.timer.setRepeats(false);
+    }
+
+    /**
+     * Returns the validated layer.
+     * @return the validated layer
+     */
+    public OsmDataLayer getLayer() {
+        return layer;
+    }
+
+    /**
+     * Starts listening to the changes of the data set.
+     */
+    public void start() {
+        ds.addDataSetListener(this);
+    }
+
+    /**
+     * Stops listening to the changes of the data set and forgets the pending changes.
+     */
+    public void stop() {
+        ds.removeDataSetListener(this);
+        timer.stop();
+        synchronized (this) {
+            changed.clear();
+            retagged.clear();
+        }
+    }
+
+    /**
+     * Determines if some primitives have changed since the last validation.
+     * @return {@code true} if some primitives still have to be validated
+     */
+    public synchronized boolean hasChanges() {
+        return !changed.isEmpty();
+    }
+
+    private void markChanged(AbstractDatasetChangedEvent event) {
+        synchronized (this) {
+            changed.addAll(event.getPrimitives());
+            if (!(event instanceof NodeMovedEvent) && !(event instanceof PrimitivesRemovedEvent)) {
+                retagged.addAll(event.getPrimitives());
+            }
+        }
+        GuiHelper.runInEDT(new Runnable() {
+            @Override
+            public void run() {
+                timer.restart();
+            }
+        });
+    }
+
+    /**
+     * Runs the given tests on the primitives changed since the last call, and merges the errors found
+     * with the given ones.
+     * @param tests the tests to run, they must have been initialized
+     * @param errors the errors of the previous validation, not modified
+     * @return the updated list of errors, or {@code errors} itself if nothing changed
+     */
+    public List<TestError> revalidate(Collection<Test> tests, List<TestError> errors) {
+        Set<OsmPrimitive> modified;
+        Set<OsmPrimitive> modifiedTags;
+        synchronized (this) {
+            modified = new HashSet<>(changed);
+            modifiedTags = new HashSet<>(retagged);
+            changed.clear();
+            retagged.clear();
+        }
+        if (modified.isEmpty())
+            return errors;
+        Map<String, Scope> scopes = new HashMap<>();
+        List<TestError> found = new ArrayList<>();
+        ds.getReadLock().lock();
+        try {
+            // a way is modified by the move of its nodes, a relation by the change of its members
+            for (OsmPrimitive p : new ArrayList<>(modified)) {
+                addReferrers(p, modified);
+            }
+            Set<OsmPrimitive> validated = new HashSet<>(getAffectedPrimitives(modified));
+            Set<OsmPrimitive> validatedTags = new HashSet<>();
+            for (OsmPrimitive p : modifiedTags) {
+                if (p.getDataSet() == ds) {
+                    validatedTags.add(p);
+                }
+            }
+            List<Test> otherTests = new ArrayList<>();
+            List<Test> tagTests = new ArrayList<>();
+            for (Test test : tests) {
+                test.setPartialSelection(true);
+                if (test instanceof Test.TagTest) {
+                    tagTests.add(test);
+                    scopes.put(test.getClass().getName(), new Scope(modifiedTags, validatedTags));
+                } else {
+                    otherTests.add(test);
+                    scopes.put(test.getClass().getName(), new Scope(modified, validated));
+                }
+            }
+            ValidationRunner runner = new ValidationRunner();
+            found.addAll(runner.run(otherTests, validated, null));
+            if (!validatedTags.isEmpty()) {
+                found.addAll(runner.run(tagTests, validatedTags, null));
+            }
+        } finally {
+            ds.getReadLock().unlock();
+        }
+        for (TestError error : found) {
+            updateIgnoredState(error);
+        }
+        return mergeErrors(errors, found, scopes);
+    }
+
+    /**
+     * The primitives on which a test has been run again.
+     */
+    static final class Scope {
+        /** the changed primitives, whose errors are outdated */
+        private final Set<OsmPrimitive> changed;
+        /** the primitives validated again, including the changed ones which are still in the data set */
+        private final Set<OsmPrimitive> validated;
+
+        Scope(Set<OsmPrimitive> changed, Set<OsmPrimitive> validated) {
+            this.changed = changed;
+            this.validated = validated;
+        }
+    }
+
+    /**
+     * Returns fresh instances of the given tests, initialized, so that their state is not shared with the validation
+     * of the whole layer. The instances are reused as long as the same tests are enabled.
+     */
+    private Collection<Test> getTestInstances(Collection<Test> enabledTests) {
+        Map<String, Test> instances = new LinkedHashMap<>();
+        for (Test test : enabledTests) {
+            String name = test.getClass().getName();
+            Test instance = testInstances.get(name);
+            if (instance == null) {
+                try {
+                    instance = test.getClass().newInstance();
+                    instance.initialize();
+                } catch (Exception e) {
+                    Main.error(e);
+                    continue;
+                }
+            }
+            instances.put(name, instance);
+        }
+        testInstances = instances;
+        return instances.values();
+    }
+
+    private static void addReferrers(OsmPrimitive p, Set<OsmPrimitive> result) {
+        for (OsmPrimitive referrer : p.getReferrers()) {
+            if (result.add(referrer)) {
+                addReferrers(referrer, result);
+            }
+        }
+    }
+
+    /**
+     * Returns the primitives to validate again after a change of the given primitives: the changed primitives,
+     * the ways and nodes close to them, and all their children.
+     */
+    private Collection<OsmPrimitive> getAffectedPrimitives(Set<OsmPrimitive> primitives) {
+        double margin = Main.pref.getDouble("validator.incremental.margin", 0.0005);
+        List<OsmPrimitive> affected = new ArrayList<>();
+        for (OsmPrimitive p : primitives) {
+            if (p.getDataSet() == ds) {
+                affected.add(p);
+            }
+            // neighbours of removed primitives are affected as well, but relations may be too large to look around
+            if (p instanceof Relation || p.isIncomplete() || (p instanceof Node && ((Node) p).getCoor() == null)) {
+                continue;
+            }
+            BBox bbox = new BBox(p.getBBox());
+            bbox.addPrimitive(p, margin);
+            affected.addAll(ds.searchNodes(bbox));
+            affected.addAll(ds.searchWays(bbox));
+        }
+        return new AggregatePrimitivesVisitor().visit(affected);
+    }
+
+    private static void updateIgnoredState(TestError error) {
+        if (Main.pref.getBoolean(ValidatorPreference.PREF_USE_IGNORE, true)) {
+            for (String state : new String[] {error.getIgnoreState(), error.getIgnoreGroup(), error.getIgnoreSubGroup()}) {
+                if (state != null && OsmValidator.hasIgnoredError(state)) {
+                    error.setIgnored(true);
+                }
+            }
+        }
+    }
+
+    /**
+     * Merges the errors of a partial validation into the errors of the previous one.
+     * @param oldErrors the errors of the previous validation
+     * @param newErrors the errors found by the partial validation
+     * @param scopes the primitives changed and validated again by each test run, by class name of the test
+     * @return the old errors which are not affected by the changes, followed by the new errors
+     */
+    static List<TestError> mergeErrors(Collection<TestError> oldErrors, Collection<TestError> newErrors, Map<String, Scope> scopes) {
+        List<TestError> result = new ArrayList<>(oldErrors.size() + newErrors.size());
+        Set<String> kept = new HashSet<>();
+        for (TestError error : oldErrors) {
+            if (!isOutdated(error, scopes.get(error.getTester().getClass().getName()))) {
+                result.add(error);
+                kept.add(getKey(error));
+            }
+        }
+        for (TestError error : newErrors) {
+            // an error may have been found again from a neighbour which was not changed
+            if (!kept.contains(getKey(error))) {
+                result.add(error);
+            }
+        }
+        return result;
+    }
+
+    private static boolean isOutdated(TestError error, Scope scope) {
+        // the test may not have been run again
+        boolean allValidated = scope != null;
+        for (OsmPrimitive p : error.getPrimitives()) {
+            if (p.isDeleted() || p.getDataSet() == null || (scope != null && scope.changed.contains(p))) {
+                return true;
+            }
+            allValidated = allValidated && scope.validated.contains(p);
+        }
+        return allValidated;
+    }
+
+    private static String getKey(TestError error) {
+        return error.getTester().getClass().getName() + '/' + error.getCode() + '/' + error.getMessage() + '/'
+                + error.getDescription() + '/' + error.getPrimitives();
+    }
+
+    /**
+     * Validates the pending changes in the background and updates the errors displayed for the layer.
+     * Called in the EDT when no change has been made for a while.
+     */
+    private void validateChanges() {
+        if (running || Main.map == null || Main.map.validatorDialog == null)
+            return;
+        final ValidatorTreePanel tree = Main.map.validatorDialog.tree;
+        if (tree.getErrors() != layer.validationErrors) {
+            // the errors of another layer are displayed, wait for the next change
+            return;
+        }
+        final Collection<Test> enabledTests = OsmValidator.getEnabledTests(false);
+        if (enabledTests.isEmpty())
+            return;
+        final List<TestError> errors = new ArrayList<>(layer.validationErrors);
+        running = true;
+        Main.worker.submit(new Runnable() {
+            @Override
+            public void run() {
+                List<TestError> result = null;
+                try {
+                    result = revalidate(getTestInstances(enabledTests), errors);
+                } catch (RuntimeException e) {
+                    Main.error(e);
+                }
+                final List<TestError> newErrors = result;
+                GuiHelper.runInEDT(new Runnable() {
+                    @Override
+                    public void run() {
+                        running = false;
+                        if (newErrors != null && newErrors != errors && tree.getErrors() == layer.validationErrors) {
+                            tree.setErrors(newErrors);
+                            Main.map.repaint();
+                        }
+                        if (hasChanges()) {
+                            timer.restart();
+                        }
+                    }
+                });
+            }
+        });
+    }
+
+    @Override
+    public void primitivesAdded(PrimitivesAddedEvent event) {
+        markChanged(event);
+    }
+
+    @Override
+    public void primitivesRemoved(PrimitivesRemovedEvent event) {
+        markChanged(event);
+    }
+
+    @Override
+    public void tagsChanged(TagsChangedEvent event) {
+        markChanged(event);
+    }
+
+    @Override
+    public void nodeMoved(NodeMovedEvent event) {
+        markChanged(event);
+    }
+
+    @Override
+    public void wayNodesChanged(WayNodesChangedEvent event) {
+        markChanged(event);
+    }
+
+    @Override
+    public void relationMembersChanged(RelationMembersChangedEvent event) {
+        markChanged(event);
+    }
+
+    @Override
+    public void otherDatasetChange(AbstractDatasetChangedEvent event) {
+        // Do nothing
+    }
+
+    @Override
+    public void dataChanged(DataChangedEvent event) {
+        markChanged(event);
+    }
+}
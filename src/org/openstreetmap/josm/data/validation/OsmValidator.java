@@ -77,6 +77,9 @@ public class OsmValidator implements LayerChangeListener {
     /** The validate action */
     public ValidateAction validateAction = new ValidateAction();
 
+    /** The validator of the edit layer while editing, if enabled */
+    private IncrementalValidator incrementalValidator;
+
     /** Grid detail, multiplier of east,north values for valuable cell sizing */
     public static double griddetail;
 
@@ -149,6 +152,22 @@ public class OsmValidator implements LayerChangeListener {
         loadIgnoredErrors(); //FIXME: load only when needed
     }
 
+    /**
+     * Starts or stops the incremental validation of the edit layer, according to the preferences.
+     * Called when the edit layer or the preference {@link ValidatorPreference#PREF_INCREMENTAL} changes.
+     */
+    public void updateIncrementalValidator() {
+        OsmDataLayer layer = ValidatorPreference.PREF_INCREMENTAL.get() && Main.main != null ? Main.main.getEditLayer() : null;
+        if (incrementalValidator != null && incrementalValidator.getLayer() != layer) {
+            incrementalValidator.stop();
+            incrementalValidator = null;
+        }
+        if (incrementalValidator == null && layer != null) {
+            incrementalValidator = new IncrementalValidator(layer);
+            incrementalValidator.start();
+        }
+    }
+
     /**
      * Returns the validator directory.
      *
@@ -340,6 +359,7 @@ public class OsmValidator implements LayerChangeListener {
     /* -------------------------------------------------------------------------- */
     @Override
     public void activeLayerChange(Layer oldLayer, Layer newLayer) {
+        updateIncrementalValidator();
     }
 
     @Override
@@ -348,6 +368,10 @@ public class OsmValidator implements LayerChangeListener {
 
     @Override
     public void layerRemoved(Layer oldLayer) {
+        if (incrementalValidator != null && incrementalValidator.getLayer() == oldLayer) {
+            incrementalValidator.stop();
+            incrementalValidator = null;
+        }
         if (oldLayer == errorLayer) {
             errorLayer = null;
             return;
@@ -7,6 +7,9 @@ import java.awt.GridBagConstraints;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
 
 import javax.swing.JCheckBox;
 import javax.swing.JPanel;
@@ -113,6 +116,85 @@ public class Test extends AbstractVisitor {
          */
         public abstract void check(final OsmPrimitive p);
 
+        /**
+         * Checks the tags of the given primitive and adds the errors found to the given list instead of {@link #errors}.
+         * <p>
+         * This method is called concurrently from several threads if {@link #isConcurrentCheckSupported()} returns {@code true}.
+         * It must not modify the state of the test. The default implementation calls {@link #check(OsmPrimitive)} and moves
+         * the errors it adds to the given list, which is not thread-safe: tests supporting concurrent checks override it.
+         * @param p The primitive to test
+         * @param errors The list to which the errors are added
+         */
+        public void check(OsmPrimitive p, List<TestError> errors) {
+            int size = this.errors.size();
+            check(p);
+            List<TestError> added = this.errors.subList(size, this.errors.size());
+            errors.addAll(added);
+            added.clear();
+        }
+
+        /**
+         * Determines if {@link #check(OsmPrimitive, List)} is implemented and can be called concurrently,
+         * so that {@link #visit(Collection, ForkJoinPool)} can split the primitives across the given pool.
+         * @return {@code true} if the primitives can be checked concurrently. {@code false} by default
+         */
+        public boolean isConcurrentCheckSupported() {
+            return false;
+        }
+
+        @Override
+        public void visit(Collection<OsmPrimitive> selection, ForkJoinPool pool) {
+            if (pool == null || !isConcurrentCheckSupported()) {
+                visit(selection);
+                return;
+            }
+            progressMonitor.setTicksCount(selection.size());
+            CheckTask task = new CheckTask(new ArrayList<>(selection), 0, selection.size());
+            errors.addAll(ForkJoinTask.inForkJoinPool() ? task.invoke() : pool.invoke(task));
+        }
+
+        /**
+         * Checks a range of primitives, splitting it in halves until it is small enough.
+         * The errors of the two halves are concatenated in order, so that they are the same as a sequential run.
+         */
+        private class CheckTask extends RecursiveTask<List<TestError>> {
+            private static final int THRESHOLD = 256;
+
+            private final List<OsmPrimitive> primitives;
+            private final int from;
+            private final int to;
+
+            CheckTask(List<OsmPrimitive> primitives, int from, int to) {
+                this.primitives = primitives;
+                this.from = from;
+                this.to = to;
+            }
+
+            @Override
+            protected List<TestError> compute() {
+                if (to - from <= THRESHOLD) {
+                    List<TestError> result = new ArrayList<>();
+                    for (int i = from; i < to; i++) {
+                        OsmPrimitive p = primitives.get(i);
+                        if (isPrimitiveUsable(p)) {
+                            check(p, result);
+                        }
+                    }
+                    synchronized (progressMonitor) {
+                        progressMonitor.worked(to - from);
+                    }
+                    return result;
+                }
+                int middle = (from + to) >>> 1;
+                CheckTask left = new CheckTask(primitives, from, middle);
+                CheckTask right = new CheckTask(primitives, middle, to);
+                invokeAll(left, right);
+                List<TestError> result = left.join();
+                result.addAll(right.join());
+                return result;
+            }
+        }
+
         @Override
         public void visit(Node n) {
             check(n);
@@ -204,6 +286,26 @@ public class Test extends AbstractVisitor {
         }
     }
 
+    /**
+     * Visits all primitives to be tested, using the given pool if the test can take advantage of it.
+     * The resulting errors must be the same as with {@link #visit(Collection)}, which is called by default.
+     *
+     * @param selection The primitives to be tested
+     * @param pool The pool in which concurrent work can be done, may be {@code null}
+     */
+    public void visit(Collection<OsmPrimitive> selection, ForkJoinPool pool) {
+        visit(selection);
+    }
+
+    /**
+     * Determines if this test can run at the same time as other tests, in another thread.
+     * This is the case if the test keeps its state in its own fields and does not modify any shared data.
+     * @return {@code true} if this test can run concurrently with other tests. {@code false} by default
+     */
+    public boolean isConcurrent() {
+        return false;
+    }
+
     /**
      * Determines if the primitive is usable for tests.
      * @param p The primitive
@@ -0,0 +1,113 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.validation;
+
+import static org.openstreetmap.josm.tools.I18n.tr;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+import org.openstreetmap.josm.data.osm.OsmPrimitive;
+import org.openstreetmap.josm.gui.progress.ProgressMonitor;
+import org.openstreetmap.josm.tools.Utils;
+
+/**
+ * Runs a collection of validation tests against a collection of primitives.
+ * <p>
+ * Tests which are {@linkplain Test#isConcurrent() concurrent} are run in a fork-join pool, while the other tests
+ * are run one after another in the calling thread. Each test may also use the pool to split its own work, see
+ * {@link Test#visit(Collection, ForkJoinPool)}. The errors are returned in the order of the tests, so that the
+ * result is the same as the one of a sequential run.
+ */
+public class ValidationRunner {
+
+    private static ForkJoinPool defaultPool;
+
+    private final ForkJoinPool pool;
+
+    /**
+     * Constructs a new {@code ValidationRunner} using the shared validator pool,
+     * sized by the {@code validator.numberOfThreads} preference.
+     */
+    public ValidationRunner() {
+        this(getDefaultPool());
+    }
+
+    /**
+     * Constructs a new {@code ValidationRunner} using the given pool.
+     * @param pool the fork-join pool, or {@code null} to run all tests sequentially in the calling thread
+     */
+    public ValidationRunner(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    private static synchronized ForkJoinPool getDefaultPool() {
+        if (defaultPool == null) {
+            defaultPool = Utils.newForkJoinPool("validator.numberOfThreads");
+        }
+        return defaultPool;
+    }
+
+    /**
+     * Runs the given tests against the given primitives.
+     * <p>
+     * The tests must have been initialized, and {@link Test#setPartialSelection} or {@link Test#setBeforeUpload}
+     * called as needed. The run stops before starting a new test if the progress monitor is canceled.
+     * @param tests the tests to run
+     * @param selection the primitives to validate
+     * @param progressMonitor the progress monitor, must have been started with enough ticks for a sub task
+     * of {@code selection.size()} ticks per test. If {@code null}, the tests do not report any progress
+     * @return the errors found by all tests, in the order of the tests
+     */
+    public List<TestError> run(Collection<Test> tests, final Collection<OsmPrimitive> selection, final ProgressMonitor progressMonitor) {
+        final List<Test> testList = new ArrayList<>(tests);
+        final List<ForkJoinTask<?>> tasks = new ArrayList<>(testList.size());
+        for (final Test test : testList) {
+            if (pool != null && test.isConcurrent()) {
+                test.startTest(progressMonitor == null ? null : progressMonitor.createSubTaskMonitor(selection.size(), false));
+                tasks.add(pool.submit(new RecursiveAction() {
+                    @Override
+                    protected void compute() {
+                        if (progressMonitor == null || !progressMonitor.isCanceled()) {
+                            test.visit(selection, pool);
+                        }
+                        test.endTest();
+                    }
+                }));
+            } else {
+                tasks.add(null);
+            }
+        }
+        List<Test> done = new ArrayList<>(testList.size());
+        for (int i = 0; i < testList.size(); i++) {
+            Test test = testList.get(i);
+            if (tasks.get(i) != null) {
+                done.add(test);
+                continue;
+            }
+            if (progressMonitor != null) {
+                if (progressMonitor.isCanceled()) {
+                    break;
+                }
+                progressMonitor.setCustomText(tr("Test {0}/{1}: Starting {2}", i + 1, testList.size(), test.getName()));
+            }
+            test.startTest(progressMonitor == null ? null : progressMonitor.createSubTaskMonitor(selection.size(), false));
+            test.visit(selection, pool);
+            test.endTest();
+            done.add(test);
+        }
+        for (ForkJoinTask<?> task : tasks) {
+            if (task != null) {
+                task.join();
+            }
+        }
+        List<TestError> errors = new ArrayList<>(200);
+        for (Test test : done) {
+            errors.addAll(test.getErrors());
+        }
+        return errors;
+    }
+}
@@ -53,4 +53,9 @@ public class LongSegment extends Test {
     public boolean isPrimitiveUsable(OsmPrimitive p) {
         return p.isUsable() && p instanceof Way && ((Way) p).getNodesCount() > 1; // test only Ways with at least 2 nodes
     }
+
+    @Override
+    public boolean isConcurrent() {
+        return true;
+    }
 }
@@ -11,6 +11,7 @@ import java.io.StringReader;
 import java.text.MessageFormat;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
@@ -50,6 +51,7 @@ import org.openstreetmap.josm.gui.mappaint.mapcss.Instruction;
 import org.openstreetmap.josm.gui.mappaint.mapcss.MapCSSRule;
 import org.openstreetmap.josm.gui.mappaint.mapcss.MapCSSRule.Declaration;
 import org.openstreetmap.josm.gui.mappaint.mapcss.MapCSSStyleSource;
+import org.openstreetmap.josm.gui.mappaint.mapcss.MapCSSStyleSource.MapCSSRuleIndex;
 import org.openstreetmap.josm.gui.mappaint.mapcss.Selector;
 import org.openstreetmap.josm.gui.mappaint.mapcss.Selector.AbstractSelector;
 import org.openstreetmap.josm.gui.mappaint.mapcss.Selector.GeneralSelector;
@@ -58,6 +60,7 @@ import org.openstreetmap.josm.gui.mappaint.mapcss.parsergen.ParseException;
 import org.openstreetmap.josm.gui.preferences.SourceEntry;
 import org.openstreetmap.josm.gui.preferences.validator.ValidatorPreference;
 import org.openstreetmap.josm.gui.preferences.validator.ValidatorTagCheckerRulesPreference;
+import org.openstreetmap.josm.gui.progress.ProgressMonitor;
 import org.openstreetmap.josm.io.CachedFile;
 import org.openstreetmap.josm.io.IllegalDataException;
 import org.openstreetmap.josm.io.UTFInputStreamReader;
@@ -233,6 +236,65 @@ public class MapCSSTagChecker extends Test.TagTest {
 
     final MultiMap<String, TagCheck> checks = new MultiMap<>();
 
+    /** The index of the checks used by the running test, built from {@link #checks} when the test starts */
+    private TagCheckIndex indexInUse;
+    private boolean includeOtherSeverityInUse;
+
+    /**
+     * An index of tag checks by the keys and values required by their selectors, so that only the checks which
+     * may match a primitive are evaluated. It relies on a {@link MapCSSRuleIndex} holding one rule per selector.
+     * Once built, the index is not modified and may be used from several threads.
+     */
+    static final class TagCheckIndex {
+        private final List<TagCheck> tagChecks = new ArrayList<>();
+        private final MapCSSRuleIndex ruleIndex = new MapCSSRuleIndex();
+
+        /**
+         * A rule for one of the selectors of a check, remembering the position of the check.
+         */
+        private static final class TagCheckRule extends MapCSSRule {
+            private final int checkIndex;
+
+            TagCheckRule(Selector selector, Declaration declaration, int checkIndex) {
+                super(selector, declaration);
+                this.checkIndex = checkIndex;
+            }
+        }
+
+        /**
+         * Constructs a new {@code TagCheckIndex}.
+         * @param checksCol the checks to index, in the order they are evaluated
+         */
+        TagCheckIndex(Collection<Set<TagCheck>> checksCol) {
+            for (Set<TagCheck> schecks : checksCol) {
+                for (TagCheck check : schecks) {
+                    for (Selector selector : check.rule.selectors) {
+                        ruleIndex.add(new TagCheckRule(selector, check.rule.declaration, tagChecks.size()));
+                    }
+                    tagChecks.add(check);
+                }
+            }
+            ruleIndex.initIndex();
+        }
+
+        /**
+         * Returns the checks which may match the given primitive. Other checks are guaranteed not to match.
+         * @param p the primitive
+         * @return the candidate checks, in the order of the indexed checks
+         */
+        List<TagCheck> getCandidates(OsmPrimitive p) {
+            final BitSet candidates = new BitSet(tagChecks.size());
+            for (Iterator<MapCSSRule> it = ruleIndex.getRuleCandidates(p); it.hasNext();) {
+                candidates.set(((TagCheckRule) it.next()).checkIndex);
+            }
+            final List<TagCheck> result = new ArrayList<>(candidates.cardinality());
+            for (int i = candidates.nextSetBit(0); i >= 0; i = candidates.nextSetBit(i + 1)) {
+                result.add(tagChecks.get(i));
+            }
+            return result;
+        }
+    }
+
     static class TagCheck implements Predicate<OsmPrimitive> {
         protected final GroupedMapCSSRule rule;
         protected final List<FixCommand> fixCommands = new ArrayList<>();
@@ -638,23 +700,45 @@ public class MapCSSTagChecker extends Test.TagTest {
         final Environment env = new Environment(p, new MultiCascade(), Environment.DEFAULT_LAYER, null);
         for (Set<TagCheck> schecks : checksCol) {
             for (TagCheck check : schecks) {
-                if (Severity.OTHER.equals(check.getSeverity()) && !includeOtherSeverity) {
-                    continue;
-                }
-                final Selector selector = check.whichSelectorMatchesEnvironment(env);
-                if (selector != null) {
-                    check.rule.declaration.execute(env);
-                    final TestError error = check.getErrorForPrimitive(p, selector, env);
-                    if (error != null) {
-                        error.setTester(new MapCSSTagCheckerAndRule(check.rule));
-                        r.add(error);
-                    }
-                }
+                addErrorForPrimitive(p, includeOtherSeverity, check, env, r);
             }
         }
         return r;
     }
 
+    /**
+     * Obtains all {@link TestError}s for the {@link OsmPrimitive} {@code p}, evaluating only the candidate checks
+     * of the given index. The result is the same as evaluating all the indexed checks.
+     * @param p The OSM primitive
+     * @param includeOtherSeverity if {@code true}, errors of severity {@link Severity#OTHER} (info) will also be returned
+     * @param index the index of the checks
+     * @return all errors for the given primitive, with or without those of "info" severity
+     */
+    static Collection<TestError> getErrorsForPrimitive(OsmPrimitive p, boolean includeOtherSeverity, TagCheckIndex index) {
+        final List<TestError> r = new ArrayList<>();
+        final Environment env = new Environment(p, new MultiCascade(), Environment.DEFAULT_LAYER, null);
+        for (TagCheck check : index.getCandidates(p)) {
+            addErrorForPrimitive(p, includeOtherSeverity, check, env, r);
+        }
+        return r;
+    }
+
+    private static void addErrorForPrimitive(OsmPrimitive p, boolean includeOtherSeverity, TagCheck check,
+            Environment env, List<TestError> r) {
+        if (Severity.OTHER.equals(check.getSeverity()) && !includeOtherSeverity) {
+            return;
+        }
+        final Selector selector = check.whichSelectorMatchesEnvironment(env);
+        if (selector != null) {
+            check.rule.declaration.execute(env);
+            final TestError error = check.getErrorForPrimitive(p, selector, env);
+            if (error != null) {
+                error.setTester(new MapCSSTagCheckerAndRule(check.rule));
+                r.add(error);
+            }
+        }
+    }
+
     /**
      * Visiting call for primitives.
      *
@@ -662,7 +746,47 @@ public class MapCSSTagChecker extends Test.TagTest {
      */
     @Override
     public void check(OsmPrimitive p) {
-        errors.addAll(getErrorsForPrimitive(p, ValidatorPreference.PREF_OTHER.get()));
+        check(p, errors);
+    }
+
+    /**
+     * Visiting call for primitives, which can be made concurrently during a test.
+     * The checks are those indexed when the test started, so that no lock is needed.
+     *
+     * @param p The primitive to inspect.
+     * @param errors The list to which the errors are added
+     */
+    @Override
+    public void check(OsmPrimitive p, List<TestError> errors) {
+        final TagCheckIndex index = indexInUse;
+        if (index == null) {
+            errors.addAll(getErrorsForPrimitive(p, ValidatorPreference.PREF_OTHER.get()));
+        } else {
+            errors.addAll(getErrorsForPrimitive(p, includeOtherSeverityInUse, index));
+        }
+    }
+
+    @Override
+    public synchronized void startTest(ProgressMonitor progressMonitor) {
+        super.startTest(progressMonitor);
+        indexInUse = new TagCheckIndex(checks.values());
+        includeOtherSeverityInUse = ValidatorPreference.PREF_OTHER.get();
+    }
+
+    @Override
+    public synchronized void endTest() {
+        indexInUse = null;
+        super.endTest();
+    }
+
+    @Override
+    public boolean isConcurrent() {
+        return true;
+    }
+
+    @Override
+    public boolean isConcurrentCheckSupported() {
+        return true;
     }
 
     /**
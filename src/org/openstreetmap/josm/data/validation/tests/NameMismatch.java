@@ -104,4 +104,9 @@ public class NameMismatch extends Test.TagTest {
             }
         }
     }
+
+    @Override
+    public boolean isConcurrent() {
+        return true;
+    }
 }
@@ -45,4 +45,9 @@ public class SelfIntersectingWay extends Test {
             }
         }
     }
+
+    @Override
+    public boolean isConcurrent() {
+        return true;
+    }
 }
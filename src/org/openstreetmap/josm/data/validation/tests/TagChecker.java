@@ -20,6 +20,7 @@ import java.util.Locale;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.regex.PatternSyntaxException;
@@ -316,6 +317,17 @@ public class TagChecker extends TagTest {
      */
     @Override
     public void check(OsmPrimitive p) {
+        check(p, errors);
+    }
+
+    /**
+     * Checks the primitive tags. The check only reads the dictionaries and the settings of this test,
+     * so that it can be run concurrently.
+     * @param p The primitive to check
+     * @param errors The list to which the errors are added
+     */
+    @Override
+    public void check(OsmPrimitive p, List<TestError> errors) {
         // Just a collection to know if a primitive has been already marked with error
         MultiMap<OsmPrimitive, String> withErrors = new MultiMap<>();
 
@@ -502,6 +514,23 @@ public class TagChecker extends TagTest {
         }
     }
 
+    @Override
+    public void visit(Collection<OsmPrimitive> selection, ForkJoinPool pool) {
+        if (checkKeys || checkValues || checkComplex || checkFixmes) {
+            super.visit(selection, pool);
+        }
+    }
+
+    @Override
+    public boolean isConcurrent() {
+        return true;
+    }
+
+    @Override
+    public boolean isConcurrentCheckSupported() {
+        return true;
+    }
+
     @Override
     public void addGui(JPanel testPanel) {
         GBC a = GBC.eol();
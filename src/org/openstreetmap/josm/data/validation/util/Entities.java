@@ -381,13 +381,16 @@ public class Entities {
                             }
                         }
                     } else { // escaped value content is an entity name
-                        if (mapNameToValue == null) {
-                            mapNameToValue = new HashMap<>();
+                        Map<String, String> map = mapNameToValue;
+                        if (map == null) {
+                            // fill the map before publishing it, other threads may be unescaping at the same time
+                            map = new HashMap<>();
                             for (String[] pair : ARRAY) {
-                                mapNameToValue.put(pair[0], pair[1]);
+                                map.put(pair[0], pair[1]);
                             }
+                            mapNameToValue = map;
                         }
-                        String value = mapNameToValue.get(entityContent);
+                        String value = map.get(entityContent);
                         entityValue = (value == null ? -1 : Integer.parseInt(value));
                     }
                 }
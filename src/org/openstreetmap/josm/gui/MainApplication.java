@@ -68,6 +68,7 @@ import org.openstreetmap.josm.tools.I18n;
 import org.openstreetmap.josm.tools.ImageProvider;
 import org.openstreetmap.josm.tools.OsmUrlToBounds;
 import org.openstreetmap.josm.tools.PlatformHookWindows;
+import org.openstreetmap.josm.tools.TimingReport;
 import org.openstreetmap.josm.tools.Utils;
 
 /**
@@ -436,29 +437,42 @@ public class MainApplication extends Main {
 
 
         if (!skipLoadingPlugins) {
+            // the plugins are loaded one after another, they may ask the user and depend on each other
+            TimingReport.Timer timer = startupTiming.start("plugin-list");
             pluginsToLoad = PluginHandler.buildListOfPluginsToLoad(splash, monitor.createSubTaskMonitor(1, false));
             if (!pluginsToLoad.isEmpty() && PluginHandler.checkAndConfirmPluginUpdate(splash)) {
                 monitor.subTask(tr("Updating plugins"));
                 pluginsToLoad = PluginHandler.updatePlugins(splash, null, monitor.createSubTaskMonitor(1, false), false);
             }
+            timer.done();
 
+            timer = startupTiming.start("plugin-install");
             monitor.indeterminateSubTask(tr("Installing updated plugins"));
             PluginHandler.installDownloadedPlugins(true);
+            timer.done();
 
+            timer = startupTiming.start("early-plugins");
             monitor.indeterminateSubTask(tr("Loading early plugins"));
             PluginHandler.loadEarlyPlugins(splash, pluginsToLoad, monitor.createSubTaskMonitor(1, false));
+            timer.done();
         }
 
+        TimingReport.Timer timer = startupTiming.start("defaults");
         monitor.indeterminateSubTask(tr("Setting defaults"));
         preConstructorInit(args);
+        timer.done();
 
+        timer = startupTiming.start("main-gui");
         monitor.indeterminateSubTask(tr("Creating main GUI"));
         final Main main = new MainApplication(mainFrame);
+        timer.done();
 
         if (!skipLoadingPlugins) {
+            timer = startupTiming.start("late-plugins");
             monitor.indeterminateSubTask(tr("Loading plugins"));
             PluginHandler.loadLatePlugins(splash, pluginsToLoad,  monitor.createSubTaskMonitor(1, false));
             toolbar.refreshToolbarControl();
+            timer.done();
         }
 
         // Wait for splash disappearance (fix #9714)
@@ -474,6 +488,17 @@ public class MainApplication extends Main {
 
         Main.MasterWindowListener.setup();
 
+        try {
+            startupTiming.write(new File(Main.pref.getCacheDirectory(), "startup-timing.json"));
+        } catch (IOException e) {
+            Main.warn(tr("Unable to write startup timing report: {0}", e.getMessage()));
+        }
+        if (Main.isDebugEnabled()) {
+            for (TimingReport.Timing timing : startupTiming.getTimings()) {
+                Main.debug(timing.toString());
+            }
+        }
+
         boolean maximized = Main.pref.getBoolean("gui.maximized", false);
         if ((!args.containsKey(Option.NO_MAXIMIZE) && maximized) || args.containsKey(Option.MAXIMIZE)) {
             if (Toolkit.getDefaultToolkit().isFrameStateSupported(JFrame.MAXIMIZED_BOTH)) {
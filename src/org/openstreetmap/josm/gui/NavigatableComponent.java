@@ -98,6 +98,7 @@ public class NavigatableComponent extends JComponent implements Helpful {
     };
 
     public static final IntegerProperty PROP_SNAP_DISTANCE = new IntegerProperty("mappaint.node.snap-distance", 10);
+    public static final IntegerProperty PROP_SEGMENT_SNAP_DISTANCE = new IntegerProperty("mappaint.segment.snap-distance", 10);
 
     public static final String PROPNAME_CENTER = "center";
     public static final String PROPNAME_SCALE  = "scale";
@@ -917,10 +918,11 @@ public class NavigatableComponent extends JComponent implements Helpful {
         DataSet ds = getCurrentDataSet();
 
         if (ds != null) {
-            double snapDistanceSq = Main.pref.getInteger("mappaint.segment.snap-distance", 10);
+            int snapDistance = PROP_SEGMENT_SNAP_DISTANCE.get();
+            double snapDistanceSq = snapDistance;
             snapDistanceSq *= snapDistanceSq;
 
-            for (Way w : ds.searchWays(getBBox(p, Main.pref.getInteger("mappaint.segment.snap-distance", 10)))) {
+            for (Way w : ds.searchWays(getBBox(p, snapDistance))) {
                 if (!predicate.evaluate(w)) {
                     continue;
                 }
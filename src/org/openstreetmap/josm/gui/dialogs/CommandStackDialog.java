@@ -154,7 +154,8 @@ public class CommandStackDialog extends ToggleDialog implements CommandQueueList
         int undo = undoTreeModel.getChildCount(undoTreeModel.getRoot());
         int redo = redoTreeModel.getChildCount(redoTreeModel.getRoot());
         if (undo > 0 || redo > 0) {
-            setTitle(tr("Command Stack: Undo: {0} / Redo: {1}", undo, redo));
+            double megabytes = Main.main.undoRedo.getMemoryFootprint() / (1024.0 * 1024.0);
+            setTitle(tr("Command Stack: Undo: {0} / Redo: {1} ({2} MB)", undo, redo, String.format("%.1f", megabytes)));
         } else {
             setTitle(tr("Command Stack"));
         }
@@ -288,7 +288,40 @@ public class FilterDialog extends ToggleDialog implements DataSetListener {
      * @return List of primitives whose filtering can be affected by change in source primitives
      */
     private Collection<OsmPrimitive> getAffectedPrimitives(Collection<? extends OsmPrimitive> primitives) {
-        // Filters can use nested parent/child expression so complete tree is necessary
+        if (filterModel.hasNestedParentChild())
+            // Filters can use nested parent/child expression so complete tree is necessary
+            return getConnectedPrimitives(primitives);
+
+        // The parent and child expressions, and the filter state of nodes and multipolygon ways, depend on the
+        // parents and on the children. So the parents of the changed primitives, and all their children, are affected.
+        Set<OsmPrimitive> parents = new HashSet<>();
+        Stack<OsmPrimitive> stack = new Stack<>();
+        stack.addAll(primitives);
+        while (!stack.isEmpty()) {
+            OsmPrimitive p = stack.pop();
+            if (parents.add(p)) {
+                stack.addAll(p.getReferrers());
+            }
+        }
+        Set<OsmPrimitive> result = new HashSet<>();
+        stack.addAll(parents);
+        while (!stack.isEmpty()) {
+            OsmPrimitive p = stack.pop();
+            if (!result.add(p)) {
+                continue;
+            }
+            if (p instanceof Way) {
+                stack.addAll(((Way) p).getNodes());
+            } else if (p instanceof Relation) {
+                for (RelationMember rm: ((Relation) p).getMembers()) {
+                    stack.push(rm.getMember());
+                }
+            }
+        }
+        return result;
+    }
+
+    private static Collection<OsmPrimitive> getConnectedPrimitives(Collection<? extends OsmPrimitive> primitives) {
         Set<OsmPrimitive> result = new HashSet<>();
         Stack<OsmPrimitive> stack = new Stack<>();
         stack.addAll(primitives);
@@ -320,9 +353,39 @@ public class FilterDialog extends ToggleDialog implements DataSetListener {
         return result;
     }
 
+    /**
+     * Collects the primitives changed by an event, and by the events it consolidates.
+     * @param event the event
+     * @param result the collection to which the changed primitives are added
+     * @return {@code false} if the changes are unknown, and all primitives have to be filtered again
+     */
+    private static boolean collectChangedPrimitives(AbstractDatasetChangedEvent event, Collection<OsmPrimitive> result) {
+        if (event instanceof DataChangedEvent) {
+            List<AbstractDatasetChangedEvent> events = ((DataChangedEvent) event).getEvents();
+            if (events == null)
+                return false;
+            for (AbstractDatasetChangedEvent e : events) {
+                if (!collectChangedPrimitives(e, result))
+                    return false;
+            }
+        } else if (!(event instanceof NodeMovedEvent)) {
+            result.addAll(event.getPrimitives());
+        }
+        return true;
+    }
+
+    private void executeFilters(AbstractDatasetChangedEvent event) {
+        Set<OsmPrimitive> changed = new HashSet<>();
+        if (event.getDataset() != Main.main.getCurrentDataSet() || !collectChangedPrimitives(event, changed)) {
+            filterModel.executeFilters();
+        } else if (!changed.isEmpty()) {
+            filterModel.executeFilters(getAffectedPrimitives(changed));
+        }
+    }
+
     @Override
     public void dataChanged(DataChangedEvent event) {
-        filterModel.executeFilters();
+        executeFilters(event);
     }
 
     @Override
@@ -332,32 +395,32 @@ public class FilterDialog extends ToggleDialog implements DataSetListener {
 
     @Override
     public void otherDatasetChange(AbstractDatasetChangedEvent event) {
-        filterModel.executeFilters();
+        executeFilters(event);
     }
 
     @Override
     public void primitivesAdded(PrimitivesAddedEvent event) {
-        filterModel.executeFilters(event.getPrimitives());
+        executeFilters(event);
     }
 
     @Override
     public void primitivesRemoved(PrimitivesRemovedEvent event) {
-        filterModel.executeFilters();
+        executeFilters(event);
     }
 
     @Override
     public void relationMembersChanged(RelationMembersChangedEvent event) {
-        filterModel.executeFilters(getAffectedPrimitives(event.getPrimitives()));
+        executeFilters(event);
     }
 
     @Override
     public void tagsChanged(TagsChangedEvent event) {
-        filterModel.executeFilters(getAffectedPrimitives(event.getPrimitives()));
+        executeFilters(event);
     }
 
     @Override
     public void wayNodesChanged(WayNodesChangedEvent event) {
-        filterModel.executeFilters(getAffectedPrimitives(event.getPrimitives()));
+        executeFilters(event);
     }
 
     /**
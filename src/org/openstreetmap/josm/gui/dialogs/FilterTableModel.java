@@ -27,7 +27,6 @@ import org.openstreetmap.josm.data.osm.Filter;
 import org.openstreetmap.josm.data.osm.Filter.FilterPreferenceEntry;
 import org.openstreetmap.josm.data.osm.FilterMatcher;
 import org.openstreetmap.josm.data.osm.FilterWorker;
-import org.openstreetmap.josm.data.osm.Node;
 import org.openstreetmap.josm.data.osm.OsmPrimitive;
 
 /**
@@ -108,6 +107,9 @@ public class FilterTableModel extends AbstractTableModel {
             if (!deselect.isEmpty()) {
                 ds.clearSelection(deselect);
             }
+            if (changed) {
+                ds.fireFiltersChanged();
+            }
         }
 
         if (Main.isDisplayingMapView() && changed) {
@@ -116,6 +118,11 @@ public class FilterTableModel extends AbstractTableModel {
         }
     }
 
+    /**
+     * Applies the filters again to some primitives, after they have changed.
+     * Primitives which have been removed or deleted are not filtered any more.
+     * @param primitives the changed primitives, including the primitives whose filter state depends on them
+     */
     public void executeFilters(Collection<? extends OsmPrimitive> primitives) {
         DataSet ds = Main.main.getCurrentDataSet();
         if (ds == null)
@@ -126,35 +133,31 @@ public class FilterTableModel extends AbstractTableModel {
 
         ds.beginUpdate();
         try {
-            for (int i = 0; i < 2; i++) {
-                for (OsmPrimitive primitive: primitives) {
-
-                    if (i == 0 && primitive instanceof Node) {
-                        continue;
-                    }
-
-                    if (i == 1 && !(primitive instanceof Node)) {
-                        continue;
-                    }
-
-                    if (primitive.isDisabled()) {
-                        disabledCount--;
-                    }
-                    if (primitive.isDisabledAndHidden()) {
-                        disabledAndHiddenCount--;
-                    }
-                    changed = changed | FilterWorker.executeFilters(primitive, filterMatcher);
-                    if (primitive.isDisabled()) {
-                        disabledCount++;
-                    }
-                    if (primitive.isDisabledAndHidden()) {
-                        disabledAndHiddenCount++;
-                    }
+            List<OsmPrimitive> usable = new ArrayList<>(primitives.size());
+            for (OsmPrimitive primitive: primitives) {
+                if (primitive.isDisabledAndHidden()) {
+                    disabledAndHiddenCount--;
+                } else if (primitive.isDisabled()) {
+                    disabledCount--;
+                }
+                if (primitive.getDataSet() == ds && !primitive.isDeleted() && !primitive.isIncomplete()) {
+                    usable.add(primitive);
+                } else {
+                    changed |= primitive.unsetDisabledState();
+                }
+            }
 
-                    if (primitive.isSelected() && primitive.isDisabled()) {
-                        deselect.add(primitive);
-                    }
+            // relations, ways and nodes are filtered in this order, like in a full pass
+            changed |= FilterWorker.executeFilters(usable, filterMatcher);
 
+            for (OsmPrimitive primitive: usable) {
+                if (primitive.isDisabledAndHidden()) {
+                    disabledAndHiddenCount++;
+                } else if (primitive.isDisabled()) {
+                    disabledCount++;
+                }
+                if (primitive.isSelected() && primitive.isDisabled()) {
+                    deselect.add(primitive);
                 }
             }
         } finally {
@@ -169,6 +172,15 @@ public class FilterTableModel extends AbstractTableModel {
 
     }
 
+    /**
+     * Determines if an enabled filter nests the parent and child operators.
+     * @return {@code true} if an enabled filter nests the parent and child operators
+     * @see FilterMatcher#hasNestedParentChild()
+     */
+    public boolean hasNestedParentChild() {
+        return filterMatcher.hasNestedParentChild();
+    }
+
     public void clearFilterFlags() {
         DataSet ds = Main.main.getCurrentDataSet();
         if (ds != null) {
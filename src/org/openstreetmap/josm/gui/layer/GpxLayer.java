@@ -11,9 +11,7 @@ import java.io.File;
 import java.text.DateFormat;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Collection;
 import java.util.Date;
-import java.util.LinkedList;
 import java.util.List;
 
 import javax.swing.Action;
@@ -21,13 +19,13 @@ import javax.swing.Icon;
 import javax.swing.JScrollPane;
 import javax.swing.SwingUtilities;
 
-import org.openstreetmap.josm.Main;
 import org.openstreetmap.josm.actions.RenameLayerAction;
 import org.openstreetmap.josm.actions.SaveActionBase;
 import org.openstreetmap.josm.data.Bounds;
 import org.openstreetmap.josm.data.SystemOfMeasurement;
 import org.openstreetmap.josm.data.gpx.GpxConstants;
 import org.openstreetmap.josm.data.gpx.GpxData;
+import org.openstreetmap.josm.data.gpx.GpxLineIndex;
 import org.openstreetmap.josm.data.gpx.GpxTrack;
 import org.openstreetmap.josm.data.gpx.WayPoint;
 import org.openstreetmap.josm.data.osm.visitor.BoundingXYVisitor;
@@ -61,6 +59,13 @@ public class GpxLayer extends Layer {
 
     private final GpxDrawHelper drawHelper;
 
+    // spatial index of the visible lines, and the state of the data it was built for
+    private GpxLineIndex lineIndex;
+    private final List<GpxTrack> indexedTracks = new ArrayList<>();
+    private int indexedUpdateCount;
+    private int indexedRouteCount;
+    private boolean[] indexedTrackVisibility;
+
     public GpxLayer(GpxData d) {
         super(d.getString(GpxConstants.META_NAME));
         data = d;
@@ -265,6 +270,7 @@ public class GpxLayer extends Layer {
     public void mergeFrom(Layer from) {
         data.mergeFrom(((GpxLayer) from).data);
         drawHelper.dataChanged();
+        lineIndex = null;
     }
 
     @Override
@@ -277,41 +283,25 @@ public class GpxLayer extends Layer {
         if (!visibleSegments.isEmpty()) {
             drawHelper.readPreferences(getName());
             drawHelper.drawAll(g, mv, visibleSegments);
-            if (Main.map.mapView.getActiveLayer() == this) {
+            if (mv.getActiveLayer() == this) {
                 drawHelper.drawColorBar(g, mv);
             }
         }
     }
 
     private List<WayPoint> listVisibleSegments(Bounds box) {
-        WayPoint last = null;
-        LinkedList<WayPoint> visibleSegments = new LinkedList<>();
-
         ensureTrackVisibilityLength();
-        for (Collection<WayPoint> segment : data.getLinesIterable(trackVisibility)) {
-
-            for (WayPoint pt : segment) {
-                Bounds b = new Bounds(pt.getCoor());
-                if (pt.drawLine && last != null) {
-                    b.extend(last.getCoor());
-                }
-                if (b.intersects(box)) {
-                    if (last != null && (visibleSegments.isEmpty()
-                            || visibleSegments.getLast() != last)) {
-                        if (last.drawLine) {
-                            WayPoint l = new WayPoint(last);
-                            l.drawLine = false;
-                            visibleSegments.add(l);
-                        } else {
-                            visibleSegments.add(last);
-                        }
-                    }
-                    visibleSegments.add(pt);
-                }
-                last = pt;
-            }
+        int updateCount = sumUpdateCount();
+        if (lineIndex == null || !data.tracks.equals(indexedTracks) || updateCount != indexedUpdateCount
+                || data.routes.size() != indexedRouteCount || !Arrays.equals(trackVisibility, indexedTrackVisibility)) {
+            lineIndex = new GpxLineIndex(data.getLinesIterable(trackVisibility));
+            indexedTracks.clear();
+            indexedTracks.addAll(data.tracks);
+            indexedUpdateCount = updateCount;
+            indexedRouteCount = data.routes.size();
+            indexedTrackVisibility = trackVisibility.clone();
         }
-        return visibleSegments;
+        return lineIndex.getVisiblePoints(box);
     }
 
     @Override
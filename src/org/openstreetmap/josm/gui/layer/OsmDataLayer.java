@@ -69,8 +69,10 @@ import org.openstreetmap.josm.data.osm.event.DataSetListenerAdapter;
 import org.openstreetmap.josm.data.osm.event.DataSetListenerAdapter.Listener;
 import org.openstreetmap.josm.data.osm.visitor.AbstractVisitor;
 import org.openstreetmap.josm.data.osm.visitor.BoundingXYVisitor;
+import org.openstreetmap.josm.data.osm.visitor.paint.BackgroundRenderer;
 import org.openstreetmap.josm.data.osm.visitor.paint.MapRendererFactory;
 import org.openstreetmap.josm.data.osm.visitor.paint.Rendering;
+import org.openstreetmap.josm.data.osm.visitor.paint.TileCachedRenderer;
 import org.openstreetmap.josm.data.osm.visitor.paint.relations.MultipolygonCache;
 import org.openstreetmap.josm.data.projection.Projection;
 import org.openstreetmap.josm.data.validation.TestError;
@@ -110,6 +112,10 @@ public class OsmDataLayer extends AbstractModifiableLayer implements Listener, S
     private boolean requiresUploadToServer = false;
     private boolean isChanged = true;
     private int highlightUpdateCount;
+    /** renders the data in background, if enabled by {@link BackgroundRenderer#PREF_KEY} */
+    private BackgroundRenderer backgroundRenderer;
+    /** renders the data in cached tiles, if enabled by {@link TileCachedRenderer#PREF_KEY} */
+    private TileCachedRenderer tileCachedRenderer;
 
     /**
      * List of validation errors in this layer.
@@ -310,6 +316,7 @@ public class OsmDataLayer extends AbstractModifiableLayer implements Listener, S
      * Draw nodes last to overlap the ways they belong to.
      */
     @Override public void paint(final Graphics2D g, final MapView mv, Bounds box) {
+        boolean dataChanged = isChanged || highlightUpdateCount != data.getHighlightUpdateCount();
         isChanged = false;
         highlightUpdateCount = data.getHighlightUpdateCount();
 
@@ -343,8 +350,30 @@ public class OsmDataLayer extends AbstractModifiableLayer implements Listener, S
             g.fill(a);
         }
 
-        Rendering painter = MapRendererFactory.getInstance().createActiveRenderer(g, mv, inactive);
-        painter.render(data, virtual, box);
+        boolean background = BackgroundRenderer.isEnabled();
+        boolean tiles = !background && TileCachedRenderer.isEnabled();
+        if (!background && backgroundRenderer != null) {
+            backgroundRenderer.cancel();
+            backgroundRenderer = null;
+        }
+        if (!tiles && tileCachedRenderer != null) {
+            tileCachedRenderer.destroy();
+            tileCachedRenderer = null;
+        }
+        if (background) {
+            if (backgroundRenderer == null) {
+                backgroundRenderer = new BackgroundRenderer(data);
+            }
+            backgroundRenderer.paint(g, mv, inactive, virtual, dataChanged);
+        } else if (tiles) {
+            if (tileCachedRenderer == null) {
+                tileCachedRenderer = new TileCachedRenderer(data);
+            }
+            tileCachedRenderer.paint(g, mv, inactive, virtual);
+        } else {
+            Rendering painter = MapRendererFactory.getInstance().createActiveRenderer(g, mv, inactive);
+            painter.render(data, virtual, box);
+        }
         Main.map.conflictDialog.paintConflicts(g, mv);
     }
 
@@ -789,7 +818,8 @@ public class OsmDataLayer extends AbstractModifiableLayer implements Listener, S
 
     @Override
     public boolean isChanged() {
-        return isChanged || highlightUpdateCount != data.getHighlightUpdateCount();
+        return isChanged || highlightUpdateCount != data.getHighlightUpdateCount()
+                || (backgroundRenderer != null && backgroundRenderer.hasNewFrame());
     }
 
     @Override
@@ -831,6 +861,12 @@ public class OsmDataLayer extends AbstractModifiableLayer implements Listener, S
     @Override
     public void destroy() {
         DataSet.removeSelectionListener(this);
+        if (backgroundRenderer != null) {
+            backgroundRenderer.cancel();
+        }
+        if (tileCachedRenderer != null) {
+            tileCachedRenderer.destroy();
+        }
     }
 
     @Override
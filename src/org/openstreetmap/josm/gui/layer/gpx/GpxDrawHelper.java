@@ -10,12 +10,15 @@ import java.awt.Graphics2D;
 import java.awt.Point;
 import java.awt.RenderingHints;
 import java.awt.Stroke;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Date;
 import java.util.List;
+import java.util.RandomAccess;
 
 import org.openstreetmap.josm.Main;
 import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.data.gpx.CompactGpxTrackSegment;
 import org.openstreetmap.josm.data.gpx.GpxConstants;
 import org.openstreetmap.josm.data.gpx.GpxData;
 import org.openstreetmap.josm.data.gpx.WayPoint;
@@ -219,22 +222,24 @@ public class GpxDrawHelper {
     public void calculateColors() {
         double minval = +1e10;
         double maxval = -1e10;
-        WayPoint oldWp = null;
+        LatLon oldCoor = null;
+        double oldTime = 0;
 
         if (colorModeDynamic) {
             if (colored == ColorMode.VELOCITY) {
                 for (Collection<WayPoint> segment : data.getLinesIterable(null)) {
                     if (!forceLines) {
-                        oldWp = null;
+                        oldCoor = null;
                     }
-                    for (WayPoint trkPnt : segment) {
-                        LatLon c = trkPnt.getCoor();
+                    LinePoints points = new LinePoints(segment);
+                    for (int i = 0; i < points.size(); i++) {
+                        LatLon c = points.getCoor(i);
                         if (Double.isNaN(c.lat()) || Double.isNaN(c.lon())) {
                             continue;
                         }
-                        if (oldWp != null && trkPnt.time > oldWp.time) {
-                            double vel = c.greatCircleDistance(oldWp.getCoor())
-                                    / (trkPnt.time - oldWp.time);
+                        double time = points.getTime(i);
+                        if (oldCoor != null && time > oldTime) {
+                            double vel = c.greatCircleDistance(oldCoor) / (time - oldTime);
                             if (vel > maxval) {
                                 maxval = vel;
                             }
@@ -242,7 +247,8 @@ public class GpxDrawHelper {
                                 minval = vel;
                             }
                         }
-                        oldWp = trkPnt;
+                        oldCoor = c;
+                        oldTime = time;
                     }
                 }
                 if (minval >= maxval) {
@@ -252,8 +258,9 @@ public class GpxDrawHelper {
                 }
             } else if (colored == ColorMode.HDOP) {
                 for (Collection<WayPoint> segment : data.getLinesIterable(null)) {
-                    for (WayPoint trkPnt : segment) {
-                        Object val = trkPnt.get(GpxConstants.PT_HDOP);
+                    LinePoints points = new LinePoints(segment);
+                    for (int i = 0; i < points.size(); i++) {
+                        Object val = points.get(i, GpxConstants.PT_HDOP);
                         if (val != null) {
                             double hdop = ((Float) val).doubleValue();
                             if (hdop > maxval) {
@@ -271,7 +278,7 @@ public class GpxDrawHelper {
                     hdopScale.setRange(minval, maxval);
                 }
             }
-            oldWp = null;
+            oldCoor = null;
         } else { // color mode not dynamic
             velocityScale.setRange(0, colorTracksTune);
             hdopScale.setRange(0, 1.0/hdopfactor);
@@ -293,27 +300,31 @@ public class GpxDrawHelper {
         // Now the colors for all the points will be assigned
         for (Collection<WayPoint> segment : data.getLinesIterable(null)) {
             if (!forceLines) { // don't draw lines between segments, unless forced to
-                oldWp = null;
+                oldCoor = null;
             }
-            for (WayPoint trkPnt : segment) {
-                LatLon c = trkPnt.getCoor();
-                trkPnt.customColoring = neutralColor;
+            LinePoints points = new LinePoints(segment);
+            for (int i = 0; i < points.size(); i++) {
+                LatLon c = points.getCoor(i);
                 if (Double.isNaN(c.lat()) || Double.isNaN(c.lon())) {
+                    points.setDrawingState(i, neutralColor, false, 0);
                     continue;
                 }
                  // now we are sure some color will be assigned
                 Color color = null;
+                boolean drawLine = false;
+                int dir = 0;
+                double time = points.getTime(i);
 
                 if (colored == ColorMode.HDOP) {
-                    Float hdop = (Float) trkPnt.get(GpxConstants.PT_HDOP);
+                    Float hdop = (Float) points.get(i, GpxConstants.PT_HDOP);
                     color = hdopScale.getColor(hdop);
                 }
-                if (oldWp != null) { // other coloring modes need segment for calcuation
-                    double dist = c.greatCircleDistance(oldWp.getCoor());
+                if (oldCoor != null) { // other coloring modes need segment for calcuation
+                    double dist = c.greatCircleDistance(oldCoor);
                     boolean noDraw = false;
                     switch (colored) {
                     case VELOCITY:
-                        double dtime = trkPnt.time - oldWp.time;
+                        double dtime = time - oldTime;
                         if (dtime > 0) {
                             color = velocityScale.getColor(dist / dtime);
                         } else {
@@ -321,11 +332,11 @@ public class GpxDrawHelper {
                         }
                         break;
                     case DIRECTION:
-                        double dirColor = oldWp.getCoor().heading(trkPnt.getCoor());
+                        double dirColor = oldCoor.heading(c);
                         color = directionScale.getColor(dirColor);
                         break;
                     case TIME:
-                        double t = trkPnt.time;
+                        double t = time;
                         // skip bad timestamps and very short tracks
                         if (t > 0 && t <= now && maxval - minval > minTrackDurationForTimeColoring) {
                             color = dateScale.getColor(t);
@@ -335,25 +346,68 @@ public class GpxDrawHelper {
                         break;
                     }
                     if (!noDraw && (maxLineLength == -1 || dist <= maxLineLength)) {
-                        trkPnt.drawLine = true;
-                        trkPnt.dir = (int) oldWp.getCoor().heading(trkPnt.getCoor());
-                    } else {
-                        trkPnt.drawLine = false;
+                        drawLine = true;
+                        dir = (int) oldCoor.heading(c);
                     }
                 } else { // make sure we reset outdated data
-                    trkPnt.drawLine = false;
                     color = neutralColor;
                 }
-                if (color != null) {
-                    trkPnt.customColoring = color;
-                }
-                oldWp = trkPnt;
+                points.setDrawingState(i, color != null ? color : neutralColor, drawLine, dir);
+                oldCoor = c;
+                oldTime = time;
             }
         }
 
         computeCacheInSync = true;
     }
 
+    /**
+     * The points of a line, read by index. The points of a {@link CompactGpxTrackSegment} are read from its arrays,
+     * without creating {@link WayPoint} objects, and their drawing state is stored in the segment.
+     */
+    private static final class LinePoints {
+        private final CompactGpxTrackSegment compact;
+        private final List<WayPoint> points;
+
+        LinePoints(Collection<WayPoint> line) {
+            compact = CompactGpxTrackSegment.getSegment(line);
+            if (compact != null) {
+                points = null;
+            } else if (line instanceof List && line instanceof RandomAccess) {
+                points = (List<WayPoint>) line;
+            } else {
+                points = new ArrayList<>(line);
+            }
+        }
+
+        int size() {
+            return compact != null ? compact.size() : points.size();
+        }
+
+        LatLon getCoor(int index) {
+            return compact != null ? compact.getCoor(index) : points.get(index).getCoor();
+        }
+
+        double getTime(int index) {
+            return compact != null ? compact.getTime(index) : points.get(index).time;
+        }
+
+        Object get(int index, String key) {
+            return compact != null ? compact.getAttribute(index, key) : points.get(index).get(key);
+        }
+
+        void setDrawingState(int index, Color color, boolean drawLine, int dir) {
+            if (compact != null) {
+                compact.setDrawingState(index, color, drawLine, dir);
+            } else {
+                WayPoint wpt = points.get(index);
+                wpt.customColoring = color;
+                wpt.drawLine = drawLine;
+                wpt.dir = dir;
+            }
+        }
+    }
+
     private void drawLines(Graphics2D g, MapView mv, List<WayPoint> visibleSegments) {
         if (lines) {
             Point old = null;
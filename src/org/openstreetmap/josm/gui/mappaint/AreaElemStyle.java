@@ -4,19 +4,22 @@ package org.openstreetmap.josm.gui.mappaint;
 import java.awt.Color;
 import java.util.Objects;
 
-import org.openstreetmap.josm.Main;
 import org.openstreetmap.josm.data.osm.OsmPrimitive;
 import org.openstreetmap.josm.data.osm.Relation;
 import org.openstreetmap.josm.data.osm.Way;
 import org.openstreetmap.josm.data.osm.visitor.paint.MapPaintSettings;
 import org.openstreetmap.josm.data.osm.visitor.paint.PaintColors;
 import org.openstreetmap.josm.data.osm.visitor.paint.StyledMapRenderer;
+import org.openstreetmap.josm.data.preferences.IntegerProperty;
 import org.openstreetmap.josm.gui.mappaint.MapPaintStyles.IconReference;
 import org.openstreetmap.josm.tools.CheckParameterUtil;
 import org.openstreetmap.josm.tools.Utils;
 
 public class AreaElemStyle extends ElemStyle {
 
+    private static final IntegerProperty PROP_FILL_IMAGE_ALPHA = new IntegerProperty("mappaint.fill-image-alpha", 255);
+    private static final IntegerProperty PROP_FILL_ALPHA = new IntegerProperty("mappaint.fillalpha", 50);
+
     /**
      * If fillImage == null, color is the fill-color, otherwise
      * an arbitrary color value sampled from the fillImage
@@ -46,7 +49,7 @@ public class AreaElemStyle extends ElemStyle {
                     fillImage.getWidth() / 2, fillImage.getHeight() / 2)
             );
 
-            fillImage.alpha = Math.min(255, Math.max(0, Integer.valueOf(Main.pref.getInteger("mappaint.fill-image-alpha", 255))));
+            fillImage.alpha = Math.min(255, Math.max(0, PROP_FILL_IMAGE_ALPHA.get()));
             Integer pAlpha = Utils.color_float2int(c.get(FILL_OPACITY, null, float.class));
             if (pAlpha != null) {
                 fillImage.alpha = pAlpha;
@@ -61,7 +64,7 @@ public class AreaElemStyle extends ElemStyle {
                     // It is not an ideal solution, but a little tricky to get this
                     // right, especially as named map colors can be changed in
                     // the preference GUI and written to the preferences file.
-                    alpha = Math.min(255, Math.max(0, Integer.valueOf(Main.pref.getInteger("mappaint.fillalpha", 50))));
+                    alpha = Math.min(255, Math.max(0, PROP_FILL_ALPHA.get()));
                 }
                 Integer pAlpha = Utils.color_float2int(c.get(FILL_OPACITY, null, float.class));
                 if (pAlpha != null) {
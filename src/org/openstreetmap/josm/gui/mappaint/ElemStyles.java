@@ -7,14 +7,15 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map.Entry;
+import java.util.concurrent.atomic.AtomicInteger;
 
-import org.openstreetmap.josm.Main;
 import org.openstreetmap.josm.data.osm.Node;
 import org.openstreetmap.josm.data.osm.OsmPrimitive;
 import org.openstreetmap.josm.data.osm.Relation;
 import org.openstreetmap.josm.data.osm.Way;
 import org.openstreetmap.josm.data.osm.visitor.paint.relations.Multipolygon;
 import org.openstreetmap.josm.data.osm.visitor.paint.relations.MultipolygonCache;
+import org.openstreetmap.josm.data.preferences.BooleanProperty;
 import org.openstreetmap.josm.gui.NavigatableComponent;
 import org.openstreetmap.josm.gui.mappaint.StyleCache.StyleList;
 import org.openstreetmap.josm.gui.mappaint.mapcss.MapCSSStyleSource;
@@ -26,7 +27,12 @@ public class ElemStyles {
     private List<StyleSource> styleSources;
     private boolean drawMultipolygon;
 
-    private int cacheIdx = 1;
+    private static final BooleanProperty PROP_DEPRECATED_OUTER_STYLE = new BooleanProperty("multipolygon.deprecated.outerstyle", true);
+
+    /** source of the indexes of the style caches, unique among all instances */
+    private static final AtomicInteger CACHE_INDEXES = new AtomicInteger();
+
+    private volatile int cacheIdx = CACHE_INDEXES.incrementAndGet();
 
     private boolean defaultNodes, defaultLines;
     private int defaultNodesIdx, defaultLinesIdx;
@@ -38,6 +44,15 @@ public class ElemStyles {
         styleSources = new ArrayList<>();
     }
 
+    /**
+     * Constructs a new {@code ElemStyles} with the given style sources, independent from {@link MapPaintStyles}.
+     * The style sources have to be loaded.
+     * @param sources the style sources
+     */
+    public ElemStyles(Collection<? extends StyleSource> sources) {
+        styleSources = new ArrayList<>(sources);
+    }
+
     /**
      * Clear the style cache for all primitives of all DataSets.
      */
@@ -47,7 +62,7 @@ public class ElemStyles {
         GuiHelper.runInEDT(new Runnable() {
             @Override
             public void run() {
-                cacheIdx++;
+                cacheIdx = CACHE_INDEXES.incrementAndGet();
             }
         });
     }
@@ -75,10 +90,14 @@ public class ElemStyles {
      * Uses the cache, if possible, and saves the results to the cache.
      */
     public Pair<StyleList, Range> getStyleCacheWithRange(OsmPrimitive osm, double scale, NavigatableComponent nc) {
-        if (osm.mappaintStyle == null || osm.mappaintCacheIdx != cacheIdx || scale <= 0) {
-            osm.mappaintStyle = StyleCache.EMPTY_STYLECACHE;
+        // the cache is read once, it may be replaced by another thread rendering the same primitive.
+        // It holds its index, so that the styles and their index are always replaced together
+        int idx = cacheIdx;
+        StyleCache style = osm.mappaintStyle;
+        if (style == null || style.getCacheIdx() != idx || scale <= 0) {
+            style = StyleCache.getEmpty(idx);
         } else {
-            Pair<StyleList, Range> lst = osm.mappaintStyle.getWithRange(scale);
+            Pair<StyleList, Range> lst = style.getWithRange(scale);
             if (lst.a != null)
                 return lst;
         }
@@ -125,15 +144,13 @@ public class ElemStyles {
                 p.a = new StyleList(p.a, line);
             }
         }
-        StyleCache style = osm.mappaintStyle != null ? osm.mappaintStyle : StyleCache.EMPTY_STYLECACHE;
         try {
             osm.mappaintStyle = style.put(p.a, p.b);
         } catch (StyleCache.RangeViolatedError e) {
             throw new AssertionError("Range violated: " + e.getMessage()
-                    + " (object: " + osm.getPrimitiveId() + ", current style: "+osm.mappaintStyle
+                    + " (object: " + osm.getPrimitiveId() + ", current style: "+style
                     + ", scale: " + scale + ", new stylelist: " + p.a + ", new range: " + p.b + ")", e);
         }
-        osm.mappaintCacheIdx = cacheIdx;
         return p;
     }
 
@@ -276,7 +293,7 @@ public class ElemStyles {
         } else if (osm instanceof Relation) {
             Pair<StyleList, Range> p = generateStyles(osm, scale, true);
             if (drawMultipolygon && ((Relation) osm).isMultipolygon()) {
-                if (!Utils.exists(p.a, AreaElemStyle.class) && Main.pref.getBoolean("multipolygon.deprecated.outerstyle", true)) {
+                if (!Utils.exists(p.a, AreaElemStyle.class) && PROP_DEPRECATED_OUTER_STYLE.get()) {
                     // look at outer ways to find area style
                     Multipolygon multipolygon = MultipolygonCache.getInstance().get(nc, (Relation) osm);
                     for (Way w : multipolygon.getOuterWays()) {
@@ -17,29 +17,52 @@ import org.openstreetmap.josm.tools.Pair;
  * subranges, for each scale range it keeps a list of styles.
  * Immutable class, equals &amp; hashCode is required (the same for StyleList, ElemStyle
  * and its subclasses).
+ * The cache also records the index of the styles it was computed with, so that a primitive
+ * holds its styles and their index in a single reference, see {@link ElemStyles}.
  */
 public final class StyleCache {
     /* list of boundaries for the scale ranges */
     private final List<Double> bd;
     /* styles for each scale range */
     private final List<StyleList> data;
+    /* index of the styles the cache was computed with */
+    private final int cacheIdx;
 
     // TODO: clean up the intern pool from time to time (after purge or layer removal)
     private static final Storage<StyleCache> internPool = new Storage<>();
 
-    public static final StyleCache EMPTY_STYLECACHE = (new StyleCache()).intern();
+    public static final StyleCache EMPTY_STYLECACHE = (new StyleCache(0)).intern();
 
-    private StyleCache() {
+    private StyleCache(int cacheIdx) {
         bd = new ArrayList<>();
         bd.add(0.0);
         bd.add(Double.POSITIVE_INFINITY);
         data = new ArrayList<>();
         data.add(null);
+        this.cacheIdx = cacheIdx;
     }
 
     private StyleCache(StyleCache s) {
         bd = new ArrayList<>(s.bd);
         data = new ArrayList<>(s.data);
+        cacheIdx = s.cacheIdx;
+    }
+
+    /**
+     * Returns an empty cache for the styles of the given index.
+     * @param cacheIdx the index of the styles
+     * @return an empty cache
+     */
+    public static StyleCache getEmpty(int cacheIdx) {
+        return new StyleCache(cacheIdx).intern();
+    }
+
+    /**
+     * Returns the index of the styles the cache was computed with.
+     * @return the index of the styles
+     */
+    public int getCacheIdx() {
+        return cacheIdx;
     }
 
     /**
@@ -238,7 +261,7 @@ public final class StyleCache {
         if (obj == null || getClass() != obj.getClass())
             return false;
         final StyleCache other = (StyleCache) obj;
-        return bd.equals(other.bd) && data.equals(other.data);
+        return cacheIdx == other.cacheIdx && bd.equals(other.bd) && data.equals(other.data);
     }
 
     @Override
@@ -246,6 +269,7 @@ public final class StyleCache {
         int hash = 7;
         hash = 23 * hash + bd.hashCode();
         hash = 23 * hash + data.hashCode();
+        hash = 23 * hash + cacheIdx;
         return hash;
     }
 
@@ -246,6 +246,10 @@ public class MapCSSStyleSource extends StyleSource {
                 while (selRightmost instanceof ChildOrParentSelector) {
                     selRightmost = ((ChildOrParentSelector) selRightmost).right;
                 }
+                if (!(selRightmost instanceof OptimizedGeneralSelector)) {
+                    remaining.set(ruleIndex);
+                    continue;
+                }
                 OptimizedGeneralSelector s = (OptimizedGeneralSelector) selRightmost;
                 if (s.conds == null) {
                     remaining.set(ruleIndex);
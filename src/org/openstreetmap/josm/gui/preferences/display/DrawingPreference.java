@@ -16,6 +16,8 @@ import javax.swing.JScrollPane;
 
 import org.openstreetmap.josm.Main;
 import org.openstreetmap.josm.actions.ExpertToggleAction;
+import org.openstreetmap.josm.data.osm.visitor.paint.BackgroundRenderer;
+import org.openstreetmap.josm.data.osm.visitor.paint.TileCachedRenderer;
 import org.openstreetmap.josm.gui.preferences.PreferenceSetting;
 import org.openstreetmap.josm.gui.preferences.PreferenceSettingFactory;
 import org.openstreetmap.josm.gui.preferences.PreferenceTabbedPane;
@@ -54,6 +56,8 @@ public class DrawingPreference implements SubPreferenceSetting {
     private JCheckBox useAntialiasing = new JCheckBox(tr("Smooth map graphics (antialiasing)"));
     private JCheckBox useWireframeAntialiasing = new JCheckBox(tr("Smooth map graphics in wireframe mode (antialiasing)"));
     private JCheckBox outlineOnly = new JCheckBox(tr("Draw only outlines of areas"));
+    private JCheckBox backgroundRendering = new JCheckBox(tr("Render data layers in background"));
+    private JCheckBox tileCachedRendering = new JCheckBox(tr("Cache rendered data layers in tiles"));
 
     @Override
     public void addGui(PreferenceTabbedPane gui) {
@@ -126,6 +130,16 @@ public class DrawingPreference implements SubPreferenceSetting {
         outlineOnly.setToolTipText(tr("This option suppresses the filling of areas, overriding anything specified in the selected style."));
         outlineOnly.setSelected(Main.pref.getBoolean("draw.data.area_outline_only", false));
 
+        // background rendering
+        backgroundRendering.setToolTipText(tr("Render the data layers in a background thread, so that the user interface "
+                + "is not blocked while rendering large data sets."));
+        backgroundRendering.setSelected(BackgroundRenderer.isEnabled());
+
+        // tile-cached rendering
+        tileCachedRendering.setToolTipText(tr("Keep the rendered data layers in tiles, so that only the newly visible parts "
+                + "of the map are rendered when panning."));
+        tileCachedRendering.setSelected(TileCachedRenderer.isEnabled());
+
         // discardable keys
         discardableKeys.setToolTipText(tr("Display keys which have been deemed uninteresting to the point that they can be silently removed."));
         discardableKeys.setSelected(Main.pref.getBoolean("display.discardable-keys", false));
@@ -148,6 +162,8 @@ public class DrawingPreference implements SubPreferenceSetting {
         panel.add(useAntialiasing, GBC.eop().insets(20, 0, 0, 0));
         panel.add(useWireframeAntialiasing, GBC.eop().insets(20, 0, 0, 0));
         panel.add(useHighlighting, GBC.eop().insets(20, 0, 0, 0));
+        panel.add(backgroundRendering, GBC.eop().insets(20, 0, 0, 0));
+        panel.add(tileCachedRendering, GBC.eop().insets(20, 0, 0, 0));
         panel.add(outlineOnly, GBC.eol().insets(20, 0, 0, 0));
 
         panel.add(new JLabel(tr("Other options")),
@@ -160,6 +176,8 @@ public class DrawingPreference implements SubPreferenceSetting {
         ExpertToggleAction.addVisibilitySwitcher(useAntialiasing);
         ExpertToggleAction.addVisibilitySwitcher(useWireframeAntialiasing);
         ExpertToggleAction.addVisibilitySwitcher(useHighlighting);
+        ExpertToggleAction.addVisibilitySwitcher(backgroundRendering);
+        ExpertToggleAction.addVisibilitySwitcher(tileCachedRendering);
         ExpertToggleAction.addVisibilitySwitcher(outlineOnly);
         ExpertToggleAction.addVisibilitySwitcher(discardableKeys);
 
@@ -183,6 +201,8 @@ public class DrawingPreference implements SubPreferenceSetting {
         Main.pref.put("mappaint.wireframe.use-antialiasing", useWireframeAntialiasing.isSelected());
         Main.pref.put("draw.target-highlight", useHighlighting.isSelected());
         Main.pref.put("draw.helper-line", drawHelperLine.isSelected());
+        Main.pref.put(BackgroundRenderer.PREF_KEY, backgroundRendering.isSelected());
+        Main.pref.put(TileCachedRenderer.PREF_KEY, tileCachedRendering.isSelected());
         Main.pref.put("display.discardable-keys", discardableKeys.isSelected());
         int vn = Main.pref.getInteger("mappaint.node.virtual-size", 8);
         if (virtualNodes.isSelected()) {
@@ -948,8 +948,22 @@ public final class ImageryPreference extends DefaultTabPreferenceSetting {
      * Initializes imagery preferences.
      */
     public static void initialize() {
+        readFromPreferences();
+        initializeMenu();
+    }
+
+    /**
+     * Loads the imagery entries and the offset bookmarks.
+     */
+    public static void readFromPreferences() {
         ImageryLayerInfo.instance.load();
         OffsetBookmark.loadBookmarks();
+    }
+
+    /**
+     * Updates the imagery menu with the loaded imagery entries. The main menu must have been built.
+     */
+    public static void initializeMenu() {
         Main.main.menu.imageryMenu.refreshImageryMenu();
         Main.main.menu.imageryMenu.refreshOffsetMenu();
     }
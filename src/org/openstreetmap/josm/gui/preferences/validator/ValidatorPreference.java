@@ -56,6 +56,9 @@ public final class ValidatorPreference extends DefaultTabPreferenceSetting {
     /** The preferences for ignored severity other */
     public static final BooleanProperty PREF_OTHER = new BooleanProperty(PREFIX + ".other", false);
 
+    /** The preferences for validating the edit layer continuously while editing */
+    public static final BooleanProperty PREF_INCREMENTAL = new BooleanProperty(PREFIX + ".incremental", false);
+
     /**
      * The preferences key for enabling the permanent filtering
      * of the displayed errors in the tree regarding the current selection
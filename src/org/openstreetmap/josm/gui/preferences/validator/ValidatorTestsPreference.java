@@ -48,6 +48,7 @@ public class ValidatorTestsPreference implements SubPreferenceSetting {
     private JCheckBox prefUseLayer;
     private JCheckBox prefOtherUpload;
     private JCheckBox prefOther;
+    private JCheckBox prefIncremental;
 
     /** The list of all tests */
     private Collection<Test> allTests;
@@ -74,6 +75,10 @@ public class ValidatorTestsPreference implements SubPreferenceSetting {
         prefOtherUpload.setToolTipText(tr("Show the informational tests in the upload check windows."));
         testPanel.add(prefOtherUpload, GBC.eol());
 
+        prefIncremental = new JCheckBox(tr("Validate while editing."), ValidatorPreference.PREF_INCREMENTAL.get());
+        prefIncremental.setToolTipText(tr("Validate again the modified elements and their surroundings after each change."));
+        testPanel.add(prefIncremental, GBC.eol());
+
         ActionListener otherUploadEnabled = new ActionListener() {
             @Override
             public void actionPerformed(ActionEvent e) {
@@ -125,6 +130,9 @@ public class ValidatorTestsPreference implements SubPreferenceSetting {
         ValidatorPreference.PREF_OTHER.put(prefOther.isSelected());
         Main.pref.put(ValidatorPreference.PREF_OTHER_UPLOAD, prefOtherUpload.isSelected());
         Main.pref.put(ValidatorPreference.PREF_LAYER, prefUseLayer.isSelected());
+        if (ValidatorPreference.PREF_INCREMENTAL.put(prefIncremental.isSelected()) && Main.main.validator != null) {
+            Main.main.validator.updateIncrementalValidator();
+        }
         return false;
     }
 
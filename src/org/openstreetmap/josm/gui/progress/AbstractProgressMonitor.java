@@ -339,8 +339,11 @@ public abstract class AbstractProgressMonitor implements ProgressMonitor {
         } else {
             Iterator<Request> it = requests.iterator();
             while (it.hasNext()) {
-                if (it.next().originator == child) {
+                Request request = it.next();
+                if (request.originator == child) {
                     it.remove();
+                    // a child running concurrently may finish before it becomes the current one, keep its ticks
+                    ticks = Math.min(ticks + request.childTicks, ticksCount - 1);
                     return;
                 }
             }
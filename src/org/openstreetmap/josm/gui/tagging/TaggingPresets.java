@@ -42,6 +42,14 @@ public final class TaggingPresets {
      */
     public static void initialize() {
         readFromPreferences();
+        initializeMenu();
+    }
+
+    /**
+     * Adds the tagging presets read by {@link #readFromPreferences()} to the main menu and to the toolbar.
+     * The main menu must have been built.
+     */
+    public static void initializeMenu() {
         for (TaggingPreset tp: taggingPresets) {
             if (!(tp instanceof TaggingPresetSeparator)) {
                 Main.toolbar.register(tp);
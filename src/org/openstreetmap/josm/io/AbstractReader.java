@@ -5,23 +5,28 @@ import static org.openstreetmap.josm.tools.I18n.tr;
 
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Map.Entry;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 import org.openstreetmap.josm.Main;
 import org.openstreetmap.josm.data.osm.Changeset;
 import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.LongHashMap;
 import org.openstreetmap.josm.data.osm.Node;
 import org.openstreetmap.josm.data.osm.OsmPrimitive;
 import org.openstreetmap.josm.data.osm.OsmPrimitiveType;
 import org.openstreetmap.josm.data.osm.PrimitiveId;
+import org.openstreetmap.josm.data.osm.PrimitiveIdMap;
 import org.openstreetmap.josm.data.osm.Relation;
 import org.openstreetmap.josm.data.osm.RelationMember;
 import org.openstreetmap.josm.data.osm.RelationMemberData;
-import org.openstreetmap.josm.data.osm.SimplePrimitiveId;
 import org.openstreetmap.josm.data.osm.Way;
+import org.openstreetmap.josm.tools.Pair;
+import org.openstreetmap.josm.tools.Utils;
 
 /**
  * Abstract Reader, allowing other implementations than OsmReader (PbfReader in PBF plugin for example)
@@ -30,6 +35,22 @@ import org.openstreetmap.josm.data.osm.Way;
  */
 public abstract class AbstractReader {
 
+    /**
+     * Minimum number of references (way nodes and relation members) for which they are resolved in parallel.
+     */
+    private static final int PARALLEL_RESOLVE_THRESHOLD = 100000;
+
+    private static final class ThreadPoolHolder {
+        private static final Pair<Integer, ExecutorService> THREAD_POOL =
+                Utils.newThreadPool("osm.reader.numberOfThreads");
+    }
+
+    /**
+     * The thread pool used to parse and to resolve references in parallel.
+     * {@code null} to do all the work on the calling thread.
+     */
+    protected ExecutorService threadPool = ThreadPoolHolder.THREAD_POOL.b;
+
     /**
      * The dataset to add parsed objects to.
      */
@@ -41,17 +62,28 @@ public abstract class AbstractReader {
      * longs too, but in contrast to internal ids negative values are used
      * to identify primitives unknown to the OSM server
      */
-    protected final Map<PrimitiveId, OsmPrimitive> externalIdMap = new HashMap<>();
+    protected final Map<PrimitiveId, OsmPrimitive> externalIdMap;
 
     /**
      * Data structure for the remaining way objects
      */
-    protected final Map<Long, Collection<Long>> ways = new HashMap<>();
+    protected final Map<Long, Collection<Long>> ways;
 
     /**
      * Data structure for relation objects
      */
-    protected final Map<Long, Collection<RelationMemberData>> relations = new HashMap<>();
+    protected final Map<Long, Collection<RelationMemberData>> relations;
+
+    // The same maps as externalIdMap, ways and relations, with their concrete types to look up ids without boxing them
+    final PrimitiveIdMap<OsmPrimitive> idMap = new PrimitiveIdMap<>();
+    final LongHashMap<Collection<Long>> wayMap = new LongHashMap<>();
+    final LongHashMap<Collection<RelationMemberData>> relationMap = new LongHashMap<>();
+
+    {
+        externalIdMap = idMap;
+        ways = wayMap;
+        relations = relationMap;
+    }
 
     /**
      * Replies the parsed data set
@@ -68,10 +100,8 @@ public abstract class AbstractReader {
      *
      */
     protected void processNodesAfterParsing() {
-        for (OsmPrimitive primitive: externalIdMap.values()) {
-            if (primitive instanceof Node) {
-                this.ds.addPrimitive(primitive);
-            }
+        for (OsmPrimitive primitive: idMap.values(OsmPrimitiveType.NODE)) {
+            this.ds.addPrimitive(primitive);
         }
     }
 
@@ -82,12 +112,34 @@ public abstract class AbstractReader {
      * @throws IllegalDataException if a data integrity problem is detected
      */
     protected void processWaysAfterParsing() throws IllegalDataException {
-        for (Entry<Long, Collection<Long>> entry : ways.entrySet()) {
-            Long externalWayId = entry.getKey();
-            Way w = (Way) externalIdMap.get(new SimplePrimitiveId(externalWayId, OsmPrimitiveType.WAY));
+        long[] wayIds = wayMap.keyArray();
+        List<Collection<Long>> wayNodeIds = new ArrayList<>(ways.values());
+        int count = 0;
+        for (Collection<Long> nodeIds : wayNodeIds) {
+            count += nodeIds.size();
+        }
+        List<OsmPrimitive[]> resolved = resolveReferences(wayNodeIds, count, new ReferenceResolver<Collection<Long>>() {
+            @Override
+            public OsmPrimitive[] resolve(Collection<Long> nodeIds) {
+                OsmPrimitive[] result = new OsmPrimitive[nodeIds.size()];
+                int i = 0;
+                for (long id : nodeIds) {
+                    result[i++] = idMap.get(id, OsmPrimitiveType.NODE);
+                }
+                return result;
+            }
+        });
+        for (int e = 0; e < wayIds.length; e++) {
+            OsmPrimitive[] nodes = resolved != null ? resolved.get(e) : null;
+            long externalWayId = wayIds[e];
+            Way w = (Way) idMap.get(externalWayId, OsmPrimitiveType.WAY);
             List<Node> wayNodes = new ArrayList<>();
-            for (long id : entry.getValue()) {
-                Node n = (Node) externalIdMap.get(new SimplePrimitiveId(id, OsmPrimitiveType.NODE));
+            int i = 0;
+            for (long id : wayNodeIds.get(e)) {
+                Node n = nodes != null ? (Node) nodes[i++] : null;
+                if (n == null) {
+                    n = (Node) idMap.get(id, OsmPrimitiveType.NODE);
+                }
                 if (n == null) {
                     if (id <= 0)
                         throw new IllegalDataException(
@@ -125,24 +177,40 @@ public abstract class AbstractReader {
     protected void processRelationsAfterParsing() throws IllegalDataException {
 
         // First add all relations to make sure that when relation reference other relation, the referenced will be already in dataset
-        for (Long externalRelationId : relations.keySet()) {
-            Relation relation = (Relation) externalIdMap.get(
-                    new SimplePrimitiveId(externalRelationId, OsmPrimitiveType.RELATION)
-            );
+        long[] relationIds = relationMap.keyArray();
+        for (long externalRelationId : relationIds) {
+            Relation relation = (Relation) idMap.get(externalRelationId, OsmPrimitiveType.RELATION);
             ds.addPrimitive(relation);
         }
 
-        for (Entry<Long, Collection<RelationMemberData>> entry : relations.entrySet()) {
-            Long externalRelationId = entry.getKey();
-            Relation relation = (Relation) externalIdMap.get(
-                    new SimplePrimitiveId(externalRelationId, OsmPrimitiveType.RELATION)
-            );
+        List<Collection<RelationMemberData>> memberData = new ArrayList<>(relations.values());
+        int count = 0;
+        for (Collection<RelationMemberData> members : memberData) {
+            count += members.size();
+        }
+        List<OsmPrimitive[]> resolved = resolveReferences(memberData, count, new ReferenceResolver<Collection<RelationMemberData>>() {
+            @Override
+            public OsmPrimitive[] resolve(Collection<RelationMemberData> members) {
+                OsmPrimitive[] result = new OsmPrimitive[members.size()];
+                int i = 0;
+                for (RelationMemberData rm : members) {
+                    result[i++] = idMap.get(rm.getMemberId(), rm.getMemberType());
+                }
+                return result;
+            }
+        });
+        for (int e = 0; e < relationIds.length; e++) {
+            OsmPrimitive[] members = resolved != null ? resolved.get(e) : null;
+            long externalRelationId = relationIds[e];
+            Relation relation = (Relation) idMap.get(externalRelationId, OsmPrimitiveType.RELATION);
             List<RelationMember> relationMembers = new ArrayList<>();
-            for (RelationMemberData rm : entry.getValue()) {
-                OsmPrimitive primitive = null;
-
+            int i = 0;
+            for (RelationMemberData rm : memberData.get(e)) {
                 // lookup the member from the map of already created primitives
-                primitive = externalIdMap.get(new SimplePrimitiveId(rm.getMemberId(), rm.getMemberType()));
+                OsmPrimitive primitive = members != null ? members[i++] : null;
+                if (primitive == null) {
+                    primitive = idMap.get(rm.getMemberId(), rm.getMemberType());
+                }
 
                 if (primitive == null) {
                     if (rm.getMemberId() <= 0)
@@ -171,7 +239,7 @@ public abstract class AbstractReader {
                         }
 
                         ds.addPrimitive(primitive);
-                        externalIdMap.put(new SimplePrimitiveId(rm.getMemberId(), rm.getMemberType()), primitive);
+                        idMap.put(rm.getMemberId(), rm.getMemberType(), primitive);
                     }
                 }
                 if (primitive.isDeleted()) {
@@ -184,6 +252,62 @@ public abstract class AbstractReader {
         }
     }
 
+    /**
+     * Looks up the referenced primitives of each entry.
+     * @param <T> type of the references
+     */
+    private interface ReferenceResolver<T> {
+        /**
+         * Looks up referenced primitives in {@link AbstractReader#idMap}. Must not modify anything.
+         * @param references the references
+         * @return the referenced primitives, with {@code null} for the ones which were not read
+         */
+        OsmPrimitive[] resolve(T references);
+    }
+
+    /**
+     * Resolves the references of all entries in parallel, if there are enough of them and a thread pool is available.
+     * Creation of incomplete primitives and all changes to the dataset stay on the calling thread, in the original order.
+     * @param entries the references of each entry
+     * @param referenceCount the total number of references
+     * @param resolver the resolver
+     * @return the referenced primitives of each entry, or {@code null} if references have to be looked up sequentially
+     * @throws IllegalDataException if the lookup failed
+     */
+    private <T> List<OsmPrimitive[]> resolveReferences(final List<T> entries, int referenceCount,
+            final ReferenceResolver<T> resolver) throws IllegalDataException {
+        if (threadPool == null || referenceCount < PARALLEL_RESOLVE_THRESHOLD)
+            return null;
+        int chunkSize = Math.max(1000, entries.size() / (4 * Runtime.getRuntime().availableProcessors()) + 1);
+        List<Future<List<OsmPrimitive[]>>> futures = new ArrayList<>();
+        for (int start = 0; start < entries.size(); start += chunkSize) {
+            final int from = start;
+            final int to = Math.min(entries.size(), start + chunkSize);
+            futures.add(threadPool.submit(new Callable<List<OsmPrimitive[]>>() {
+                @Override
+                public List<OsmPrimitive[]> call() {
+                    List<OsmPrimitive[]> result = new ArrayList<>(to - from);
+                    for (int i = from; i < to; i++) {
+                        result.add(resolver.resolve(entries.get(i)));
+                    }
+                    return result;
+                }
+            }));
+        }
+        List<OsmPrimitive[]> result = new ArrayList<>(entries.size());
+        try {
+            for (Future<List<OsmPrimitive[]>> future : futures) {
+                result.addAll(future.get());
+            }
+        } catch (InterruptedException | ExecutionException e) {
+            for (Future<List<OsmPrimitive[]>> future : futures) {
+                future.cancel(true);
+            }
+            throw new IllegalDataException(e);
+        }
+        return result;
+    }
+
     protected void processChangesetAfterParsing() {
         if (uploadChangeset != null) {
             for (Map.Entry<String, String> e : uploadChangeset.getKeys().entrySet()) {
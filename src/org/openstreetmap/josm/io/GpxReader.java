@@ -19,11 +19,13 @@ import javax.xml.parsers.ParserConfigurationException;
 import org.openstreetmap.josm.Main;
 import org.openstreetmap.josm.data.Bounds;
 import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.data.gpx.CompactGpxTrackSegment;
 import org.openstreetmap.josm.data.gpx.Extensions;
 import org.openstreetmap.josm.data.gpx.GpxConstants;
 import org.openstreetmap.josm.data.gpx.GpxData;
 import org.openstreetmap.josm.data.gpx.GpxLink;
 import org.openstreetmap.josm.data.gpx.GpxRoute;
+import org.openstreetmap.josm.data.gpx.GpxTrackSegment;
 import org.openstreetmap.josm.data.gpx.ImmutableGpxTrack;
 import org.openstreetmap.josm.data.gpx.WayPoint;
 import org.openstreetmap.josm.tools.Utils;
@@ -53,9 +55,9 @@ public class GpxReader implements GpxConstants {
     private class Parser extends DefaultHandler {
 
         private GpxData data;
-        private Collection<Collection<WayPoint>> currentTrack;
+        private List<GpxTrackSegment> currentTrack;
         private Map<String, Object> currentTrackAttr;
-        private Collection<WayPoint> currentTrackSeg;
+        private CompactGpxTrackSegment.Builder currentTrackSeg;
         private GpxRoute currentRoute;
         private WayPoint currentWayPoint;
 
@@ -185,7 +187,7 @@ public class GpxReader implements GpxConstants {
                 case "trkseg":
                     states.push(currentState);
                     currentState = State.trkseg;
-                    currentTrackSeg = new ArrayList<>();
+                    currentTrackSeg = new CompactGpxTrackSegment.Builder();
                     break;
                 case "link":
                     states.push(currentState);
@@ -429,7 +431,8 @@ public class GpxReader implements GpxConstants {
             case trkseg:
                 if ("trkseg".equals(localName)) {
                     currentState = states.pop();
-                    currentTrack.add(currentTrackSeg);
+                    currentTrack.add(currentTrackSeg.build());
+                    currentTrackSeg = null;
                 }
                 break;
             case trk:
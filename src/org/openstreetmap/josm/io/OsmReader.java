@@ -6,9 +6,15 @@ import static org.openstreetmap.josm.tools.I18n.tr;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.text.MessageFormat;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Deque;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -26,6 +32,7 @@ import org.openstreetmap.josm.data.osm.Changeset;
 import org.openstreetmap.josm.data.osm.DataSet;
 import org.openstreetmap.josm.data.osm.Node;
 import org.openstreetmap.josm.data.osm.NodeData;
+import org.openstreetmap.josm.data.osm.OsmPrimitive;
 import org.openstreetmap.josm.data.osm.OsmPrimitiveType;
 import org.openstreetmap.josm.data.osm.PrimitiveData;
 import org.openstreetmap.josm.data.osm.Relation;
@@ -53,6 +60,31 @@ public class OsmReader extends AbstractReader {
 
     protected boolean cancel;
 
+    /**
+     * Number of elements converted to primitives by one task of the parallel pipeline.
+     */
+    private static final int BATCH_SIZE = 1000;
+
+    /**
+     * Parser of the timestamps read by the parser thread. The pipeline threads use their own parsers.
+     */
+    private final DateUtils.TimestampParser timestampParser = new DateUtils.TimestampParser();
+
+    /**
+     * Attributes of the element the parser is currently positioned on.
+     */
+    private final ElementAttributes parserAttributes = new ElementAttributes() {
+        @Override
+        public String getValue(String name) {
+            return parser.getAttributeValue(null, name);
+        }
+
+        @Override
+        public Location getLocation() {
+            return parser.getLocation();
+        }
+    };
+
     /** Used by plugins to register themselves as data postprocessors. */
     private static volatile List<OsmServerReadPostprocessor> postprocessors;
 
@@ -134,36 +166,66 @@ public class OsmReader extends AbstractReader {
         if (parser.getAttributeValue(null, "upload-changeset") != null) {
             uploadChangesetId = getLong("upload-changeset");
         }
-        while (true) {
-            int event = parser.next();
+        // Subclasses may override the parse methods, so only this class uses the parallel pipeline
+        ParsingPipeline pipeline = threadPool != null && getClass() == OsmReader.class ? new ParsingPipeline(threadPool) : null;
+        try {
+            while (true) {
+                int event = parser.next();
 
-            if (cancel) {
-                cancel = false;
-                throw new OsmParsingCanceledException(tr("Reading was canceled"), parser.getLocation());
-            }
+                if (cancel) {
+                    cancel = false;
+                    throw new OsmParsingCanceledException(tr("Reading was canceled"), parser.getLocation());
+                }
 
-            if (event == XMLStreamConstants.START_ELEMENT) {
-                switch (parser.getLocalName()) {
-                case "bounds":
-                    parseBounds(generator);
-                    break;
-                case "node":
-                    parseNode();
-                    break;
-                case "way":
-                    parseWay();
-                    break;
-                case "relation":
-                    parseRelation();
-                    break;
-                case "changeset":
-                    parseChangeset(uploadChangesetId);
-                    break;
-                default:
-                    parseUnknown();
+                if (event == XMLStreamConstants.START_ELEMENT) {
+                    switch (parser.getLocalName()) {
+                    case "bounds":
+                        parseBounds(generator);
+                        break;
+                    case "node":
+                        if (pipeline != null) {
+                            readElement(OsmPrimitiveType.NODE, pipeline);
+                        } else {
+                            parseNode();
+                        }
+                        break;
+                    case "way":
+                        if (pipeline != null) {
+                            readElement(OsmPrimitiveType.WAY, pipeline);
+                        } else {
+                            parseWay();
+                        }
+                        break;
+                    case "relation":
+                        if (pipeline != null) {
+                            readElement(OsmPrimitiveType.RELATION, pipeline);
+                        } else {
+                            parseRelation();
+                        }
+                        break;
+                    case "changeset":
+                        parseChangeset(uploadChangesetId);
+                        break;
+                    default:
+                        parseUnknown();
+                    }
+                } else if (event == XMLStreamConstants.END_ELEMENT) {
+                    if (pipeline != null) {
+                        pipeline.finish();
+                    }
+                    return;
                 }
-            } else if (event == XMLStreamConstants.END_ELEMENT)
-                return;
+            }
+        } catch (XMLStreamException | RuntimeException e) {
+            if (pipeline != null) {
+                // errors in previous elements have to be reported first, as done by the sequential parser
+                pipeline.finish();
+            }
+            throw e;
+        } finally {
+            if (pipeline != null) {
+                pipeline.cancel();
+            }
         }
     }
 
@@ -207,7 +269,7 @@ public class OsmReader extends AbstractReader {
         Node n = new Node(nd.getId(), nd.getVersion());
         n.setVisible(nd.isVisible());
         n.load(nd);
-        externalIdMap.put(nd.getPrimitiveId(), n);
+        idMap.put(nd.getUniqueId(), nd.getType(), n);
         while (true) {
             int event = parser.next();
             if (event == XMLStreamConstants.START_ELEMENT) {
@@ -227,7 +289,7 @@ public class OsmReader extends AbstractReader {
         Way w = new Way(wd.getId(), wd.getVersion());
         w.setVisible(wd.isVisible());
         w.load(wd);
-        externalIdMap.put(wd.getPrimitiveId(), w);
+        idMap.put(wd.getUniqueId(), wd.getType(), w);
 
         Collection<Long> nodeIds = new ArrayList<>();
         while (true) {
@@ -235,7 +297,7 @@ public class OsmReader extends AbstractReader {
             if (event == XMLStreamConstants.START_ELEMENT) {
                 switch (parser.getLocalName()) {
                 case "nd":
-                    nodeIds.add(parseWayNode(w));
+                    nodeIds.add(parseWayNode(w.getUniqueId()));
                     break;
                 case "tag":
                     parseTag(w);
@@ -251,14 +313,14 @@ public class OsmReader extends AbstractReader {
             Main.info(tr("Deleted way {0} contains nodes", w.getUniqueId()));
             nodeIds = new ArrayList<>();
         }
-        ways.put(wd.getUniqueId(), nodeIds);
+        wayMap.put(wd.getUniqueId(), nodeIds);
         return w;
     }
 
-    private long parseWayNode(Way w) throws XMLStreamException {
+    private long parseWayNode(long wayId) throws XMLStreamException {
         if (parser.getAttributeValue(null, "ref") == null) {
             throwException(
-                    tr("Missing mandatory attribute ''{0}'' on <nd> of way {1}.", "ref", w.getUniqueId())
+                    tr("Missing mandatory attribute ''{0}'' on <nd> of way {1}.", "ref", wayId)
             );
         }
         long id = getLong("ref");
@@ -277,7 +339,7 @@ public class OsmReader extends AbstractReader {
         Relation r = new Relation(rd.getId(), rd.getVersion());
         r.setVisible(rd.isVisible());
         r.load(rd);
-        externalIdMap.put(rd.getPrimitiveId(), r);
+        idMap.put(rd.getUniqueId(), rd.getType(), r);
 
         Collection<RelationMemberData> members = new ArrayList<>();
         while (true) {
@@ -285,7 +347,7 @@ public class OsmReader extends AbstractReader {
             if (event == XMLStreamConstants.START_ELEMENT) {
                 switch (parser.getLocalName()) {
                 case "member":
-                    members.add(parseRelationMember(r));
+                    members.add(parseRelationMember(r.getUniqueId()));
                     break;
                 case "tag":
                     parseTag(r);
@@ -301,33 +363,33 @@ public class OsmReader extends AbstractReader {
             Main.info(tr("Deleted relation {0} contains members", r.getUniqueId()));
             members = new ArrayList<>();
         }
-        relations.put(rd.getUniqueId(), members);
+        relationMap.put(rd.getUniqueId(), members);
         return r;
     }
 
-    private RelationMemberData parseRelationMember(Relation r) throws XMLStreamException {
+    private RelationMemberData parseRelationMember(long relationId) throws XMLStreamException {
         String role = null;
         OsmPrimitiveType type = null;
         long id = 0;
         String value = parser.getAttributeValue(null, "ref");
         if (value == null) {
-            throwException(tr("Missing attribute ''ref'' on member in relation {0}.", r.getUniqueId()));
+            throwException(tr("Missing attribute ''ref'' on member in relation {0}.", relationId));
         }
         try {
             id = Long.parseLong(value);
         } catch (NumberFormatException e) {
-            throwException(tr("Illegal value for attribute ''ref'' on member in relation {0}. Got {1}", Long.toString(r.getUniqueId()),
+            throwException(tr("Illegal value for attribute ''ref'' on member in relation {0}. Got {1}", Long.toString(relationId),
                     value), e);
         }
         value = parser.getAttributeValue(null, "type");
         if (value == null) {
-            throwException(tr("Missing attribute ''type'' on member {0} in relation {1}.", Long.toString(id), Long.toString(r.getUniqueId())));
+            throwException(tr("Missing attribute ''type'' on member {0} in relation {1}.", Long.toString(id), Long.toString(relationId)));
         }
         try {
             type = OsmPrimitiveType.fromApiTypeName(value);
         } catch (IllegalArgumentException e) {
             throwException(tr("Illegal value for attribute ''type'' on member {0} in relation {1}. Got {2}.",
-                    Long.toString(id), Long.toString(r.getUniqueId()), value), e);
+                    Long.toString(id), Long.toString(relationId), value), e);
         }
         value = parser.getAttributeValue(null, "role");
         role = value;
@@ -339,6 +401,123 @@ public class OsmReader extends AbstractReader {
         return new RelationMemberData(role, type, id);
     }
 
+    /**
+     * Reads the node, way or relation element the parser is positioned on and hands it over to the pipeline.
+     * Only the XML structure and the references are checked here, the primitive is created by the pipeline.
+     */
+    private void readElement(OsmPrimitiveType type, ParsingPipeline pipeline) throws XMLStreamException {
+        RawPrimitive raw = new RawPrimitive(type, parser);
+        try {
+            while (true) {
+                int event = parser.next();
+                if (event == XMLStreamConstants.START_ELEMENT) {
+                    switch (parser.getLocalName()) {
+                    case "tag":
+                        String key = parser.getAttributeValue(null, "k");
+                        String value = parser.getAttributeValue(null, "v");
+                        if (key == null || value == null) {
+                            throwException(tr("Missing key or value attribute in tag."));
+                        }
+                        raw.tags.add(key);
+                        raw.tags.add(value);
+                        jumpToEnd();
+                        break;
+                    case "nd":
+                        if (type == OsmPrimitiveType.WAY) {
+                            raw.nodeIds.add(parseWayNode(raw.getIdForMessages()));
+                        } else {
+                            parseUnknown();
+                        }
+                        break;
+                    case "member":
+                        if (type == OsmPrimitiveType.RELATION) {
+                            raw.members.add(parseRelationMember(raw.getIdForMessages()));
+                        } else {
+                            parseUnknown();
+                        }
+                        break;
+                    default:
+                        parseUnknown();
+                    }
+                } else if (event == XMLStreamConstants.END_ELEMENT) {
+                    break;
+                }
+            }
+        } catch (XMLStreamException | RuntimeException e) {
+            // the sequential parser reads the element attributes before its content: report their errors first
+            pipeline.finish();
+            convert(raw, timestampParser);
+            throw e;
+        }
+        pipeline.add(raw);
+    }
+
+    /**
+     * Reads the common attributes of a raw element and creates its primitive if it is known to the server.
+     * New primitives are created later, in document order, since their ids are generated on creation.
+     * Users are also created later, since they are shared by all readers. Called from the pipeline threads.
+     */
+    private void convert(RawPrimitive raw, DateUtils.TimestampParser dates) throws XMLStreamException {
+        switch (raw.type) {
+        case NODE:
+            NodeData nd = new NodeData();
+            String lat = raw.getValue("lat");
+            String lon = raw.getValue("lon");
+            if (lat != null && lon != null) {
+                nd.setCoor(new LatLon(Double.parseDouble(lat), Double.parseDouble(lon)));
+            }
+            raw.data = nd;
+            break;
+        case WAY:
+            raw.data = new WayData();
+            break;
+        default:
+            raw.data = new RelationData();
+        }
+        readCommon(raw.data, raw, dates, false);
+        for (int i = 0; i < raw.tags.size(); i++) {
+            raw.tags.set(i, raw.tags.get(i).intern());
+        }
+        if (!raw.data.isNew()) {
+            raw.primitive = raw.createPrimitive();
+        }
+    }
+
+    /**
+     * Creates the user of a converted element and registers the element, exactly as the sequential parse methods do.
+     * Called from the parser thread, in document order.
+     */
+    private void register(RawPrimitive raw) throws XMLStreamException {
+        User user = createUser(raw.getValue("uid"), raw.getValue("user"), raw);
+        raw.data.setUser(user);
+        if (raw.primitive == null) {
+            raw.primitive = raw.createPrimitive();
+        } else {
+            raw.primitive.setUser(user);
+        }
+        idMap.put(raw.data.getUniqueId(), raw.data.getType(), raw.primitive);
+        switch (raw.type) {
+        case WAY:
+            Collection<Long> nodeIds = raw.nodeIds;
+            if (raw.primitive.isDeleted() && !nodeIds.isEmpty()) {
+                Main.info(tr("Deleted way {0} contains nodes", raw.primitive.getUniqueId()));
+                nodeIds = new ArrayList<>();
+            }
+            wayMap.put(raw.data.getUniqueId(), nodeIds);
+            break;
+        case RELATION:
+            Collection<RelationMemberData> members = raw.members;
+            if (raw.primitive.isDeleted() && !members.isEmpty()) {
+                Main.info(tr("Deleted relation {0} contains members", raw.primitive.getUniqueId()));
+                members = new ArrayList<>();
+            }
+            relationMap.put(raw.data.getUniqueId(), members);
+            break;
+        default:
+            // nothing to do for nodes
+        }
+    }
+
     private void parseChangeset(Long uploadChangesetId) throws XMLStreamException {
 
         Long id = null;
@@ -412,57 +591,73 @@ public class OsmReader extends AbstractReader {
         jumpToEnd(true);
     }
 
-    private User createUser(String uid, String name) throws XMLStreamException {
+    private static User createUser(String uid, String name, ElementAttributes attributes) throws XMLStreamException {
         if (uid == null) {
             if (name == null)
                 return null;
             return User.createLocalUser(name);
         }
+        return User.createOsmUser(parseUserId(uid, attributes), name);
+    }
+
+    private static long parseUserId(String uid, ElementAttributes attributes) throws XMLStreamException {
         try {
-            long id = Long.parseLong(uid);
-            return User.createOsmUser(id, name);
+            return Long.parseLong(uid);
         } catch (NumberFormatException e) {
-            throwException(MessageFormat.format("Illegal value for attribute ''uid''. Got ''{0}''.", uid), e);
+            throwElementException(attributes, MessageFormat.format("Illegal value for attribute ''uid''. Got ''{0}''.", uid), e);
         }
-        return null;
+        return 0; // should not happen
     }
 
     /**
      * Read out the common attributes and put them into current OsmPrimitive.
      */
     private void readCommon(PrimitiveData current) throws XMLStreamException {
-        current.setId(getLong("id"));
+        readCommon(current, parserAttributes, timestampParser, true);
+    }
+
+    /**
+     * Read out the common attributes of the given element and put them into current OsmPrimitive.
+     * Can be called from any thread with its own timestamp parser, but the user is then only checked, not created.
+     */
+    private void readCommon(PrimitiveData current, ElementAttributes attributes, DateUtils.TimestampParser dates, boolean createUser)
+            throws XMLStreamException {
+        current.setId(getLong("id", attributes));
         if (current.getUniqueId() == 0) {
-            throwException(tr("Illegal object with ID=0."));
+            throwElementException(attributes, tr("Illegal object with ID=0."));
         }
 
-        String time = parser.getAttributeValue(null, "timestamp");
+        String time = attributes.getValue("timestamp");
         if (time != null && !time.isEmpty()) {
-            current.setRawTimestamp((int) (DateUtils.tsFromString(time)/1000));
+            current.setRawTimestamp((int) (dates.tsFromString(time)/1000));
         }
 
-        String user = parser.getAttributeValue(null, "user");
-        String uid = parser.getAttributeValue(null, "uid");
-        current.setUser(createUser(uid, user));
+        String user = attributes.getValue("user");
+        String uid = attributes.getValue("uid");
+        if (createUser) {
+            current.setUser(createUser(uid, user, attributes));
+        } else if (uid != null) {
+            parseUserId(uid, attributes);
+        }
 
-        String visible = parser.getAttributeValue(null, "visible");
+        String visible = attributes.getValue("visible");
         if (visible != null) {
             current.setVisible(Boolean.parseBoolean(visible));
         }
 
-        String versionString = parser.getAttributeValue(null, "version");
+        String versionString = attributes.getValue("version");
         int version = 0;
         if (versionString != null) {
             try {
                 version = Integer.parseInt(versionString);
             } catch (NumberFormatException e) {
-                throwException(tr("Illegal value for attribute ''version'' on OSM primitive with ID {0}. Got {1}.",
+                throwElementException(attributes, tr("Illegal value for attribute ''version'' on OSM primitive with ID {0}. Got {1}.",
                         Long.toString(current.getUniqueId()), versionString), e);
             }
             switch (ds.getVersion()) {
             case "0.6":
                 if (version <= 0 && !current.isNew()) {
-                    throwException(tr("Illegal value for attribute ''version'' on OSM primitive with ID {0}. Got {1}.",
+                    throwElementException(attributes, tr("Illegal value for attribute ''version'' on OSM primitive with ID {0}. Got {1}.",
                             Long.toString(current.getUniqueId()), versionString));
                 } else if (version < 0 && current.isNew()) {
                     Main.warn(tr("Normalizing value of attribute ''version'' of element {0} to {2}, API version is ''{3}''. Got {1}.",
@@ -472,17 +667,18 @@ public class OsmReader extends AbstractReader {
                 break;
             default:
                 // should not happen. API version has been checked before
-                throwException(tr("Unknown or unsupported API version. Got {0}.", ds.getVersion()));
+                throwElementException(attributes, tr("Unknown or unsupported API version. Got {0}.", ds.getVersion()));
             }
         } else {
             // version expected for OSM primitives with an id assigned by the server (id > 0), since API 0.6
             if (!current.isNew() && ds.getVersion() != null && "0.6".equals(ds.getVersion())) {
-                throwException(tr("Missing attribute ''version'' on OSM primitive with ID {0}.", Long.toString(current.getUniqueId())));
+                throwElementException(attributes, tr("Missing attribute ''version'' on OSM primitive with ID {0}.",
+                        Long.toString(current.getUniqueId())));
             }
         }
         current.setVersion(version);
 
-        String action = parser.getAttributeValue(null, "action");
+        String action = attributes.getValue("action");
         if (action == null) {
             // do nothing
         } else if ("delete".equals(action)) {
@@ -492,7 +688,7 @@ public class OsmReader extends AbstractReader {
             current.setModified(true);
         }
 
-        String v = parser.getAttributeValue(null, "changeset");
+        String v = attributes.getValue("changeset");
         if (v == null) {
             current.setChangesetId(0);
         } else {
@@ -507,7 +703,7 @@ public class OsmReader extends AbstractReader {
                     current.setChangesetId(0);
                 } else {
                     // for an existing primitive this is a problem
-                    throwException(tr("Illegal value for attribute ''changeset''. Got {0}.", v), e);
+                    throwElementException(attributes, tr("Illegal value for attribute ''changeset''. Got {0}.", v), e);
                 }
             } catch (IllegalStateException e) {
                 // thrown for positive changeset id on new primitives
@@ -522,25 +718,258 @@ public class OsmReader extends AbstractReader {
                     current.setChangesetId(0);
                 } else {
                     // for an existing primitive this is a problem
-                    throwException(tr("Illegal value for attribute ''changeset''. Got {0}.", v));
+                    throwElementException(attributes, tr("Illegal value for attribute ''changeset''. Got {0}.", v));
                 }
             }
         }
     }
 
     private long getLong(String name) throws XMLStreamException {
-        String value = parser.getAttributeValue(null, name);
+        return getLong(name, parserAttributes);
+    }
+
+    private static long getLong(String name, ElementAttributes attributes) throws XMLStreamException {
+        String value = attributes.getValue(name);
         if (value == null) {
-            throwException(tr("Missing required attribute ''{0}''.", name));
+            throwElementException(attributes, tr("Missing required attribute ''{0}''.", name));
         }
         try {
             return Long.parseLong(value);
         } catch (NumberFormatException e) {
-            throwException(tr("Illegal long value for attribute ''{0}''. Got ''{1}''.", name, value), e);
+            throwElementException(attributes, tr("Illegal long value for attribute ''{0}''. Got ''{1}''.", name, value), e);
         }
         return 0; // should not happen
     }
 
+    private static void throwElementException(ElementAttributes attributes, String msg) throws XMLStreamException {
+        throw new OsmParsingException(msg, attributes.getLocation());
+    }
+
+    private static void throwElementException(ElementAttributes attributes, String msg, Throwable th) throws XMLStreamException {
+        throw new OsmParsingException(msg, attributes.getLocation(), th);
+    }
+
+    /**
+     * Read access to the attributes of an XML element.
+     */
+    private interface ElementAttributes {
+        /**
+         * Returns the value of an attribute.
+         * @param name the attribute name
+         * @return the attribute value, or {@code null}
+         */
+        String getValue(String name);
+
+        /**
+         * Returns the location of the element, used in error messages.
+         * @return the location of the element
+         */
+        Location getLocation();
+    }
+
+    /**
+     * A node, way or relation element read by the parser thread, not yet converted to a primitive.
+     */
+    private static final class RawPrimitive implements ElementAttributes {
+        private final OsmPrimitiveType type;
+        private final String[] attributes;
+        private final Location location;
+        /** Keys and values, alternately */
+        private final List<String> tags = new ArrayList<>();
+        private final Collection<Long> nodeIds;
+        private final Collection<RelationMemberData> members;
+        private PrimitiveData data;
+        private OsmPrimitive primitive;
+
+        RawPrimitive(OsmPrimitiveType type, XMLStreamReader parser) {
+            this.type = type;
+            int count = parser.getAttributeCount();
+            this.attributes = new String[2 * count];
+            for (int i = 0; i < count; i++) {
+                attributes[2 * i] = parser.getAttributeLocalName(i);
+                attributes[2 * i + 1] = parser.getAttributeValue(i);
+            }
+            this.location = new ElementLocation(parser.getLocation());
+            this.nodeIds = type == OsmPrimitiveType.WAY ? new ArrayList<Long>() : null;
+            this.members = type == OsmPrimitiveType.RELATION ? new ArrayList<RelationMemberData>() : null;
+        }
+
+        @Override
+        public String getValue(String name) {
+            for (int i = 0; i < attributes.length; i += 2) {
+                if (name.equals(attributes[i]))
+                    return attributes[i + 1];
+            }
+            return null;
+        }
+
+        @Override
+        public Location getLocation() {
+            return location;
+        }
+
+        /**
+         * Returns the id used in error messages about the content of the element, before it has been validated.
+         */
+        long getIdForMessages() {
+            try {
+                return Long.parseLong(getValue("id"));
+            } catch (NumberFormatException e) {
+                return 0;
+            }
+        }
+
+        OsmPrimitive createPrimitive() {
+            OsmPrimitive p;
+            switch (type) {
+            case NODE:
+                p = new Node(data.getId(), data.getVersion());
+                break;
+            case WAY:
+                p = new Way(data.getId(), data.getVersion());
+                break;
+            default:
+                p = new Relation(data.getId(), data.getVersion());
+            }
+            // collect the tags first, so that the primitive gets its whole tag set at once
+            for (int i = 0; i < tags.size(); i += 2) {
+                data.put(tags.get(i), tags.get(i + 1));
+            }
+            p.setVisible(data.isVisible());
+            p.load(data);
+            return p;
+        }
+    }
+
+    /**
+     * Immutable copy of a parser location, which changes as the parser moves on.
+     */
+    private static final class ElementLocation implements Location {
+        private final int lineNumber;
+        private final int columnNumber;
+        private final int characterOffset;
+        private final String publicId;
+        private final String systemId;
+
+        ElementLocation(Location location) {
+            lineNumber = location.getLineNumber();
+            columnNumber = location.getColumnNumber();
+            characterOffset = location.getCharacterOffset();
+            publicId = location.getPublicId();
+            systemId = location.getSystemId();
+        }
+
+        @Override
+        public int getLineNumber() {
+            return lineNumber;
+        }
+
+        @Override
+        public int getColumnNumber() {
+            return columnNumber;
+        }
+
+        @Override
+        public int getCharacterOffset() {
+            return characterOffset;
+        }
+
+        @Override
+        public String getPublicId() {
+            return publicId;
+        }
+
+        @Override
+        public String getSystemId() {
+            return systemId;
+        }
+    }
+
+    /**
+     * Converts raw elements to primitives on a thread pool, in batches.
+     * The batches are registered in document order on the parser thread, so that the result is the same as the one
+     * of the sequential parser.
+     */
+    private final class ParsingPipeline {
+        private final ExecutorService pool;
+        private final int maxPendingBatches;
+        private final Deque<Future<List<RawPrimitive>>> pending = new ArrayDeque<>();
+        private List<RawPrimitive> batch = new ArrayList<>(BATCH_SIZE);
+
+        ParsingPipeline(ExecutorService pool) {
+            this.pool = pool;
+            this.maxPendingBatches = 2 * Runtime.getRuntime().availableProcessors() + 2;
+        }
+
+        void add(RawPrimitive raw) throws XMLStreamException {
+            batch.add(raw);
+            if (batch.size() >= BATCH_SIZE) {
+                submit();
+            }
+        }
+
+        private void submit() throws XMLStreamException {
+            final List<RawPrimitive> toConvert = batch;
+            batch = new ArrayList<>(BATCH_SIZE);
+            pending.add(pool.submit(new Callable<List<RawPrimitive>>() {
+                @Override
+                public List<RawPrimitive> call() throws XMLStreamException {
+                    DateUtils.TimestampParser dates = new DateUtils.TimestampParser();
+                    for (RawPrimitive raw : toConvert) {
+                        convert(raw, dates);
+                    }
+                    return toConvert;
+                }
+            }));
+            // register what is ready, and limit the memory used by elements not converted yet
+            while (!pending.isEmpty() && (pending.size() > maxPendingBatches || pending.peek().isDone())) {
+                register(pending.poll());
+            }
+        }
+
+        /**
+         * Converts and registers all elements handed over so far.
+         */
+        void finish() throws XMLStreamException {
+            if (!batch.isEmpty()) {
+                submit();
+            }
+            while (!pending.isEmpty()) {
+                register(pending.poll());
+            }
+        }
+
+        void cancel() {
+            for (Future<List<RawPrimitive>> future : pending) {
+                future.cancel(true);
+            }
+            pending.clear();
+            batch.clear();
+        }
+
+        private void register(Future<List<RawPrimitive>> future) throws XMLStreamException {
+            List<RawPrimitive> converted;
+            try {
+                converted = future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new OsmParsingCanceledException(tr("Reading was canceled"), null);
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof XMLStreamException)
+                    throw (XMLStreamException) cause;
+                else if (cause instanceof RuntimeException)
+                    throw (RuntimeException) cause;
+                else if (cause instanceof Error)
+                    throw (Error) cause;
+                throw new XMLStreamException(cause);
+            }
+            for (RawPrimitive raw : converted) {
+                OsmReader.this.register(raw);
+            }
+        }
+    }
+
     private static class OsmParsingException extends XMLStreamException {
 
         public OsmParsingException(String msg, Location location) {
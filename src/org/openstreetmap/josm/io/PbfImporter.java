@@ -0,0 +1,34 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.io;
+
+import static org.openstreetmap.josm.tools.I18n.tr;
+
+import java.io.InputStream;
+
+import org.openstreetmap.josm.actions.ExtensionFileFilter;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.gui.progress.ProgressMonitor;
+
+/**
+ * OSM data importer for the PBF (protocol buffer) format, used by most extract providers.
+ */
+public class PbfImporter extends OsmImporter {
+
+    /**
+     * File filter used to load PBF files.
+     */
+    public static final ExtensionFileFilter FILE_FILTER = new ExtensionFileFilter(
+            "osm.pbf,pbf", "osm.pbf", tr("OSM Server Files pbf compressed") + " (*.osm.pbf *.pbf)");
+
+    /**
+     * Constructs a new {@code PbfImporter}.
+     */
+    public PbfImporter() {
+        super(FILE_FILTER);
+    }
+
+    @Override
+    protected DataSet parseDataSet(InputStream in, ProgressMonitor progressMonitor) throws IllegalDataException {
+        return PbfReader.parseDataSet(in, progressMonitor);
+    }
+}
@@ -0,0 +1,882 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.io;
+
+import static org.openstreetmap.josm.tools.I18n.tr;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+import org.openstreetmap.josm.Main;
+import org.openstreetmap.josm.data.Bounds;
+import org.openstreetmap.josm.data.DataSource;
+import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.Node;
+import org.openstreetmap.josm.data.osm.OsmPrimitive;
+import org.openstreetmap.josm.data.osm.OsmPrimitiveType;
+import org.openstreetmap.josm.data.osm.Relation;
+import org.openstreetmap.josm.data.osm.RelationMemberData;
+import org.openstreetmap.josm.data.osm.User;
+import org.openstreetmap.josm.data.osm.Way;
+import org.openstreetmap.josm.gui.progress.NullProgressMonitor;
+import org.openstreetmap.josm.gui.progress.ProgressMonitor;
+import org.openstreetmap.josm.tools.CheckParameterUtil;
+
+/**
+ * Reader for the OSM PBF format (see <a href="https://wiki.openstreetmap.org/wiki/PBF_Format">PBF Format</a>).
+ *
+ * The file is a sequence of independently compressed blobs. Blobs are read on the calling thread, then
+ * uncompressed and decoded to primitives on the thread pool. Decoded blocks are registered in file order,
+ * and references are resolved by {@link AbstractReader}, like for XML files.
+ */
+public class PbfReader extends AbstractReader {
+
+    /** Maximum size of a blob header, as defined by the format */
+    private static final int MAX_HEADER_SIZE = 64 * 1024;
+    /** Maximum uncompressed size of a blob, as defined by the format */
+    private static final int MAX_BLOB_SIZE = 32 * 1024 * 1024;
+
+    private static final List<String> SUPPORTED_FEATURES = Arrays.asList(
+            "OsmSchema-V0.6", "DenseNodes", "HistoricalInformation");
+
+    /** Whether at least one primitive had no version, and has been given version 1 */
+    private volatile boolean missingVersions;
+
+    /**
+     * constructor (for private and subclasses use only)
+     *
+     * @see #parseDataSet(InputStream, ProgressMonitor)
+     */
+    protected PbfReader() {
+        // Restricts visibility
+    }
+
+    /**
+     * Exception thrown after user cancelation.
+     */
+    private static final class PbfReadingCanceledException extends Exception implements ImportCancelException {
+        PbfReadingCanceledException() {
+            super(tr("Reading was canceled"));
+        }
+    }
+
+    /**
+     * Reads protocol buffer fields from a byte array.
+     */
+    private static final class ProtoBuffer {
+        private final byte[] buf;
+        private final int end;
+        private int pos;
+        private int wireType;
+
+        ProtoBuffer(byte[] buf, int offset, int length) {
+            this.buf = buf;
+            this.pos = offset;
+            this.end = offset + length;
+        }
+
+        boolean hasRemaining() {
+            return pos < end;
+        }
+
+        /**
+         * Reads the key of the next field.
+         * @return the field number
+         */
+        int readField() throws IllegalDataException {
+            long key = readVarint();
+            wireType = (int) (key & 7);
+            return (int) (key >>> 3);
+        }
+
+        long readVarint() throws IllegalDataException {
+            long result = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                if (pos >= end)
+                    throw new IllegalDataException(tr("Unexpected end of PBF data."));
+                byte b = buf[pos++];
+                result |= (long) (b & 0x7f) << shift;
+                if ((b & 0x80) == 0)
+                    return result;
+            }
+            throw new IllegalDataException(tr("Malformed variable length integer in PBF data."));
+        }
+
+        long readSignedVarint() throws IllegalDataException {
+            return decodeZigZag(readVarint());
+        }
+
+        private int readLength() throws IllegalDataException {
+            long length = readVarint();
+            if (length < 0 || length > end - pos)
+                throw new IllegalDataException(tr("Unexpected end of PBF data."));
+            return (int) length;
+        }
+
+        ProtoBuffer readMessage() throws IllegalDataException {
+            int length = readLength();
+            ProtoBuffer message = new ProtoBuffer(buf, pos, length);
+            pos += length;
+            return message;
+        }
+
+        byte[] readBytes() throws IllegalDataException {
+            int length = readLength();
+            byte[] result = Arrays.copyOfRange(buf, pos, pos + length);
+            pos += length;
+            return result;
+        }
+
+        String readString() throws IllegalDataException {
+            int length = readLength();
+            String result = new String(buf, pos, length, StandardCharsets.UTF_8);
+            pos += length;
+            return result;
+        }
+
+        /**
+         * Reads a repeated varint field, packed or not.
+         * @return the raw values, without zigzag or delta decoding
+         */
+        long[] readVarints() throws IllegalDataException {
+            if (wireType != 2)
+                return new long[] {readVarint()};
+            ProtoBuffer packed = readMessage();
+            int count = 0;
+            for (int i = packed.pos; i < packed.end; i++) {
+                if ((buf[i] & 0x80) == 0) {
+                    count++;
+                }
+            }
+            long[] result = new long[count];
+            for (int i = 0; i < count; i++) {
+                result[i] = packed.readVarint();
+            }
+            return result;
+        }
+
+        void skip() throws IllegalDataException {
+            switch (wireType) {
+            case 0:
+                readVarint();
+                break;
+            case 1:
+                skipBytes(8);
+                break;
+            case 2:
+                skipBytes(readLength());
+                break;
+            case 5:
+                skipBytes(4);
+                break;
+            default:
+                throw new IllegalDataException(tr("Unsupported wire type {0} in PBF data.", wireType));
+            }
+        }
+
+        private void skipBytes(int count) throws IllegalDataException {
+            if (count > end - pos)
+                throw new IllegalDataException(tr("Unexpected end of PBF data."));
+            pos += count;
+        }
+    }
+
+    private static long decodeZigZag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    /**
+     * Undoes the zigzag and delta encoding of a packed field, in place.
+     */
+    private static long[] decodeDelta(long[] values) {
+        long last = 0;
+        for (int i = 0; i < values.length; i++) {
+            last += decodeZigZag(values[i]);
+            values[i] = last;
+        }
+        return values;
+    }
+
+    /**
+     * The primitives of a decoded data block, in file order.
+     */
+    private static final class DecodedBlock {
+        private final List<OsmPrimitive> primitives = new ArrayList<>();
+        private long[] externalIds = new long[256];
+        /** {@code null} for nodes, the node ids for ways, the members for relations */
+        private final List<Object> references = new ArrayList<>();
+
+        void add(OsmPrimitive primitive, long externalId, Object refs) {
+            int index = primitives.size();
+            if (index == externalIds.length) {
+                externalIds = Arrays.copyOf(externalIds, 2 * index);
+            }
+            externalIds[index] = externalId;
+            primitives.add(primitive);
+            references.add(refs);
+        }
+    }
+
+    /**
+     * Decodes one PrimitiveBlock. Can be called from any thread.
+     */
+    private final class BlockDecoder {
+        private String[] strings = new String[0];
+        private int granularity = 100;
+        private long latOffset;
+        private long lonOffset;
+        private int dateGranularity = 1000;
+        private final Map<Long, User> users = new HashMap<>();
+        private final Map<String, String> tags = new LinkedHashMap<>();
+        private final DecodedBlock result = new DecodedBlock();
+
+        DecodedBlock decode(ProtoBuffer block) throws IllegalDataException {
+            // the group fields may come before the fields defining the string table and the granularity
+            List<ProtoBuffer> groups = new ArrayList<>();
+            while (block.hasRemaining()) {
+                switch (block.readField()) {
+                case 1:
+                    readStringTable(block.readMessage());
+                    break;
+                case 2:
+                    groups.add(block.readMessage());
+                    break;
+                case 17:
+                    granularity = (int) block.readVarint();
+                    break;
+                case 18:
+                    dateGranularity = (int) block.readVarint();
+                    break;
+                case 19:
+                    latOffset = block.readVarint();
+                    break;
+                case 20:
+                    lonOffset = block.readVarint();
+                    break;
+                default:
+                    block.skip();
+                }
+            }
+            for (ProtoBuffer group : groups) {
+                while (group.hasRemaining()) {
+                    switch (group.readField()) {
+                    case 1:
+                        readNode(group.readMessage());
+                        break;
+                    case 2:
+                        readDenseNodes(group.readMessage());
+                        break;
+                    case 3:
+                        readWay(group.readMessage());
+                        break;
+                    case 4:
+                        readRelation(group.readMessage());
+                        break;
+                    default:
+                        group.skip();
+                    }
+                }
+            }
+            return result;
+        }
+
+        private void readStringTable(ProtoBuffer table) throws IllegalDataException {
+            List<String> list = new ArrayList<>();
+            while (table.hasRemaining()) {
+                if (table.readField() == 1) {
+                    list.add(table.readString().intern());
+                } else {
+                    table.skip();
+                }
+            }
+            strings = list.toArray(new String[list.size()]);
+        }
+
+        private String getString(long index) throws IllegalDataException {
+            if (index < 0 || index >= strings.length)
+                throw new IllegalDataException(tr("Illegal string table index {0} in PBF data.", index));
+            return strings[(int) index];
+        }
+
+        private double getLat(long lat) {
+            return 1e-9 * (latOffset + granularity * lat);
+        }
+
+        private double getLon(long lon) {
+            return 1e-9 * (lonOffset + granularity * lon);
+        }
+
+        private User getUser(long uid, long userSid) throws IllegalDataException {
+            if (uid <= 0)
+                return null;
+            User user = users.get(uid);
+            if (user == null) {
+                user = User.createOsmUser(uid, getString(userSid));
+                users.put(uid, user);
+            }
+            return user;
+        }
+
+        private int getVersion(long id, long version) {
+            if (id > 0 && version <= 0) {
+                // extract written without metadata: the primitives must not be considered as incomplete
+                missingVersions = true;
+                return 1;
+            }
+            return (int) version;
+        }
+
+        /**
+         * Sets the metadata of a primitive.
+         */
+        private void setInfo(OsmPrimitive p, long timestamp, long changeset, long uid, long userSid, boolean visible)
+                throws IllegalDataException {
+            p.setRawTimestamp((int) (timestamp * dateGranularity / 1000));
+            if (!p.isNew() && changeset > 0) {
+                p.setChangesetId((int) changeset);
+            }
+            p.setUser(getUser(uid, userSid));
+            p.setVisible(visible);
+        }
+
+        /**
+         * Reads an Info message.
+         * @return version, timestamp, changeset, uid, user_sid and visible (as 0 or 1)
+         */
+        private long[] readInfo(ProtoBuffer info) throws IllegalDataException {
+            long[] result = {-1, 0, 0, 0, 0, 1};
+            while (info.hasRemaining()) {
+                int field = info.readField();
+                if (field >= 1 && field <= 6) {
+                    result[field - 1] = info.readVarint();
+                } else {
+                    info.skip();
+                }
+            }
+            return result;
+        }
+
+        private void setTags(OsmPrimitive p, long[] keys, long[] values) throws IllegalDataException {
+            if (keys.length != values.length)
+                throw new IllegalDataException(tr("Tag keys and values do not match in PBF data."));
+            if (keys.length > 0) {
+                tags.clear();
+                for (int i = 0; i < keys.length; i++) {
+                    tags.put(getString(keys[i]), getString(values[i]));
+                }
+                p.setKeys(tags);
+            }
+        }
+
+        private void readNode(ProtoBuffer node) throws IllegalDataException {
+            long id = 0;
+            long[] keys = new long[0];
+            long[] values = keys;
+            long[] info = null;
+            long lat = 0;
+            long lon = 0;
+            while (node.hasRemaining()) {
+                switch (node.readField()) {
+                case 1:
+                    id = node.readSignedVarint();
+                    break;
+                case 2:
+                    keys = node.readVarints();
+                    break;
+                case 3:
+                    values = node.readVarints();
+                    break;
+                case 4:
+                    info = readInfo(node.readMessage());
+                    break;
+                case 8:
+                    lat = node.readSignedVarint();
+                    break;
+                case 9:
+                    lon = node.readSignedVarint();
+                    break;
+                default:
+                    node.skip();
+                }
+            }
+            checkId(id);
+            Node n = new Node(Math.max(0, id), getVersion(id, info != null ? info[0] : -1));
+            n.setCoor(new LatLon(getLat(lat), getLon(lon)));
+            if (info != null) {
+                setInfo(n, info[1], info[2], info[3], info[4], info[5] != 0);
+            }
+            setTags(n, keys, values);
+            result.add(n, id, null);
+        }
+
+        /**
+         * Reads dense nodes. The columns are decoded to primitive arrays and the nodes are created directly from them.
+         */
+        private void readDenseNodes(ProtoBuffer dense) throws IllegalDataException {
+            long[] ids = new long[0];
+            long[] lats = ids;
+            long[] lons = ids;
+            long[] keysValues = ids;
+            long[] versions = null;
+            long[] timestamps = null;
+            long[] changesets = null;
+            long[] uids = null;
+            long[] userSids = null;
+            long[] visibles = null;
+            while (dense.hasRemaining()) {
+                switch (dense.readField()) {
+                case 1:
+                    ids = decodeDelta(dense.readVarints());
+                    break;
+                case 5:
+                    ProtoBuffer info = dense.readMessage();
+                    while (info.hasRemaining()) {
+                        switch (info.readField()) {
+                        case 1:
+                            versions = info.readVarints();
+                            break;
+                        case 2:
+                            timestamps = decodeDelta(info.readVarints());
+                            break;
+                        case 3:
+                            changesets = decodeDelta(info.readVarints());
+                            break;
+                        case 4:
+                            uids = decodeDelta(info.readVarints());
+                            break;
+                        case 5:
+                            userSids = decodeDelta(info.readVarints());
+                            break;
+                        case 6:
+                            visibles = info.readVarints();
+                            break;
+                        default:
+                            info.skip();
+                        }
+                    }
+                    break;
+                case 8:
+                    lats = decodeDelta(dense.readVarints());
+                    break;
+                case 9:
+                    lons = decodeDelta(dense.readVarints());
+                    break;
+                case 10:
+                    keysValues = dense.readVarints();
+                    break;
+                default:
+                    dense.skip();
+                }
+            }
+            int count = ids.length;
+            if (lats.length != count || lons.length != count
+                    || (versions != null && versions.length != count)
+                    || (timestamps != null && timestamps.length != count)
+                    || (changesets != null && changesets.length != count)
+                    || (uids != null && uids.length != count)
+                    || (userSids != null && userSids.length != count)
+                    || (visibles != null && visibles.length != count))
+                throw new IllegalDataException(tr("Inconsistent dense nodes in PBF data."));
+            int kv = 0;
+            for (int i = 0; i < count; i++) {
+                long id = ids[i];
+                checkId(id);
+                Node n = new Node(Math.max(0, id), getVersion(id, versions != null ? versions[i] : -1));
+                n.setCoor(new LatLon(getLat(lats[i]), getLon(lons[i])));
+                if (versions != null) {
+                    setInfo(n, timestamps != null ? timestamps[i] : 0, changesets != null ? changesets[i] : 0,
+                            uids != null ? uids[i] : 0, userSids != null ? userSids[i] : 0,
+                            visibles == null || visibles[i] != 0);
+                }
+                if (kv < keysValues.length && keysValues[kv] != 0) {
+                    tags.clear();
+                    while (kv < keysValues.length && keysValues[kv] != 0) {
+                        if (kv + 1 >= keysValues.length)
+                            throw new IllegalDataException(tr("Tag keys and values do not match in PBF data."));
+                        tags.put(getString(keysValues[kv]), getString(keysValues[kv + 1]));
+                        kv += 2;
+                    }
+                    n.setKeys(tags);
+                }
+                // skip the delimiter of this node
+                kv++;
+                result.add(n, id, null);
+            }
+        }
+
+        private void readWay(ProtoBuffer way) throws IllegalDataException {
+            long id = 0;
+            long[] keys = new long[0];
+            long[] values = keys;
+            long[] info = null;
+            long[] refs = keys;
+            while (way.hasRemaining()) {
+                switch (way.readField()) {
+                case 1:
+                    id = way.readVarint();
+                    break;
+                case 2:
+                    keys = way.readVarints();
+                    break;
+                case 3:
+                    values = way.readVarints();
+                    break;
+                case 4:
+                    info = readInfo(way.readMessage());
+                    break;
+                case 8:
+                    refs = decodeDelta(way.readVarints());
+                    break;
+                default:
+                    way.skip();
+                }
+            }
+            checkId(id);
+            Way w = new Way(Math.max(0, id), getVersion(id, info != null ? info[0] : -1));
+            if (info != null) {
+                setInfo(w, info[1], info[2], info[3], info[4], info[5] != 0);
+            }
+            setTags(w, keys, values);
+            Collection<Long> nodeIds = new ArrayList<>(refs.length);
+            for (long ref : refs) {
+                if (ref == 0)
+                    throw new IllegalDataException(tr("Illegal node reference 0 in way {0}.", id));
+                nodeIds.add(ref);
+            }
+            result.add(w, id, nodeIds);
+        }
+
+        private void readRelation(ProtoBuffer relation) throws IllegalDataException {
+            long id = 0;
+            long[] keys = new long[0];
+            long[] values = keys;
+            long[] info = null;
+            long[] roles = keys;
+            long[] memberIds = keys;
+            long[] types = keys;
+            while (relation.hasRemaining()) {
+                switch (relation.readField()) {
+                case 1:
+                    id = relation.readVarint();
+                    break;
+                case 2:
+                    keys = relation.readVarints();
+                    break;
+                case 3:
+                    values = relation.readVarints();
+                    break;
+                case 4:
+                    info = readInfo(relation.readMessage());
+                    break;
+                case 8:
+                    roles = relation.readVarints();
+                    break;
+                case 9:
+                    memberIds = decodeDelta(relation.readVarints());
+                    break;
+                case 10:
+                    types = relation.readVarints();
+                    break;
+                default:
+                    relation.skip();
+                }
+            }
+            checkId(id);
+            if (roles.length != memberIds.length || types.length != memberIds.length)
+                throw new IllegalDataException(tr("Inconsistent members of relation {0} in PBF data.", id));
+            Relation r = new Relation(Math.max(0, id), getVersion(id, info != null ? info[0] : -1));
+            if (info != null) {
+                setInfo(r, info[1], info[2], info[3], info[4], info[5] != 0);
+            }
+            setTags(r, keys, values);
+            Collection<RelationMemberData> members = new ArrayList<>(memberIds.length);
+            for (int i = 0; i < memberIds.length; i++) {
+                if (memberIds[i] == 0)
+                    throw new IllegalDataException(tr("Illegal member reference 0 in relation {0}.", id));
+                OsmPrimitiveType type;
+                switch ((int) types[i]) {
+                case 0:
+                    type = OsmPrimitiveType.NODE;
+                    break;
+                case 1:
+                    type = OsmPrimitiveType.WAY;
+                    break;
+                case 2:
+                    type = OsmPrimitiveType.RELATION;
+                    break;
+                default:
+                    throw new IllegalDataException(tr("Illegal member type {0} in relation {1}.", types[i], id));
+                }
+                members.add(new RelationMemberData(getString(roles[i]), type, memberIds[i]));
+            }
+            result.add(r, id, members);
+        }
+
+        private void checkId(long id) throws IllegalDataException {
+            if (id == 0)
+                throw new IllegalDataException(tr("Illegal object with ID=0."));
+        }
+    }
+
+    /**
+     * Uncompresses the data of a blob.
+     */
+    private static ProtoBuffer readBlob(byte[] blob) throws IllegalDataException {
+        ProtoBuffer buffer = new ProtoBuffer(blob, 0, blob.length);
+        int rawSize = -1;
+        byte[] zlibData = null;
+        while (buffer.hasRemaining()) {
+            switch (buffer.readField()) {
+            case 1:
+                return buffer.readMessage();
+            case 2:
+                rawSize = (int) buffer.readVarint();
+                break;
+            case 3:
+                zlibData = buffer.readBytes();
+                break;
+            default:
+                // lzma, bzip2 and other compressions
+                throw new IllegalDataException(tr("Unsupported PBF blob compression."));
+            }
+        }
+        if (zlibData == null || rawSize < 0 || rawSize > MAX_BLOB_SIZE)
+            throw new IllegalDataException(tr("Invalid PBF blob."));
+        Inflater inflater = new Inflater();
+        try {
+            byte[] data = new byte[rawSize];
+            inflater.setInput(zlibData);
+            int length = 0;
+            while (length < rawSize && !inflater.finished()) {
+                int n = inflater.inflate(data, length, rawSize - length);
+                if (n == 0 && (inflater.needsInput() || inflater.needsDictionary()))
+                    break;
+                length += n;
+            }
+            if (length != rawSize)
+                throw new IllegalDataException(tr("Invalid PBF blob."));
+            return new ProtoBuffer(data, 0, rawSize);
+        } catch (DataFormatException e) {
+            throw new IllegalDataException(e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    /**
+     * Reads the header block, which has to be supported before reading any data.
+     */
+    private void readHeaderBlock(ProtoBuffer header) throws IllegalDataException {
+        long[] bbox = null;
+        String writingProgram = null;
+        String source = null;
+        while (header.hasRemaining()) {
+            switch (header.readField()) {
+            case 1:
+                ProtoBuffer box = header.readMessage();
+                bbox = new long[4];
+                while (box.hasRemaining()) {
+                    int field = box.readField();
+                    if (field >= 1 && field <= 4) {
+                        bbox[field - 1] = box.readSignedVarint();
+                    } else {
+                        box.skip();
+                    }
+                }
+                break;
+            case 4:
+                String feature = header.readString();
+                if (!SUPPORTED_FEATURES.contains(feature))
+                    throw new IllegalDataException(tr("PBF feature ''{0}'' is not supported.", feature));
+                break;
+            case 16:
+                writingProgram = header.readString();
+                break;
+            case 17:
+                source = header.readString();
+                break;
+            default:
+                header.skip();
+            }
+        }
+        if (bbox != null) {
+            // left, right, top, bottom in nanodegrees
+            Bounds bounds = new Bounds(1e-9 * bbox[3], 1e-9 * bbox[0], 1e-9 * bbox[2], 1e-9 * bbox[1]);
+            ds.dataSources.add(new DataSource(bounds, source != null ? source : writingProgram));
+        }
+    }
+
+    private void register(DecodedBlock block) {
+        for (int i = 0; i < block.primitives.size(); i++) {
+            OsmPrimitive p = block.primitives.get(i);
+            long id = block.externalIds[i];
+            idMap.put(id, p.getType(), p);
+            switch (p.getType()) {
+            case WAY:
+                @SuppressWarnings("unchecked")
+                Collection<Long> nodeIds = (Collection<Long>) block.references.get(i);
+                wayMap.put(id, nodeIds);
+                break;
+            case RELATION:
+                @SuppressWarnings("unchecked")
+                Collection<RelationMemberData> members = (Collection<RelationMemberData>) block.references.get(i);
+                relationMap.put(id, members);
+                break;
+            default:
+                // nothing to do for nodes
+            }
+        }
+    }
+
+    private void register(Future<DecodedBlock> future) throws IllegalDataException {
+        try {
+            register(future.get());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalDataException(tr("Reading was canceled"), new PbfReadingCanceledException());
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IllegalDataException)
+                throw (IllegalDataException) e.getCause();
+            throw new IllegalDataException(e.getCause());
+        }
+    }
+
+    private Future<DecodedBlock> decode(final byte[] blob) {
+        return threadPool.submit(new Callable<DecodedBlock>() {
+            @Override
+            public DecodedBlock call() throws IllegalDataException {
+                return new BlockDecoder().decode(readBlob(blob));
+            }
+        });
+    }
+
+    /**
+     * Reads all blobs of the file. Data blobs are decoded in parallel, at most a few blobs ahead of the one being registered.
+     */
+    private void parse(InputStream source, ProgressMonitor progressMonitor) throws IOException, IllegalDataException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(source));
+        Deque<Future<DecodedBlock>> pending = new ArrayDeque<>();
+        int maxPending = 2 * Runtime.getRuntime().availableProcessors() + 2;
+        boolean headerRead = false;
+        try {
+            while (true) {
+                if (progressMonitor.isCanceled())
+                    throw new IllegalDataException(tr("Reading was canceled"), new PbfReadingCanceledException());
+                int headerSize;
+                try {
+                    headerSize = in.readInt();
+                } catch (EOFException e) {
+                    break;
+                }
+                if (headerSize < 0 || headerSize > MAX_HEADER_SIZE)
+                    throw new IllegalDataException(tr("Invalid PBF blob header size: {0}", headerSize));
+                byte[] headerData = new byte[headerSize];
+                in.readFully(headerData);
+                ProtoBuffer header = new ProtoBuffer(headerData, 0, headerSize);
+                String type = null;
+                int dataSize = -1;
+                while (header.hasRemaining()) {
+                    switch (header.readField()) {
+                    case 1:
+                        type = header.readString();
+                        break;
+                    case 3:
+                        dataSize = (int) header.readVarint();
+                        break;
+                    default:
+                        header.skip();
+                    }
+                }
+                if (dataSize < 0 || dataSize > MAX_BLOB_SIZE)
+                    throw new IllegalDataException(tr("Invalid PBF blob size: {0}", dataSize));
+                byte[] blob = new byte[dataSize];
+                in.readFully(blob);
+                if ("OSMHeader".equals(type)) {
+                    readHeaderBlock(readBlob(blob));
+                    headerRead = true;
+                } else if ("OSMData".equals(type)) {
+                    if (!headerRead)
+                        throw new IllegalDataException(tr("Missing PBF header block."));
+                    if (threadPool == null) {
+                        register(new BlockDecoder().decode(readBlob(blob)));
+                    } else {
+                        pending.add(decode(blob));
+                        while (!pending.isEmpty() && (pending.size() > maxPending || pending.peek().isDone())) {
+                            register(pending.poll());
+                        }
+                    }
+                } else {
+                    Main.info(tr("Unknown PBF blob type ''{0}''. Skipping.", type));
+                }
+            }
+            while (!pending.isEmpty()) {
+                register(pending.poll());
+            }
+        } finally {
+            for (Future<DecodedBlock> future : pending) {
+                future.cancel(true);
+            }
+        }
+    }
+
+    protected DataSet doParseDataSet(InputStream source, ProgressMonitor progressMonitor) throws IllegalDataException {
+        if (progressMonitor == null) {
+            progressMonitor = NullProgressMonitor.INSTANCE;
+        }
+        CheckParameterUtil.ensureParameterNotNull(source, "source");
+        try {
+            progressMonitor.beginTask(tr("Prepare OSM data..."), 2);
+            progressMonitor.indeterminateSubTask(tr("Parsing OSM data..."));
+            ds.setVersion("0.6");
+            parse(source, progressMonitor);
+            if (missingVersions) {
+                Main.info(tr("PBF data without versions. Upload is discouraged."));
+                ds.setUploadDiscouraged(true);
+            }
+            progressMonitor.worked(1);
+
+            progressMonitor.indeterminateSubTask(tr("Preparing data set..."));
+            prepareDataSet();
+            progressMonitor.worked(1);
+            return getDataSet();
+        } catch (IllegalDataException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IllegalDataException(e);
+        } finally {
+            progressMonitor.finishTask();
+        }
+    }
+
+    /**
+     * Parse the given PBF input source and return the dataset.
+     *
+     * @param source the source input stream. Must not be null.
+     * @param progressMonitor  the progress monitor. If null, {@link NullProgressMonitor#INSTANCE} is assumed
+     *
+     * @return the dataset with the parsed data
+     * @throws IllegalDataException if an error was found while parsing the data from the source
+     * @throws IllegalArgumentException if source is null
+     */
+    public static DataSet parseDataSet(InputStream source, ProgressMonitor progressMonitor) throws IllegalDataException {
+        return new PbfReader().doParseDataSet(source, progressMonitor);
+    }
+}
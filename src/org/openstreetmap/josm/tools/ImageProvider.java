@@ -32,12 +32,12 @@ import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
-import java.util.HashMap;
 import java.util.Hashtable;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.regex.Matcher;
@@ -190,12 +190,17 @@ public class ImageProvider {
     /**
      * The icon cache
      */
-    private static final Map<String, ImageResource> cache = new HashMap<>();
+    private static final Map<String, ImageResource> cache = new ConcurrentHashMap<>();
 
     /**
-     * Caches the image data for rotated versions of the same image.
+     * Locks held while images are loaded, by hash of the name of the image
      */
-    private static final Map<Image, Map<Long, ImageResource>> ROTATE_CACHE = new HashMap<>();
+    private static final Object[] LOAD_LOCKS = new Object[64];
+    static {
+        for (int i = 0; i < LOAD_LOCKS.length; i++) {
+            LOAD_LOCKS[i] = new Object();
+        }
+    }
 
     private static final ExecutorService IMAGE_FETCHER = Executors.newSingleThreadExecutor();
 
@@ -676,16 +681,15 @@ public class ImageProvider {
      * @return the requested image or null if the request failed
      */
     private ImageResource getIfAvailableImpl(Collection<ClassLoader> additionalClassLoaders) {
-        synchronized (cache) {
-            // This method is called from different thread and modifying HashMap concurrently can result
-            // for example in loops in map entries (ie freeze when such entry is retrieved)
-            // Yes, it did happen to me :-)
-            if (name == null)
-                return null;
+        if (name == null)
+            return null;
 
-            if (name.startsWith("data:")) {
-                String url = name;
-                ImageResource ir = cache.get(url);
+        if (name.startsWith("data:")) {
+            String url = name;
+            ImageResource ir = cache.get(url);
+            if (ir != null) return ir;
+            synchronized (getLoadLock(url)) {
+                ir = cache.get(url);
                 if (ir != null) return ir;
                 ir = getIfAvailableDataUrl(url);
                 if (ir != null) {
@@ -693,20 +697,28 @@ public class ImageProvider {
                 }
                 return ir;
             }
+        }
 
-            ImageType type = Utils.hasExtension(name, "svg") ? ImageType.SVG : ImageType.OTHER;
+        ImageType type = Utils.hasExtension(name, "svg") ? ImageType.SVG : ImageType.OTHER;
 
-            if (name.startsWith(HTTP_PROTOCOL) || name.startsWith(HTTPS_PROTOCOL)) {
-                String url = name;
-                ImageResource ir = cache.get(url);
+        if (name.startsWith(HTTP_PROTOCOL) || name.startsWith(HTTPS_PROTOCOL)) {
+            String url = name;
+            ImageResource ir = cache.get(url);
+            if (ir != null) return ir;
+            synchronized (getLoadLock(url)) {
+                ir = cache.get(url);
                 if (ir != null) return ir;
                 ir = getIfAvailableHttp(url, type);
                 if (ir != null) {
                     cache.put(url, ir);
                 }
                 return ir;
-            } else if (name.startsWith(WIKI_PROTOCOL)) {
-                ImageResource ir = cache.get(name);
+            }
+        } else if (name.startsWith(WIKI_PROTOCOL)) {
+            ImageResource ir = cache.get(name);
+            if (ir != null) return ir;
+            synchronized (getLoadLock(name)) {
+                ir = cache.get(name);
                 if (ir != null) return ir;
                 ir = getIfAvailableWiki(name, type);
                 if (ir != null) {
@@ -714,57 +726,65 @@ public class ImageProvider {
                 }
                 return ir;
             }
+        }
 
-            if (subdir == null) {
-                subdir = "";
-            } else if (!subdir.isEmpty() && !subdir.endsWith("/")) {
-                subdir += "/";
-            }
-            String[] extensions;
-            if (name.indexOf('.') != -1) {
-                extensions = new String[] {""};
-            } else {
-                extensions = new String[] {".png", ".svg"};
-            }
-            final int ARCHIVE = 0, LOCAL = 1;
-            for (int place : new Integer[] {ARCHIVE, LOCAL}) {
-                for (String ext : extensions) {
-
-                    if (".svg".equals(ext)) {
-                        type = ImageType.SVG;
-                    } else if (".png".equals(ext)) {
-                        type = ImageType.OTHER;
-                    }
+        if (subdir == null) {
+            subdir = "";
+        } else if (!subdir.isEmpty() && !subdir.endsWith("/")) {
+            subdir += "/";
+        }
+        String[] extensions;
+        if (name.indexOf('.') != -1) {
+            extensions = new String[] {""};
+        } else {
+            extensions = new String[] {".png", ".svg"};
+        }
+        final int ARCHIVE = 0, LOCAL = 1;
+        for (int place : new Integer[] {ARCHIVE, LOCAL}) {
+            for (String ext : extensions) {
+
+                if (".svg".equals(ext)) {
+                    type = ImageType.SVG;
+                } else if (".png".equals(ext)) {
+                    type = ImageType.OTHER;
+                }
 
-                    String fullName = subdir + name + ext;
-                    String cacheName = fullName;
-                    /* cache separately */
-                    if (dirs != null && !dirs.isEmpty()) {
-                        cacheName = "id:" + id + ":" + fullName;
-                        if (archive != null) {
-                            cacheName += ":" + archive.getName();
-                        }
+                String fullName = subdir + name + ext;
+                String cacheName = fullName;
+                /* cache separately */
+                if (dirs != null && !dirs.isEmpty()) {
+                    cacheName = "id:" + id + ":" + fullName;
+                    if (archive != null) {
+                        cacheName += ":" + archive.getName();
                     }
+                }
 
-                    ImageResource ir = cache.get(cacheName);
-                    if (ir != null) return ir;
+                ImageResource ir = cache.get(cacheName);
+                if (ir != null) return ir;
 
-                    switch (place) {
-                    case ARCHIVE:
-                        if (archive != null) {
+                switch (place) {
+                case ARCHIVE:
+                    if (archive != null) {
+                        synchronized (getLoadLock(cacheName)) {
+                            ir = cache.get(cacheName);
+                            if (ir != null) return ir;
                             ir = getIfAvailableZip(fullName, archive, inArchiveDir, type);
                             if (ir != null) {
                                 cache.put(cacheName, ir);
                                 return ir;
                             }
                         }
-                        break;
-                    case LOCAL:
-                        // getImageUrl() does a ton of "stat()" calls and gets expensive
-                        // and redundant when you have a whole ton of objects. So,
-                        // index the cache by the name of the icon we're looking for
-                        // and don't bother to create a URL unless we're actually
-                        // creating the image.
+                    }
+                    break;
+                case LOCAL:
+                    // getImageUrl() does a ton of "stat()" calls and gets expensive
+                    // and redundant when you have a whole ton of objects. So,
+                    // index the cache by the name of the icon we're looking for
+                    // and don't bother to create a URL unless we're actually
+                    // creating the image.
+                    synchronized (getLoadLock(cacheName)) {
+                        ir = cache.get(cacheName);
+                        if (ir != null) return ir;
                         URL path = getImageUrl(fullName, dirs, additionalClassLoaders);
                         if (path == null) {
                             continue;
@@ -774,12 +794,22 @@ public class ImageProvider {
                             cache.put(cacheName, ir);
                             return ir;
                         }
-                        break;
                     }
+                    break;
                 }
             }
-            return null;
         }
+        return null;
+    }
+
+    /**
+     * Returns the lock to hold while an image is loaded, so that an image is loaded only once but different
+     * images can be loaded at the same time by different threads.
+     * @param cacheName the name of the image in the icon cache
+     * @return the lock
+     */
+    private static Object getLoadLock(String cacheName) {
+        return LOAD_LOCKS[cacheName.hashCode() & (LOAD_LOCKS.length - 1)];
     }
 
     /**
@@ -936,7 +966,13 @@ public class ImageProvider {
                             URI uri = getSvgUniverse().loadSVG(is, entryName);
                             svg = getSvgUniverse().getDiagram(uri);
                         }
-                        return svg == null ? null : new ImageResource(svg);
+                        if (svg == null)
+                            return null;
+                        ImageResource ir = new ImageResource(svg);
+                        if (ImageResource.isSvgDiskCacheEnabled()) {
+                            ir.setDiskCacheName(archive.getAbsolutePath() + '!' + entryName + '@' + archive.lastModified());
+                        }
+                        return ir;
                     case OTHER:
                         while (size > 0) {
                             int l = is.read(buf, offs, size);
@@ -976,7 +1012,18 @@ public class ImageProvider {
                 URI uri = getSvgUniverse().loadSVG(path);
                 svg = getSvgUniverse().getDiagram(uri);
             }
-            return svg == null ? null : new ImageResource(svg);
+            if (svg == null)
+                return null;
+            ImageResource ir = new ImageResource(svg);
+            if (ImageResource.isSvgDiskCacheEnabled()) {
+                try {
+                    // the modification time of the file, or of the jar file containing the resource
+                    ir.setDiskCacheName(path.toExternalForm() + '@' + path.openConnection().getLastModified());
+                } catch (IOException e) {
+                    Main.warn(e);
+                }
+            }
+            return ir;
         case OTHER:
             BufferedImage img = null;
             try {
@@ -1186,61 +1233,52 @@ public class ImageProvider {
             originalAngle = 360L;
         }
 
-        ImageResource imageResource = null;
-
-        synchronized (ROTATE_CACHE) {
-            Map<Long, ImageResource> cacheByAngle = ROTATE_CACHE.get(img);
-            if (cacheByAngle == null) {
-                ROTATE_CACHE.put(img, cacheByAngle = new HashMap<>());
+        Image image = ImageVariantCache.getInstance().get(img, originalAngle);
+        if (image == null) {
+            // convert originalAngle to a value from 0 to 90
+            double angle = originalAngle % 90;
+            if (originalAngle != 0 && angle == 0) {
+                angle = 90.0;
             }
 
-            imageResource = cacheByAngle.get(originalAngle);
-
-            if (imageResource == null) {
-                // convert originalAngle to a value from 0 to 90
-                double angle = originalAngle % 90;
-                if (originalAngle != 0 && angle == 0) {
-                    angle = 90.0;
-                }
-
-                double radian = Math.toRadians(angle);
+            double radian = Math.toRadians(angle);
 
-                new ImageIcon(img); // load completely
-                int iw = img.getWidth(null);
-                int ih = img.getHeight(null);
-                int w;
-                int h;
+            new ImageIcon(img); // load completely
+            int iw = img.getWidth(null);
+            int ih = img.getHeight(null);
+            int w;
+            int h;
 
-                if ((originalAngle >= 0 && originalAngle <= 90) || (originalAngle > 180 && originalAngle <= 270)) {
-                    w = (int) (iw * Math.sin(DEGREE_90 - radian) + ih * Math.sin(radian));
-                    h = (int) (iw * Math.sin(radian) + ih * Math.sin(DEGREE_90 - radian));
-                } else {
-                    w = (int) (ih * Math.sin(DEGREE_90 - radian) + iw * Math.sin(radian));
-                    h = (int) (ih * Math.sin(radian) + iw * Math.sin(DEGREE_90 - radian));
-                }
-                Image image = new BufferedImage(w, h, BufferedImage.TYPE_INT_ARGB);
-                cacheByAngle.put(originalAngle, imageResource = new ImageResource(image));
-                Graphics g = image.getGraphics();
-                Graphics2D g2d = (Graphics2D) g.create();
+            if ((originalAngle >= 0 && originalAngle <= 90) || (originalAngle > 180 && originalAngle <= 270)) {
+                w = (int) (iw * Math.sin(DEGREE_90 - radian) + ih * Math.sin(radian));
+                h = (int) (iw * Math.sin(radian) + ih * Math.sin(DEGREE_90 - radian));
+            } else {
+                w = (int) (ih * Math.sin(DEGREE_90 - radian) + iw * Math.sin(radian));
+                h = (int) (ih * Math.sin(radian) + iw * Math.sin(DEGREE_90 - radian));
+            }
+            image = new BufferedImage(w, h, BufferedImage.TYPE_INT_ARGB);
+            Graphics g = image.getGraphics();
+            Graphics2D g2d = (Graphics2D) g.create();
 
-                // calculate the center of the icon.
-                int cx = iw / 2;
-                int cy = ih / 2;
+            // calculate the center of the icon.
+            int cx = iw / 2;
+            int cy = ih / 2;
 
-                // move the graphics center point to the center of the icon.
-                g2d.translate(w / 2, h / 2);
+            // move the graphics center point to the center of the icon.
+            g2d.translate(w / 2, h / 2);
 
-                // rotate the graphics about the center point of the icon
-                g2d.rotate(Math.toRadians(originalAngle));
+            // rotate the graphics about the center point of the icon
+            g2d.rotate(Math.toRadians(originalAngle));
 
-                g2d.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BICUBIC);
-                g2d.drawImage(img, -cx, -cy, null);
+            g2d.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BICUBIC);
+            g2d.drawImage(img, -cx, -cy, null);
 
-                g2d.dispose();
-                new ImageIcon(image); // load completely
-            }
-            return imageResource.getImageIcon(dimension).getImage();
+            g2d.dispose();
+            new ImageIcon(image); // load completely
+            // two threads may rotate the same image at the same time, the result is the same
+            ImageVariantCache.getInstance().put(img, originalAngle, image);
         }
+        return new ImageResource(image).getImageIcon(dimension).getImage();
     }
 
     /**
@@ -1304,6 +1342,7 @@ public class ImageProvider {
         }
         g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
         try {
+            // diagrams share the state of their universe, so they are rendered one at a time
             synchronized (getSvgUniverse()) {
                 svg.render(g);
             }
@@ -1,17 +1,27 @@
 // License: GPL. For details, see LICENSE file.
 package org.openstreetmap.josm.tools;
 
+import static org.openstreetmap.josm.tools.I18n.tr;
+
 import java.awt.Dimension;
 import java.awt.Image;
 import java.awt.image.BufferedImage;
-import java.util.HashMap;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.util.List;
-import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
+import javax.imageio.ImageIO;
 import javax.swing.AbstractAction;
 import javax.swing.Action;
 import javax.swing.ImageIcon;
 
+import org.openstreetmap.josm.Main;
+import org.openstreetmap.josm.data.preferences.BooleanProperty;
+import org.openstreetmap.josm.data.preferences.IntegerProperty;
+
 import com.kitfox.svg.SVGDiagram;
 
 /**
@@ -20,14 +30,26 @@ import com.kitfox.svg.SVGDiagram;
  *
  * In the first case, <code>svg</code> is not <code>null</code> and in the latter case,
  * <code>baseImage</code> is not <code>null</code>.
+ *
+ * The resized versions of the image are kept in a cache shared by all images, bounded by the memory they use.
+ * SVG images of a known source can also be kept on disk once rendered, see {@link #PROP_SVG_DISK_CACHE}.
  * @since 4271
  */
 public class ImageResource {
 
     /**
-     * Caches the image data for resized versions of the same image.
+     * Property to keep the rendered SVG images in the cache directory, to read them instead of rendering them again.
      */
-    private Map<Dimension, Image> imgCache = new HashMap<>();
+    public static final BooleanProperty PROP_SVG_DISK_CACHE = new BooleanProperty("image-provider.svg-disk-cache", false);
+
+    /**
+     * Property giving the number of days after which the SVG images not read or written any longer are deleted from the cache directory.
+     */
+    public static final IntegerProperty PROP_SVG_DISK_CACHE_MAX_AGE = new IntegerProperty("image-provider.svg-disk-cache.max-age-days", 30);
+
+    /** guarded by {@code ImageResource.class} */
+    private static boolean svgDiskCacheCleaned;
+
     /**
      * SVG diagram information in case of SVG vector image.
      */
@@ -41,6 +63,10 @@ public class ImageResource {
      */
     protected List<ImageOverlay> overlayInfo = null;
     private Image baseImage = null;
+    /**
+     * Identifies the source of the SVG image and its version in the disk cache, {@code null} if it is not cached on disk
+     */
+    private String diskCacheName;
 
     /**
      * Constructs a new {@code ImageResource} from an image.
@@ -49,7 +75,6 @@ public class ImageResource {
     public ImageResource(Image img) {
         CheckParameterUtil.ensureParameterNotNull(img);
         this.baseImage = img;
-        imgCache.put(DEFAULT_DIMENSION, img);
     }
 
     /**
@@ -70,9 +95,55 @@ public class ImageResource {
     public ImageResource(ImageResource res, List<ImageOverlay> overlayInfo) {
         this.svg = res.svg;
         this.baseImage = res.baseImage;
+        this.diskCacheName = res.diskCacheName;
         this.overlayInfo = overlayInfo;
     }
 
+    /**
+     * Determines if rendered SVG images are kept in the cache directory.
+     * @return {@code true} if rendered SVG images are kept in the cache directory
+     * @see #PROP_SVG_DISK_CACHE
+     */
+    static boolean isSvgDiskCacheEnabled() {
+        return Main.pref != null && PROP_SVG_DISK_CACHE.get();
+    }
+
+    /**
+     * Sets the name identifying the source of the SVG image in the disk cache. The name must change when the source changes.
+     * @param diskCacheName the name, or {@code null} to never keep the rendered image on disk
+     */
+    void setDiskCacheName(String diskCacheName) {
+        this.diskCacheName = diskCacheName;
+    }
+
+    /**
+     * Deletes the files of the SVG disk cache not used for {@link #PROP_SVG_DISK_CACHE_MAX_AGE} days,
+     * like the images of old versions of the sources. Only done the first time the disk cache is used.
+     * @param dir the directory of the SVG disk cache
+     */
+    private static synchronized void cleanSvgDiskCache(File dir) {
+        if (!svgDiskCacheCleaned) {
+            svgDiskCacheCleaned = true;
+            deleteUnusedFiles(dir, System.currentTimeMillis() - TimeUnit.DAYS.toMillis(PROP_SVG_DISK_CACHE_MAX_AGE.get()));
+        }
+    }
+
+    /**
+     * Deletes the files of the SVG disk cache last modified before a given time.
+     * @param dir the directory of the SVG disk cache
+     * @param limit the time, in milliseconds since the epoch
+     */
+    static void deleteUnusedFiles(File dir, long limit) {
+        File[] files = dir.listFiles();
+        if (files == null)
+            return;
+        for (File f : files) {
+            if (f.isFile() && f.lastModified() < limit && !f.delete()) {
+                Main.warn(tr("Unable to delete SVG image cache file {0}", f));
+            }
+        }
+    }
+
     /**
      * Returns the image icon at default dimension.
      * @return the image icon at default dimension
@@ -103,22 +174,21 @@ public class ImageResource {
     public ImageIcon getImageIcon(Dimension dim) {
         if (dim.width < -1 || dim.width == 0 || dim.height < -1 || dim.height == 0)
             throw new IllegalArgumentException(dim+" is invalid");
-        Image img = imgCache.get(dim);
+        if (baseImage != null && overlayInfo == null && DEFAULT_DIMENSION.equals(dim)) {
+            return new ImageIcon(baseImage);
+        }
+        // variants with overlays are specific to this resource, the others are shared by the resources of the same image
+        Object source = overlayInfo != null ? this : svg != null ? svg : baseImage;
+        Image img = ImageVariantCache.getInstance().get(source, dim);
         if (img != null) {
             return new ImageIcon(img);
         }
+        BufferedImage bimg;
         if (svg != null) {
-            BufferedImage bimg = ImageProvider.createImageFromSvg(svg, dim);
+            bimg = createImageFromSvg(dim);
             if (bimg == null) {
                 return null;
             }
-            if (overlayInfo != null) {
-                for (ImageOverlay o : overlayInfo) {
-                    o.apply(bimg);
-                }
-            }
-            imgCache.put(dim, bimg);
-            return new ImageIcon(bimg);
         } else {
             if (baseImage == null) throw new AssertionError();
 
@@ -134,16 +204,61 @@ public class ImageResource {
                 height = Math.max(1, icon.getIconHeight() * width / icon.getIconWidth());
             }
             Image i = icon.getImage().getScaledInstance(width, height, Image.SCALE_SMOOTH);
-            BufferedImage bimg = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+            bimg = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
             bimg.getGraphics().drawImage(i, 0, 0, null);
-            if (overlayInfo != null) {
-                for (ImageOverlay o : overlayInfo) {
-                    o.apply(bimg);
+        }
+        if (overlayInfo != null) {
+            for (ImageOverlay o : overlayInfo) {
+                o.apply(bimg);
+            }
+        }
+        ImageVariantCache.getInstance().put(source, new Dimension(dim), bimg);
+        return new ImageIcon(bimg);
+    }
+
+    /**
+     * Renders the SVG image, or reads it from the disk cache if it has already been rendered at this dimension.
+     * @param dim the dimension
+     * @return the image, or {@code null} if it cannot be rendered
+     */
+    private BufferedImage createImageFromSvg(Dimension dim) {
+        File file = null;
+        if (diskCacheName != null && isSvgDiskCacheEnabled()) {
+            File dir = new File(Main.pref.getCacheDirectory(), "images/svg");
+            cleanSvgDiskCache(dir);
+            file = new File(dir, Utils.md5Hex(diskCacheName + ':' + dim.width + 'x' + dim.height) + ".png");
+            if (file.isFile()) {
+                try {
+                    BufferedImage cached = ImageIO.read(file);
+                    if (cached != null) {
+                        // the modification time is the last use of the file, so that it is not deleted when the cache is cleaned
+                        file.setLastModified(System.currentTimeMillis());
+                        return cached;
+                    }
+                } catch (IOException e) {
+                    Main.warn(e);
+                }
+            }
+        }
+        BufferedImage bimg = ImageProvider.createImageFromSvg(svg, dim);
+        if (bimg != null && file != null) {
+            try {
+                File dir = file.getParentFile();
+                if (dir.isDirectory() || dir.mkdirs()) {
+                    // write to a temporary file first, so that other threads or processes never read a partial file
+                    File tmp = File.createTempFile("svg", ".tmp", dir);
+                    try {
+                        ImageIO.write(bimg, "png", tmp);
+                        Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                    } finally {
+                        Files.deleteIfExists(tmp.toPath());
+                    }
                 }
+            } catch (IOException e) {
+                Main.warn(tr("Unable to write SVG image cache file {0}: {1}", file, e.getMessage()));
             }
-            imgCache.put(dim, bimg);
-            return new ImageIcon(bimg);
         }
+        return bimg;
     }
 
     /**
@@ -0,0 +1,137 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.tools;
+
+import java.awt.Image;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.openstreetmap.josm.Main;
+import org.openstreetmap.josm.data.preferences.IntegerProperty;
+
+/**
+ * Least recently used cache of the scaled and rotated variants of images, bounded by the memory used by the images.
+ * <p>
+ * A variant is identified by the object it is computed from (an image or a SVG diagram, compared by identity)
+ * and by a parameter like its dimension or its angle. When the size of the cached images exceeds
+ * {@link #PROP_MAX_SIZE}, the least recently used variants are dropped, and computed again if they are needed.
+ */
+final class ImageVariantCache {
+
+    /** The maximum size of the cached images, in kilobytes */
+    static final IntegerProperty PROP_MAX_SIZE = new IntegerProperty("image-provider.variant-cache.max-kb", 16 * 1024);
+
+    private static final ImageVariantCache INSTANCE = new ImageVariantCache();
+
+    /**
+     * Key of a variant.
+     */
+    private static final class Key {
+        private final Object source;
+        private final Object parameter;
+
+        Key(Object source, Object parameter) {
+            this.source = source;
+            this.parameter = parameter;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * System.identityHashCode(source) + parameter.hashCode();
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Key))
+                return false;
+            Key other = (Key) obj;
+            return source == other.source && parameter.equals(other.parameter);
+        }
+    }
+
+    /** maximum size of the cached images, in bytes, or -1 to use {@link #PROP_MAX_SIZE} */
+    private final long maxSize;
+    /** in access order, guarded by {@code this} */
+    private final Map<Key, Image> images = new LinkedHashMap<>(64, 0.75f, true);
+    /** size of the cached images, in bytes, guarded by {@code this} */
+    private long size;
+
+    private ImageVariantCache() {
+        this(-1);
+    }
+
+    /**
+     * Constructs a new cache, with a fixed maximum size instead of the one given by {@link #PROP_MAX_SIZE}.
+     * @param maxSize the maximum size of the cached images, in bytes, or -1 to use {@link #PROP_MAX_SIZE}
+     */
+    ImageVariantCache(long maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Returns the unique instance.
+     * @return the unique instance
+     */
+    static ImageVariantCache getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Returns a cached variant.
+     * @param source the object the variant is computed from
+     * @param parameter the parameter of the variant
+     * @return the variant, or {@code null} if it is not cached
+     */
+    synchronized Image get(Object source, Object parameter) {
+        return images.get(new Key(source, parameter));
+    }
+
+    /**
+     * Adds a variant to the cache, and drops the least recently used variants if the cache is full.
+     * @param source the object the variant is computed from
+     * @param parameter the parameter of the variant
+     * @param image the variant, which must be completely loaded
+     */
+    synchronized void put(Object source, Object parameter, Image image) {
+        long maxSize = getMaxSize();
+        long imageSize = getSize(image);
+        if (imageSize > maxSize)
+            return;
+        Image previous = images.put(new Key(source, parameter), image);
+        if (previous != null) {
+            size -= getSize(previous);
+        }
+        size += imageSize;
+        for (Iterator<Image> it = images.values().iterator(); size > maxSize && it.hasNext();) {
+            size -= getSize(it.next());
+            it.remove();
+        }
+    }
+
+    /**
+     * Drops all cached variants.
+     */
+    synchronized void clear() {
+        images.clear();
+        size = 0;
+    }
+
+    /**
+     * Returns the size of the cached images.
+     * @return the size of the cached images, in bytes
+     */
+    synchronized long getSize() {
+        return size;
+    }
+
+    private long getMaxSize() {
+        if (maxSize >= 0)
+            return maxSize;
+        return (Main.pref == null ? PROP_MAX_SIZE.getDefaultValue() : PROP_MAX_SIZE.get()) * 1024L;
+    }
+
+    private static long getSize(Image image) {
+        // all variants are ARGB images
+        return 4L * Math.max(0, image.getWidth(null)) * Math.max(0, image.getHeight(null));
+    }
+}
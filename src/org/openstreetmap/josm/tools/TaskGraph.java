@@ -0,0 +1,136 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.tools;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+
+/**
+ * Tasks with dependencies between them, run in parallel as soon as the tasks they depend on are done.
+ * <p>
+ * A task can only depend on tasks added before it, so that the graph has no cycle. The time spent by each
+ * task can be recorded in a {@link TimingReport}.
+ */
+public class TaskGraph {
+
+    private final class Node implements Runnable {
+        private final String name;
+        private final Callable<?> task;
+        private final List<Node> dependents = new ArrayList<>();
+        /** number of dependencies not done yet, guarded by the graph */
+        private int pending;
+
+        Node(String name, Callable<?> task) {
+            this.name = name;
+            this.task = task;
+        }
+
+        @Override
+        public void run() {
+            TimingReport.Timer timer = report == null ? null : report.start(name);
+            Throwable error = null;
+            try {
+                task.call();
+            } catch (Exception | Error e) {
+                error = e;
+            } finally {
+                if (timer != null) {
+                    timer.done();
+                }
+            }
+            done(this, error);
+        }
+    }
+
+    private final Map<String, Node> nodes = new LinkedHashMap<>();
+    private final TimingReport report;
+
+    /** guarded by {@code this} */
+    private Executor executor;
+    /** number of tasks started and not done yet, guarded by {@code this} */
+    private int running;
+    /** guarded by {@code this} */
+    private Throwable failure;
+
+    /**
+     * Constructs a new {@code TaskGraph}.
+     * @param report the report receiving the time spent by each task, can be {@code null}
+     */
+    public TaskGraph(TimingReport report) {
+        this.report = report;
+    }
+
+    /**
+     * Adds a task.
+     * @param name the unique name of the task
+     * @param task the task
+     * @param dependencies the names of the tasks which must be done before this task starts
+     * @throws IllegalArgumentException if the name is already used, or if a dependency is unknown
+     */
+    public synchronized void add(String name, Callable<?> task, String... dependencies) {
+        CheckParameterUtil.ensureParameterNotNull(task, "task");
+        if (nodes.containsKey(name))
+            throw new IllegalArgumentException("Duplicate task: " + name);
+        Node node = new Node(name, task);
+        for (String dependency : dependencies) {
+            Node parent = nodes.get(dependency);
+            if (parent == null)
+                throw new IllegalArgumentException("Unknown dependency of " + name + ": " + dependency);
+            parent.dependents.add(node);
+            node.pending++;
+        }
+        nodes.put(name, node);
+    }
+
+    /**
+     * Runs all tasks, and waits until they are done. If a task fails, the tasks depending on it
+     * are not run, and this method throws once the running tasks are done.
+     * @param executor the executor running the tasks
+     * @throws ExecutionException if a task has thrown an exception
+     * @throws InterruptedException if the current thread is interrupted while waiting
+     */
+    public synchronized void run(Executor executor) throws ExecutionException, InterruptedException {
+        this.executor = executor;
+        for (Node node : nodes.values()) {
+            if (node.pending == 0 && failure == null) {
+                start(node);
+            }
+        }
+        while (running > 0) {
+            wait();
+        }
+        if (failure != null)
+            throw new ExecutionException(failure);
+    }
+
+    private synchronized void start(Node node) {
+        running++;
+        try {
+            executor.execute(node);
+        } catch (RuntimeException e) {
+            // the task is not run, e.g. rejected by the executor
+            running--;
+            if (failure == null) {
+                failure = e;
+            }
+            notifyAll();
+        }
+    }
+
+    private synchronized void done(Node node, Throwable error) {
+        running--;
+        if (error != null && failure == null) {
+            failure = error;
+        }
+        for (Node dependent : node.dependents) {
+            if (--dependent.pending == 0 && failure == null) {
+                start(dependent);
+            }
+        }
+        notifyAll();
+    }
+}
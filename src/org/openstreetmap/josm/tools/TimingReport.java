@@ -0,0 +1,179 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.tools;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.json.Json;
+import javax.json.JsonArrayBuilder;
+import javax.json.JsonWriter;
+import javax.json.stream.JsonGenerator;
+
+/**
+ * Records when named tasks run, and in which thread, to find out where time goes during a sequence of work like the startup.
+ * <p>
+ * Times are in milliseconds since the creation of the report. Tasks can be timed by several threads at the same time.
+ * The report can be written as JSON, an array of objects with the attributes {@code name}, {@code thread},
+ * {@code start}, {@code end} and {@code duration}.
+ */
+public class TimingReport {
+
+    /**
+     * The time spent by a task.
+     */
+    public static final class Timing {
+        private final String name;
+        private final String thread;
+        private final long start;
+        private final long end;
+
+        Timing(String name, String thread, long start, long end) {
+            this.name = name;
+            this.thread = thread;
+            this.start = start;
+            this.end = end;
+        }
+
+        /**
+         * Returns the name of the task.
+         * @return the name of the task
+         */
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * Returns the name of the thread which ran the task.
+         * @return the name of the thread
+         */
+        public String getThread() {
+            return thread;
+        }
+
+        /**
+         * Returns when the task started.
+         * @return the start time, in milliseconds since the creation of the report
+         */
+        public long getStart() {
+            return start;
+        }
+
+        /**
+         * Returns when the task ended.
+         * @return the end time, in milliseconds since the creation of the report
+         */
+        public long getEnd() {
+            return end;
+        }
+
+        /**
+         * Returns how long the task ran.
+         * @return the duration, in milliseconds
+         */
+        public long getDuration() {
+            return end - start;
+        }
+
+        @Override
+        public String toString() {
+            return name + ": " + getDuration() + " ms (" + start + " - " + end + " ms, " + thread + ')';
+        }
+    }
+
+    /**
+     * Measures the time spent by a task, started by {@link TimingReport#start(String)}.
+     */
+    public final class Timer {
+        private final String name;
+        private final long start = System.nanoTime();
+
+        private Timer(String name) {
+            this.name = name;
+        }
+
+        /**
+         * Adds the time elapsed since the timer started to the report.
+         * @return the time spent by the task
+         */
+        public Timing done() {
+            return add(name, start, System.nanoTime());
+        }
+    }
+
+    private final long origin = System.nanoTime();
+    /** guarded by {@code this} */
+    private final List<Timing> timings = new ArrayList<>();
+
+    /**
+     * Starts to measure the time spent by a task, in the current thread.
+     * @param name the name of the task
+     * @return the timer, whose {@link Timer#done()} method must be called when the task ends
+     */
+    public Timer start(String name) {
+        return new Timer(name);
+    }
+
+    private synchronized Timing add(String name, long start, long end) {
+        Timing timing = new Timing(name, Thread.currentThread().getName(), (start - origin) / 1000000, (end - origin) / 1000000);
+        timings.add(timing);
+        return timing;
+    }
+
+    /**
+     * Returns the timings recorded so far, in the order the tasks ended.
+     * @return the timings
+     */
+    public synchronized List<Timing> getTimings() {
+        return new ArrayList<>(timings);
+    }
+
+    /**
+     * Writes the report as JSON.
+     * @param out the writer
+     */
+    public void write(Writer out) {
+        JsonArrayBuilder array = Json.createArrayBuilder();
+        for (Timing timing : getTimings()) {
+            array.add(Json.createObjectBuilder()
+                    .add("name", timing.name)
+                    .add("thread", timing.thread)
+                    .add("start", timing.start)
+                    .add("end", timing.end)
+                    .add("duration", timing.getDuration()));
+        }
+        Map<String, Object> config = new HashMap<>(1);
+        config.put(JsonGenerator.PRETTY_PRINTING, true);
+        try (JsonWriter writer = Json.createWriterFactory(config).createWriter(out)) {
+            writer.writeArray(array.build());
+        }
+    }
+
+    /**
+     * Writes the report as JSON to a file.
+     * @param file the file
+     * @throws IOException if the file cannot be written
+     */
+    public void write(File file) throws IOException {
+        try (OutputStream out = Files.newOutputStream(file.toPath());
+             Writer writer = new OutputStreamWriter(out, StandardCharsets.UTF_8)) {
+            write(writer);
+        }
+    }
+
+    @Override
+    public String toString() {
+        StringWriter writer = new StringWriter();
+        write(writer);
+        return writer.toString();
+    }
+}
@@ -45,6 +45,7 @@ import java.util.List;
 import java.util.Locale;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.ThreadFactory;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -1279,6 +1280,20 @@ public final class Utils {
         return new Pair<>(noThreads, pool);
     }
 
+    /**
+     * Returns a fork-join pool with the number of threads (n) given by the given preference key, to perform
+     * recursive multi-thread computation in the context of this preference key.
+     * <p>
+     * Contrary to {@link #newThreadPool}, tasks running in this pool may submit subtasks to the same pool
+     * and wait for them without starving it.
+     * @param pref The preference key
+     * @return a fork-join pool if n &gt; 1, {@code null} otherwise
+     */
+    public static ForkJoinPool newForkJoinPool(String pref) {
+        int noThreads = Main.pref.getInteger(pref, Runtime.getRuntime().availableProcessors());
+        return noThreads <= 1 ? null : new ForkJoinPool(noThreads);
+    }
+
     /**
      * Updates a given system property.
      * @param key The property key
@@ -74,13 +74,41 @@ public final class DateUtils {
      * @return The date in milliseconds since epoch
      */
     public static synchronized long tsFromString(String str) {
+        return tsFromString(str, calendar);
+    }
+
+    /**
+     * Parses XML dates quickly, regardless of current locale, like {@link DateUtils#tsFromString(String)}, but
+     * without taking the lock of this class. Each parser has its own calendar, so it must only be used by one thread at a time.
+     */
+    public static final class TimestampParser {
+        private final GregorianCalendar calendar = new GregorianCalendar(TimeZone.getTimeZone("UTC"));
+
+        /**
+         * Constructs a new {@code TimestampParser}.
+         */
+        public TimestampParser() {
+            calendar.setTimeInMillis(0);
+        }
+
+        /**
+         * Parses XML date quickly, regardless of current locale.
+         * @param str The XML date as string
+         * @return The date in milliseconds since epoch
+         */
+        public long tsFromString(String str) {
+            return DateUtils.tsFromString(str, calendar);
+        }
+    }
+
+    private static long tsFromString(String str, GregorianCalendar cal) {
         // "2007-07-25T09:26:24{Z|{+|-}01:00}"
         if (checkLayout(str, "xxxx-xx-xxTxx:xx:xxZ") ||
                 checkLayout(str, "xxxx-xx-xxTxx:xx:xx") ||
                 checkLayout(str, "xxxx-xx-xx xx:xx:xx UTC") ||
                 checkLayout(str, "xxxx-xx-xxTxx:xx:xx+xx:00") ||
                 checkLayout(str, "xxxx-xx-xxTxx:xx:xx-xx:00")) {
-            calendar.set(
+            cal.set(
                 parsePart4(str, 0),
                 parsePart2(str, 5)-1,
                 parsePart2(str, 8),
@@ -91,15 +119,15 @@ public final class DateUtils {
             if (str.length() == 25) {
                 int plusHr = parsePart2(str, 20);
                 int mul = str.charAt(19) == '+' ? -3600000 : 3600000;
-                return calendar.getTimeInMillis()+plusHr*mul;
+                return cal.getTimeInMillis()+plusHr*mul;
             }
 
-            return calendar.getTimeInMillis();
+            return cal.getTimeInMillis();
         } else if (checkLayout(str, "xxxx-xx-xxTxx:xx:xx.xxxZ") ||
                 checkLayout(str, "xxxx-xx-xxTxx:xx:xx.xxx") ||
                 checkLayout(str, "xxxx-xx-xxTxx:xx:xx.xxx+xx:00") ||
                 checkLayout(str, "xxxx-xx-xxTxx:xx:xx.xxx-xx:00")) {
-            calendar.set(
+            cal.set(
                 parsePart4(str, 0),
                 parsePart2(str, 5)-1,
                 parsePart2(str, 8),
@@ -111,7 +139,7 @@ public final class DateUtils {
                 millis += parsePart2(str, 24) * (str.charAt(23) == '+' ? -3600000 : 3600000);
             }
 
-            return calendar.getTimeInMillis() + millis;
+            return cal.getTimeInMillis() + millis;
         } else {
             // example date format "18-AUG-08 13:33:03"
             SimpleDateFormat f = new SimpleDateFormat("dd-MMM-yy HH:mm:ss");
@@ -41,4 +41,17 @@ public final class PerformanceTestUtils {
         System.runFinalization();
         return new PerformanceTestTimer(name);
     }
+
+    /**
+     * Returns the heap memory in use, after running the garbage collector, to measure the memory retained by some data.
+     * @return the used heap memory, in bytes
+     */
+    public static long usedMemory() {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            System.runFinalization();
+        }
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
 }
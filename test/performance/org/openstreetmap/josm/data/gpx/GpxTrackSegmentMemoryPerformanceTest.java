@@ -0,0 +1,131 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.gpx;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.openstreetmap.josm.JOSMFixture;
+import org.openstreetmap.josm.PerformanceTestUtils;
+import org.openstreetmap.josm.PerformanceTestUtils.PerformanceTestTimer;
+import org.openstreetmap.josm.io.GpxReader;
+
+/**
+ * This test measures the heap retained by a large GPX file read into {@link CompactGpxTrackSegment}s,
+ * and by the same points stored as {@link WayPoint} objects, and the time needed to iterate over all points.
+ */
+public class GpxTrackSegmentMemoryPerformanceTest {
+    private static final int TRACKS = 20;
+    private static final int POINTS_PER_TRACK = 100000;
+
+    private static File file;
+
+    /**
+     * Prepare the test.
+     * @throws Exception if the synthetic file cannot be written
+     */
+    @BeforeClass
+    public static void createJOSMFixture() throws Exception {
+        JOSMFixture.createPerformanceTestFixture().init(true);
+        file = File.createTempFile("josm-performance", ".gpx");
+        try (Writer out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8))) {
+            out.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+            out.write("<gpx xmlns=\"http://www.topografix.com/GPX/1/1\" version=\"1.1\" creator=\"JOSM\">\n");
+            long time = 1420070400L;
+            for (int t = 0; t < TRACKS; t++) {
+                out.write("<trk><trkseg>\n");
+                for (int i = 0; i < POINTS_PER_TRACK; i++, time++) {
+                    out.write(String.format(Locale.ENGLISH,
+                            "<trkpt lat=\"%.7f\" lon=\"%.7f\"><ele>%.1f</ele><time>%s</time></trkpt>\n",
+                            50 + t * 0.01 + i * 1e-5, 10 + i * 1e-5, 100 + (i % 500) * 0.1,
+                            CompactGpxTrackSegment.formatTime(time, false)));
+                }
+                out.write("</trkseg></trk>\n");
+            }
+            out.write("</gpx>\n");
+        }
+    }
+
+    /**
+     * Delete the synthetic file.
+     */
+    @AfterClass
+    public static void deleteFile() {
+        if (file != null && !file.delete()) {
+            file.deleteOnExit();
+        }
+    }
+
+    private static double iterate(GpxData data) {
+        double sum = 0;
+        for (Collection<WayPoint> segment : data.getLinesIterable(null)) {
+            for (WayPoint wpt : segment) {
+                sum += wpt.time + wpt.getEastNorth().east();
+            }
+        }
+        return sum;
+    }
+
+    /**
+     * Compares retained heap and iteration time of compact segments and of segments of {@code WayPoint} objects.
+     * @throws Exception if the synthetic file cannot be read
+     */
+    @Test
+    public void measureCompactSegments() throws Exception {
+        long memoryBefore = PerformanceTestUtils.usedMemory();
+        PerformanceTestTimer timer = PerformanceTestUtils.startTimer("read " + TRACKS * POINTS_PER_TRACK + " points");
+        GpxData compact;
+        try (InputStream in = new FileInputStream(file)) {
+            GpxReader reader = new GpxReader(in);
+            assertTrue(reader.parse(false));
+            compact = reader.getGpxData();
+        }
+        timer.done();
+        long memoryCompact = PerformanceTestUtils.usedMemory() - memoryBefore;
+
+        // copy all points into WayPoint objects, as stored before
+        GpxData objects = new GpxData();
+        for (GpxTrack track : compact.tracks) {
+            List<Collection<WayPoint>> segments = new ArrayList<>();
+            for (GpxTrackSegment segment : track.getSegments()) {
+                List<WayPoint> points = new ArrayList<>();
+                for (WayPoint wpt : segment.getWayPoints()) {
+                    points.add(new WayPoint(wpt));
+                }
+                segments.add(points);
+            }
+            objects.tracks.add(new ImmutableGpxTrack(segments, Collections.<String, Object>emptyMap()));
+        }
+        long memoryBoth = PerformanceTestUtils.usedMemory() - memoryBefore;
+
+        for (int run = 0; run < 3; run++) {
+            timer = PerformanceTestUtils.startTimer("iterate over compact segments, run " + run);
+            double sumCompact = iterate(compact);
+            timer.done();
+            timer = PerformanceTestUtils.startTimer("iterate over WayPoint objects, run " + run);
+            double sumObjects = iterate(objects);
+            timer.done();
+            assertEquals(sumObjects, sumCompact, 0);
+        }
+
+        System.out.println("MEMORY " + TRACKS * POINTS_PER_TRACK + " points in compact segments: " + memoryCompact / 1024 + "kB");
+        System.out.println("MEMORY " + TRACKS * POINTS_PER_TRACK + " points as WayPoint objects: "
+                + (memoryBoth - memoryCompact) / 1024 + "kB");
+    }
+}
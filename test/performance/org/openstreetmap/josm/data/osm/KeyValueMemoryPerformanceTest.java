@@ -0,0 +1,72 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.osm;
+
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.InputStream;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.openstreetmap.josm.JOSMFixture;
+import org.openstreetmap.josm.PerformanceTestUtils;
+import org.openstreetmap.josm.gui.progress.NullProgressMonitor;
+import org.openstreetmap.josm.io.Compression;
+import org.openstreetmap.josm.io.OsmReader;
+
+/**
+ * This test measures the heap retained by the tags of a large data set, with key/value arrays shared between
+ * primitives having the same tags, and with one array per primitive.
+ */
+public class KeyValueMemoryPerformanceTest {
+    private static final String DATA_FILE = "data_nodist/neubrandenburg.osm.bz2";
+
+    /**
+     * Prepare the test.
+     */
+    @BeforeClass
+    public static void createJOSMFixture() {
+        JOSMFixture.createPerformanceTestFixture().init(true);
+    }
+
+    /**
+     * Compares retained heap of shared and unshared tags.
+     * @throws Exception if the data file cannot be read
+     */
+    @Test
+    public void measureSharedKeys() throws Exception {
+        long memoryBefore = PerformanceTestUtils.usedMemory();
+        DataSet ds;
+        try (InputStream in = Compression.getUncompressedFileInputStream(new File(DATA_FILE))) {
+            ds = OsmReader.parseDataSet(in, NullProgressMonitor.INSTANCE);
+        }
+        long memoryShared = PerformanceTestUtils.usedMemory() - memoryBefore;
+
+        int tagged = 0;
+        Set<String[]> arrays = Collections.newSetFromMap(new IdentityHashMap<String[], Boolean>());
+        for (OsmPrimitive p : ds.allPrimitives()) {
+            if (p.keys != null) {
+                tagged++;
+                arrays.add(p.keys);
+            }
+        }
+        System.out.println(tagged + " tagged primitives share " + arrays.size() + " key/value arrays");
+        assertTrue(arrays.size() < tagged);
+
+        // give each primitive its own copy, as before tags were shared
+        for (OsmPrimitive p : ds.allPrimitives()) {
+            if (p.keys != null) {
+                p.keys = p.keys.clone();
+            }
+        }
+        arrays.clear();
+        long memoryUnshared = PerformanceTestUtils.usedMemory() - memoryBefore;
+
+        System.out.println("MEMORY data set with shared tags: " + memoryShared / 1024 + "kB");
+        System.out.println("MEMORY data set with one tag array per primitive: " + memoryUnshared / 1024 + "kB");
+        assertTrue(ds.allPrimitives().size() > 0);
+    }
+}
@@ -0,0 +1,97 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.osm;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.openstreetmap.josm.JOSMFixture;
+import org.openstreetmap.josm.PerformanceTestUtils;
+import org.openstreetmap.josm.PerformanceTestUtils.PerformanceTestTimer;
+import org.openstreetmap.josm.data.coor.LatLon;
+
+/**
+ * This test compares build time, search time and retained heap of {@link PackedRTree} and {@link QuadBuckets}.
+ */
+public class PackedRTreePerformanceTest {
+    private static final int NODE_COUNT = 1000000;
+    private static final int WAY_COUNT = 100000;
+    private static final int SEARCH_RUNS = 10000;
+
+    private static List<Node> nodes;
+    private static List<Way> ways;
+
+    /**
+     * Prepare the test.
+     */
+    @BeforeClass
+    public static void createData() {
+        JOSMFixture.createPerformanceTestFixture().init(true);
+        Random random = new Random(1234);
+        nodes = new ArrayList<>(NODE_COUNT);
+        for (int i = 0; i < NODE_COUNT; i++) {
+            nodes.add(new Node(new LatLon(random.nextDouble() * 10, random.nextDouble() * 10)));
+        }
+        ways = new ArrayList<>(WAY_COUNT);
+        for (int i = 0; i < WAY_COUNT; i++) {
+            Way w = new Way();
+            Node n = nodes.get(random.nextInt(NODE_COUNT));
+            w.setNodes(Arrays.asList(n, nodes.get(random.nextInt(NODE_COUNT)), n));
+            ways.add(w);
+        }
+    }
+
+    private static <T extends OsmPrimitive> SpatialIndex<T> build(String name, SpatialIndex<T> index, List<T> primitives) {
+        long memoryBefore = PerformanceTestUtils.usedMemory();
+        PerformanceTestTimer timer = PerformanceTestUtils.startTimer(name + " build of " + primitives.size() + " primitives");
+        for (T o : primitives) {
+            index.add(o);
+        }
+        index.optimize();
+        timer.done();
+        System.out.println("MEMORY " + name + ": " + (PerformanceTestUtils.usedMemory() - memoryBefore) / 1024 + "kB");
+        return index;
+    }
+
+    private static <T extends OsmPrimitive> int search(String name, SpatialIndex<T> index, double size) {
+        Random random = new Random(42);
+        int found = 0;
+        PerformanceTestTimer timer = PerformanceTestUtils.startTimer(name + " " + SEARCH_RUNS + " searches of size " + size);
+        for (int i = 0; i < SEARCH_RUNS; i++) {
+            double x = random.nextDouble() * 10;
+            double y = random.nextDouble() * 10;
+            found += index.search(new BBox(x, y, x + size, y + size)).size();
+        }
+        timer.done();
+        return found;
+    }
+
+    private static <T extends OsmPrimitive> void compare(List<T> primitives) {
+        SpatialIndex<T> quadBuckets = build("QuadBuckets", new QuadBuckets<T>(), primitives);
+        SpatialIndex<T> rtree = build("PackedRTree", new PackedRTree<T>(), primitives);
+        for (double size : new double[] {0.001, 0.01, 0.1, 1}) {
+            assertEquals(search("QuadBuckets", quadBuckets, size), search("PackedRTree", rtree, size));
+        }
+    }
+
+    /**
+     * Compares both implementations for nodes.
+     */
+    @Test
+    public void testNodes() {
+        compare(nodes);
+    }
+
+    /**
+     * Compares both implementations for ways.
+     */
+    @Test
+    public void testWays() {
+        compare(ways);
+    }
+}
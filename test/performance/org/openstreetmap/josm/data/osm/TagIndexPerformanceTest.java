@@ -0,0 +1,72 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.osm;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Set;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.openstreetmap.josm.JOSMFixture;
+import org.openstreetmap.josm.PerformanceTestUtils;
+import org.openstreetmap.josm.PerformanceTestUtils.PerformanceTestTimer;
+import org.openstreetmap.josm.actions.search.SearchCompiler;
+import org.openstreetmap.josm.actions.search.SearchCompiler.Match;
+import org.openstreetmap.josm.data.osm.OsmDataGenerator.KeyValueDataGenerator;
+
+/**
+ * This test measures the performance of searches with and without the {@link TagIndex}.
+ */
+public class TagIndexPerformanceTest {
+    private static final int NODE_COUNT = 1000000;
+    private static final int RUNS = 10;
+
+    /**
+     * Prepare the test.
+     */
+    @BeforeClass
+    public static void createJOSMFixture() {
+        JOSMFixture.createPerformanceTestFixture().init(true);
+    }
+
+    /**
+     * Compares a search for key=* by testing every primitive with a search using the index.
+     * @throws Exception if the search cannot be compiled
+     */
+    @Test
+    public void testSearchAnyValue() throws Exception {
+        KeyValueDataGenerator generator = OsmDataGenerator.getKeyValue(NODE_COUNT, .3);
+        DataSet ds = generator.generateDataSet();
+        Match match = SearchCompiler.compile(generator.randomKey() + "=*", false, false);
+
+        int expected = 0;
+        PerformanceTestTimer timer = PerformanceTestUtils.startTimer("search without index");
+        for (int i = 0; i < RUNS; i++) {
+            expected = 0;
+            for (OsmPrimitive p : ds.allPrimitives()) {
+                if (match.match(p)) {
+                    expected++;
+                }
+            }
+        }
+        timer.done();
+
+        timer = PerformanceTestUtils.startTimer("build index");
+        TagIndex index = ds.getTagIndex();
+        timer.done();
+
+        int found = 0;
+        timer = PerformanceTestUtils.startTimer("search with index");
+        for (int i = 0; i < RUNS; i++) {
+            found = 0;
+            Set<OsmPrimitive> candidates = match.getCandidates(index);
+            for (OsmPrimitive p : candidates) {
+                if (match.match(p)) {
+                    found++;
+                }
+            }
+        }
+        timer.done();
+        assertEquals(expected, found);
+    }
+}
@@ -10,6 +10,9 @@ import java.io.InputStream;
 import org.junit.BeforeClass;
 import org.junit.Test;
 import org.openstreetmap.josm.JOSMFixture;
+import org.openstreetmap.josm.Main;
+import org.openstreetmap.josm.PerformanceTestUtils;
+import org.openstreetmap.josm.PerformanceTestUtils.PerformanceTestTimer;
 import org.openstreetmap.josm.data.Bounds;
 import org.openstreetmap.josm.data.osm.DataSet;
 import org.openstreetmap.josm.gui.NavigatableComponent;
@@ -55,9 +58,29 @@ public class StyledMapRendererPerformanceTest {
     private static void test(int iterations, DataSet ds, Bounds bounds) throws Exception {
         Rendering visitor = new StyledMapRenderer(g, nc, false);
         nc.zoomTo(bounds);
+        // first render to fill the style caches
+        visitor.render(ds, true, bounds);
+        PerformanceTestTimer timer = PerformanceTestUtils.startTimer(iterations + " renderings of " + bounds);
         for (int i = 0; i < iterations; i++) {
             visitor.render(ds, true, bounds);
         }
+        timer.done();
+    }
+
+    /**
+     * Prints the time spent in each phase of the rendering, including the merge of the style lists
+     * sorted by the style creation workers.
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void testCityPhases() throws Exception {
+        boolean benchmark = Main.pref.getBoolean("mappaint.render.benchmark", false);
+        Main.pref.put("mappaint.render.benchmark", true);
+        try {
+            test(5, dsCity, new Bounds(53.51, 13.20, 53.59, 13.34));
+        } finally {
+            Main.pref.put("mappaint.render.benchmark", benchmark);
+        }
     }
 
     @Test
@@ -0,0 +1,85 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.preferences;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.openstreetmap.josm.JOSMFixture;
+import org.openstreetmap.josm.Main;
+import org.openstreetmap.josm.PerformanceTestUtils;
+import org.openstreetmap.josm.PerformanceTestUtils.PerformanceTestTimer;
+
+/**
+ * This test measures the performance of reading a preference through the synchronized getters of the preferences
+ * and through a {@link SnapshotProperty}.
+ */
+public class SnapshotPropertyPerformanceTest {
+    private static final int READS = 10000000;
+
+    /**
+     * Prepare the test.
+     */
+    @BeforeClass
+    public static void createJOSMFixture() {
+        JOSMFixture.createPerformanceTestFixture().init(true);
+    }
+
+    /**
+     * Compares the reads of an integer preference by several threads.
+     * @throws Exception if a thread is interrupted
+     */
+    @Test
+    public void testIntegerReads() throws Exception {
+        final IntegerProperty property = new IntegerProperty("test.snapshot.performance", 10);
+        property.put(15);
+        final int threadCount = Math.max(2, Runtime.getRuntime().availableProcessors());
+        final long[] sums = new long[threadCount];
+
+        PerformanceTestTimer timer = PerformanceTestUtils.startTimer("synchronized getter");
+        runThreads(threadCount, new Reader() {
+            @Override
+            public int read() {
+                return Main.pref.getInteger("test.snapshot.performance", 10);
+            }
+        }, sums);
+        timer.done();
+        assertEquals(15L * READS, sums[0]);
+
+        timer = PerformanceTestUtils.startTimer("snapshot property");
+        runThreads(threadCount, new Reader() {
+            @Override
+            public int read() {
+                return property.get();
+            }
+        }, sums);
+        timer.done();
+        assertEquals(15L * READS, sums[0]);
+        property.remove();
+    }
+
+    private interface Reader {
+        int read();
+    }
+
+    private static void runThreads(int threadCount, final Reader reader, final long[] sums) throws InterruptedException {
+        Thread[] threads = new Thread[threadCount];
+        for (int t = 0; t < threadCount; t++) {
+            final int index = t;
+            threads[t] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    long sum = 0;
+                    for (int i = 0; i < READS; i++) {
+                        sum += reader.read();
+                    }
+                    sums[index] = sum;
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+    }
+}
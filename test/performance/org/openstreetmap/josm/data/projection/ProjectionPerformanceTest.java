@@ -0,0 +1,80 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.projection;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Random;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.openstreetmap.josm.JOSMFixture;
+import org.openstreetmap.josm.PerformanceTestUtils;
+import org.openstreetmap.josm.PerformanceTestUtils.PerformanceTestTimer;
+import org.openstreetmap.josm.data.Bounds;
+import org.openstreetmap.josm.data.coor.EastNorth;
+import org.openstreetmap.josm.data.coor.LatLon;
+
+/**
+ * This test measures the performance of the projection of single points, of the batch projection
+ * and of the parallel batch projection, for some of the built-in projections.
+ */
+public class ProjectionPerformanceTest {
+    private static final int POINT_COUNT = 1000000;
+
+    /**
+     * WGS84, Mercator, UTM, Swiss grid, Lambert 93, and two projections with a NTv2 grid datum
+     * (Lambert zone II, Gauss-Krüger zone 3)
+     */
+    private static final String[] CODES = {
+        "EPSG:4326", "EPSG:3857", "EPSG:32632", "EPSG:21781", "EPSG:2154", "EPSG:27562", "EPSG:31467"
+    };
+
+    /**
+     * Prepare the test.
+     */
+    @BeforeClass
+    public static void createJOSMFixture() {
+        JOSMFixture.createPerformanceTestFixture().init(true);
+    }
+
+    /**
+     * Compares the projection of single points with the batch projection.
+     */
+    @Test
+    public void testBatchProjection() {
+        Random random = new Random(42);
+        for (String code : CODES) {
+            Projection p = Projections.getProjectionByCode(code);
+            Bounds b = p.getWorldBoundsLatLon();
+            double[] latlon = new double[2 * POINT_COUNT];
+            for (int i = 0; i < POINT_COUNT; i++) {
+                latlon[2 * i] = random.nextDouble() * (b.getMax().lat() - b.getMin().lat()) + b.getMin().lat();
+                latlon[2 * i + 1] = random.nextDouble() * (b.getMax().lon() - b.getMin().lon()) + b.getMin().lon();
+            }
+
+            double[] single = new double[2 * POINT_COUNT];
+            PerformanceTestTimer timer = PerformanceTestUtils.startTimer(code + " single points");
+            for (int i = 0; i < POINT_COUNT; i++) {
+                EastNorth en = p.latlon2eastNorth(new LatLon(latlon[2 * i], latlon[2 * i + 1]));
+                single[2 * i] = en.east();
+                single[2 * i + 1] = en.north();
+            }
+            timer.done();
+
+            double[] batch = new double[2 * POINT_COUNT];
+            timer = PerformanceTestUtils.startTimer(code + " batch");
+            ((AbstractProjection) p).latlon2eastNorth(latlon, batch, 0, POINT_COUNT);
+            timer.done();
+
+            double[] parallel = latlon.clone();
+            timer = PerformanceTestUtils.startTimer(code + " parallel batch");
+            Projections.projectAll(p, parallel);
+            timer.done();
+
+            for (int i = 0; i < 2 * POINT_COUNT; i += 1000) {
+                assertEquals(single[i], batch[i], 1e-6);
+                assertEquals(single[i], parallel[i], 1e-6);
+            }
+        }
+    }
+}
@@ -0,0 +1,80 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.validation.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.openstreetmap.josm.JOSMFixture;
+import org.openstreetmap.josm.PerformanceTestUtils;
+import org.openstreetmap.josm.PerformanceTestUtils.PerformanceTestTimer;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.OsmPrimitive;
+import org.openstreetmap.josm.data.validation.tests.MapCSSTagChecker.TagCheckIndex;
+import org.openstreetmap.josm.gui.progress.NullProgressMonitor;
+import org.openstreetmap.josm.io.Compression;
+import org.openstreetmap.josm.io.OsmReader;
+
+/**
+ * This test measures the time needed to run the default validator MapCSS rules on a large data set,
+ * evaluating all checks for each primitive, and only the checks selected by the key/value index.
+ */
+public class MapCSSTagCheckerPerformanceTest {
+    private static final String DATA_FILE = "data_nodist/neubrandenburg.osm.bz2";
+    private static final String[] RULES = {"addresses", "combinations", "deprecated", "geometry", "highway",
+        "multiple", "numeric", "power", "relation", "religion", "unnecessary", "wikipedia"};
+    private static final int RUNS = 3;
+
+    private static MapCSSTagChecker checker;
+    private static List<OsmPrimitive> primitives;
+
+    /**
+     * Prepare the test.
+     * @throws Exception if the rules or the data file cannot be read
+     */
+    @BeforeClass
+    public static void createJOSMFixture() throws Exception {
+        JOSMFixture.createPerformanceTestFixture().init(true);
+        checker = new MapCSSTagChecker();
+        for (String rules : RULES) {
+            checker.addMapCSS("resource://data/validator/" + rules + ".mapcss");
+        }
+        try (InputStream in = Compression.getUncompressedFileInputStream(new File(DATA_FILE))) {
+            DataSet ds = OsmReader.parseDataSet(in, NullProgressMonitor.INSTANCE);
+            primitives = new ArrayList<>(ds.allPrimitives());
+        }
+    }
+
+    /**
+     * Compares the evaluation of all checks with the evaluation of the indexed checks.
+     */
+    @Test
+    public void measureIndexedChecks() {
+        TagCheckIndex index = new TagCheckIndex(checker.checks.values());
+        int allErrors = 0;
+        int indexedErrors = 0;
+        for (int run = 0; run < RUNS; run++) {
+            allErrors = 0;
+            PerformanceTestTimer timer = PerformanceTestUtils.startTimer("all checks on " + primitives.size() + " primitives, run " + run);
+            for (OsmPrimitive p : primitives) {
+                allErrors += checker.getErrorsForPrimitive(p, true).size();
+            }
+            timer.done();
+
+            indexedErrors = 0;
+            timer = PerformanceTestUtils.startTimer("indexed checks on " + primitives.size() + " primitives, run " + run);
+            for (OsmPrimitive p : primitives) {
+                indexedErrors += MapCSSTagChecker.getErrorsForPrimitive(p, true, index).size();
+            }
+            timer.done();
+        }
+        assertTrue(allErrors > 0);
+        assertEquals(allErrors, indexedErrors);
+    }
+}
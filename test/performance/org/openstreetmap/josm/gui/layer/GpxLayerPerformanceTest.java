@@ -0,0 +1,117 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.gui.layer;
+
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import javax.swing.JPanel;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.openstreetmap.josm.JOSMFixture;
+import org.openstreetmap.josm.PerformanceTestUtils;
+import org.openstreetmap.josm.PerformanceTestUtils.PerformanceTestTimer;
+import org.openstreetmap.josm.data.Bounds;
+import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.data.gpx.CompactGpxTrackSegment;
+import org.openstreetmap.josm.data.gpx.GpxData;
+import org.openstreetmap.josm.data.gpx.GpxTrackSegment;
+import org.openstreetmap.josm.data.gpx.ImmutableGpxTrack;
+import org.openstreetmap.josm.data.gpx.WayPoint;
+import org.openstreetmap.josm.gui.MapView;
+
+/**
+ * This test measures the time needed to paint a small part of a large GPX layer.
+ */
+public class GpxLayerPerformanceTest {
+    private static final int IMG_WIDTH = 1400;
+    private static final int IMG_HEIGHT = 1050;
+    private static final int TRACKS = 50;
+    private static final int POINTS_PER_TRACK = 40000;
+
+    private static Graphics2D g;
+    private static MapView mv;
+    private static GpxLayer layer;
+
+    /**
+     * Prepare the test.
+     */
+    @BeforeClass
+    public static void createJOSMFixture() {
+        JOSMFixture.createPerformanceTestFixture().init(true);
+        BufferedImage img = new BufferedImage(IMG_WIDTH, IMG_HEIGHT, BufferedImage.TYPE_3BYTE_BGR);
+        g = (Graphics2D) img.getGraphics();
+        mv = new MapView(new JPanel(), null);
+        mv.setBounds(0, 0, IMG_WIDTH, IMG_HEIGHT);
+
+        // tracks going back and forth over an area of about 50km x 50km
+        GpxData data = new GpxData();
+        for (int t = 0; t < TRACKS; t++) {
+            CompactGpxTrackSegment.Builder segment = new CompactGpxTrackSegment.Builder();
+            for (int i = 0; i < POINTS_PER_TRACK; i++) {
+                int row = i / 2000;
+                int column = row % 2 == 0 ? i % 2000 : 1999 - i % 2000;
+                segment.add(new WayPoint(new LatLon(53 + t * 0.01 + row * 1e-4, 13 + column * 2.5e-4)));
+            }
+            data.tracks.add(new ImmutableGpxTrack(Collections.<GpxTrackSegment>singletonList(segment.build()),
+                    Collections.<String, Object>emptyMap()));
+        }
+        layer = new GpxLayer(data, "performance test");
+    }
+
+    /**
+     * Counts the visible points by looking at all points, as done by {@link GpxLayer} before it used an index.
+     */
+    private static int countVisiblePointsByScan(GpxData data, Bounds box) {
+        WayPoint last = null;
+        List<WayPoint> visible = new ArrayList<>();
+        for (Collection<WayPoint> segment : data.getLinesIterable(null)) {
+            for (WayPoint pt : segment) {
+                Bounds b = new Bounds(pt.getCoor());
+                if (pt.drawLine && last != null) {
+                    b.extend(last.getCoor());
+                }
+                if (b.intersects(box)) {
+                    if (last != null && (visible.isEmpty() || visible.get(visible.size() - 1) != last)) {
+                        visible.add(last);
+                    }
+                    visible.add(pt);
+                }
+                last = pt;
+            }
+        }
+        return visible.size();
+    }
+
+    private static void paint(int iterations, Bounds bounds) {
+        mv.zoomTo(bounds);
+        Bounds box = mv.getRealBounds();
+        PerformanceTestTimer timer = PerformanceTestUtils.startTimer(iterations + " scans of all points for " + bounds);
+        for (int i = 0; i < iterations; i++) {
+            countVisiblePointsByScan(layer.data, box);
+        }
+        timer.done();
+        timer = PerformanceTestUtils.startTimer(iterations + " paintings of " + bounds);
+        for (int i = 0; i < iterations; i++) {
+            layer.paint(g, mv, box);
+        }
+        timer.done();
+    }
+
+    /**
+     * Measures the time needed to paint small and large parts of the layer.
+     */
+    @Test
+    public void testPaint() {
+        PerformanceTestTimer timer = PerformanceTestUtils.startTimer("first painting, with index creation");
+        layer.paint(g, mv, new Bounds(53, 13, 53.01, 13.01));
+        timer.done();
+        paint(20, new Bounds(53.1, 13.1, 53.11, 13.11));
+        paint(20, new Bounds(53.1, 13.1, 53.2, 13.2));
+        paint(5, new Bounds(52.9, 12.9, 53.6, 13.6));
+    }
+}
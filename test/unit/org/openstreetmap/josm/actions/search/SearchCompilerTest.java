@@ -1,6 +1,8 @@
 // License: GPL. For details, see LICENSE file.
 package org.openstreetmap.josm.actions.search;
 
+import java.util.Collection;
+
 import org.hamcrest.CoreMatchers;
 import org.junit.Assert;
 import org.junit.Before;
@@ -97,4 +99,45 @@ public class SearchCompilerTest {
         Assert.assertThat(SearchCompiler.compile("nth:-1", false, false).toString(), CoreMatchers.is("Nth{nth=-1, modulo=false}"));
 
     }
+
+    /**
+     * Checks that the candidates found in the tag index include all matching primitives.
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void testCandidates() throws Exception {
+        final DataSet dataSet = new DataSet();
+        final String[][] tags = {
+            {"building", "yes"}, {"building", "house"}, {"Building", "Yes"}, {"highway", "residential"},
+            {"name", "Foo Street"}, {"oneway", "yes"}, {"oneway", "-1"}, {"area", "no"}};
+        for (String[] tag : tags) {
+            final Node node = new Node(new LatLon(1, 1));
+            node.put(tag[0], tag[1]);
+            dataSet.addPrimitive(node);
+        }
+        final Way way = new Way();
+        way.put("building", "yes");
+        way.put("name", "Foo");
+        dataSet.addPrimitive(way);
+        dataSet.addPrimitive(new Node(new LatLon(1, 1)));
+
+        for (String search : new String[] {"building=*", "building=yes", "building:yes", "building:", "building",
+                "-building=*", "building=* name=*", "building=* OR highway=*", "building=* XOR name:foo",
+                "name:foo", "*=yes", "oneway?", "area?", "type:way building=*", "highway=residential | (name:foo -type:node)"}) {
+            for (boolean regex : new boolean[] {false, true}) {
+                for (boolean caseSensitive : new boolean[] {false, true}) {
+                    final SearchCompiler.Match c = SearchCompiler.compile(search, caseSensitive, regex);
+                    final Collection<OsmPrimitive> candidates = c.getCandidates(dataSet.getTagIndex());
+                    for (OsmPrimitive p : dataSet.allPrimitives()) {
+                        if (c.match(p)) {
+                            Assert.assertTrue(search + " " + p, candidates == null || candidates.contains(p));
+                        }
+                    }
+                }
+            }
+        }
+        Assert.assertEquals(3, SearchCompiler.compile("building=*", false, false).getCandidates(dataSet.getTagIndex()).size());
+        Assert.assertEquals(1, SearchCompiler.compile("building=* name=*", false, false).getCandidates(dataSet.getTagIndex()).size());
+        Assert.assertNull(SearchCompiler.compile("-building=*", false, false).getCandidates(dataSet.getTagIndex()));
+    }
 }
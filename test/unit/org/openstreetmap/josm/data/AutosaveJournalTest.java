@@ -0,0 +1,215 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.openstreetmap.josm.JOSMFixture;
+import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.Node;
+import org.openstreetmap.josm.data.osm.OsmPrimitiveType;
+import org.openstreetmap.josm.data.osm.Way;
+import org.openstreetmap.josm.data.osm.event.DataSetListenerAdapter;
+import org.openstreetmap.josm.io.OsmReader;
+import org.openstreetmap.josm.io.OsmWriter;
+import org.openstreetmap.josm.io.OsmWriterFactory;
+
+/**
+ * Unit tests of {@link AutosaveJournal} class.
+ */
+public class AutosaveJournalTest {
+
+    private File dir;
+    private File snapshot;
+    private DataSet ds;
+    private AutosaveJournal journal;
+    private Node downloaded;
+    private Node created;
+    private Way way;
+
+    /**
+     * Setup test.
+     */
+    @BeforeClass
+    public static void setUpBeforeClass() {
+        JOSMFixture.createUnitTestFixture().init();
+    }
+
+    /**
+     * Creates a data set with its first snapshot.
+     * @throws IOException if an I/O error occurs
+     */
+    @Before
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("autosave").toFile();
+        snapshot = new File(dir, "layer.osm");
+        ds = new DataSet();
+        downloaded = new Node(5, 1);
+        downloaded.setCoor(new LatLon(53.5, 13.2));
+        ds.addPrimitive(downloaded);
+        created = new Node(new LatLon(53.6, 13.3));
+        ds.addPrimitive(created);
+        way = new Way();
+        way.addNode(downloaded);
+        way.addNode(created);
+        ds.addPrimitive(way);
+
+        journal = new AutosaveJournal();
+        ds.addDataSetListener(new DataSetListenerAdapter(journal));
+        assertTrue(journal.isSnapshotNeeded(ds));
+        journal.startSnapshot(snapshot, ds);
+        try (PrintWriter out = new PrintWriter(new OutputStreamWriter(new FileOutputStream(snapshot), StandardCharsets.UTF_8))) {
+            OsmWriter writer = OsmWriterFactory.createOsmWriter(out, false, OsmWriter.DEFAULT_API_VERSION);
+            writer.header();
+            writer.writeContent(ds);
+            writer.footer();
+        }
+        assertFalse(journal.isSnapshotNeeded(ds));
+    }
+
+    /**
+     * Removes the files of the test.
+     */
+    @After
+    public void tearDown() {
+        for (File f : dir.listFiles()) {
+            f.delete();
+        }
+        dir.delete();
+    }
+
+    private DataSet readSnapshot() throws Exception {
+        try (InputStream in = Files.newInputStream(snapshot.toPath())) {
+            return OsmReader.parseDataSet(in, null);
+        }
+    }
+
+    /**
+     * Checks that the changes appended to the journal are applied to the snapshot.
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void testReplay() throws Exception {
+        downloaded.put("name", "changed");
+        Node added = new Node(new LatLon(53.7, 13.4));
+        ds.addPrimitive(added);
+        way.addNode(added);
+        assertEquals(3, journal.append(ds));
+        assertEquals(0, journal.append(ds));
+
+        Node deleted = new Node(new LatLon(53.8, 13.5));
+        ds.addPrimitive(deleted);
+        deleted.setDeleted(true);
+        created.setCoor(new LatLon(54, 14));
+        assertEquals(2, journal.append(ds));
+        assertTrue(AutosaveJournal.getJournalFile(snapshot).isFile());
+
+        AutosaveJournal.replay(snapshot);
+        assertFalse(AutosaveJournal.getJournalFile(snapshot).exists());
+        DataSet result = readSnapshot();
+        assertEquals(3, result.getNodes().size());
+        assertEquals("changed", result.getPrimitiveById(5, OsmPrimitiveType.NODE).get("name"));
+        Way w = result.getWays().iterator().next();
+        assertEquals(3, w.getNodesCount());
+        assertEquals(new LatLon(54, 14), w.getNode(1).getCoor());
+        assertEquals(new LatLon(53.7, 13.4), w.getNode(2).getCoor());
+    }
+
+    /**
+     * Checks that primitives removed from the data set are removed from the snapshot.
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void testRemove() throws Exception {
+        way.removeNode(created);
+        ds.removePrimitive(created);
+        journal.append(ds);
+        AutosaveJournal.replay(snapshot);
+        DataSet result = readSnapshot();
+        assertEquals(1, result.getNodes().size());
+        assertNotNull(result.getPrimitiveById(5, OsmPrimitiveType.NODE));
+    }
+
+    /**
+     * Checks that a block truncated by a crash is ignored.
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void testTruncatedJournal() throws Exception {
+        downloaded.put("name", "changed");
+        journal.append(ds);
+        try (PrintWriter out = new PrintWriter(new OutputStreamWriter(
+                new FileOutputStream(AutosaveJournal.getJournalFile(snapshot), true), StandardCharsets.UTF_8))) {
+            out.print("<osm version='0.6' generator='JOSM'>\n  <node id='5' version='1' lat='1.0' lon='1.0'>\n    <tag k='name' v='lo");
+        }
+        AutosaveJournal.replay(snapshot);
+        DataSet result = readSnapshot();
+        Node n = (Node) result.getPrimitiveById(5, OsmPrimitiveType.NODE);
+        assertEquals("changed", n.get("name"));
+        assertEquals(new LatLon(53.5, 13.2), n.getCoor());
+    }
+
+    /**
+     * Checks when a new snapshot is requested.
+     */
+    @Test
+    public void testSnapshotNeeded() {
+        for (int i = 0; i < 10; i++) {
+            downloaded.put("name", "name " + i);
+            journal.append(ds);
+        }
+        // the journal is now larger than half the snapshot
+        assertTrue(journal.isSnapshotNeeded(ds));
+        journal.startSnapshot(snapshot, ds);
+        assertFalse(journal.isSnapshotNeeded(ds));
+        ds.dataSources.add(new DataSource(new Bounds(53, 13, 54, 14), "test"));
+        assertTrue(journal.isSnapshotNeeded(ds));
+    }
+
+    /**
+     * Checks that the changes of a large update, notified as one event, are appended to the journal.
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void testDataChangedEvent() throws Exception {
+        ds.beginUpdate();
+        try {
+            for (int i = 0; i < 40; i++) {
+                ds.addPrimitive(new Node(new LatLon(53.5 + i * 0.001, 13.2)));
+            }
+        } finally {
+            ds.endUpdate();
+        }
+        assertFalse(journal.isSnapshotNeeded(ds));
+        assertEquals(40, journal.append(ds));
+        AutosaveJournal.replay(snapshot);
+        assertEquals(42, readSnapshot().getNodes().size());
+    }
+
+    /**
+     * Checks that a new snapshot is requested when the id of a primitive changes.
+     */
+    @Test
+    public void testIdChanged() {
+        created.put("name", "uploaded");
+        created.setOsmId(1234, 1);
+        assertTrue(journal.isSnapshotNeeded(ds));
+        assertEquals(0, journal.append(ds));
+    }
+}
@@ -0,0 +1,108 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.openstreetmap.josm.JOSMFixture;
+import org.openstreetmap.josm.Main;
+import org.openstreetmap.josm.command.Command;
+import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.Node;
+import org.openstreetmap.josm.data.osm.OsmPrimitive;
+
+/**
+ * Unit tests of {@link UndoRedoHandler} class.
+ */
+public class UndoRedoHandlerTest {
+
+    /**
+     * Command which sets the name of nodes.
+     */
+    private static class SetNameCommand extends Command {
+        private final List<Node> nodes;
+        private final String name;
+
+        SetNameCommand(List<Node> nodes, String name) {
+            this.nodes = nodes;
+            this.name = name;
+        }
+
+        @Override
+        public boolean executeCommand() {
+            super.executeCommand();
+            for (Node n : nodes) {
+                n.put("name", name);
+            }
+            return true;
+        }
+
+        @Override
+        public void fillModifiedData(Collection<OsmPrimitive> modified, Collection<OsmPrimitive> deleted, Collection<OsmPrimitive> added) {
+            modified.addAll(nodes);
+        }
+
+        @Override
+        public String getDescriptionText() {
+            return "Set name";
+        }
+    }
+
+    /**
+     * Setup test.
+     */
+    @BeforeClass
+    public static void setUp() {
+        JOSMFixture.createUnitTestFixture().init();
+    }
+
+    /**
+     * Checks that old commands are compacted, and dropped when the memory budget is exceeded.
+     */
+    @Test
+    public void testMemoryBudget() {
+        DataSet ds = new DataSet();
+        List<Node> nodes = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            Node n = new Node(new LatLon(53.5 + i * 0.0001, 13.2));
+            ds.addPrimitive(n);
+            nodes.add(n);
+        }
+        Main.pref.putInteger("undo.max-memory", 4);
+        Main.pref.putInteger("undo.uncompacted", 5);
+        try {
+            UndoRedoHandler handler = new UndoRedoHandler();
+            long uncompacted = 0;
+            for (int i = 0; i < 100; i++) {
+                Command c = new SetNameCommand(nodes, "name " + i);
+                handler.addNoRedraw(c);
+                if (i == 1) {
+                    uncompacted = c.getMemoryFootprint();
+                }
+                assertTrue(handler.getMemoryFootprint() <= 4 * 1024 * 1024);
+            }
+            // the last commands are not compacted
+            assertEquals(uncompacted, handler.commands.getLast().getMemoryFootprint());
+            assertTrue(handler.commands.getFirst().getMemoryFootprint() < uncompacted / 2);
+            // more than the commands which would fit without compaction
+            assertTrue(handler.commands.size() > 4 * 1024 * 1024 / uncompacted);
+            assertTrue(handler.commands.size() < 100);
+
+            long total = 0;
+            for (Command c : handler.commands) {
+                total += c.getMemoryFootprint();
+            }
+            assertEquals(total, handler.getMemoryFootprint());
+        } finally {
+            Main.pref.put("undo.max-memory", null);
+            Main.pref.put("undo.uncompacted", null);
+        }
+    }
+}
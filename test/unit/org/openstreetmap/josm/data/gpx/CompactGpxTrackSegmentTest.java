@@ -0,0 +1,189 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.gpx;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.awt.Color;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.openstreetmap.josm.JOSMFixture;
+import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.data.projection.Projections;
+import org.openstreetmap.josm.io.GpxReader;
+import org.openstreetmap.josm.io.GpxWriter;
+
+/**
+ * Unit tests of {@link CompactGpxTrackSegment} class.
+ */
+public class CompactGpxTrackSegmentTest {
+
+    /**
+     * Setup test.
+     */
+    @BeforeClass
+    public static void setUp() {
+        JOSMFixture.createUnitTestFixture().init();
+    }
+
+    private static WayPoint createWayPoint(double lat, double lon, String time, String ele) {
+        WayPoint wpt = new WayPoint(new LatLon(lat, lon));
+        if (time != null) {
+            wpt.put(GpxConstants.PT_TIME, time);
+            wpt.setTime();
+        }
+        if (ele != null) {
+            wpt.put(GpxConstants.PT_ELE, ele);
+        }
+        return wpt;
+    }
+
+    /**
+     * Checks that the points are restored with the same coordinates, time and attributes.
+     */
+    @Test
+    public void testWayPoints() {
+        List<WayPoint> points = Arrays.asList(
+                createWayPoint(53.5, 13.2, "2015-07-25T09:26:24Z", "45.3"),
+                createWayPoint(53.6, 13.3, "2015-07-25T09:26:25.250Z", "100"),
+                createWayPoint(53.7, 13.4, "1969-12-31T23:59:59Z", "-2.5"),
+                createWayPoint(53.8, 13.5, "2015-07-25T11:26:26+02:00", "45.30"),
+                createWayPoint(53.9, 13.6, null, "1e3"),
+                createWayPoint(54.0, 13.7, "2000-02-29T00:00:00Z", null));
+        points.get(0).put(GpxConstants.PT_HDOP, 1.5f);
+        points.get(1).put("name", "foo");
+        CompactGpxTrackSegment segment = new CompactGpxTrackSegment(points);
+        ImmutableGpxTrackSegment expected = new ImmutableGpxTrackSegment(points);
+
+        assertEquals(points.size(), segment.size());
+        assertEquals(expected.getBounds(), segment.getBounds());
+        assertEquals(expected.length(), segment.length(), 1e-9);
+        List<WayPoint> actual = new ArrayList<>(segment.getWayPoints());
+        for (int i = 0; i < points.size(); i++) {
+            WayPoint p = points.get(i);
+            WayPoint a = actual.get(i);
+            assertEquals(p.getCoor(), a.getCoor());
+            assertEquals(p.time, a.time, 0);
+            assertEquals(p.attr, a.attr);
+            assertEquals(p.get(GpxConstants.PT_TIME), a.get(GpxConstants.PT_TIME));
+            assertEquals(p.get(GpxConstants.PT_ELE), a.get(GpxConstants.PT_ELE));
+            assertEquals(p.getEastNorth(), a.getEastNorth());
+        }
+        assertEquals(1.5f, actual.get(0).get(GpxConstants.PT_HDOP));
+        assertNull(actual.get(0).get("name"));
+        assertEquals(1.5f, segment.getAttribute(0, GpxConstants.PT_HDOP));
+        assertSame(segment, CompactGpxTrackSegment.getSegment(segment.getWayPoints()));
+        assertNull(CompactGpxTrackSegment.getSegment(points));
+    }
+
+    /**
+     * Checks that the attributes of the points cannot be modified.
+     */
+    @Test(expected = UnsupportedOperationException.class)
+    public void testReadOnlyAttributes() {
+        CompactGpxTrackSegment segment = new CompactGpxTrackSegment(Arrays.asList(createWayPoint(53.5, 13.2, null, null)));
+        segment.getWayPoints().get(0).put("name", "foo");
+    }
+
+    /**
+     * Checks the formatting of times and elevations.
+     */
+    @Test
+    public void testFormat() {
+        assertEquals("1970-01-01T00:00:00Z", CompactGpxTrackSegment.formatTime(0, false));
+        assertEquals("2015-07-25T09:26:24Z", CompactGpxTrackSegment.formatTime(1437816384, false));
+        assertEquals("2015-07-25T09:26:24.005Z", CompactGpxTrackSegment.formatTime(1437816384.005, true));
+        assertEquals("1969-12-31T23:59:59.500Z", CompactGpxTrackSegment.formatTime(-0.5, true));
+        assertEquals("2000-02-29T12:00:00Z", CompactGpxTrackSegment.formatTime(951825600, false));
+        assertEquals("100", CompactGpxTrackSegment.formatElevation(100));
+        assertEquals("-2.5", CompactGpxTrackSegment.formatElevation(-2.5));
+    }
+
+    /**
+     * Checks that the drawing state of the points is kept by the segment.
+     */
+    @Test
+    public void testDrawingState() {
+        CompactGpxTrackSegment segment = new CompactGpxTrackSegment(Arrays.asList(
+                createWayPoint(53.5, 13.2, null, null), createWayPoint(53.6, 13.3, null, null)));
+        WayPoint wpt = segment.getWayPoints().get(1);
+        assertFalse(wpt.drawLine);
+        segment.setDrawingState(1, Color.RED, true, 5);
+        wpt = segment.getWayPoints().get(1);
+        assertTrue(wpt.drawLine);
+        assertEquals(5, wpt.dir);
+        assertEquals(Color.RED, wpt.customColoring);
+        assertFalse(segment.getWayPoints().get(0).drawLine);
+        assertNull(segment.getWayPoints().get(0).customColoring);
+    }
+
+    /**
+     * Checks that a GPX file read into compact segments is written again identically.
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void testReadWrite() throws Exception {
+        WayPoint named = createWayPoint(53.6, 13.3, "2015-07-25T09:26:25.250Z", "100");
+        named.put("name", "foo");
+        named.put(GpxConstants.PT_HDOP, 1.5f);
+        Collection<WayPoint> points = Arrays.asList(
+                createWayPoint(53.5, 13.2, "2015-07-25T09:26:24Z", "45.3"), named,
+                createWayPoint(53.8, 13.5, "2015-07-25T11:26:26+02:00", "45.30"),
+                createWayPoint(53.9, 13.6, null, null));
+        GpxData data = new GpxData();
+        data.tracks.add(new ImmutableGpxTrack(Collections.singleton(points), Collections.<String, Object>emptyMap()));
+        String expected = write(data);
+
+        GpxReader reader = new GpxReader(new ByteArrayInputStream(expected.getBytes(StandardCharsets.UTF_8)));
+        assertTrue(reader.parse(false));
+        GpxData read = reader.getGpxData();
+        assertTrue(read.tracks.iterator().next().getSegments().iterator().next() instanceof CompactGpxTrackSegment);
+        assertEquals(expected, write(read));
+    }
+
+    /**
+     * Checks that the batch projection of all points after a projection change gives the same coordinates
+     * as the projection of single points.
+     */
+    @Test
+    public void testResetEastNorthCache() {
+        List<WayPoint> points = new ArrayList<>();
+        for (int i = 0; i < 10000; i++) {
+            points.add(createWayPoint(53.5 + i * 0.0001, 13.2 - i * 0.0001, null, null));
+        }
+        CompactGpxTrackSegment compact = new CompactGpxTrackSegment(points.subList(0, 6000));
+        ImmutableGpxTrackSegment immutable = new ImmutableGpxTrackSegment(points.subList(6000, 9000));
+        GpxData data = new GpxData();
+        data.tracks.add(new ImmutableGpxTrack(Arrays.<GpxTrackSegment>asList(compact, immutable), Collections.<String, Object>emptyMap()));
+        data.waypoints.addAll(points.subList(9000, 10000));
+        data.resetEastNorthCache();
+
+        for (int i = 0; i < compact.size(); i++) {
+            assertEquals(Projections.project(points.get(i).getCoor()), compact.getEastNorth(i));
+        }
+        for (WayPoint wpt : points.subList(6000, 10000)) {
+            assertEquals(Projections.project(wpt.getCoor()), wpt.getEastNorth());
+        }
+    }
+
+    private static String write(GpxData data) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (GpxWriter writer = new GpxWriter(out)) {
+            writer.write(data);
+        }
+        return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,134 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.gpx;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.openstreetmap.josm.JOSMFixture;
+import org.openstreetmap.josm.data.Bounds;
+import org.openstreetmap.josm.data.coor.LatLon;
+
+/**
+ * Unit tests of {@link GpxLineIndex} class.
+ */
+public class GpxLineIndexTest {
+
+    /**
+     * Setup test.
+     */
+    @BeforeClass
+    public static void setUp() {
+        JOSMFixture.createUnitTestFixture().init();
+    }
+
+    /**
+     * Lists the visible points by looking at all points, as done before the index was introduced.
+     */
+    private static List<WayPoint> listVisiblePoints(Iterable<Collection<WayPoint>> lines, Bounds box) {
+        WayPoint last = null;
+        LinkedList<WayPoint> visible = new LinkedList<>();
+        for (Collection<WayPoint> segment : lines) {
+            for (WayPoint pt : segment) {
+                Bounds b = new Bounds(pt.getCoor());
+                if (pt.drawLine && last != null) {
+                    b.extend(last.getCoor());
+                }
+                if (b.intersects(box)) {
+                    if (last != null && (visible.isEmpty() || visible.getLast() != last)) {
+                        if (last.drawLine) {
+                            WayPoint l = new WayPoint(last);
+                            l.drawLine = false;
+                            visible.add(l);
+                        } else {
+                            visible.add(last);
+                        }
+                    }
+                    visible.add(pt);
+                }
+                last = pt;
+            }
+        }
+        return visible;
+    }
+
+    private static void assertSamePoints(List<WayPoint> expected, List<WayPoint> actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).getCoor(), actual.get(i).getCoor());
+            assertEquals(expected.get(i).drawLine, actual.get(i).drawLine);
+        }
+    }
+
+    /**
+     * Checks that the index finds the same points as a scan of all points, for random tracks and areas.
+     */
+    @Test
+    public void testVisiblePoints() {
+        Random random = new Random(42);
+        List<Collection<WayPoint>> lines = new ArrayList<>();
+        for (int l = 0; l < 20; l++) {
+            List<WayPoint> line = new ArrayList<>();
+            double lat = 50 + random.nextDouble();
+            double lon = 10 + random.nextDouble();
+            int size = random.nextInt(500);
+            for (int i = 0; i < size; i++) {
+                lat += (random.nextDouble() - 0.5) * 0.01;
+                lon += (random.nextDouble() - 0.5) * 0.01;
+                line.add(new WayPoint(new LatLon(lat, lon)));
+            }
+            // use both compact segments and plain collections
+            CompactGpxTrackSegment compact = l % 2 != 0 ? new CompactGpxTrackSegment(line) : null;
+            for (int i = 1; i < line.size(); i++) {
+                boolean drawLine = random.nextInt(10) > 0;
+                if (compact != null) {
+                    compact.setDrawingState(i, null, drawLine, 0);
+                } else {
+                    line.get(i).drawLine = drawLine;
+                }
+            }
+            if (compact != null) {
+                line = compact.getWayPoints();
+            }
+            lines.add(line);
+        }
+        GpxLineIndex index = new GpxLineIndex(lines);
+        for (int i = 0; i < 200; i++) {
+            double lat = 50 + random.nextDouble() * 1.2 - 0.1;
+            double lon = 10 + random.nextDouble() * 1.2 - 0.1;
+            double size = random.nextDouble() * random.nextDouble() * 0.5;
+            Bounds box = new Bounds(lat, lon, lat + size, lon + size);
+            assertSamePoints(listVisiblePoints(lines, box), index.getVisiblePoints(box));
+        }
+        Bounds all = new Bounds(-90, -180, 90, 180);
+        assertSamePoints(listVisiblePoints(lines, all), index.getVisiblePoints(all));
+    }
+
+    /**
+     * Checks that only chunks near the area are returned by the search.
+     */
+    @Test
+    public void testSearchChunks() {
+        List<WayPoint> line = new ArrayList<>();
+        for (int i = 0; i < 10 * GpxLineIndex.CHUNK_SIZE; i++) {
+            line.add(new WayPoint(new LatLon(0, i * 0.001)));
+        }
+        GpxLineIndex index = new GpxLineIndex(Collections.<Collection<WayPoint>>singletonList(line));
+        assertEquals(10, index.getChunkCount());
+        int[] chunks = index.searchChunks(new Bounds(-1, 0.2, 1, 0.3));
+        assertTrue(chunks.length >= 2 && chunks.length <= 3);
+        for (int i = 1; i < chunks.length; i++) {
+            assertEquals(chunks[i - 1] + 1, chunks[i]);
+        }
+        assertEquals(0, index.searchChunks(new Bounds(1, 0, 2, 1)).length);
+        assertEquals(0, new GpxLineIndex(Collections.<Collection<WayPoint>>emptyList()).searchChunks(new Bounds(-1, -1, 1, 1)).length);
+    }
+}
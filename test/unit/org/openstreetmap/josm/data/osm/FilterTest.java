@@ -183,6 +183,30 @@ public class FilterTest {
         }
     }
 
+    /**
+     * Checks the detection of filters nesting the parent and child operators.
+     * @throws ParseError if a filter cannot be parsed
+     */
+    @Test
+    public void testNestedParentChild() throws ParseError {
+        FilterMatcher filterMatcher = new FilterMatcher();
+        for (String text : new String[] {"highway", "child highway", "parent amenity | child name=x"}) {
+            Filter f = new Filter();
+            f.text = text;
+            filterMatcher.update(Arrays.asList(f));
+            assertFalse(text, filterMatcher.hasNestedParentChild());
+        }
+        for (String text : new String[] {"child (parent highway)", "-(parent (amenity | child name=x))"}) {
+            Filter f = new Filter();
+            f.text = text;
+            filterMatcher.update(Arrays.asList(f));
+            assertTrue(text, filterMatcher.hasNestedParentChild());
+            f.enable = false;
+            filterMatcher.update(Arrays.asList(f));
+            assertFalse(text, filterMatcher.hasNestedParentChild());
+        }
+    }
+
     private String filterCode(OsmPrimitive osm) {
         if (!osm.isDisabled())
             return "v";
@@ -0,0 +1,36 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.osm;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import org.junit.Test;
+
+/**
+ * Unit tests of {@link KeysPool} class.
+ */
+public class KeysPoolTest {
+
+    /**
+     * Checks that equal arrays are shared, and that arrays no longer used are dropped from the pool.
+     */
+    @Test
+    public void testIntern() {
+        KeysPool pool = new KeysPool();
+        String[] keys = new String[] {"highway", "residential"};
+        assertSame(keys, pool.intern(keys));
+        assertSame(keys, pool.intern(new String[] {"highway", "residential"}));
+        String[] other = new String[] {"highway", "service"};
+        assertSame(other, pool.intern(other));
+        assertNotSame(keys, other);
+        assertEquals(2, pool.size());
+
+        keys = null;
+        other = null;
+        for (int i = 0; i < 20 && pool.size() > 0; i++) {
+            System.gc();
+        }
+        assertEquals(0, pool.size());
+    }
+}
@@ -0,0 +1,116 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.osm;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Unit tests of {@link LongHashMap} class.
+ */
+public class LongHashMapTest {
+
+    private static void assertSameContent(Map<Long, String> expected, LongHashMap<String> map) {
+        assertEquals(expected.size(), map.size());
+        assertEquals(new ArrayList<>(expected.entrySet()), new ArrayList<>(map.entrySet()));
+        long[] keys = new long[expected.size()];
+        int i = 0;
+        for (Long key : expected.keySet()) {
+            keys[i++] = key;
+        }
+        assertArrayEquals(keys, map.keyArray());
+        assertEquals(expected, map);
+    }
+
+    /**
+     * Compares random operations with a {@link LinkedHashMap}, including growth and removals.
+     */
+    @Test
+    public void testRandomOperations() {
+        Random random = new Random(42);
+        Map<Long, String> expected = new LinkedHashMap<>();
+        LongHashMap<String> map = new LongHashMap<>();
+        for (int i = 0; i < 100000; i++) {
+            long key = random.nextInt(5000) - 2500L;
+            if (random.nextInt(3) == 0) {
+                assertEquals(expected.remove(key), map.remove(key));
+            } else {
+                String value = Integer.toString(i);
+                // LinkedHashMap keeps the original position of existing keys as well
+                assertEquals(expected.put(key, value), map.put(key, value));
+            }
+            assertEquals(expected.get(key), map.get(key));
+            assertEquals(expected.containsKey(key), map.containsKey(key));
+        }
+        assertSameContent(expected, map);
+
+        // large keys and boxed access
+        for (long key : new long[] {Long.MIN_VALUE, Long.MAX_VALUE, 1L << 40, -(1L << 40)}) {
+            expected.put(key, "big");
+            map.put(Long.valueOf(key), "big");
+            assertEquals("big", map.get(Long.valueOf(key)));
+        }
+        assertNull(map.get("foo"));
+        assertFalse(map.containsKey("foo"));
+        assertSameContent(expected, map);
+
+        map.clear();
+        assertTrue(map.isEmpty());
+        assertNull(map.get(1L));
+    }
+
+    /**
+     * Checks removal and modification through the entry iterator.
+     */
+    @Test
+    public void testIterator() {
+        LongHashMap<String> map = new LongHashMap<>(2);
+        Map<Long, String> expected = new LinkedHashMap<>();
+        for (long i = 0; i < 1000; i++) {
+            map.put(i * 7, "v" + i);
+            expected.put(i * 7, "v" + i);
+        }
+        Iterator<Entry<Long, String>> it = map.entrySet().iterator();
+        List<Long> seen = new ArrayList<>();
+        while (it.hasNext()) {
+            Entry<Long, String> e = it.next();
+            seen.add(e.getKey());
+            if (e.getKey() % 2 == 0) {
+                it.remove();
+                expected.remove(e.getKey());
+            } else {
+                e.setValue("w");
+                expected.put(e.getKey(), "w");
+            }
+        }
+        assertEquals(1000, seen.size());
+        assertSameContent(expected, map);
+
+        // removed entries are reclaimed when the map is full again
+        for (long i = 1000; i < 3000; i++) {
+            map.put(i * 7, "v" + i);
+            expected.put(i * 7, "v" + i);
+        }
+        assertSameContent(expected, map);
+    }
+
+    /**
+     * Checks that null values are rejected.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testNullValue() {
+        new LongHashMap<String>().put(1L, null);
+    }
+}
@@ -1,11 +1,16 @@
 // License: GPL. For details, see LICENSE file.
 package org.openstreetmap.josm.data.osm;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
 import org.junit.BeforeClass;
 import org.junit.Test;
 import org.openstreetmap.josm.JOSMFixture;
@@ -145,4 +150,40 @@ public class OsmPrimitiveKeyHandlingTest {
 
         assertFalse(n1.hasEqualSemanticAttributes(n2));
     }
+
+    /**
+     * Checks that primitives with equal tags share the same key/value array, whatever the order in which tags
+     * have been set, and that modifying the tags of one primitive does not affect the others.
+     */
+    @Test
+    public void sharedKeys() {
+        Node n1 = new Node();
+        n1.put("key.2", "value.2");
+        n1.put("key.1", "value.1");
+
+        Node n2 = new Node();
+        Map<String, String> keys = new LinkedHashMap<>();
+        keys.put("key.1", "value.1");
+        keys.put("key.2", "value.2");
+        n2.setKeys(keys);
+        assertSame(n1.keys, n2.keys);
+
+        n2.put("key.2", "value.3");
+        assertEquals("value.2", n1.get("key.2"));
+        assertEquals("value.3", n2.get("key.2"));
+
+        n2.put("key.2", "value.2");
+        assertSame(n1.keys, n2.keys);
+
+        n2.put("key.0", "value.0");
+        n2.put("key.3", "value.3");
+        assertEquals(4, n2.getKeys().size());
+        assertEquals(2, n1.getKeys().size());
+        assertEquals(Arrays.asList("key.0", "value.0", "key.1", "value.1", "key.2", "value.2", "key.3", "value.3"),
+                Arrays.asList(n2.keys));
+
+        n2.remove("key.0");
+        n2.remove("key.3");
+        assertSame(n1.keys, n2.keys);
+    }
 }
@@ -0,0 +1,155 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.osm;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.openstreetmap.josm.JOSMFixture;
+import org.openstreetmap.josm.command.Command;
+import org.openstreetmap.josm.data.coor.LatLon;
+
+/**
+ * Unit tests of {@link PackedPrimitiveData} class.
+ */
+public class PackedPrimitiveDataTest {
+
+    /**
+     * Command which sets the name of nodes.
+     */
+    private static class SetNameCommand extends Command {
+        private final List<Node> nodes;
+        private final String name;
+
+        SetNameCommand(List<Node> nodes, String name) {
+            this.nodes = nodes;
+            this.name = name;
+        }
+
+        @Override
+        public boolean executeCommand() {
+            super.executeCommand();
+            for (Node n : nodes) {
+                n.put("name", name);
+            }
+            return true;
+        }
+
+        @Override
+        public void fillModifiedData(Collection<OsmPrimitive> modified, Collection<OsmPrimitive> deleted, Collection<OsmPrimitive> added) {
+            modified.addAll(nodes);
+        }
+
+        @Override
+        public String getDescriptionText() {
+            return "Set name";
+        }
+    }
+
+    /**
+     * Setup test.
+     */
+    @BeforeClass
+    public static void setUp() {
+        JOSMFixture.createUnitTestFixture().init();
+    }
+
+    /**
+     * Checks that packed data is unpacked unchanged.
+     */
+    @Test
+    public void testPackUnpack() {
+        User user = User.createOsmUser(4242, "packed-data-test");
+        NodeData node = new NodeData();
+        node.setId(1000);
+        node.setVersion(3);
+        node.setUser(user);
+        node.setChangesetId(77);
+        node.setRawTimestamp(1234567);
+        node.setModified(true);
+        node.setCoor(new LatLon(53.5, 13.25));
+        node.put("amenity", "bench");
+        NodeData unknown = new NodeData();
+        unknown.setCoor(null);
+        unknown.setDeleted(true);
+        WayData way = new WayData();
+        way.setId(5);
+        way.setVersion(1);
+        way.setNodes(Arrays.asList(1000L, 999L, 100000L, -5L, 1000L));
+        way.put("highway", "residential");
+        way.put("name", "bench");
+        RelationData relation = new RelationData();
+        relation.setIncomplete(true);
+        relation.setMembers(Arrays.asList(new RelationMemberData("outer", OsmPrimitiveType.WAY, 5),
+                new RelationMemberData("", OsmPrimitiveType.NODE, -3)));
+
+        PackedPrimitiveData packed = PackedPrimitiveData.pack(Arrays.asList(node, unknown, way, relation));
+        assertEquals(4, packed.size());
+        List<PrimitiveData> result = packed.unpack();
+        assertEquals(4, result.size());
+
+        NodeData n = (NodeData) result.get(0);
+        assertEquals(1000, n.getUniqueId());
+        assertEquals(3, n.getVersion());
+        assertSame(user, n.getUser());
+        assertEquals(77, n.getChangesetId());
+        assertEquals(1234567, n.getRawTimestamp());
+        assertTrue(n.isModified());
+        assertFalse(n.isDeleted());
+        assertEquals(new LatLon(53.5, 13.25), n.getCoor());
+        assertEquals(node.getKeys(), n.getKeys());
+
+        NodeData u = (NodeData) result.get(1);
+        assertEquals(unknown.getUniqueId(), u.getUniqueId());
+        assertNull(u.getCoor());
+        assertTrue(u.isDeleted());
+        assertNull(u.getUser());
+
+        WayData w = (WayData) result.get(2);
+        assertEquals(way.getNodes(), w.getNodes());
+        assertEquals(way.getKeys(), w.getKeys());
+
+        RelationData r = (RelationData) result.get(3);
+        assertTrue(r.isIncomplete());
+        assertEquals(relation.getMembers(), r.getMembers());
+    }
+
+    /**
+     * Checks that a compacted command still restores the original state, and retains less memory.
+     */
+    @Test
+    public void testCompactCommand() {
+        DataSet ds = new DataSet();
+        List<Node> nodes = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            Node n = new Node(new LatLon(53.5 + i * 0.0001, 13.2));
+            n.put("ref", Integer.toString(i));
+            ds.addPrimitive(n);
+            nodes.add(n);
+        }
+        SetNameCommand command = new SetNameCommand(nodes, "changed");
+        command.executeCommand();
+        long before = command.getMemoryFootprint();
+        assertTrue(command.compact());
+        assertFalse(command.compact());
+        assertTrue(command.getMemoryFootprint() < before / 2);
+        assertEquals(1000, command.getParticipatingPrimitives().size());
+
+        command.undoCommand();
+        for (int i = 0; i < nodes.size(); i++) {
+            assertNull(nodes.get(i).get("name"));
+            assertEquals(Integer.toString(i), nodes.get(i).get("ref"));
+        }
+        command.executeCommand();
+        assertEquals("changed", nodes.get(0).get("name"));
+    }
+}
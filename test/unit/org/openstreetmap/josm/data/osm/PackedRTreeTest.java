@@ -0,0 +1,139 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.osm;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.openstreetmap.josm.JOSMFixture;
+import org.openstreetmap.josm.data.coor.LatLon;
+
+/**
+ * Unit tests of {@link PackedRTree} class.
+ */
+public class PackedRTreeTest {
+
+    /**
+     * Setup test.
+     */
+    @BeforeClass
+    public static void init() {
+        JOSMFixture.createUnitTestFixture().init();
+    }
+
+    private static List<OsmPrimitive> createPrimitives(Random random, int count, boolean withIncomplete) {
+        List<OsmPrimitive> result = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            Node n1 = new Node(new LatLon(random.nextDouble() * 10, random.nextDouble() * 10));
+            result.add(n1);
+            if (i % 4 == 0) {
+                Node n2 = new Node(new LatLon(n1.getCoor().lat() + random.nextDouble(), n1.getCoor().lon() + random.nextDouble()));
+                Way w = new Way();
+                w.setNodes(Arrays.asList(n1, n2));
+                result.add(n2);
+                result.add(w);
+            }
+        }
+        if (withIncomplete) {
+            result.add(new Node(1));
+            result.add(new Way(1));
+        }
+        return result;
+    }
+
+    private static void checkSearch(Random random, PackedRTree<OsmPrimitive> tree, Set<OsmPrimitive> expected) {
+        for (int i = 0; i < 50; i++) {
+            double x = random.nextDouble() * 12 - 1;
+            double y = random.nextDouble() * 12 - 1;
+            BBox bbox = new BBox(x, y, x + random.nextDouble() * 3, y + random.nextDouble() * 3);
+            Set<OsmPrimitive> found = new HashSet<>();
+            for (OsmPrimitive o : expected) {
+                if (o instanceof Node ? bbox.bounds(((Node) o).getCoor() != null ? ((Node) o).getCoor() : LatLon.ZERO)
+                        : o.getBBox().intersects(bbox)) {
+                    found.add(o);
+                }
+            }
+            List<OsmPrimitive> result = tree.search(bbox);
+            assertEquals(found.size(), result.size());
+            assertEquals(found, new HashSet<>(result));
+        }
+        assertEquals(expected.size(), tree.size());
+        assertEquals(expected, new HashSet<>(tree));
+    }
+
+    /**
+     * Compares search results of a bulk loaded tree with a linear scan, while adding and removing primitives.
+     */
+    @Test
+    public void testSearch() {
+        Random random = new Random(42);
+        List<OsmPrimitive> primitives = createPrimitives(random, 5000, true);
+        PackedRTree<OsmPrimitive> tree = new PackedRTree<>(primitives);
+        Set<OsmPrimitive> expected = new HashSet<>(primitives);
+        checkSearch(random, tree, expected);
+
+        // remove some packed primitives
+        for (int i = 0; i < primitives.size(); i += 3) {
+            assertTrue(tree.remove(primitives.get(i)));
+            assertFalse(tree.contains(primitives.get(i)));
+            expected.remove(primitives.get(i));
+        }
+        checkSearch(random, tree, expected);
+
+        // add some more without packing
+        List<OsmPrimitive> added = createPrimitives(random, 10, false);
+        for (OsmPrimitive o : added) {
+            tree.add(o);
+            expected.add(o);
+        }
+        checkSearch(random, tree, expected);
+        for (OsmPrimitive o : added) {
+            assertTrue(tree.contains(o));
+        }
+
+        // remove everything left through the iterator
+        tree.pack();
+        checkSearch(random, tree, expected);
+        Iterator<OsmPrimitive> it = tree.iterator();
+        while (it.hasNext()) {
+            OsmPrimitive o = it.next();
+            it.remove();
+            expected.remove(o);
+        }
+        assertTrue(expected.isEmpty());
+        assertTrue(tree.isEmpty());
+        assertTrue(tree.search(new BBox(-180, -90, 180, 90)).isEmpty());
+    }
+
+    /**
+     * Checks that a moved node is found at its new position once it has been removed and added again.
+     */
+    @Test
+    public void testReindex() {
+        PackedRTree<Node> tree = new PackedRTree<>();
+        List<Node> nodes = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            Node n = new Node(new LatLon(i / 100.0, i / 100.0));
+            nodes.add(n);
+            tree.add(n);
+        }
+        tree.optimize();
+        Node n = nodes.get(500);
+        assertTrue(tree.remove(n));
+        n.setCoor(new LatLon(-5, -5));
+        tree.add(n);
+        assertEquals(Arrays.asList(n), tree.search(new BBox(-6, -6, -4, -4)));
+        assertEquals(1000, tree.size());
+        assertEquals(999, tree.search(new BBox(0, 0, 10, 10)).size());
+    }
+}
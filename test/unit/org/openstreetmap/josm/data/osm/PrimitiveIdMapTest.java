@@ -0,0 +1,82 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.osm;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map.Entry;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.openstreetmap.josm.JOSMFixture;
+
+/**
+ * Unit tests of {@link PrimitiveIdMap} class.
+ */
+public class PrimitiveIdMapTest {
+
+    /**
+     * Setup test.
+     */
+    @BeforeClass
+    public static void init() {
+        JOSMFixture.createUnitTestFixture().init();
+    }
+
+    /**
+     * Checks that keys are compared by id and type, whatever the implementation of {@link PrimitiveId}.
+     */
+    @Test
+    public void testKeys() {
+        PrimitiveIdMap<String> map = new PrimitiveIdMap<>();
+        Node n = new Node(5);
+        Way w = new Way(5);
+        map.put(n, "node");
+        map.put(new SimplePrimitiveId(5, OsmPrimitiveType.WAY), "way");
+        map.put(-3, OsmPrimitiveType.RELATION, "relation");
+
+        assertEquals(3, map.size());
+        assertEquals("node", map.get(new SimplePrimitiveId(5, OsmPrimitiveType.NODE)));
+        assertEquals("node", map.get(5, OsmPrimitiveType.NODE));
+        assertEquals("way", map.get(w));
+        assertEquals("way", map.get(w.getPrimitiveId()));
+        assertEquals("relation", map.get(new SimplePrimitiveId(-3, OsmPrimitiveType.RELATION)));
+        assertNull(map.get(5, OsmPrimitiveType.RELATION));
+        assertNull(map.get("foo"));
+        assertTrue(map.containsKey(w));
+        assertFalse(map.containsKey(-3, OsmPrimitiveType.NODE));
+        assertEquals(Arrays.asList("way"), new ArrayList<>(map.values(OsmPrimitiveType.WAY)));
+
+        assertEquals("way", map.remove(w));
+        assertFalse(map.containsKey(5, OsmPrimitiveType.WAY));
+        assertEquals(2, map.size());
+    }
+
+    /**
+     * Checks iteration order and removal through the iterator.
+     */
+    @Test
+    public void testIterator() {
+        PrimitiveIdMap<String> map = new PrimitiveIdMap<>();
+        map.put(2, OsmPrimitiveType.RELATION, "r2");
+        map.put(9, OsmPrimitiveType.NODE, "n9");
+        map.put(1, OsmPrimitiveType.NODE, "n1");
+        map.put(4, OsmPrimitiveType.WAY, "w4");
+        assertEquals(Arrays.asList("n9", "n1", "w4", "r2"), new ArrayList<>(map.values()));
+
+        Iterator<Entry<PrimitiveId, String>> it = map.entrySet().iterator();
+        Entry<PrimitiveId, String> e = it.next();
+        assertEquals(new SimplePrimitiveId(9, OsmPrimitiveType.NODE), e.getKey());
+        it.next();
+        assertTrue(it.hasNext());
+        it.remove();
+        assertEquals(Arrays.asList("n9", "w4", "r2"), new ArrayList<>(map.values()));
+        map.clear();
+        assertTrue(map.isEmpty());
+    }
+}
@@ -4,7 +4,9 @@ package org.openstreetmap.josm.data.osm;
 import java.io.FileInputStream;
 import java.io.InputStream;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
 
@@ -32,9 +34,9 @@ public class QuadBucketsTest {
         List<Way> allWays = new ArrayList<>(ds.getWays());
         List<Relation> allRelations = new ArrayList<>(ds.getRelations());
 
-        QuadBuckets<Node> nodes = Reflection.field("nodes").ofType(new TypeRef<QuadBuckets<Node>>() {}).in(ds).get();
-        QuadBuckets<Way> ways = Reflection.field("ways").ofType(new TypeRef<QuadBuckets<Way>>() {}).in(ds).get();
-        Collection<Relation> relations = Reflection.field("relations").ofType(new TypeRef<Collection<Relation>>() {}).in(ds).get();
+        SpatialIndex<Node> nodes = Reflection.field("nodes").ofType(new TypeRef<SpatialIndex<Node>>() {}).in(ds).get();
+        SpatialIndex<Way> ways = Reflection.field("ways").ofType(new TypeRef<SpatialIndex<Way>>() {}).in(ds).get();
+        SpatialIndex<Relation> relations = Reflection.field("relations").ofType(new TypeRef<SpatialIndex<Relation>>() {}).in(ds).get();
 
         int expectedCount = allNodes.size();
         for (OsmPrimitive o: allNodes) {
@@ -46,8 +48,10 @@ public class QuadBucketsTest {
             ds.removePrimitive(o);
             checkIterator(ways, --expectedCount);
         }
+        expectedCount = allRelations.size();
         for (OsmPrimitive o: allRelations) {
             ds.removePrimitive(o);
+            checkIterator(relations, --expectedCount);
         }
         Assert.assertTrue(nodes.isEmpty());
         Assert.assertTrue(ways.isEmpty());
@@ -86,4 +90,44 @@ public class QuadBucketsTest {
             removeAllTest(ds);
         }
     }
+
+    @Test
+    public void testSearchRelations() {
+        DataSet ds = new DataSet();
+        Node n1 = new Node(new LatLon(10, 10));
+        Node n2 = new Node(new LatLon(11, 11));
+        Node n3 = new Node(new LatLon(-10, -10));
+        ds.addPrimitive(n1);
+        ds.addPrimitive(n2);
+        ds.addPrimitive(n3);
+        Way w = new Way();
+        w.setNodes(Arrays.asList(n1, n2));
+        ds.addPrimitive(w);
+        Relation r1 = new Relation();
+        r1.addMember(new RelationMember("outer", w));
+        ds.addPrimitive(r1);
+        Relation r2 = new Relation();
+        r2.addMember(new RelationMember("", r1));
+        ds.addPrimitive(r2);
+
+        BBox north = new BBox(9, 9, 12, 12);
+        BBox south = new BBox(-11, -11, -9, -9);
+        Assert.assertEquals(2, ds.searchRelations(north).size());
+        Assert.assertTrue(ds.searchRelations(south).isEmpty());
+
+        // moving a way node has to reindex the relation and its parent
+        n2.setCoor(new LatLon(-9.5, -9.5));
+        Assert.assertEquals(2, ds.searchRelations(south).size());
+
+        // changing members has to reindex the relation and its parent
+        r1.setMembers(Collections.singletonList(new RelationMember("", n1)));
+        Assert.assertTrue(ds.searchRelations(south).isEmpty());
+        Assert.assertEquals(2, ds.searchRelations(north).size());
+        r1.setMembers(null);
+        Assert.assertTrue(ds.searchRelations(north).isEmpty());
+        r1.addMember(new RelationMember("", n3));
+        Assert.assertEquals(2, ds.searchRelations(south).size());
+
+        removeAllTest(ds);
+    }
 }
@@ -0,0 +1,83 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.osm;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.openstreetmap.josm.JOSMFixture;
+import org.openstreetmap.josm.data.coor.LatLon;
+
+/**
+ * Unit tests of {@link TagIndex} class.
+ */
+public class TagIndexTest {
+
+    /**
+     * Setup test.
+     */
+    @BeforeClass
+    public static void setUp() {
+        JOSMFixture.createUnitTestFixture().init();
+    }
+
+    /**
+     * Checks that the index is kept up to date when primitives and tags change.
+     */
+    @Test
+    public void testUpdate() {
+        DataSet ds = new DataSet();
+        Node n1 = new Node(new LatLon(53.5, 13.2));
+        n1.put("building", "yes");
+        ds.addPrimitive(n1);
+        TagIndex index = ds.getTagIndex();
+        assertSame(index, ds.getTagIndex());
+        assertEquals(Collections.singleton(n1), index.get("building"));
+
+        Node n2 = new Node(new LatLon(53.6, 13.3));
+        n2.put("building", "house");
+        ds.addPrimitive(n2);
+        assertEquals(new HashSet<>(Arrays.asList(n1, n2)), index.get("building"));
+        assertEquals(Collections.singleton(n2), index.get("building", "house"));
+        assertEquals(new HashSet<>(Arrays.asList("yes", "house")), new HashSet<>(index.getValues("building")));
+
+        n1.put("building", "house");
+        n1.put("name", "foo");
+        assertEquals(new HashSet<>(Arrays.asList(n1, n2)), index.get("building", "house"));
+        assertTrue(index.get("building", "yes").isEmpty());
+        assertEquals(Collections.singleton(n1), index.get("name", "foo"));
+
+        n1.removeAll();
+        assertEquals(Collections.singleton(n2), index.get("building"));
+        assertTrue(index.get("name").isEmpty());
+        assertEquals(Collections.singletonList("building"), index.getKeys());
+
+        // changing the id removes and adds the primitive again
+        n2.setOsmId(42, 1);
+        assertEquals(Collections.singleton(n2), index.get("building", "house"));
+
+        ds.removePrimitive(n2);
+        assertTrue(index.getKeys().isEmpty());
+    }
+
+    /**
+     * Checks that the index can be disabled.
+     */
+    @Test
+    public void testDisabled() {
+        DataSet ds = new DataSet();
+        TagIndex.PROP_ENABLED.put(false);
+        try {
+            assertNull(ds.getTagIndex());
+        } finally {
+            TagIndex.PROP_ENABLED.put(true);
+        }
+    }
+}
@@ -0,0 +1,166 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.osm.visitor.paint;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.openstreetmap.josm.JOSMFixture;
+import org.openstreetmap.josm.data.Bounds;
+import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.Node;
+import org.openstreetmap.josm.data.osm.Way;
+import org.openstreetmap.josm.gui.NavigatableComponent;
+
+/**
+ * Unit tests of {@link BackgroundRenderer} class.
+ */
+public class BackgroundRendererTest {
+    private static final int WIDTH = 400;
+    private static final int HEIGHT = 300;
+
+    /**
+     * Setup test.
+     */
+    @BeforeClass
+    public static void setUp() {
+        JOSMFixture.createUnitTestFixture().init();
+        MapRendererFactory.getInstance().activate(WireframeMapRenderer.class);
+    }
+
+    /**
+     * Restores the default renderer.
+     */
+    @AfterClass
+    public static void tearDown() {
+        MapRendererFactory.getInstance().activateDefault();
+    }
+
+    private static DataSet createDataSet() {
+        DataSet ds = new DataSet();
+        Way w = new Way();
+        for (int i = 0; i < 10; i++) {
+            Node n = new Node(new LatLon(53.5 + (i % 2) * 0.01, 13.2 + i * 0.005));
+            ds.addPrimitive(n);
+            w.addNode(n);
+        }
+        ds.addPrimitive(w);
+        return ds;
+    }
+
+    private static NavigatableComponent createViewport() {
+        NavigatableComponent nc = new NavigatableComponent();
+        nc.setBounds(0, 0, WIDTH, HEIGHT);
+        nc.zoomTo(new Bounds(53.49, 13.19, 53.52, 13.26));
+        return nc;
+    }
+
+    private static int countPaintedPixels(BufferedImage image) {
+        int count = 0;
+        for (int x = 0; x < image.getWidth(); x++) {
+            for (int y = 0; y < image.getHeight(); y++) {
+                if ((image.getRGB(x, y) >>> 24) != 0) {
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    private static void waitForFrame(BackgroundRenderer renderer) throws InterruptedException {
+        for (int i = 0; i < 1000 && !renderer.hasNewFrame(); i++) {
+            Thread.sleep(10);
+        }
+        assertTrue(renderer.hasNewFrame());
+    }
+
+    /**
+     * Checks that the frame rendered in background is drawn as the data would be drawn directly.
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void testPaint() throws Exception {
+        DataSet ds = createDataSet();
+        NavigatableComponent nc = createViewport();
+
+        BufferedImage expected = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = expected.createGraphics();
+        g.setClip(0, 0, WIDTH, HEIGHT);
+        MapRendererFactory.getInstance().createActiveRenderer(g, nc, false).render(ds, false, nc.getRealBounds());
+        g.dispose();
+        assertTrue(countPaintedPixels(expected) > 0);
+
+        BackgroundRenderer renderer = new BackgroundRenderer(ds);
+        BufferedImage actual = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_ARGB);
+        g = actual.createGraphics();
+        // nothing is drawn until the first frame is completed
+        renderer.paint(g, nc, false, false, true);
+        waitForFrame(renderer);
+        assertEquals(0, countPaintedPixels(actual));
+        renderer.paint(g, nc, false, false, false);
+        g.dispose();
+        assertFalse(renderer.hasNewFrame());
+        assertEquals(countPaintedPixels(expected), countPaintedPixels(actual));
+    }
+
+    /**
+     * Checks that a new frame is rendered when the viewport changes, and that the old frame is drawn in the meantime.
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void testViewportChange() throws Exception {
+        DataSet ds = createDataSet();
+        NavigatableComponent nc = createViewport();
+        BackgroundRenderer renderer = new BackgroundRenderer(ds);
+        BufferedImage image = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = image.createGraphics();
+        renderer.paint(g, nc, false, false, true);
+        waitForFrame(renderer);
+        renderer.paint(g, nc, false, false, false);
+
+        nc.zoomTo(new Bounds(53.49, 13.14, 53.52, 13.21));
+        BufferedImage moved = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g2 = moved.createGraphics();
+        renderer.paint(g2, nc, false, false, false);
+        // the old frame is drawn moved to the right, partly outside of the viewport
+        int painted = countPaintedPixels(moved);
+        assertTrue(painted > 0 && painted < countPaintedPixels(image));
+        waitForFrame(renderer);
+        renderer.cancel();
+        g.dispose();
+        g2.dispose();
+    }
+
+    /**
+     * Checks that the data set can be modified while a frame is rendered by the {@link StyledMapRenderer},
+     * and that the frame is rendered again afterwards.
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void testModifyWhileRendering() throws Exception {
+        MapRendererFactory.getInstance().activate(StyledMapRenderer.class);
+        try {
+            DataSet ds = createDataSet();
+            NavigatableComponent nc = createViewport();
+            BackgroundRenderer renderer = new BackgroundRenderer(ds);
+            BufferedImage image = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_ARGB);
+            Graphics2D g = image.createGraphics();
+            renderer.paint(g, nc, false, false, true);
+            ds.addPrimitive(new Node(new LatLon(53.505, 13.22)));
+            assertFalse(ds.hasQueuedLockThreads());
+            renderer.paint(g, nc, false, false, true);
+            waitForFrame(renderer);
+            renderer.cancel();
+            g.dispose();
+        } finally {
+            MapRendererFactory.getInstance().activate(WireframeMapRenderer.class);
+        }
+    }
+}
@@ -0,0 +1,113 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.osm.visitor.paint;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.awt.Color;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.openstreetmap.josm.JOSMFixture;
+import org.openstreetmap.josm.data.Bounds;
+import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.Node;
+import org.openstreetmap.josm.data.osm.Way;
+import org.openstreetmap.josm.gui.mappaint.mapcss.MapCSSStyleSource;
+
+/**
+ * Unit tests of {@link ImageRenderer} class.
+ */
+public class ImageRendererTest {
+
+    private static final int SIZE = 128;
+
+    /**
+     * Setup test.
+     */
+    @BeforeClass
+    public static void setUp() {
+        JOSMFixture.createUnitTestFixture().init();
+    }
+
+    private static DataSet createDataSet() {
+        DataSet ds = new DataSet();
+        for (int row = 0; row < 10; row++) {
+            Way w = new Way();
+            for (int i = 0; i < 10; i++) {
+                Node n = new Node(new LatLon(53.5 + row * 0.003, 13.2 + i * 0.005));
+                ds.addPrimitive(n);
+                w.addNode(n);
+            }
+            w.put("highway", "primary");
+            ds.addPrimitive(w);
+        }
+        return ds;
+    }
+
+    private static ImageRenderer createRenderer(DataSet ds, String color) {
+        MapCSSStyleSource source = new MapCSSStyleSource("way[highway] { color: " + color + "; width: 3; }");
+        source.loadStyleSource();
+        assertTrue(source.getErrors().isEmpty());
+        ImageRenderer renderer = new ImageRenderer(ds, Collections.singletonList(source));
+        renderer.setBackgroundColor(Color.BLACK);
+        return renderer;
+    }
+
+    private static boolean contains(BufferedImage image, Color color) {
+        for (int x = 0; x < image.getWidth(); x++) {
+            for (int y = 0; y < image.getHeight(); y++) {
+                if (image.getRGB(x, y) == color.getRGB())
+                    return true;
+            }
+        }
+        return false;
+    }
+
+    private static int[] getPixels(BufferedImage image) {
+        return image.getRGB(0, 0, image.getWidth(), image.getHeight(), null, 0, image.getWidth());
+    }
+
+    /**
+     * Checks that the given styles are used, independently from each other.
+     */
+    @Test
+    public void testStyles() {
+        DataSet ds = createDataSet();
+        Bounds bounds = new Bounds(53.5, 13.2, 53.53, 13.25);
+        BufferedImage red = createRenderer(ds, "#ff0000").render(bounds, SIZE, SIZE);
+        assertEquals(SIZE, red.getWidth());
+        assertTrue(contains(red, Color.RED));
+        BufferedImage blue = createRenderer(ds, "#0000ff").render(bounds, SIZE, SIZE);
+        assertTrue(contains(blue, Color.BLUE));
+        assertFalse(contains(blue, Color.RED));
+        assertArrayEquals(getPixels(red), getPixels(createRenderer(ds, "#ff0000").render(bounds, SIZE, SIZE)));
+    }
+
+    /**
+     * Checks that images rendered in parallel are the same as the images rendered one after the other.
+     */
+    @Test
+    public void testParallel() {
+        DataSet ds = createDataSet();
+        ImageRenderer renderer = createRenderer(ds, "#ff0000");
+        List<Bounds> tiles = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            for (int j = 0; j < 4; j++) {
+                tiles.add(new Bounds(53.5 + i * 0.0075, 13.2 + j * 0.0125, 53.5075 + i * 0.0075, 13.2125 + j * 0.0125));
+            }
+        }
+        List<BufferedImage> images = renderer.render(tiles, SIZE, SIZE);
+        assertEquals(tiles.size(), images.size());
+        for (int i = 0; i < tiles.size(); i++) {
+            assertArrayEquals(getPixels(renderer.render(tiles.get(i), SIZE, SIZE)), getPixels(images.get(i)));
+        }
+    }
+}
@@ -0,0 +1,137 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.osm.visitor.paint;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.openstreetmap.josm.JOSMFixture;
+import org.openstreetmap.josm.data.Bounds;
+import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.Node;
+import org.openstreetmap.josm.data.osm.Way;
+import org.openstreetmap.josm.gui.NavigatableComponent;
+
+/**
+ * Unit tests of {@link LevelOfDetail} class.
+ */
+public class LevelOfDetailTest {
+
+    /**
+     * Setup test.
+     */
+    @BeforeClass
+    public static void setUp() {
+        JOSMFixture.createUnitTestFixture().init();
+    }
+
+    private static NavigatableComponent createViewport(Bounds bounds) {
+        NavigatableComponent nc = new NavigatableComponent();
+        nc.setBounds(0, 0, 400, 300);
+        nc.zoomTo(bounds);
+        return nc;
+    }
+
+    private static Way createWay(DataSet ds, int count, double amplitude) {
+        Way w = new Way();
+        for (int i = 0; i < count; i++) {
+            Node n = new Node(new LatLon(53.5 + (i % 2) * amplitude, 13.2 + i * 0.001));
+            ds.addPrimitive(n);
+            w.addNode(n);
+        }
+        ds.addPrimitive(w);
+        return w;
+    }
+
+    /**
+     * Checks the Douglas-Peucker simplification.
+     */
+    @Test
+    public void testSimplify() {
+        Node a = new Node(new LatLon(0, 0));
+        Node b = new Node(new LatLon(0.00001, 1));
+        Node c = new Node(new LatLon(0, 2));
+        Node d = new Node(new LatLon(1, 2));
+        Node e = new Node(new LatLon(1, 1));
+        List<Node> nodes = Arrays.asList(a, b, c, d, e);
+        assertEquals(Arrays.asList(a, c, d, e), LevelOfDetail.simplify(nodes, 10));
+        // nothing is removed with a small tolerance
+        assertSame(nodes, LevelOfDetail.simplify(nodes, 0.01));
+        // the first and last nodes of closed ways are kept
+        List<Node> closed = Arrays.asList(a, c, d, a);
+        assertEquals(Arrays.asList(a, d, a), LevelOfDetail.simplify(closed, 200000));
+        // the end of an out-and-back way lies on the line through its first and last nodes, but not on the segment
+        Node f = new Node(new LatLon(0, 1));
+        List<Node> outAndBack = Arrays.asList(a, c, f);
+        assertSame(outAndBack, LevelOfDetail.simplify(outAndBack, 10));
+    }
+
+    /**
+     * Checks that the level of detail is only used when zoomed out.
+     */
+    @Test
+    public void testForViewport() {
+        assertNull(LevelOfDetail.forViewport(createViewport(new Bounds(53.5, 13.2, 53.51, 13.21))));
+        assertNotNull(LevelOfDetail.forViewport(createViewport(new Bounds(52, 12, 55, 15))));
+        LevelOfDetail.PROP_ENABLED.put(false);
+        try {
+            assertNull(LevelOfDetail.forViewport(createViewport(new Bounds(52, 12, 55, 15))));
+        } finally {
+            LevelOfDetail.PROP_ENABLED.put(true);
+        }
+    }
+
+    /**
+     * Checks that the simplified ways are cached and invalidated when the way changes.
+     */
+    @Test
+    public void testCache() {
+        LevelOfDetail.clearCache();
+        DataSet ds = new DataSet();
+        Way w = createWay(ds, 100, 0.0001);
+        LevelOfDetail lod = LevelOfDetail.forViewport(createViewport(new Bounds(52, 12, 55, 15)));
+        List<Node> nodes = lod.getNodes(w);
+        assertEquals(2, nodes.size());
+        assertSame(nodes, lod.getNodes(w));
+        assertEquals(1, LevelOfDetail.getCacheSize());
+
+        // another scale range
+        List<Node> zoomedOut = LevelOfDetail.forViewport(createViewport(new Bounds(40, 0, 65, 30))).getNodes(w);
+        assertEquals(2, zoomedOut.size());
+        assertFalse(nodes == zoomedOut);
+
+        // a node is moved far away
+        Node moved = w.getNode(50);
+        moved.setCoor(new LatLon(54, 13.25));
+        assertEquals(0, LevelOfDetail.getCacheSize());
+        assertTrue(lod.getNodes(w).contains(moved));
+
+        w.removeNode(moved);
+        assertEquals(0, LevelOfDetail.getCacheSize());
+        assertEquals(2, lod.getNodes(w).size());
+    }
+
+    /**
+     * Checks that small ways are skipped, unless they are selected.
+     */
+    @Test
+    public void testIsTooSmall() {
+        DataSet ds = new DataSet();
+        Way small = createWay(ds, 3, 0.0001);
+        Way large = createWay(ds, 300, 0.01);
+        LevelOfDetail lod = LevelOfDetail.forViewport(createViewport(new Bounds(52, 12, 55, 15)));
+        assertTrue(lod.isTooSmall(small));
+        assertFalse(lod.isTooSmall(large));
+        ds.setSelected(small);
+        assertFalse(lod.isTooSmall(small));
+    }
+}
@@ -0,0 +1,180 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.osm.visitor.paint;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.openstreetmap.josm.JOSMFixture;
+import org.openstreetmap.josm.data.Bounds;
+import org.openstreetmap.josm.data.coor.EastNorth;
+import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.Node;
+import org.openstreetmap.josm.data.osm.Way;
+import org.openstreetmap.josm.gui.NavigatableComponent;
+
+/**
+ * Unit tests of {@link TileCachedRenderer} class.
+ */
+public class TileCachedRendererTest {
+    private static final int SIZE = 2 * TileCachedRenderer.TILE_SIZE;
+
+    /**
+     * Setup test.
+     */
+    @BeforeClass
+    public static void setUp() {
+        JOSMFixture.createUnitTestFixture().init();
+        MapRendererFactory.getInstance().activate(WireframeMapRenderer.class);
+    }
+
+    /**
+     * Restores the default renderer.
+     */
+    @AfterClass
+    public static void tearDown() {
+        MapRendererFactory.getInstance().activateDefault();
+    }
+
+    private static DataSet createDataSet() {
+        DataSet ds = new DataSet();
+        for (int row = 0; row < 10; row++) {
+            Way w = new Way();
+            for (int i = 0; i < 10; i++) {
+                Node n = new Node(new LatLon(53.5 + row * 0.003, 13.2 + i * 0.005));
+                ds.addPrimitive(n);
+                w.addNode(n);
+            }
+            ds.addPrimitive(w);
+        }
+        return ds;
+    }
+
+    private static NavigatableComponent createViewport() {
+        NavigatableComponent nc = new NavigatableComponent();
+        nc.setBounds(0, 0, SIZE, SIZE);
+        nc.zoomTo(new Bounds(53.5, 13.2, 53.53, 13.25));
+        return nc;
+    }
+
+    private static void paint(TileCachedRenderer renderer, NavigatableComponent nc) {
+        BufferedImage image = new BufferedImage(SIZE, SIZE, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = image.createGraphics();
+        g.setClip(0, 0, SIZE, SIZE);
+        renderer.paint(g, nc, false, false);
+        g.dispose();
+    }
+
+    /**
+     * Checks that only the newly exposed tiles are rendered when panning.
+     */
+    @Test
+    public void testPanning() {
+        TileCachedRenderer renderer = new TileCachedRenderer(createDataSet());
+        try {
+            NavigatableComponent nc = createViewport();
+            paint(renderer, nc);
+            long tiles = renderer.getMisses();
+            // 2x2 tiles, or 3x3 tiles if the viewport is not aligned to the tiles
+            assertTrue(tiles >= 4 && tiles <= 9);
+            assertEquals(0, renderer.getHits());
+            assertEquals(tiles, renderer.getTileCount());
+            assertEquals(tiles * 4 * TileCachedRenderer.TILE_SIZE * TileCachedRenderer.TILE_SIZE, renderer.getMemory());
+
+            paint(renderer, nc);
+            assertEquals(tiles, renderer.getMisses());
+            assertEquals(tiles, renderer.getHits());
+
+            // pan by one tile to the east: one column of tiles is new
+            EastNorth center = nc.getCenter();
+            nc.zoomTo(new EastNorth(center.east() + TileCachedRenderer.TILE_SIZE * nc.getScale(), center.north()), nc.getScale());
+            paint(renderer, nc);
+            long column = (long) Math.sqrt(tiles);
+            assertEquals(tiles + column, renderer.getMisses());
+            assertEquals(2 * tiles - column, renderer.getHits());
+        } finally {
+            renderer.destroy();
+        }
+    }
+
+    /**
+     * Checks that a change of the data only removes the tiles touched by the change.
+     */
+    @Test
+    public void testInvalidation() {
+        DataSet ds = createDataSet();
+        TileCachedRenderer renderer = new TileCachedRenderer(ds);
+        try {
+            NavigatableComponent nc = createViewport();
+            paint(renderer, nc);
+            int tiles = renderer.getTileCount();
+
+            // a node in the corner is moved a little bit
+            Node node = ds.getWays().iterator().next().firstNode();
+            node.setCoor(new LatLon(node.getCoor().lat() + 0.0001, node.getCoor().lon()));
+            assertTrue(renderer.getTileCount() < tiles);
+            assertTrue(renderer.getTileCount() > 0);
+
+            paint(renderer, nc);
+            assertEquals(tiles, renderer.getTileCount());
+
+            // the selection of a node is drawn
+            ds.setSelected(node);
+            assertTrue(renderer.getTileCount() < tiles);
+        } finally {
+            renderer.destroy();
+        }
+    }
+
+    /**
+     * Checks that a change of the highlighting only removes the tiles of the highlighted primitives.
+     */
+    @Test
+    public void testHighlight() {
+        DataSet ds = createDataSet();
+        TileCachedRenderer renderer = new TileCachedRenderer(ds);
+        try {
+            NavigatableComponent nc = createViewport();
+            paint(renderer, nc);
+            long tiles = renderer.getMisses();
+
+            Node node = ds.getWays().iterator().next().firstNode();
+            node.setHighlighted(true);
+            paint(renderer, nc);
+            long highlighted = renderer.getMisses() - tiles;
+            assertTrue(highlighted > 0 && highlighted < tiles);
+
+            // the tiles of the node are drawn again when it is not highlighted anymore
+            node.setHighlighted(false);
+            paint(renderer, nc);
+            assertEquals(tiles + 2 * highlighted, renderer.getMisses());
+        } finally {
+            renderer.destroy();
+        }
+    }
+
+    /**
+     * Checks that the least recently used tiles are evicted when the memory budget is exceeded.
+     */
+    @Test
+    public void testEviction() {
+        TileCachedRenderer.PROP_CACHE_SIZE.put(1);
+        TileCachedRenderer renderer = new TileCachedRenderer(createDataSet());
+        try {
+            paint(renderer, createViewport());
+            long tileMemory = 4 * TileCachedRenderer.TILE_SIZE * TileCachedRenderer.TILE_SIZE;
+            assertEquals(1024 * 1024 / tileMemory, renderer.getTileCount());
+            assertEquals(renderer.getMisses() - renderer.getTileCount(), renderer.getEvictions());
+            assertTrue(renderer.getMemory() <= 1024 * 1024);
+        } finally {
+            renderer.destroy();
+            TileCachedRenderer.PROP_CACHE_SIZE.put(TileCachedRenderer.PROP_CACHE_SIZE.getDefaultValue());
+        }
+    }
+}
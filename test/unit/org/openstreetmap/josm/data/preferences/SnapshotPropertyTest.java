@@ -0,0 +1,87 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.preferences;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.openstreetmap.josm.JOSMFixture;
+import org.openstreetmap.josm.Main;
+import org.openstreetmap.josm.data.Preferences;
+
+/**
+ * Unit tests of {@link SnapshotProperty} class.
+ */
+public class SnapshotPropertyTest {
+
+    /**
+     * Setup test.
+     */
+    @BeforeClass
+    public static void setUp() {
+        JOSMFixture.createUnitTestFixture().init();
+    }
+
+    /**
+     * Checks that the modification count changes when a setting changes, and only then.
+     */
+    @Test
+    public void testModificationCount() {
+        Main.pref.put("test.snapshot.string", "foo");
+        int count = Main.pref.getModificationCount();
+        Main.pref.put("test.snapshot.string", "foo");
+        assertEquals(count, Main.pref.getModificationCount());
+        Main.pref.put("test.snapshot.string", "bar");
+        assertNotEquals(count, Main.pref.getModificationCount());
+        count = Main.pref.getModificationCount();
+        Main.pref.put("test.snapshot.string", null);
+        assertNotEquals(count, Main.pref.getModificationCount());
+    }
+
+    /**
+     * Checks that the properties follow changes of the preferences.
+     */
+    @Test
+    public void testProperties() {
+        IntegerProperty integer = new IntegerProperty("test.snapshot.property.int", 5);
+        BooleanProperty bool = new BooleanProperty("test.snapshot.property.bool", true);
+        DoubleProperty dbl = new DoubleProperty("test.snapshot.property.double", 0.5);
+        assertEquals(5, (int) integer.get());
+        assertEquals(true, bool.get());
+        assertEquals(0.5, dbl.get(), 0);
+
+        integer.put(10);
+        assertEquals(10, (int) integer.get());
+        Main.pref.put("test.snapshot.property.bool", false);
+        assertEquals(false, bool.get());
+        dbl.put(1.5);
+        assertEquals(1.5, dbl.get(), 0);
+
+        integer.remove();
+        bool.remove();
+        dbl.remove();
+        assertEquals(5, (int) integer.get());
+        assertEquals(true, bool.get());
+        assertEquals(0.5, dbl.get(), 0);
+    }
+
+    /**
+     * Checks that the value read from replaced preferences is not used any longer.
+     */
+    @Test
+    public void testReplacedPreferences() {
+        Preferences pref = Main.pref;
+        IntegerProperty integer = new IntegerProperty("test.snapshot.replaced.int", 5);
+        try {
+            integer.put(10);
+            assertEquals(10, (int) integer.get());
+            Main.pref = new Preferences();
+            assertNotEquals(pref.getModificationCount(), Main.pref.getModificationCount());
+            assertEquals(5, (int) integer.get());
+        } finally {
+            Main.pref = pref;
+            integer.remove();
+        }
+    }
+}
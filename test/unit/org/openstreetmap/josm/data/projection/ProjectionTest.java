@@ -4,7 +4,9 @@ package org.openstreetmap.josm.data.projection;
 import java.util.Random;
 
 import org.junit.Assert;
+import org.junit.BeforeClass;
 import org.junit.Test;
+import org.openstreetmap.josm.JOSMFixture;
 import org.openstreetmap.josm.data.Bounds;
 import org.openstreetmap.josm.data.coor.EastNorth;
 import org.openstreetmap.josm.data.coor.LatLon;
@@ -16,6 +18,14 @@ public class ProjectionTest {
     boolean error;
     String text;
 
+    /**
+     * Setup test.
+     */
+    @BeforeClass
+    public static void setUp() {
+        JOSMFixture.createUnitTestFixture().init();
+    }
+
     @Test
     public void proj() {
         error = false;
@@ -87,4 +97,33 @@ public class ProjectionTest {
             text += String.format("%s errorLat: %s errorLon: %s%n", mark, maxErrLat, maxErrLon);
         }
     }
+
+    /**
+     * Checks that the batch projection gives the same results as the projection of single points,
+     * sequentially and in parallel.
+     */
+    @Test
+    public void testBatch() {
+        for (String code : Projections.getAllProjectionCodes()) {
+            Projection p = Projections.getProjectionByCode(code);
+            Bounds b = p.getWorldBoundsLatLon();
+            int count = 10000;
+            double[] latlon = new double[2 * count];
+            for (int i = 0; i < count; i++) {
+                latlon[2 * i] = rand.nextDouble() * (b.getMax().lat() - b.getMin().lat()) + b.getMin().lat();
+                latlon[2 * i + 1] = rand.nextDouble() * (b.getMax().lon() - b.getMin().lon()) + b.getMin().lon();
+            }
+            double[] batch = new double[2 * count];
+            ((AbstractProjection) p).latlon2eastNorth(latlon, batch, 0, count);
+            double[] parallel = latlon.clone();
+            Projections.projectAll(p, parallel);
+            for (int i = 0; i < count; i++) {
+                EastNorth en = p.latlon2eastNorth(new LatLon(latlon[2 * i], latlon[2 * i + 1]));
+                Assert.assertEquals(code, en.east(), batch[2 * i], 1e-6);
+                Assert.assertEquals(code, en.north(), batch[2 * i + 1], 1e-6);
+                Assert.assertEquals(code, en.east(), parallel[2 * i], 1e-6);
+                Assert.assertEquals(code, en.north(), parallel[2 * i + 1], 1e-6);
+            }
+        }
+    }
 }
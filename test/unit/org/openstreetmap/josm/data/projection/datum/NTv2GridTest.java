@@ -0,0 +1,67 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.projection.datum;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStream;
+
+import org.junit.Test;
+
+/**
+ * Unit tests of {@link NTv2Grid} class.
+ */
+public class NTv2GridTest {
+
+    private static final File BETA2007 = new File("data/projection/BETA2007.gsb");
+
+    /**
+     * Checks that a mapped grid and a grid read from a stream give the same shifts.
+     * @throws Exception if the grid cannot be read
+     */
+    @Test
+    public void testLoad() throws Exception {
+        NTv2Grid mapped = NTv2Grid.load(BETA2007);
+        NTv2Grid read;
+        try (InputStream in = new FileInputStream(BETA2007)) {
+            read = NTv2Grid.load(in);
+        }
+        double[] shift1 = new double[2];
+        double[] shift2 = new double[2];
+        for (double lat = 47.5; lat < 55; lat += 0.37) {
+            for (double lon = 6; lon < 15; lon += 0.41) {
+                assertTrue(mapped.shiftForward(lat, lon, shift1));
+                assertTrue(read.shiftForward(lat, lon, shift2));
+                assertArrayEquals(shift1, shift2, 0);
+            }
+        }
+    }
+
+    /**
+     * Checks that the reverse shift inverts the forward shift, and that points outside of the grid are not shifted.
+     * @throws Exception if the grid cannot be read
+     */
+    @Test
+    public void testShift() throws Exception {
+        NTv2Grid grid = NTv2Grid.load(BETA2007);
+        double[] shift = new double[2];
+        assertTrue(grid.shiftForward(52.5, 13.4, shift));
+        // DHDN to ETRS89 shifts by some seconds
+        assertTrue(Math.abs(shift[0]) > 1e-4 && Math.abs(shift[0]) < 1e-2);
+        assertTrue(Math.abs(shift[1]) > 1e-4 && Math.abs(shift[1]) < 1e-2);
+        double lat = 52.5 + shift[0];
+        double lon = 13.4 + shift[1];
+        assertTrue(grid.shiftReverse(lat, lon, shift));
+        assertEquals(52.5, lat + shift[0], 1e-9);
+        assertEquals(13.4, lon + shift[1], 1e-9);
+
+        assertFalse(grid.shiftForward(40, 13.4, shift));
+        assertArrayEquals(new double[] {0, 0}, shift, 0);
+        assertFalse(grid.shiftReverse(52.5, -3, shift));
+        assertArrayEquals(new double[] {0, 0}, shift, 0);
+    }
+}
@@ -0,0 +1,151 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.validation;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+import org.junit.BeforeClass;
+import org.openstreetmap.josm.JOSMFixture;
+import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.Node;
+import org.openstreetmap.josm.data.osm.OsmPrimitive;
+import org.openstreetmap.josm.data.osm.Way;
+import org.openstreetmap.josm.data.validation.tests.CrossingWays;
+import org.openstreetmap.josm.data.validation.tests.UntaggedNode;
+import org.openstreetmap.josm.gui.layer.OsmDataLayer;
+
+/**
+ * Unit tests of {@link IncrementalValidator} class.
+ */
+public class IncrementalValidatorTest {
+
+    /**
+     * Setup test.
+     */
+    @BeforeClass
+    public static void setUp() {
+        JOSMFixture.createUnitTestFixture().init();
+        OsmValidator.initializeGridDetail();
+    }
+
+    private static Way addWay(DataSet ds, double lat1, double lon1, double lat2, double lon2) {
+        Node n1 = new Node(new LatLon(lat1, lon1));
+        Node n2 = new Node(new LatLon(lat2, lon2));
+        Way w = new Way();
+        w.setNodes(Arrays.asList(n1, n2));
+        w.put("highway", "residential");
+        ds.addPrimitive(n1);
+        ds.addPrimitive(n2);
+        ds.addPrimitive(w);
+        return w;
+    }
+
+    private static Collection<Test> createTests() {
+        return Arrays.<Test>asList(new CrossingWays.Ways(), new UntaggedNode());
+    }
+
+    /**
+     * Checks that only the errors affected by a change are computed again.
+     */
+    @org.junit.Test
+    public void testRevalidate() {
+        DataSet ds = new DataSet();
+        Way w1 = addWay(ds, 0, 0, 0, 0.01);
+        Way w2 = addWay(ds, -0.005, 0.005, 0.005, 0.005);
+        Way w3 = addWay(ds, 1, 1, 1, 1.01);
+        addWay(ds, 0.995, 1.005, 1.005, 1.005);
+        List<TestError> errors = new ValidationRunner(null).run(createTests(), ds.allPrimitives(), null);
+        assertEquals(2, errors.size());
+        TestError farError = errors.get(0).getPrimitives().contains(w3) ? errors.get(0) : errors.get(1);
+
+        IncrementalValidator validator = new IncrementalValidator(new OsmDataLayer(ds, "", null));
+        validator.start();
+        try {
+            assertFalse(validator.hasChanges());
+            assertSame(errors, validator.revalidate(createTests(), errors));
+
+            // move the second way away from the first one
+            w2.firstNode().setCoor(new LatLon(-0.005, 0.02));
+            w2.lastNode().setCoor(new LatLon(0.005, 0.02));
+            assertTrue(validator.hasChanges());
+            List<TestError> updated = validator.revalidate(createTests(), errors);
+            assertFalse(validator.hasChanges());
+            assertEquals(1, updated.size());
+            assertSame(farError, updated.get(0));
+
+            // make it cross again, and add an untagged node next to the first way
+            w2.firstNode().setCoor(new LatLon(-0.005, 0.005));
+            w2.lastNode().setCoor(new LatLon(0.005, 0.005));
+            Node n = new Node(new LatLon(0.001, 0.001));
+            n.put("created_by", "test");
+            ds.addPrimitive(n);
+            updated = validator.revalidate(createTests(), updated);
+            assertEquals(3, updated.size());
+            assertSame(farError, updated.get(0));
+            assertEquals(new ValidationRunner(null).run(createTests(), ds.allPrimitives(), null).size(), updated.size());
+            assertTrue(updated.get(1).getPrimitives().contains(w1) || updated.get(2).getPrimitives().contains(w1));
+        } finally {
+            validator.stop();
+        }
+    }
+
+    /**
+     * Tag test reporting the nodes tagged with fixme, and counting the primitives it checks.
+     */
+    private static class FixmeTest extends Test.TagTest {
+        private int checked;
+
+        FixmeTest() {
+            super("fixme");
+        }
+
+        @Override
+        public void check(OsmPrimitive p) {
+            checked++;
+            if (p.hasKey("fixme")) {
+                errors.add(new TestError(this, Severity.OTHER, "fixme", 1, p));
+            }
+        }
+    }
+
+    /**
+     * Checks that tag tests are only run again on the primitives whose tags changed.
+     */
+    @org.junit.Test
+    public void testTagTestScope() {
+        DataSet ds = new DataSet();
+        Way w = addWay(ds, 0, 0, 0, 0.01);
+        Node n = w.firstNode();
+        n.put("fixme", "check");
+        FixmeTest test = new FixmeTest();
+        List<TestError> errors = new ValidationRunner(null).run(Arrays.<Test>asList(test), ds.allPrimitives(), null);
+        assertEquals(1, errors.size());
+
+        IncrementalValidator validator = new IncrementalValidator(new OsmDataLayer(ds, "", null));
+        validator.start();
+        try {
+            // a move does not run the tag test, and keeps its error
+            n.setCoor(new LatLon(0.001, 0));
+            test = new FixmeTest();
+            List<TestError> updated = validator.revalidate(Arrays.<Test>asList(test), errors);
+            assertEquals(0, test.checked);
+            assertEquals(errors, updated);
+
+            // a tag change runs the tag test on the changed node only
+            n.remove("fixme");
+            test = new FixmeTest();
+            updated = validator.revalidate(Arrays.<Test>asList(test), updated);
+            assertEquals(1, test.checked);
+            assertTrue(updated.isEmpty());
+        } finally {
+            validator.stop();
+        }
+    }
+}
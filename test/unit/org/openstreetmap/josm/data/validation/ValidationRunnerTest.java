@@ -0,0 +1,89 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.validation;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.BeforeClass;
+import org.openstreetmap.josm.JOSMFixture;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.OsmPrimitive;
+import org.openstreetmap.josm.data.validation.tests.DuplicatedWayNodes;
+import org.openstreetmap.josm.data.validation.tests.Lanes;
+import org.openstreetmap.josm.data.validation.tests.MapCSSTagChecker;
+import org.openstreetmap.josm.data.validation.tests.NameMismatch;
+import org.openstreetmap.josm.data.validation.tests.TagChecker;
+import org.openstreetmap.josm.data.validation.tests.UnclosedWays;
+import org.openstreetmap.josm.data.validation.tests.UntaggedNode;
+import org.openstreetmap.josm.data.validation.tests.WronglyOrderedWays;
+import org.openstreetmap.josm.io.Compression;
+import org.openstreetmap.josm.io.OsmReader;
+
+/**
+ * Unit tests of {@link ValidationRunner} class.
+ */
+public class ValidationRunnerTest {
+
+    private static Collection<OsmPrimitive> primitives;
+
+    /**
+     * Setup test.
+     * @throws Exception if the data cannot be loaded
+     */
+    @BeforeClass
+    public static void setUp() throws Exception {
+        JOSMFixture.createUnitTestFixture().init();
+        try (InputStream in = Compression.getUncompressedFileInputStream(new File("data_nodist/neubrandenburg.osm.bz2"))) {
+            DataSet ds = OsmReader.parseDataSet(in, null);
+            primitives = new ArrayList<>(ds.allPrimitives());
+        }
+    }
+
+    private static List<Test> createTests() throws Exception {
+        TagChecker tagChecker = new TagChecker();
+        tagChecker.initialize();
+        MapCSSTagChecker mapCSSTagChecker = new MapCSSTagChecker();
+        for (String rules : new String[] {"deprecated", "highway", "numeric", "unnecessary"}) {
+            mapCSSTagChecker.addMapCSS("resource://data/validator/" + rules + ".mapcss");
+        }
+        // mix concurrent and sequential tests
+        return Arrays.asList(new WronglyOrderedWays(), tagChecker, new UnclosedWays(), mapCSSTagChecker,
+                new Lanes(), new UntaggedNode(), new NameMismatch(), new DuplicatedWayNodes());
+    }
+
+    private static List<String> describe(List<TestError> errors) {
+        List<String> result = new ArrayList<>(errors.size());
+        for (TestError error : errors) {
+            result.add(error.getTester().getName() + " " + error.getSeverity() + " " + error.getMessage()
+                    + " " + error.getDescription() + " " + error.getPrimitives());
+        }
+        return result;
+    }
+
+    /**
+     * Checks that running tests concurrently gives exactly the errors of the sequential run, in the same order.
+     * @throws Exception if an error occurs
+     */
+    @org.junit.Test
+    public void testConcurrentRunIsSameAsSequential() throws Exception {
+        List<TestError> expected = new ValidationRunner(null).run(createTests(), primitives, null);
+        assertTrue(expected.size() > 100);
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            for (int i = 0; i < 2; i++) {
+                List<TestError> actual = new ValidationRunner(pool).run(createTests(), primitives, null);
+                assertEquals(describe(expected), describe(actual));
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+}
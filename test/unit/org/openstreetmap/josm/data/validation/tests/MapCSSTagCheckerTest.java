@@ -3,11 +3,13 @@ package org.openstreetmap.josm.data.validation.tests;
 
 import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.assertTrue;
 
 import java.io.StringReader;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Iterator;
 import java.util.LinkedHashSet;
@@ -29,6 +31,7 @@ import org.openstreetmap.josm.data.osm.OsmUtils;
 import org.openstreetmap.josm.data.validation.Severity;
 import org.openstreetmap.josm.data.validation.TestError;
 import org.openstreetmap.josm.data.validation.tests.MapCSSTagChecker.TagCheck;
+import org.openstreetmap.josm.data.validation.tests.MapCSSTagChecker.TagCheckIndex;
 import org.openstreetmap.josm.gui.mappaint.mapcss.parsergen.ParseException;
 
 /**
@@ -140,4 +143,42 @@ public class MapCSSTagCheckerTest {
         }
         assertTrue("not all assertions included in the tests are met", assertionErrors.isEmpty());
     }
+
+    private static List<String> getMessages(Collection<TestError> errors) {
+        List<String> result = new ArrayList<>(errors.size());
+        for (TestError error : errors) {
+            result.add(error.getSeverity() + " " + error.getMessage());
+        }
+        return result;
+    }
+
+    /**
+     * Checks that the indexed checks give the same errors as the evaluation of all checks.
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void testTagCheckIndex() throws Exception {
+        final MapCSSTagChecker test = buildTagChecker("" +
+                "node[amenity=restaurant][!name] { throwWarning: \"restaurant\"; }\n" +
+                "way[highway] { set highway; }\n" +
+                "way.highway[!ref][highway=motorway] { throwError: \"motorway\"; }\n" +
+                "*[/^addr:/][!building][!amenity] { throwOther: \"address\"; }\n" +
+                "*[name!~/^[A-Z]/][name] { throwWarning: \"lower case name\"; }\n" +
+                "*[!highway][foot=yes] { throwWarning: \"foot\"; }\n" +
+                "relation[type=multipolygon] > way { throwOther: \"member\"; }");
+        final TagCheckIndex index = new TagCheckIndex(test.checks.values());
+        for (String s : new String[] {
+                "node amenity=restaurant",
+                "node amenity=restaurant name=Foo",
+                "node addr:street=Foo",
+                "node addr:street=Foo amenity=cafe name=bar",
+                "way highway=motorway",
+                "way highway=motorway ref=A1 foot=yes",
+                "way foot=yes name=foo",
+                "relation type=multipolygon"}) {
+            final OsmPrimitive p = OsmUtils.createPrimitive(s);
+            assertEquals(s, getMessages(test.getErrorsForPrimitive(p, true)),
+                    getMessages(MapCSSTagChecker.getErrorsForPrimitive(p, true, index)));
+        }
+    }
 }
@@ -0,0 +1,245 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.io;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.openstreetmap.josm.JOSMFixture;
+import org.openstreetmap.josm.TestUtils;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.Node;
+import org.openstreetmap.josm.data.osm.OsmPrimitive;
+import org.openstreetmap.josm.data.osm.OsmPrimitiveType;
+import org.openstreetmap.josm.data.osm.RelationMember;
+
+/**
+ * Unit tests of {@link OsmReader} class.
+ */
+public class OsmReaderTest {
+
+    private static ExecutorService threadPool;
+
+    /**
+     * Setup test.
+     */
+    @BeforeClass
+    public static void init() {
+        JOSMFixture.createUnitTestFixture().init();
+        threadPool = Executors.newFixedThreadPool(4);
+    }
+
+    /**
+     * Cleanup test.
+     */
+    @AfterClass
+    public static void shutdown() {
+        threadPool.shutdown();
+    }
+
+    private static DataSet parse(byte[] content, ExecutorService pool) throws IllegalDataException {
+        OsmReader reader = new OsmReader();
+        reader.threadPool = pool;
+        return reader.doParseDataSet(new ByteArrayInputStream(content), null);
+    }
+
+    private static String parseError(byte[] content, ExecutorService pool) {
+        try {
+            parse(content, pool);
+        } catch (IllegalDataException e) {
+            return e.getMessage();
+        }
+        return null;
+    }
+
+    /**
+     * Returns a textual description of all primitives of the dataset. Internal ids of new primitives are
+     * replaced by their rank, which only depends on the order in which they have been created.
+     */
+    private static List<String> describe(DataSet ds) {
+        List<OsmPrimitive> primitives = new ArrayList<>(ds.allPrimitives());
+        Collections.sort(primitives, new Comparator<OsmPrimitive>() {
+            @Override
+            public int compare(OsmPrimitive o1, OsmPrimitive o2) {
+                int c = o1.getType().compareTo(o2.getType());
+                return c != 0 ? c : Long.compare(o1.getUniqueId(), o2.getUniqueId());
+            }
+        });
+        Map<OsmPrimitive, String> names = new HashMap<>();
+        for (OsmPrimitive p : primitives) {
+            names.put(p, p.isNew() ? p.getType().getAPIName() + " new #" + names.size() : p.getPrimitiveId().toString());
+        }
+        List<String> result = new ArrayList<>();
+        for (OsmPrimitive p : primitives) {
+            StringBuilder sb = new StringBuilder(names.get(p));
+            sb.append(" v").append(p.getVersion())
+              .append(" deleted=").append(p.isDeleted())
+              .append(" modified=").append(p.isModified())
+              .append(" visible=").append(p.isVisible())
+              .append(" incomplete=").append(p.isIncomplete())
+              .append(" user=").append(p.getUser())
+              .append(" changeset=").append(p.getChangesetId())
+              .append(" timestamp=").append(p.getRawTimestamp())
+              .append(" tags=").append(new TreeMap<>(p.getKeys()));
+            if (p instanceof Node) {
+                sb.append(" coor=").append(((Node) p).getCoor());
+            } else if (p.getType() == OsmPrimitiveType.WAY) {
+                sb.append(" nodes=");
+                for (Node n : ((org.openstreetmap.josm.data.osm.Way) p).getNodes()) {
+                    sb.append(names.get(n)).append(',');
+                }
+            } else {
+                sb.append(" members=");
+                for (RelationMember m : ((org.openstreetmap.josm.data.osm.Relation) p).getMembers()) {
+                    sb.append(m.getRole()).append('=').append(names.get(m.getMember())).append(',');
+                }
+            }
+            result.add(sb.toString());
+        }
+        return result;
+    }
+
+    private static void assertSameResult(String name, byte[] content) throws IllegalDataException {
+        String sequentialError = parseError(content, null);
+        String parallelError = parseError(content, threadPool);
+        assertEquals(name, sequentialError, parallelError);
+        if (sequentialError == null) {
+            assertEquals(name, describe(parse(content, null)), describe(parse(content, threadPool)));
+        }
+    }
+
+    private static void collectOsmFiles(File dir, List<File> files) {
+        File[] children = dir.listFiles();
+        if (children != null) {
+            for (File f : children) {
+                if (f.isDirectory()) {
+                    collectOsmFiles(f, files);
+                } else if (f.getName().endsWith(".osm")) {
+                    files.add(f);
+                }
+            }
+        }
+    }
+
+    private static byte[] read(File file) throws IOException {
+        try (InputStream in = new FileInputStream(file)) {
+            byte[] content = new byte[(int) file.length()];
+            int offset = 0;
+            while (offset < content.length) {
+                int read = in.read(content, offset, content.length - offset);
+                if (read < 0) {
+                    break;
+                }
+                offset += read;
+            }
+            return content;
+        }
+    }
+
+    /**
+     * Checks that the parallel parser produces the same data as the sequential one for all test files.
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void testParallelParsingOfTestData() throws Exception {
+        List<File> files = new ArrayList<>();
+        collectOsmFiles(new File(TestUtils.getTestDataRoot()), files);
+        collectOsmFiles(new File("data_nodist"), files);
+        assertFalse(files.isEmpty());
+        for (File f : files) {
+            assertSameResult(f.getPath(), read(f));
+        }
+    }
+
+    private static String generate(int wayCount, String brokenElement) {
+        StringBuilder sb = new StringBuilder("<?xml version='1.0' encoding='UTF-8'?>\n<osm version='0.6' generator='test'>\n");
+        for (int i = 1; i <= 4 * wayCount; i++) {
+            // every tenth node is new, the others are read from the server
+            long id = i % 10 == 0 ? -i : i;
+            sb.append("<node id='").append(id).append("' ").append(id > 0 ? "version='2' changeset='3' user='u' uid='4' " : "")
+              .append("timestamp='2015-08-17T10:00:00Z' lat='").append(i / 100000.0).append("' lon='1.5'");
+            if (i % 7 == 0) {
+                sb.append("><tag k='name' v='n").append(i).append("'/><tag k='amenity' v='bench'/></node>\n");
+            } else {
+                sb.append("/>\n");
+            }
+        }
+        for (int i = 1; i <= wayCount; i++) {
+            sb.append("<way id='").append(i).append("' version='1' changeset='3'")
+              .append(i % 13 == 0 ? " action='delete'" : "").append(">");
+            for (int j = 4 * i - 3; j <= 4 * i + 1; j++) {
+                // the last node of the last way is missing, thus incomplete
+                sb.append("<nd ref='").append(j % 10 == 0 ? -j : j).append("'/>");
+            }
+            sb.append("<tag k='highway' v='residential'/></way>\n");
+            if (i == wayCount / 2 && brokenElement != null) {
+                sb.append(brokenElement).append('\n');
+            }
+        }
+        for (int i = 1; i <= wayCount / 10; i++) {
+            sb.append("<relation id='-").append(i).append("' action='modify'>")
+              .append("<member type='way' ref='").append(10 * i).append("' role='outer'/>")
+              .append("<member type='node' ref='").append(4 * wayCount + i).append("' role=''/>")
+              .append("<member type='relation' ref='").append(i > 1 ? -(i - 1) : 99).append("' role='sub'/>")
+              .append("<tag k='type' v='multipolygon'/></relation>\n");
+        }
+        return sb.append("</osm>\n").toString();
+    }
+
+    /**
+     * Checks that the parallel parser produces the same data as the sequential one for a document large enough to be
+     * split into many batches, and with enough references to be resolved in parallel.
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void testParallelParsingOfLargeData() throws Exception {
+        byte[] content = generate(30000, null).getBytes(StandardCharsets.UTF_8);
+        assertSameResult("generated", content);
+        DataSet ds = parse(content, threadPool);
+        assertEquals(30000, ds.getWays().size());
+        assertEquals(3000 + 1, ds.getRelations().size());
+    }
+
+    /**
+     * Checks that the parallel parser reports the same error as the sequential one.
+     */
+    @Test
+    public void testParallelParsingErrors() {
+        String[] brokenElements = {
+            "<node id='0' version='1' changeset='1' lat='0' lon='0'/>",
+            "<node id='123456789' lat='0' lon='0'/>",
+            "<node id='123456789' version='1' changeset='1' lat='x' lon='0'/>",
+            "<node id='123456789' version='1' changeset='1' uid='x' user='foo' lat='0' lon='0'/>",
+            "<way id='123456789' version='1' changeset='1'><nd/></way>",
+            "<way id='123456789' version='x' changeset='1'><nd/></way>",
+            "<relation id='123456789' version='1' changeset='1'><member ref='1' type='foo'/></relation>",
+            "<node id='123456789' version='1' changeset='1' lat='0' lon='0'><tag k='a'/></node>",
+            "<bounds minlat='0'/>",
+        };
+        for (String brokenElement : brokenElements) {
+            byte[] content = generate(10000, brokenElement).getBytes(StandardCharsets.UTF_8);
+            String error = parseError(content, null);
+            assertNotNull(brokenElement, error);
+            assertEquals(brokenElement, error, parseError(content, threadPool));
+        }
+    }
+}
@@ -0,0 +1,233 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.io;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.Deflater;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.openstreetmap.josm.JOSMFixture;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.Node;
+import org.openstreetmap.josm.data.osm.OsmPrimitiveType;
+import org.openstreetmap.josm.data.osm.Relation;
+import org.openstreetmap.josm.data.osm.Way;
+
+/**
+ * Unit tests of {@link PbfReader} class.
+ */
+public class PbfReaderTest {
+
+    /**
+     * Setup test.
+     */
+    @BeforeClass
+    public static void init() {
+        JOSMFixture.createUnitTestFixture().init();
+    }
+
+    /**
+     * Minimal protocol buffer encoder.
+     */
+    private static final class ProtoWriter {
+        private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        ProtoWriter varint(long value) {
+            while ((value & ~0x7fL) != 0) {
+                out.write((int) (value & 0x7f) | 0x80);
+                value >>>= 7;
+            }
+            out.write((int) value);
+            return this;
+        }
+
+        ProtoWriter int64(int field, long value) {
+            return varint(field << 3).varint(value);
+        }
+
+        ProtoWriter sint64(int field, long value) {
+            return int64(field, (value << 1) ^ (value >> 63));
+        }
+
+        ProtoWriter bytes(int field, byte[] value) {
+            varint(field << 3 | 2).varint(value.length);
+            out.write(value, 0, value.length);
+            return this;
+        }
+
+        ProtoWriter string(int field, String value) {
+            return bytes(field, value.getBytes(StandardCharsets.UTF_8));
+        }
+
+        ProtoWriter message(int field, ProtoWriter message) {
+            return bytes(field, message.toByteArray());
+        }
+
+        ProtoWriter packed(int field, boolean delta, long... values) {
+            ProtoWriter packed = new ProtoWriter();
+            long last = 0;
+            for (long v : values) {
+                packed.varint(delta ? ((v - last) << 1) ^ ((v - last) >> 63) : v);
+                last = v;
+            }
+            return message(field, packed);
+        }
+
+        byte[] toByteArray() {
+            return out.toByteArray();
+        }
+    }
+
+    private static void writeBlob(DataOutputStream out, String type, ProtoWriter block) throws IOException {
+        byte[] raw = block.toByteArray();
+        Deflater deflater = new Deflater();
+        deflater.setInput(raw);
+        deflater.finish();
+        byte[] buffer = new byte[raw.length + 64];
+        int length = deflater.deflate(buffer);
+        deflater.end();
+        byte[] blob = new ProtoWriter().int64(2, raw.length).bytes(3, Arrays.copyOf(buffer, length)).toByteArray();
+        byte[] header = new ProtoWriter().string(1, type).int64(3, blob.length).toByteArray();
+        out.writeInt(header.length);
+        out.write(header);
+        out.write(blob);
+    }
+
+    private static final List<String> STRINGS = Arrays.asList(
+            "", "name", "Foo", "highway", "residential", "outer", "type", "multipolygon", "user1");
+
+    private static ProtoWriter stringTable() {
+        ProtoWriter table = new ProtoWriter();
+        for (String s : STRINGS) {
+            table.string(1, s);
+        }
+        return table;
+    }
+
+    private static byte[] createPbf(String feature) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            ProtoWriter bbox = new ProtoWriter().sint64(1, 1000000000L).sint64(2, 2000000000L)
+                    .sint64(3, 49000000000L).sint64(4, 48000000000L);
+            writeBlob(out, "OSMHeader", new ProtoWriter().message(1, bbox)
+                    .string(4, "OsmSchema-V0.6").string(4, feature).string(16, "test"));
+
+            // dense nodes 1 to 3, the second one is tagged, and a node 4 with lat/lon offsets
+            ProtoWriter denseInfo = new ProtoWriter()
+                    .packed(1, false, 1, 2, 3)
+                    .packed(2, true, 1439805600, 1439805600, 1439805660)
+                    .packed(3, true, 100, 100, 101)
+                    .packed(4, true, 42, 42, 42)
+                    .packed(5, true, 8, 8, 8);
+            ProtoWriter dense = new ProtoWriter()
+                    .packed(1, true, 1, 2, 3)
+                    .message(5, denseInfo)
+                    .packed(8, true, 5000000, 5100000, 5200000)
+                    .packed(9, true, 5000000, 5100000, 5200000)
+                    .packed(10, false, 0, 1, 2, 0, 0);
+            ProtoWriter node = new ProtoWriter().sint64(1, 4).message(4, new ProtoWriter().int64(1, 5))
+                    .sint64(8, 1).sint64(9, 2);
+            writeBlob(out, "OSMData", new ProtoWriter().message(1, stringTable())
+                    .message(2, new ProtoWriter().message(2, dense).message(1, node))
+                    .int64(17, 100).int64(19, 48000000000L).int64(20, 1000000000L));
+
+            // way 10 with a missing node, relation 20 with way and node members
+            ProtoWriter way = new ProtoWriter().int64(1, 10).packed(2, false, 3).packed(3, false, 4)
+                    .message(4, new ProtoWriter().int64(1, 2)).packed(8, true, 1, 2, 3, 5);
+            ProtoWriter relation = new ProtoWriter().int64(1, 20).packed(2, false, 6).packed(3, false, 7)
+                    .message(4, new ProtoWriter().int64(1, 1))
+                    .packed(8, false, 5, 0).packed(9, true, 10, 4).packed(10, false, 1, 0);
+            writeBlob(out, "OSMData", new ProtoWriter().message(1, stringTable())
+                    .message(2, new ProtoWriter().message(3, way))
+                    .message(2, new ProtoWriter().message(4, relation)));
+        }
+        return bytes.toByteArray();
+    }
+
+    private static DataSet parse(byte[] content, ExecutorService pool) throws IllegalDataException {
+        PbfReader reader = new PbfReader();
+        reader.threadPool = pool;
+        return reader.doParseDataSet(new ByteArrayInputStream(content), null);
+    }
+
+    private static void assertCoor(double lat, double lon, Node n) {
+        assertEquals(lat, n.getCoor().lat(), 1e-9);
+        assertEquals(lon, n.getCoor().lon(), 1e-9);
+    }
+
+    private static void checkDataSet(DataSet ds) {
+        assertEquals(1, ds.dataSources.size());
+        assertEquals(48, ds.dataSources.iterator().next().bounds.getMinLat(), 1e-9);
+        assertEquals(2, ds.dataSources.iterator().next().bounds.getMaxLon(), 1e-9);
+
+        Node n1 = (Node) ds.getPrimitiveById(1, OsmPrimitiveType.NODE);
+        Node n2 = (Node) ds.getPrimitiveById(2, OsmPrimitiveType.NODE);
+        assertCoor(48.5, 1.5, n1);
+        assertCoor(48.51, 1.51, n2);
+        assertEquals("Foo", n2.get("name"));
+        assertFalse(n1.hasKeys());
+        assertEquals(2, n2.getVersion());
+        assertEquals(100, n2.getChangesetId());
+        assertEquals(1439805600, n2.getRawTimestamp());
+        assertEquals(42, n2.getUser().getId());
+        assertEquals("user1", n2.getUser().getName());
+
+        Node n4 = (Node) ds.getPrimitiveById(4, OsmPrimitiveType.NODE);
+        assertCoor(48.0000001, 1.0000002, n4);
+        assertEquals(5, n4.getVersion());
+
+        Way w = (Way) ds.getPrimitiveById(10, OsmPrimitiveType.WAY);
+        assertEquals("residential", w.get("highway"));
+        assertEquals(4, w.getNodesCount());
+        assertEquals(n1, w.getNode(0));
+        assertTrue(w.getNode(3).isIncomplete());
+        assertEquals(5, w.getNode(3).getId());
+
+        Relation r = (Relation) ds.getPrimitiveById(20, OsmPrimitiveType.RELATION);
+        assertEquals("multipolygon", r.get("type"));
+        assertEquals(2, r.getMembersCount());
+        assertEquals("outer", r.getMember(0).getRole());
+        assertEquals(w, r.getMember(0).getMember());
+        assertEquals(n4, r.getMember(1).getMember());
+        assertFalse(ds.isUploadDiscouraged());
+    }
+
+    /**
+     * Reads a small file, sequentially and in parallel.
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void testRead() throws Exception {
+        byte[] content = createPbf("DenseNodes");
+        checkDataSet(parse(content, null));
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        try {
+            checkDataSet(parse(content, pool));
+        } finally {
+            pool.shutdown();
+        }
+        assertNotNull(PbfReader.parseDataSet(new ByteArrayInputStream(content), null));
+    }
+
+    /**
+     * Checks that files requiring unknown features are rejected.
+     * @throws IOException if an error occurs
+     */
+    @Test(expected = IllegalDataException.class)
+    public void testUnsupportedFeature() throws IOException, IllegalDataException {
+        parse(createPbf("Sort.Type_then_ID_and_more"), null);
+    }
+}
@@ -2,13 +2,31 @@
 package org.openstreetmap.josm.tools;
 
 import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
 
+import java.awt.Dimension;
 import java.awt.Transparency;
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
+import javax.swing.ImageIcon;
+
+import org.junit.BeforeClass;
 import org.junit.Test;
+import org.openstreetmap.josm.JOSMFixture;
+import org.openstreetmap.josm.Main;
 import org.openstreetmap.josm.TestUtils;
 
 /**
@@ -16,6 +34,14 @@ import org.openstreetmap.josm.TestUtils;
  */
 public class ImageProviderTest {
 
+    /**
+     * Setup test.
+     */
+    @BeforeClass
+    public static void setUp() {
+        JOSMFixture.createUnitTestFixture().init();
+    }
+
     /**
      * Non-regression test for ticket <a href="https://josm.openstreetmap.de/ticket/9984">#9984</a>
      * @throws IOException if an error occurs during reading
@@ -38,4 +64,81 @@ public class ImageProviderTest {
         File file = new File(TestUtils.getRegressionDataFile(10030, "tile.jpg"));
         ImageProvider.read(file, true, true);
     }
+
+    /**
+     * Checks that an icon requested by several threads at the same time is loaded once.
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void testConcurrentLoading() throws Exception {
+        List<Callable<ImageResource>> tasks = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            tasks.add(new Callable<ImageResource>() {
+                @Override
+                public ImageResource call() {
+                    return new ImageProvider("oauth", "oauth").getResource();
+                }
+            });
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<ImageResource>> results = executor.invokeAll(tasks);
+            ImageResource first = results.get(0).get();
+            assertNotNull(first);
+            for (Future<ImageResource> result : results) {
+                assertSame(first, result.get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Checks that rendered SVG images are written to the disk cache, and read from it.
+     */
+    @Test
+    public void testSvgDiskCache() {
+        ImageResource.PROP_SVG_DISK_CACHE.put(true);
+        // a name not used before, so that the image is not already in the disk cache
+        String name = "test:" + System.nanoTime();
+        File file = new File(Main.pref.getCacheDirectory(), "images/svg/" + Utils.md5Hex(name + ":37x-1") + ".png");
+        try {
+            ImageResource ir = new ImageResource(new ImageProvider("oauth", "oauth-logo").getResource(), null);
+            ir.setDiskCacheName(name);
+            ImageVariantCache.getInstance().clear();
+            ImageIcon rendered = ir.getImageIcon(new Dimension(37, -1));
+            assertTrue(file.isFile());
+            ImageVariantCache.getInstance().clear();
+            ImageIcon read = ir.getImageIcon(new Dimension(37, -1));
+            assertEquals(37, read.getIconWidth());
+            assertEquals(rendered.getIconHeight(), read.getIconHeight());
+        } finally {
+            Main.pref.put(ImageResource.PROP_SVG_DISK_CACHE.getKey(), null);
+            file.delete();
+        }
+    }
+
+    /**
+     * Test that the files of the SVG disk cache not used any longer are deleted.
+     * @throws IOException if a file cannot be created
+     */
+    @Test
+    public void testSvgDiskCacheCleanup() throws IOException {
+        File dir = Files.createTempDirectory("svg").toFile();
+        File unused = new File(dir, "unused.png");
+        File used = new File(dir, "used.png");
+        try {
+            assertTrue(unused.createNewFile());
+            assertTrue(used.createNewFile());
+            long now = System.currentTimeMillis();
+            assertTrue(unused.setLastModified(now - 100000));
+            ImageResource.deleteUnusedFiles(dir, now - 50000);
+            assertFalse(unused.exists());
+            assertTrue(used.isFile());
+        } finally {
+            used.delete();
+            unused.delete();
+            dir.delete();
+        }
+    }
 }
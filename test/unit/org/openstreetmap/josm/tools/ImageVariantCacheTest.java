@@ -0,0 +1,75 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.tools;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.awt.Dimension;
+import java.awt.Image;
+import java.awt.image.BufferedImage;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.openstreetmap.josm.JOSMFixture;
+
+/**
+ * Unit tests of {@link ImageVariantCache} class.
+ */
+public class ImageVariantCacheTest {
+
+    /**
+     * Setup test.
+     */
+    @BeforeClass
+    public static void setUp() {
+        JOSMFixture.createUnitTestFixture().init();
+    }
+
+    /**
+     * Checks that the least recently used variants are dropped when the cache is full.
+     */
+    @Test
+    public void testEviction() {
+        // 4 images of 64 x 64 pixels, 16 kB each
+        ImageVariantCache cache = new ImageVariantCache(64 * 1024);
+        Object source = new Object();
+        BufferedImage[] images = new BufferedImage[5];
+        for (int i = 0; i < 4; i++) {
+            images[i] = new BufferedImage(64, 64, BufferedImage.TYPE_INT_ARGB);
+            cache.put(source, new Dimension(i + 1, -1), images[i]);
+        }
+        assertEquals(64 * 1024, cache.getSize());
+        // use the first image, the second one becomes the least recently used
+        assertSame(images[0], cache.get(source, new Dimension(1, -1)));
+        images[4] = new BufferedImage(64, 64, BufferedImage.TYPE_INT_ARGB);
+        cache.put(source, new Dimension(5, -1), images[4]);
+        assertEquals(64 * 1024, cache.getSize());
+        assertNull(cache.get(source, new Dimension(2, -1)));
+        assertSame(images[0], cache.get(source, new Dimension(1, -1)));
+        assertSame(images[4], cache.get(source, new Dimension(5, -1)));
+        // the source is compared by identity
+        assertNull(cache.get(new Object(), new Dimension(1, -1)));
+
+        // too large to be cached
+        cache.put(source, new Dimension(6, -1), new BufferedImage(256, 256, BufferedImage.TYPE_INT_ARGB));
+        assertNull(cache.get(source, new Dimension(6, -1)));
+        assertEquals(64 * 1024, cache.getSize());
+    }
+
+    /**
+     * Checks that rotated images are cached, and computed again when they have been dropped.
+     */
+    @Test
+    public void testRotatedImages() {
+        BufferedImage img = new BufferedImage(20, 10, BufferedImage.TYPE_INT_ARGB);
+        Image rotated = ImageProvider.createRotatedImage(img, 90);
+        assertEquals(10, rotated.getWidth(null));
+        assertEquals(20, rotated.getHeight(null));
+        assertSame(rotated, ImageProvider.createRotatedImage(img, 90));
+        ImageVariantCache.getInstance().clear();
+        Image again = ImageProvider.createRotatedImage(img, 90);
+        assertEquals(10, again.getWidth(null));
+        assertEquals(20, again.getHeight(null));
+    }
+}
@@ -0,0 +1,184 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.tools;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import javax.json.Json;
+import javax.json.JsonArray;
+import javax.json.JsonObject;
+import javax.json.JsonReader;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit tests of {@link TaskGraph} class.
+ */
+public class TaskGraphTest {
+
+    private ExecutorService executor;
+    private List<String> done;
+
+    /**
+     * Creates the executor.
+     */
+    @Before
+    public void setUp() {
+        executor = Executors.newFixedThreadPool(4);
+        done = Collections.synchronizedList(new ArrayList<String>());
+    }
+
+    /**
+     * Shuts the executor down.
+     */
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    private Callable<Void> task(final String name) {
+        return new Callable<Void>() {
+            @Override
+            public Void call() {
+                done.add(name);
+                return null;
+            }
+        };
+    }
+
+    /**
+     * Checks that tasks start after their dependencies, and that the report contains all tasks.
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void testDependencies() throws Exception {
+        TimingReport report = new TimingReport();
+        TaskGraph graph = new TaskGraph(report);
+        graph.add("a", task("a"));
+        graph.add("b", task("b"), "a");
+        graph.add("c", task("c"));
+        graph.add("d", task("d"), "b", "c");
+        graph.run(executor);
+
+        assertEquals(4, done.size());
+        assertTrue(done.indexOf("a") < done.indexOf("b"));
+        assertTrue(done.indexOf("b") < done.indexOf("d"));
+        assertTrue(done.indexOf("c") < done.indexOf("d"));
+
+        assertEquals(4, report.getTimings().size());
+        try (JsonReader reader = Json.createReader(new StringReader(report.toString()))) {
+            JsonArray array = reader.readArray();
+            Set<String> names = new HashSet<>();
+            for (JsonObject timing : array.getValuesAs(JsonObject.class)) {
+                names.add(timing.getString("name"));
+                assertTrue(timing.getJsonNumber("end").longValue() >= timing.getJsonNumber("start").longValue());
+            }
+            assertEquals(new HashSet<>(done), names);
+        }
+    }
+
+    /**
+     * Checks that independent tasks run at the same time.
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void testParallel() throws Exception {
+        final CountDownLatch latch = new CountDownLatch(2);
+        Callable<Boolean> waiting = new Callable<Boolean>() {
+            @Override
+            public Boolean call() throws InterruptedException {
+                latch.countDown();
+                // both tasks are done only if they run at the same time
+                if (!latch.await(10, TimeUnit.SECONDS))
+                    throw new IllegalStateException("not run in parallel");
+                return true;
+            }
+        };
+        TaskGraph graph = new TaskGraph(null);
+        graph.add("a", waiting);
+        graph.add("b", waiting);
+        graph.add("c", task("c"), "a", "b");
+        graph.run(executor);
+        assertEquals(Collections.singletonList("c"), done);
+    }
+
+    /**
+     * Checks that the tasks depending on a failed task are not run, and that the failure is thrown.
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void testFailure() throws Exception {
+        TaskGraph graph = new TaskGraph(null);
+        graph.add("a", new Callable<Void>() {
+            @Override
+            public Void call() {
+                throw new IllegalStateException("failed");
+            }
+        });
+        graph.add("b", task("b"), "a");
+        graph.add("c", task("c"), "b");
+        try {
+            graph.run(executor);
+            fail("failure not thrown");
+        } catch (ExecutionException e) {
+            assertEquals("failed", e.getCause().getMessage());
+        }
+        assertFalse(done.contains("b"));
+        assertFalse(done.contains("c"));
+    }
+
+    /**
+     * Checks that a task rejected by the executor is reported as a failure instead of blocking the graph.
+     * @throws Exception if an error occurs
+     */
+    @Test(timeout = 10000)
+    public void testRejected() throws Exception {
+        TaskGraph graph = new TaskGraph(null);
+        graph.add("a", task("a"));
+        graph.add("b", task("b"), "a");
+        try {
+            graph.run(new Executor() {
+                private boolean first = true;
+
+                @Override
+                public synchronized void execute(Runnable command) {
+                    if (!first)
+                        throw new RejectedExecutionException("rejected");
+                    first = false;
+                    executor.execute(command);
+                }
+            });
+            fail("failure not thrown");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof RejectedExecutionException);
+        }
+        assertEquals(Collections.singletonList("a"), done);
+    }
+
+    /**
+     * Checks that a task cannot depend on an unknown task.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnknownDependency() {
+        new TaskGraph(null).add("a", task("a"), "b");
+    }
+}
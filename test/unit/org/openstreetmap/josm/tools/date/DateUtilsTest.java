@@ -17,4 +17,12 @@ public class DateUtilsTest {
     public void testNoteDate() throws Exception {
         assertThat(DateUtils.fromString("2014-11-29 22:08:50 UTC").getTime(), is(1417298930000L));
     }
+
+    @Test
+    public void testTimestampParser() throws Exception {
+        DateUtils.TimestampParser parser = new DateUtils.TimestampParser();
+        assertThat(parser.tsFromString("2012-08-13T15:10:37Z"), is(1344870637000L));
+        assertThat(parser.tsFromString("2014-11-29 22:08:50 UTC"), is(1417298930000L));
+        assertThat(parser.tsFromString("2012-08-13T17:10:37.500+02:00"), is(1344870637500L));
+    }
 }